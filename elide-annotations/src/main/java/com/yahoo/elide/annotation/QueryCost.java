@@ -0,0 +1,28 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.annotation;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the cost of reading one instance of an entity when estimating the cost of a GraphQL query.
+ */
+@Target({TYPE})
+@Retention(RUNTIME)
+@Inherited
+public @interface QueryCost {
+
+    /**
+     * The cost of each instance of the entity which a query may read.
+     * @return the weight
+     */
+    int weight() default 1;
+}
@@ -8,18 +8,25 @@ package com.yahoo.elide;
 import com.yahoo.elide.audit.AuditLogger;
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.LifecycleEventBus;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.core.filter.dialect.JoinFilterDialect;
 import com.yahoo.elide.core.filter.dialect.SubqueryFilterDialect;
 import com.yahoo.elide.jsonapi.JsonApiMapper;
 import com.yahoo.elide.security.PermissionExecutor;
+import com.yahoo.elide.security.User;
 import com.yahoo.elide.utils.coerce.converters.Serde;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 /**
@@ -41,4 +48,56 @@ public class ElideSettings {
     @Getter private final boolean returnErrorObjects;
     @Getter private final Map<Class, Serde> serdes;
     @Getter private final boolean encodeErrorResponses;
+
+    /**
+     * Minimum number of loaded records filtered in parallel by the in memory store.  Zero disables parallel filtering.
+     */
+    @Getter private final int parallelFilterThreshold;
+    @Getter private final ForkJoinPool parallelFilterPool;
+
+    /**
+     * Parsed and validated GraphQL documents by query text.  Null when the cache is disabled.
+     */
+    @Getter private final Cache<String, Object> graphQLDocumentCache;
+
+    /**
+     * Query text of automatic persisted GraphQL queries by SHA-256 hash.  Null when persisted queries are disabled.
+     */
+    @Getter private final Cache<String, String> graphQLPersistedQueries;
+
+    /**
+     * Runs the queries of a GraphQL batch concurrently, each in its own transaction.  Null runs them one by one.
+     */
+    @Getter private final ExecutorService graphQLBatchExecutor;
+
+    /**
+     * Whether the queries of a GraphQL batch share a single read transaction.
+     */
+    @Getter private final boolean graphQLBatchSharedTransaction;
+
+    /**
+     * Maximum estimated cost of a GraphQL query by user.  Null (or a null budget) leaves queries unlimited.
+     */
+    @Getter private final Function<User, Long> graphQLQueryCostBudget;
+
+    /**
+     * Runs GraphQL requests off the container thread which received them.  Null runs them on that thread.
+     */
+    @Getter private final ExecutorService graphQLRequestExecutor;
+
+    /**
+     * Receives the create, update and delete events of committed requests, which feed GraphQL subscriptions.
+     * Null when events are not published.
+     */
+    @Getter private final LifecycleEventBus lifecycleEventBus;
+
+    /**
+     * Returns the hit and miss counts of the GraphQL document cache.
+     * @return the statistics, all zero when the cache is disabled
+     */
+    public CacheStats getGraphQLDocumentCacheStats() {
+        return graphQLDocumentCache == null
+                ? new CacheStats(0, 0, 0, 0, 0, 0)
+                : graphQLDocumentCache.stats();
+    }
 }
@@ -10,6 +10,7 @@ import com.yahoo.elide.audit.Slf4jLogger;
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.LifecycleEventBus;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.core.filter.dialect.DefaultFilterDialect;
 import com.yahoo.elide.core.filter.dialect.JoinFilterDialect;
@@ -18,11 +19,16 @@ import com.yahoo.elide.core.filter.dialect.SubqueryFilterDialect;
 import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.jsonapi.JsonApiMapper;
 import com.yahoo.elide.security.PermissionExecutor;
+import com.yahoo.elide.security.User;
 import com.yahoo.elide.security.executors.ActivePermissionExecutor;
 import com.yahoo.elide.utils.coerce.converters.EpochToDateConverter;
 import com.yahoo.elide.utils.coerce.converters.ISO8601DateSerde;
 import com.yahoo.elide.utils.coerce.converters.Serde;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -31,12 +37,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 /**
  * Builder for ElideSettings.
  */
 public class ElideSettingsBuilder {
+    public static final long DEFAULT_GRAPHQL_DOCUMENT_CACHE_SIZE = 1000;
+
     private final DataStore dataStore;
     private AuditLogger auditLogger;
     private JsonApiMapper jsonApiMapper;
@@ -51,6 +61,15 @@ public class ElideSettingsBuilder {
     private int updateStatusCode;
     private boolean returnErrorObjects;
     private boolean encodeErrorResponses;
+    private int parallelFilterThreshold;
+    private ForkJoinPool parallelFilterPool;
+    private long graphQLDocumentCacheSize = DEFAULT_GRAPHQL_DOCUMENT_CACHE_SIZE;
+    private boolean graphQLPersistedQueries = true;
+    private ExecutorService graphQLBatchExecutor;
+    private boolean graphQLBatchSharedTransaction;
+    private Function<User, Long> graphQLQueryCostBudget;
+    private ExecutorService graphQLRequestExecutor;
+    private LifecycleEventBus lifecycleEventBus;
 
     /**
      * A new builder used to generate Elide instances. Instantiates an {@link EntityDictionary} without
@@ -82,6 +101,20 @@ public class ElideSettingsBuilder {
             subqueryFilterDialects.add(new RSQLFilterDialect(entityDictionary));
         }
 
+        Cache<String, Object> graphQLDocumentCache = null;
+        Cache<String, String> graphQLPersistedQueryCache = null;
+        if (graphQLDocumentCacheSize > 0) {
+            graphQLDocumentCache = CacheBuilder.newBuilder()
+                    .maximumSize(graphQLDocumentCacheSize)
+                    .recordStats()
+                    .build();
+            if (graphQLPersistedQueries) {
+                graphQLPersistedQueryCache = CacheBuilder.newBuilder()
+                        .maximumSize(graphQLDocumentCacheSize)
+                        .build();
+            }
+        }
+
         return new ElideSettings(
                 auditLogger,
                 dataStore,
@@ -96,7 +129,16 @@ public class ElideSettingsBuilder {
                 updateStatusCode,
                 returnErrorObjects,
                 serdes,
-                encodeErrorResponses);
+                encodeErrorResponses,
+                parallelFilterThreshold,
+                parallelFilterPool,
+                graphQLDocumentCache,
+                graphQLPersistedQueryCache,
+                graphQLBatchExecutor,
+                graphQLBatchSharedTransaction,
+                graphQLQueryCostBudget,
+                graphQLRequestExecutor,
+                lifecycleEventBus);
     }
 
     public ElideSettingsBuilder withAuditLogger(AuditLogger auditLogger) {
@@ -201,4 +243,116 @@ public class ElideSettingsBuilder {
         this.encodeErrorResponses = encodeErrorResponses;
         return this;
     }
+
+    /**
+     * Filter loaded records in parallel on a dedicated pool when a data store cannot filter them itself.
+     *
+     * @param threshold minimum number of records filtered in parallel
+     * @param pool pool running the filter, which remains owned (and is shut down) by the caller
+     * @return the builder
+     */
+    public ElideSettingsBuilder withParallelInMemoryFiltering(int threshold, ForkJoinPool pool) {
+        this.parallelFilterThreshold = threshold;
+        this.parallelFilterPool = pool;
+        return this;
+    }
+
+    /**
+     * Bound the number of parsed and validated GraphQL documents kept between requests.  Zero disables the cache
+     * and persisted queries, so every request parses and validates its query again.
+     *
+     * @param maximumSize maximum number of cached documents (and of persisted queries)
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLDocumentCacheSize(long maximumSize) {
+        Preconditions.checkArgument(maximumSize >= 0, "Maximum cache size must not be negative");
+        this.graphQLDocumentCacheSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Accept automatic persisted GraphQL queries, which are sent as the SHA-256 hash of a query registered by an
+     * earlier request instead of the query text.
+     *
+     * @param graphQLPersistedQueries whether persisted queries are accepted
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLPersistedQueries(boolean graphQLPersistedQueries) {
+        this.graphQLPersistedQueries = graphQLPersistedQueries;
+        return this;
+    }
+
+    /**
+     * Run the queries of a GraphQL batch concurrently on the given executor, each in its own transaction.  Batches
+     * holding a mutation still run one operation after the other.
+     *
+     * @param executor executor running the queries, which bounds their concurrency
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLBatchExecutor(ExecutorService executor) {
+        this.graphQLBatchExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Run the queries of a GraphQL batch one after the other in a single read transaction.  This takes precedence
+     * over a batch executor.  Batches holding a mutation still run each operation in its own transaction.
+     *
+     * @param sharedTransaction whether the queries of a batch share a transaction
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLBatchSharedTransaction(boolean sharedTransaction) {
+        this.graphQLBatchSharedTransaction = sharedTransaction;
+        return this;
+    }
+
+    /**
+     * Reject GraphQL queries whose estimated cost exceeds the same budget for every user.  The cost of accepted
+     * queries is reported in the {@code extensions} of their response.
+     *
+     * @param budget maximum cost of a query
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLQueryCostBudget(long budget) {
+        Preconditions.checkArgument(budget >= 0, "Query cost budget must not be negative");
+        return withGraphQLQueryCostBudget(user -> budget);
+    }
+
+    /**
+     * Reject GraphQL queries whose estimated cost exceeds the budget of the user who issued them.  The cost of
+     * accepted queries is reported in the {@code extensions} of their response.
+     *
+     * @param budget maximum cost of a query by user, null when a user is unlimited
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLQueryCostBudget(Function<User, Long> budget) {
+        this.graphQLQueryCostBudget = budget;
+        return this;
+    }
+
+    /**
+     * Run GraphQL requests on the given executor, so the container thread which received a request is released
+     * while it runs.  Each request keeps a single executor thread until it completes, so the executor should be
+     * sized for the blocking calls of the data store (or create a thread per request).  It should not be the batch
+     * executor, whose operations the request waits for.
+     *
+     * @param executor executor running the requests
+     * @return the builder
+     */
+    public ElideSettingsBuilder withGraphQLRequestExecutor(ExecutorService executor) {
+        this.graphQLRequestExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Publish the create, update and delete events of every committed request to the given bus, so clients can
+     * subscribe to changes (for instance through GraphQL subscriptions) instead of polling for them.
+     *
+     * @param eventBus bus receiving the events
+     * @return the builder
+     */
+    public ElideSettingsBuilder withLifecycleEventBus(LifecycleEventBus eventBus) {
+        this.lifecycleEventBus = eventBus;
+        return this;
+    }
 }
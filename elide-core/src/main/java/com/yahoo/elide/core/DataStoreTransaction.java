@@ -14,7 +14,9 @@ import com.yahoo.elide.security.User;
 
 import java.io.Closeable;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -189,6 +191,27 @@ public interface DataStoreTransaction extends Closeable {
         return PersistentResource.getValue(entity, relationName, scope);
     }
 
+    /**
+     * Counts the members of a to-many relation of several objects at once, so that the page totals of the relation
+     * do not take one query per object.
+     *
+     * @param relationTx - The datastore that governs objects of the relationhip's type.
+     * @param entities - The objects which own the relationship.  They share the same type.
+     * @param relationName - name of the relationship.
+     * @param filterExpression - filtering of the members to count.
+     * @param scope - contains request level metadata.
+     * @return the number of members by object id, or null if the store cannot count them together.  Objects
+     * without members may be missing.
+     */
+    default Map<String, Long> getRelationTotals(
+            DataStoreTransaction relationTx,
+            Collection<?> entities,
+            String relationName,
+            Optional<FilterExpression> filterExpression,
+            RequestScope scope) {
+        return null;
+    }
+
 
     /**
      * Elide core will update the in memory representation of the objects to the requested state.
@@ -1389,7 +1389,7 @@ public class EntityDictionary {
      * @param e Exception the exception encountered while reflecting on an object's field
      * @return Equivalent runtime exception
      */
-    private static RuntimeException handleInvocationTargetException(InvocationTargetException e) {
+    static RuntimeException handleInvocationTargetException(InvocationTargetException e) {
         Throwable exception = e.getTargetException();
         if (exception instanceof HttpStatusException || exception instanceof WebApplicationException) {
             return (RuntimeException) exception;
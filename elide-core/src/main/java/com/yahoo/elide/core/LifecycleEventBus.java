@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core;
+
+import com.google.common.base.Preconditions;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In process bus of the create, update and delete events of committed requests.
+ * <p>
+ * Requests publish one event per changed resource after they commit, so subscribers are told about changes instead
+ * of polling for them.  Each subscriber receives the events on its own worker of the scheduler and buffers at most
+ * {@code bufferSize} events it has not requested yet.  When a subscriber falls behind, its oldest buffered events
+ * are dropped, so a slow subscriber never slows down the requests or the other subscribers.
+ */
+@Slf4j
+public class LifecycleEventBus {
+    public static final int DEFAULT_BUFFER_SIZE = 128;
+
+    private final FlowableProcessor<CRUDEvent> events = PublishProcessor.<CRUDEvent>create().toSerialized();
+    private final int bufferSize;
+    private final Scheduler scheduler;
+
+    public LifecycleEventBus() {
+        this(DEFAULT_BUFFER_SIZE, Schedulers.io());
+    }
+
+    /**
+     * Constructor.
+     * @param bufferSize The maximum number of events buffered for a subscriber
+     * @param scheduler The scheduler delivering the events to subscribers
+     */
+    public LifecycleEventBus(int bufferSize, Scheduler scheduler) {
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        this.bufferSize = bufferSize;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Publishes the event of a committed change to every subscriber.
+     * @param event The event
+     */
+    public void publish(CRUDEvent event) {
+        events.onNext(event);
+    }
+
+    /**
+     * Returns the events published from now on.  Every subscription is buffered on its own.
+     * @return The events
+     */
+    public Flowable<CRUDEvent> getEvents() {
+        return events
+                .onBackpressureBuffer(bufferSize,
+                        () -> log.debug("Dropped a lifecycle event of a slow subscriber"),
+                        BackpressureOverflowStrategy.DROP_OLDEST)
+                .observeOn(scheduler, false, 1);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core;
+
+import com.yahoo.elide.core.exceptions.InvalidAttributeException;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the value at the end of a {@link Path} from entities, for example {@code book.author.name}.
+ * <p>
+ * The field or getter of every path element is resolved through the {@link EntityDictionary} the first time an
+ * entity class is seen and reused for subsequent entities of the same class, so scanning many entities costs one
+ * reflective call per path element rather than a dictionary lookup as well.  Values are read exactly as
+ * {@link EntityDictionary#getValue(Object, String, RequestScope)} reads them.  Instances are safe to share
+ * between threads.
+ */
+public class PathAccessor {
+    private static final String THIS = "this";
+
+    private final String[] fieldNames;
+    private final RequestScope scope;
+    private final Binding[] bindings;
+
+    public PathAccessor(Path path, RequestScope scope) {
+        List<String> names = path.getPathElements().stream()
+                .map(Path.PathElement::getFieldName)
+                .filter(name -> !THIS.equals(name))
+                .collect(Collectors.toList());
+        this.fieldNames = names.toArray(new String[0]);
+        this.scope = scope;
+        this.bindings = new Binding[fieldNames.length];
+    }
+
+    /**
+     * Read the value of the path from an entity.
+     *
+     * @param entity the entity at the root of the path
+     * @return the value, or null if any value along the path is null
+     */
+    public Object getValue(Object entity) {
+        Object val = entity;
+        for (int i = 0; i < fieldNames.length && val != null; i++) {
+            val = getValue(i, val);
+        }
+        return val;
+    }
+
+    private Object getValue(int index, Object target) {
+        Binding binding = bindings[index];
+        if (binding == null || binding.targetClass != target.getClass()) {
+            binding = bind(index, target.getClass());
+        }
+        if (binding.accessor == null) {
+            // Let the dictionary report the missing field.
+            return scope.getDictionary().getValue(target, fieldNames[index], scope);
+        }
+
+        try {
+            if (binding.accessor instanceof Method) {
+                Method method = (Method) binding.accessor;
+                return binding.requestScopeable ? method.invoke(target, scope) : method.invoke(target);
+            }
+            return ((Field) binding.accessor).get(target);
+        } catch (IllegalAccessException e) {
+            EntityDictionary dictionary = scope.getDictionary();
+            throw new InvalidAttributeException(fieldNames[index], dictionary.getJsonAliasFor(target.getClass()), e);
+        } catch (InvocationTargetException e) {
+            throw EntityDictionary.handleInvocationTargetException(e);
+        }
+    }
+
+    private Binding bind(int index, Class<?> targetClass) {
+        EntityDictionary dictionary = scope.getDictionary();
+        AccessibleObject accessor = dictionary.getAccessibleObject(targetClass, fieldNames[index]);
+        boolean requestScopeable = accessor instanceof Method
+                && dictionary.isMethodRequestScopeable(targetClass, (Method) accessor);
+        Binding binding = new Binding(targetClass, accessor, requestScopeable);
+        bindings[index] = binding;
+        return binding;
+    }
+
+    /**
+     * Accessor of one path element for one entity class.
+     */
+    private static class Binding {
+        private final Class<?> targetClass;
+        private final AccessibleObject accessor;
+        private final boolean requestScopeable;
+
+        Binding(Class<?> targetClass, AccessibleObject accessor, boolean requestScopeable) {
+            this.targetClass = targetClass;
+            this.accessor = accessor;
+            this.requestScopeable = requestScopeable;
+        }
+    }
+}
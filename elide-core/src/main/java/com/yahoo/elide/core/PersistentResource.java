@@ -51,6 +51,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -272,6 +273,8 @@ public class PersistentResource<T> implements com.yahoo.elide.security.Persisten
         }
 
 
+        verifyFacetFields(loadClass, pagination, requestScope);
+
         if (pagination.isPresent() && !pagination.get().isDefaultInstance()
                 && !CanPaginateVisitor.canPaginate(loadClass, dictionary, requestScope)) {
             throw new BadRequestException(String.format("Cannot paginate %s",
@@ -305,9 +308,13 @@ public class PersistentResource<T> implements com.yahoo.elide.security.Persisten
             }
         }
 
+        Optional<Pagination> computedPagination = pagination.map(p -> p.evaluate(loadClass));
+        Iterable<Object> loaded = tx.loadObjects(loadClass, Optional.ofNullable(filterExpression), sorting,
+                computedPagination, requestScope);
+        verifyFacetsComputed(loadClass, computedPagination, dictionary);
+
         Set<PersistentResource> existingResources = filter(ReadPermission.class, filter,
-                new PersistentResourceSet(tx.loadObjects(loadClass, Optional.ofNullable(filterExpression), sorting,
-                pagination.map(p -> p.evaluate(loadClass)), requestScope), requestScope));
+                new PersistentResourceSet(loaded, requestScope));
 
         Set<PersistentResource> allResources = Sets.union(newResources, existingResources);
 
@@ -323,6 +330,71 @@ public class PersistentResource<T> implements com.yahoo.elide.security.Persisten
         return allResources;
     }
 
+    /**
+     * Load the existing records of a batch of ids with a single query.  Unlike
+     * {@link #loadRecords(Class, List, Optional, Optional, Optional, RequestScope)}, ids which do not exist, cannot be
+     * coerced to the id type or may not be read are left out instead of failing the whole batch.
+     *
+     * @param loadClass the load class
+     * @param ids the object identifiers to load
+     * @param requestScope the request scope
+     * @return the loaded resources keyed by the requested id
+     */
+    public static Map<String, PersistentResource> loadExistingRecords(
+            Class<?> loadClass,
+            Collection<String> ids,
+            RequestScope requestScope) {
+        Map<String, PersistentResource> resources = new LinkedHashMap<>();
+        if (ids.isEmpty() || shouldSkipCollection(loadClass, ReadPermission.class, requestScope)) {
+            return resources;
+        }
+
+        EntityDictionary dictionary = requestScope.getDictionary();
+        String typeAlias = dictionary.getJsonAliasFor(loadClass);
+        Class<?> idType = dictionary.getIdType(loadClass);
+
+        // Resources created earlier in this request are not in the store yet
+        requestScope.getNewPersistentResources().stream()
+                .filter(resource -> typeAlias.equals(resource.getType())
+                        && ids.contains(resource.getUUID().orElse("")))
+                .forEach(resource -> resources.put((String) resource.getUUID().get(), resource));
+
+        Map<Object, String> idsByValue = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (resources.containsKey(id) || requestScope.getObjectById(typeAlias, id) != null) {
+                continue;
+            }
+            try {
+                idsByValue.put(CoerceUtil.coerce(id, idType), id);
+            } catch (InvalidValueException e) {
+                // No record can have this id
+            }
+        }
+        if (idsByValue.isEmpty()) {
+            return resources;
+        }
+
+        FilterExpression filterExpression = new InPredicate(
+                new Path.PathElement(loadClass, idType, dictionary.getIdFieldName(loadClass)),
+                new ArrayList<>(idsByValue.keySet()));
+        Optional<FilterExpression> permissionFilter = getPermissionFilterExpression(loadClass, requestScope);
+        if (permissionFilter.isPresent()) {
+            filterExpression = new AndFilterExpression(filterExpression, permissionFilter.get());
+        }
+
+        DataStoreTransaction tx = requestScope.getTransaction();
+        Set<PersistentResource> existingResources = filter(ReadPermission.class, Optional.empty(),
+                new PersistentResourceSet(tx.loadObjects(loadClass, Optional.of(filterExpression), Optional.empty(),
+                        Optional.empty(), requestScope), requestScope));
+        for (PersistentResource resource : existingResources) {
+            String id = idsByValue.get(CoerceUtil.coerce(resource.getId(), idType));
+            if (id != null) {
+                resources.put(id, resource);
+            }
+        }
+        return resources;
+    }
+
     /**
      * Update attribute in existing resource.
      *
@@ -1004,22 +1076,15 @@ public class PersistentResource<T> implements com.yahoo.elide.security.Persisten
             throw new InvalidAttributeException(relationName, this.getType());
         }
 
+        verifyFacetFields(relationClass, pagination, requestScope);
         Optional<Pagination> computedPagination = pagination.map(p -> p.evaluate(relationClass));
 
-        //Invoke filterExpressionCheck and then merge with filterExpression.
-        Optional<FilterExpression> permissionFilter = getPermissionFilterExpression(relationClass, requestScope);
-        Optional<FilterExpression> computedFilters = filterExpression;
-
-        if (permissionFilter.isPresent() && filterExpression.isPresent()) {
-            FilterExpression mergedExpression =
-                    new AndFilterExpression(filterExpression.get(), permissionFilter.get());
-            computedFilters = Optional.of(mergedExpression);
-        } else if (permissionFilter.isPresent()) {
-            computedFilters = permissionFilter;
-        }
+        Optional<FilterExpression> computedFilters = withPermissionFilter(relationClass, filterExpression,
+                requestScope);
 
         Object val = transaction.getRelation(transaction, obj, relationName,
                     computedFilters, sorting, computedPagination, requestScope);
+        verifyFacetsComputed(relationClass, computedPagination, dictionary);
 
         if (val == null) {
             return Collections.emptySet();
@@ -1039,6 +1104,147 @@ public class PersistentResource<T> implements com.yahoo.elide.security.Persisten
         return resources;
     }
 
+    /**
+     * Counts the members of the same to-many relationship of several resources with as few queries as the data
+     * store allows, applying the filters {@link #getRelationCheckedFiltered} applies to each resource.
+     *
+     * @param resources resources of the same type
+     * @param relationName the to-many relationship
+     * @param filterExpression An optional filter expression
+     * @param requestScope the request scope
+     * @return the number of members by resource id, or empty if the data store cannot count them together
+     */
+    public static Optional<Map<String, Long>> getRelationTotals(Collection<PersistentResource> resources,
+            String relationName,
+            Optional<FilterExpression> filterExpression,
+            RequestScope requestScope) {
+        Map<String, Long> totals = new HashMap<>();
+        if (resources.isEmpty()) {
+            return Optional.of(totals);
+        }
+
+        EntityDictionary dictionary = requestScope.getDictionary();
+        Object first = resources.iterator().next().getObject();
+        Class<?> relationClass = dictionary.getParameterizedType(first, relationName);
+        if (relationClass == null || !dictionary.getRelationshipType(first, relationName).isToMany()) {
+            return Optional.empty();
+        }
+
+        /* Read permission on the relationship type is the same for every resource */
+        if (!shouldSkipCollection(relationClass, ReadPermission.class, requestScope)) {
+            List<Object> objects = resources.stream()
+                    .map(PersistentResource::getObject)
+                    .collect(Collectors.toList());
+
+            DataStoreTransaction transaction = requestScope.getTransaction();
+            Map<String, Long> counts = transaction.getRelationTotals(transaction, objects, relationName,
+                    withPermissionFilter(relationClass, filterExpression, requestScope), requestScope);
+            if (counts == null) {
+                return Optional.empty();
+            }
+            totals.putAll(counts);
+        }
+
+        resources.forEach(resource -> totals.putIfAbsent(resource.getId(), 0L));
+        return Optional.of(totals);
+    }
+
+    /**
+     * Merges the read permission filter of a type with a filter expression.
+     *
+     * @param loadClass the type to filter
+     * @param filterExpression An optional filter expression
+     * @param requestScope the request scope
+     * @return the merged filter
+     */
+    private static Optional<FilterExpression> withPermissionFilter(Class<?> loadClass,
+            Optional<FilterExpression> filterExpression,
+            RequestScope requestScope) {
+        //Invoke filterExpressionCheck and then merge with filterExpression.
+        Optional<FilterExpression> permissionFilter = getPermissionFilterExpression(loadClass, requestScope);
+
+        if (permissionFilter.isPresent() && filterExpression.isPresent()) {
+            return Optional.of(new AndFilterExpression(filterExpression.get(), permissionFilter.get()));
+        } else if (permissionFilter.isPresent()) {
+            return permissionFilter;
+        }
+        return filterExpression;
+    }
+
+    /**
+     * Verifies that value counts (facets) may be computed for the attributes requested with a page.  The counts
+     * cover every record matching the query, so the user must be allowed to read every such record and the
+     * requested attributes of each, whatever the record holds.
+     *
+     * @param loadClass the class of the records
+     * @param pagination the page, which holds the requested attributes
+     * @param requestScope the request scope
+     * @throws BadRequestException if an attribute is unknown, or may not be read on every record
+     */
+    private static void verifyFacetFields(Class<?> loadClass, Optional<Pagination> pagination,
+            RequestScope requestScope) {
+        if (!pagination.isPresent() || !pagination.get().isGenerateFacets()) {
+            return;
+        }
+
+        EntityDictionary dictionary = requestScope.getDictionary();
+        String typeName = dictionary.getJsonAliasFor(loadClass);
+        if (!isReadableByUser(loadClass, Optional.empty(), requestScope)) {
+            throw new BadRequestException(String.format(
+                    "Facets cannot be requested for %s: reading its records depends on the records", typeName));
+        }
+
+        for (String field : pagination.get().getFacetFields()) {
+            if (!dictionary.isAttribute(loadClass, field)) {
+                throw new BadRequestException(String.format("Unknown facet attribute %s of %s", field, typeName));
+            }
+            if (!isReadableByUser(loadClass, Optional.of(field), requestScope)) {
+                throw new BadRequestException(String.format(
+                        "Facets cannot be requested for %s of %s: it may not be read on every record", field,
+                        typeName));
+            }
+        }
+    }
+
+    /**
+     * Whether the user checks alone allow reading an entity or one of its fields, so reading it does not depend on
+     * the record.
+     */
+    private static boolean isReadableByUser(Class<?> loadClass, Optional<String> field, RequestScope requestScope) {
+        try {
+            ExpressionResult result = field.isPresent()
+                    ? requestScope.getPermissionExecutor().checkUserPermissions(loadClass, ReadPermission.class,
+                            field.get())
+                    : requestScope.getPermissionExecutor().checkUserPermissions(loadClass, ReadPermission.class);
+            return result == ExpressionResult.PASS;
+        } catch (ForbiddenAccessException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Verifies that the data store computed the value counts requested with a page, rather than returning a page
+     * without them.
+     *
+     * @param loadClass the class of the records
+     * @param pagination the page, which holds the requested attributes and the computed counts
+     * @param dictionary the entity dictionary
+     * @throws BadRequestException if the counts of a requested attribute are missing
+     */
+    private static void verifyFacetsComputed(Class<?> loadClass, Optional<Pagination> pagination,
+            EntityDictionary dictionary) {
+        if (!pagination.isPresent() || !pagination.get().isGenerateFacets()) {
+            return;
+        }
+
+        for (String field : pagination.get().getFacetFields()) {
+            if (!pagination.get().getFacets().containsKey(field)) {
+                throw new BadRequestException(String.format("Facets cannot be computed for %s of %s by this query",
+                        field, dictionary.getJsonAliasFor(loadClass)));
+            }
+        }
+    }
+
     /**
      * Determine whether or not to skip loading a collection.
      *
@@ -39,8 +39,10 @@ import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.ReplaySubject;
 import lombok.Getter;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -389,6 +391,42 @@ public class RequestScope implements com.yahoo.elide.security.RequestScope {
                 .filter(CRUDEvent::isReadEvent)
                 .subscribeWith(new LifecycleHookInvoker(dictionary, OnReadPostCommit.class, false))
                 .throwOnError();
+
+        publishCommittedEvents();
+    }
+
+    /**
+     * Publishes one event per created, updated or deleted resource to the lifecycle event bus, if there is one.
+     * A deletion takes precedence over a creation, which takes precedence over updates.
+     */
+    private void publishCommittedEvents() {
+        LifecycleEventBus eventBus = elideSettings.getLifecycleEventBus();
+        if (eventBus == null) {
+            return;
+        }
+
+        Map<Object, CRUDEvent> changes = new IdentityHashMap<>();
+        List<Object> changed = new ArrayList<>();
+        this.queuedLifecycleEvents
+                .filter(event -> !event.isReadEvent())
+                .subscribe(event -> {
+                    Object object = event.getResource().getObject();
+                    CRUDEvent previous = changes.get(object);
+                    if (previous == null) {
+                        changed.add(object);
+                    }
+                    if (previous == null || getPrecedence(event) > getPrecedence(previous)) {
+                        changes.put(object, new CRUDEvent(event.getEventType(), event.getResource(),
+                                PersistentResource.CLASS_NO_FIELD, Optional.empty()));
+                    }
+                })
+                .dispose();
+
+        changed.forEach(object -> eventBus.publish(changes.get(object)));
+    }
+
+    private static int getPrecedence(CRUDEvent event) {
+        return event.isDeleteEvent() ? 2 : event.isCreateEvent() ? 1 : 0;
     }
 
     /**
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.datastore.inmemory;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.exceptions.TransactionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Copies objects between a {@link Snapshot} and the transaction reading from it, so that neither sees the other's
+ * changes.
+ * <p>
+ * Objects are copied field by field, with collection and map fields copied into new containers.  A snapshot
+ * references other objects by type and ID only: references in a copy are resolved against the snapshot and point
+ * to the copies of the referenced objects, or are dropped if the snapshot does not hold the referenced object.
+ */
+final class EntityCopier {
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private final EntityDictionary dictionary;
+    private final Snapshot snapshot;
+    private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+    EntityCopier(EntityDictionary dictionary, Snapshot snapshot) {
+        this.dictionary = dictionary;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Copy an object of the snapshot, together with the objects it references.  Copying the same object again
+     * returns the same copy.
+     *
+     * @param stored object held by the snapshot
+     * @return the copy
+     */
+    Object copy(Object stored) {
+        Object copy = copies.get(stored);
+        if (copy != null) {
+            return copy;
+        }
+
+        // Create every copy and fill in its plain fields before linking them, so hash based containers only
+        // see copies whose IDs and attributes are set.
+        List<Object> created = new ArrayList<>();
+        Deque<Object> pending = new ArrayDeque<>();
+        Consumer<Object> visit = reference -> {
+            Object target = resolve(reference);
+            if (target != null && !copies.containsKey(target)) {
+                copies.put(target, instantiate(target.getClass()));
+                created.add(target);
+                pending.push(target);
+            }
+        };
+        visit.accept(stored);
+        while (!pending.isEmpty()) {
+            Object next = pending.pop();
+            for (Field field : fields(next.getClass())) {
+                forEachEntity(read(field, next), visit);
+            }
+        }
+
+        for (Object original : created) {
+            for (Field field : fields(original.getClass())) {
+                Object value = read(field, original);
+                if (!isReference(value)) {
+                    write(field, copies.get(original), value);
+                }
+            }
+        }
+        for (Object original : created) {
+            for (Field field : fields(original.getClass())) {
+                Object value = read(field, original);
+                if (isReference(value)) {
+                    write(field, copies.get(original), translate(value));
+                }
+            }
+        }
+        return copies.get(stored);
+    }
+
+    /**
+     * Copy an object a transaction wrote, so that the snapshot does not change with the transaction's instance.
+     * References to other objects are kept as they are: readers only use their type and ID.
+     *
+     * @param instance the written object
+     * @return the copy
+     */
+    static Object freeze(Object instance) {
+        Object copy = instantiate(instance.getClass());
+        for (Field field : fields(instance.getClass())) {
+            Object value = read(field, instance);
+            if (value instanceof Collection) {
+                Collection<Object> target = newCollection((Collection<?>) value);
+                target.addAll((Collection<?>) value);
+                value = target;
+            } else if (value instanceof Map) {
+                Map<Object, Object> target = newMap((Map<?, ?>) value);
+                target.putAll((Map<?, ?>) value);
+                value = target;
+            }
+            write(field, copy, value);
+        }
+        return copy;
+    }
+
+    /**
+     * Whether a field value is an object or a container which the copy needs its own version of.
+     */
+    private boolean isReference(Object value) {
+        return isEntity(value) || value instanceof Collection || value instanceof Map;
+    }
+
+    private boolean isEntity(Object value) {
+        return value != null && snapshot.getObjects(value.getClass()) != null;
+    }
+
+    /**
+     * The version of a referenced object held by the snapshot.
+     */
+    private Object resolve(Object reference) {
+        if (!isEntity(reference)) {
+            return null;
+        }
+        return snapshot.getObjects(reference.getClass()).get(dictionary.getId(reference));
+    }
+
+    private void forEachEntity(Object value, Consumer<Object> action) {
+        if (isEntity(value)) {
+            action.accept(value);
+        } else if (value instanceof Collection) {
+            ((Collection<?>) value).forEach(element -> forEachEntity(element, action));
+        } else if (value instanceof Map) {
+            ((Map<?, ?>) value).values().forEach(element -> forEachEntity(element, action));
+        }
+    }
+
+    private Object translate(Object value) {
+        if (isEntity(value)) {
+            Object target = resolve(value);
+            return target == null ? null : copies.get(target);
+        }
+        if (value instanceof Collection) {
+            Collection<Object> target = newCollection((Collection<?>) value);
+            for (Object element : (Collection<?>) value) {
+                Object translated = translate(element);
+                if (translated != null || element == null) {
+                    target.add(translated);
+                }
+            }
+            return target;
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> target = newMap((Map<?, ?>) value);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object translated = translate(entry.getValue());
+                if (translated != null || entry.getValue() == null) {
+                    target.put(entry.getKey(), translated);
+                }
+            }
+            return target;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Collection<?> source) {
+        if (source instanceof SortedSet) {
+            return new TreeSet<>(((SortedSet<Object>) source).comparator());
+        }
+        try {
+            return (Collection<Object>) source.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return source instanceof Set ? new LinkedHashSet<>() : new ArrayList<>();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Map<?, ?> source) {
+        if (source instanceof SortedMap) {
+            return new TreeMap<>(((SortedMap<Object, Object>) source).comparator());
+        }
+        try {
+            return (Map<Object, Object>) source.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private static Object instantiate(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new TransactionException(e);
+        }
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, key -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> cls = key; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+                for (Field field : cls.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static Object read(Field field, Object instance) {
+        try {
+            return field.get(instance);
+        } catch (IllegalAccessException e) {
+            throw new TransactionException(e);
+        }
+    }
+
+    private static void write(Field field, Object instance, Object value) {
+        try {
+            field.set(instance, value);
+        } catch (IllegalAccessException e) {
+            throw new TransactionException(e);
+        }
+    }
+}
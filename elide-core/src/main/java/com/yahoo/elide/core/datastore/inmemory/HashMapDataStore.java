@@ -15,19 +15,32 @@ import com.yahoo.elide.utils.ClassScanner;
 import com.google.common.collect.Sets;
 import lombok.Getter;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Simple in-memory only database.
+ * <p>
+ * The contents are kept as a chain of immutable snapshots.  Transactions read from the snapshot that was current
+ * when they began without taking any lock.  Commits publish a new snapshot with a compare-and-set, first checking
+ * that no record the transaction updates or deletes was written by a transaction that committed after it began
+ * (first committer wins).  Snapshots hold their own copies of the objects: transactions read copies of them and
+ * commits store copies of the written objects, so neither uncommitted changes nor the changes of a transaction
+ * which loses a conflict reach other transactions.
+ * <p>
+ * The store tracks the snapshot each open transaction reads from, so that the tombstones of deleted objects can be
+ * pruned once no open transaction can conflict with them.  Transactions which are never closed hold them back.
  */
 public class HashMapDataStore implements DataStore, DataStoreTestHarness {
-    private final Map<Class<?>, Map<String, Object>> dataStore = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicReference<Snapshot> snapshot;
+    private final NavigableMap<Long, Integer> openVersions = new TreeMap<>();
     @Getter private EntityDictionary dictionary;
     @Getter private final Set<Package> beanPackages;
     @Getter private final ConcurrentHashMap<Class<?>, AtomicLong> typeIds = new ConcurrentHashMap<>();
@@ -39,16 +52,18 @@ public class HashMapDataStore implements DataStore, DataStoreTestHarness {
     public HashMapDataStore(Set<Package> beanPackages) {
         this.beanPackages = beanPackages;
 
+        Set<Class<?>> types = new LinkedHashSet<>();
         for (Package beanPackage : beanPackages) {
             ClassScanner.getAnnotatedClasses(beanPackage, Include.class).stream()
                 .filter(modelClass -> modelClass.getName().startsWith(beanPackage.getName()))
-                .forEach(modelClass -> dataStore.put(modelClass, Collections.synchronizedMap(new LinkedHashMap<>())));
+                .forEach(types::add);
         }
+        this.snapshot = new AtomicReference<>(Snapshot.empty(types));
     }
 
     @Override
     public void populateEntityDictionary(EntityDictionary dictionary) {
-        for (Class<?> clazz : dataStore.keySet()) {
+        for (Class<?> clazz : snapshot.get().getTypes()) {
             dictionary.bindEntity(clazz);
         }
 
@@ -57,16 +72,79 @@ public class HashMapDataStore implements DataStore, DataStoreTestHarness {
 
     @Override
     public DataStoreTransaction beginTransaction() {
-        return new HashMapStoreTransaction(dataStore, dictionary, typeIds);
+        return new HashMapStoreTransaction(this, dictionary, typeIds);
+    }
+
+    /**
+     * The latest committed snapshot.
+     *
+     * @return the snapshot
+     */
+    Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Open the latest committed snapshot for a transaction.
+     *
+     * @return the snapshot, which must be released with {@link #release(Snapshot)}
+     */
+    Snapshot open() {
+        synchronized (openVersions) {
+            Snapshot current = snapshot.get();
+            openVersions.merge(current.getVersion(), 1, Integer::sum);
+            return current;
+        }
+    }
+
+    /**
+     * Release a snapshot a transaction no longer reads from.
+     *
+     * @param read the snapshot
+     */
+    void release(Snapshot read) {
+        synchronized (openVersions) {
+            openVersions.computeIfPresent(read.getVersion(), (version, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Publish the operations of a transaction as a new snapshot, which replaces the snapshot the transaction read
+     * from as its open snapshot.
+     *
+     * @param read snapshot the transaction read from
+     * @param operations operations in the order they were recorded
+     * @return the published snapshot
+     */
+    Snapshot commit(Snapshot read, List<Operation> operations) {
+        long oldestVersion;
+        synchronized (openVersions) {
+            // Transactions opened later read from the current or a later snapshot.
+            oldestVersion = openVersions.isEmpty() ? snapshot.get().getVersion() : openVersions.firstKey();
+        }
+
+        while (true) {
+            Snapshot head = snapshot.get();
+            head.validate(read.getVersion(), operations);
+            Snapshot next = head.apply(operations, oldestVersion);
+            if (snapshot.compareAndSet(head, next)) {
+                synchronized (openVersions) {
+                    openVersions.merge(next.getVersion(), 1, Integer::sum);
+                    release(read);
+                }
+                return next;
+            }
+        }
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Data store contents ");
-        for (Class<?> cls : dataStore.keySet()) {
+        Snapshot current = snapshot.get();
+        for (Class<?> cls : current.getTypes()) {
             sb.append("\n Table ").append(cls).append(" contents \n");
-            Map<String, Object> data = dataStore.get(cls);
+            Map<String, Object> data = current.getObjects(cls);
             for (Map.Entry<String, Object> e : data.entrySet()) {
                 sb.append(" Id: ").append(e.getKey()).append(" Value: ").append(e.getValue());
             }
@@ -81,9 +159,7 @@ public class HashMapDataStore implements DataStore, DataStoreTestHarness {
 
     @Override
     public void cleanseTestData() {
-        for (Map<String, Object> objects : dataStore.values()) {
-            objects.clear();
-        }
+        snapshot.set(Snapshot.empty(snapshot.get().getTypes()));
         typeIds.clear();
     }
 }
@@ -16,25 +16,54 @@ import com.yahoo.elide.core.sort.Sorting;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import javax.persistence.GeneratedValue;
 
 /**
- * HashMapDataStore transaction handler.
+ * HashMapDataStore transaction handler.  Reads are served from the snapshot which was current when the
+ * transaction began (or last committed), as copies private to the transaction, and commits store copies of the
+ * written objects (see {@link EntityCopier}).
  */
 public class HashMapStoreTransaction implements DataStoreTransaction {
-    private final Map<Class<?>, Map<String, Object>> dataStore;
+    private final HashMapDataStore dataStore;
+    private final Map<Class<?>, Map<String, Object>> tables;
     private final List<Operation> operations;
     private final EntityDictionary dictionary;
     private final Map<Class<?>, AtomicLong> typeIds;
+    private Snapshot snapshot;
+    private EntityCopier copier;
+    private boolean released = false;
 
-    public HashMapStoreTransaction(Map<Class<?>, Map<String, Object>> dataStore,
+    public HashMapStoreTransaction(HashMapDataStore dataStore,
                                    EntityDictionary dictionary, Map<Class<?>, AtomicLong> typeIds) {
         this.dataStore = dataStore;
+        this.tables = null;
+        this.dictionary = dictionary;
+        this.operations = new ArrayList<>();
+        this.typeIds = typeIds;
+        this.snapshot = dataStore.open();
+        this.copier = new EntityCopier(dictionary, snapshot);
+    }
+
+    /**
+     * Constructor for a transaction which reads and writes the given tables directly, without isolation.
+     *
+     * @param tables objects keyed by type and ID
+     * @param dictionary the entity dictionary
+     * @param typeIds next generated ID per type
+     * @deprecated Use {@link #HashMapStoreTransaction(HashMapDataStore, EntityDictionary, Map)}
+     */
+    @Deprecated
+    public HashMapStoreTransaction(Map<Class<?>, Map<String, Object>> tables,
+                                   EntityDictionary dictionary, Map<Class<?>, AtomicLong> typeIds) {
+        this.dataStore = null;
+        this.tables = tables;
         this.dictionary = dictionary;
         this.operations = new ArrayList<>();
         this.typeIds = typeIds;
@@ -70,26 +99,48 @@ public class HashMapStoreTransaction implements DataStoreTransaction {
 
     @Override
     public void commit(RequestScope scope) {
-        synchronized (dataStore) {
-            operations.stream()
-                    .filter(op -> op.getInstance() != null)
-                    .forEach(op -> {
-                        Object instance = op.getInstance();
-                        String id = op.getId();
-                        Map<String, Object> data = dataStore.get(op.getType());
-                        if (op.getOpType() == Operation.OpType.DELETE) {
-                            data.remove(id);
-                        } else {
-                            if (op.getOpType() == Operation.OpType.CREATE && data.get(id) != null) {
-                                throw new TransactionException(new IllegalStateException("Duplicate key"));
-                            }
-                            data.put(id, instance);
-                        }
-                    });
+        try {
+            if (tables != null) {
+                commitToTables();
+            } else {
+                snapshot = dataStore.commit(snapshot, freeze(operations));
+                copier = new EntityCopier(dictionary, snapshot);
+            }
+        } finally {
             operations.clear();
         }
     }
 
+    private static List<Operation> freeze(List<Operation> operations) {
+        List<Operation> frozen = new ArrayList<>(operations.size());
+        for (Operation op : operations) {
+            Object instance = op.getInstance() == null || op.getOpType() == Operation.OpType.DELETE
+                    ? op.getInstance()
+                    : EntityCopier.freeze(op.getInstance());
+            frozen.add(new Operation(op.getId(), instance, op.getType(), op.getOpType()));
+        }
+        return frozen;
+    }
+
+    private void commitToTables() {
+        synchronized (tables) {
+            for (Operation op : operations) {
+                if (op.getInstance() == null) {
+                    continue;
+                }
+                Map<String, Object> data = tables.get(op.getType());
+                if (op.getOpType() == Operation.OpType.DELETE) {
+                    data.remove(op.getId());
+                } else {
+                    if (op.getOpType() == Operation.OpType.CREATE && data.get(op.getId()) != null) {
+                        throw new TransactionException(new IllegalStateException("Duplicate key"));
+                    }
+                    data.put(op.getId(), op.getInstance());
+                }
+            }
+        }
+    }
+
     @Override
     public void createObject(Object entity, RequestScope scope) {
         Class entityClass = entity.getClass();
@@ -104,17 +155,17 @@ public class HashMapStoreTransaction implements DataStoreTransaction {
         //GeneratedValue means the DB needs to assign the ID.
         if (dictionary.getAttributeOrRelationAnnotation(entityClass, GeneratedValue.class, idFieldName) != null) {
             // TODO: Id's are not necessarily numeric.
-            AtomicLong nextId;
-            synchronized (dataStore) {
-                nextId = typeIds.computeIfAbsent(entityClass,
-                        (key) -> {
-                            long maxId = dataStore.get(key).keySet().stream()
-                                    .mapToLong(Long::parseLong)
-                                    .max()
-                                    .orElse(0);
-                            return new AtomicLong(maxId + 1);
-                        });
-            }
+            AtomicLong nextId = typeIds.computeIfAbsent(entityClass,
+                    (key) -> {
+                        Map<String, Object> data = tables != null
+                                ? tables.get(key)
+                                : dataStore.getSnapshot().getObjects(key);
+                        long maxId = data == null ? 0 : data.keySet().stream()
+                                .mapToLong(Long::parseLong)
+                                .max()
+                                .orElse(0);
+                        return new AtomicLong(maxId + 1);
+                    });
             id = String.valueOf(nextId.getAndIncrement());
             setId(entity, id);
         } else {
@@ -143,10 +194,14 @@ public class HashMapStoreTransaction implements DataStoreTransaction {
     public Iterable<Object> loadObjects(Class<?> entityClass, Optional<FilterExpression> filterExpression,
                                         Optional<Sorting> sorting, Optional<Pagination> pagination,
                                         RequestScope scope) {
-        synchronized (dataStore) {
-            Map<String, Object> data = dataStore.get(entityClass);
+        Map<String, Object> data = getObjects(entityClass);
+        if (data == null) {
+            return Collections.emptyList();
+        }
+        if (copier == null) {
             return data.values();
         }
+        return data.values().stream().map(copier::copy).collect(Collectors.toList());
     }
 
     @Override
@@ -154,18 +209,21 @@ public class HashMapStoreTransaction implements DataStoreTransaction {
                              Optional<FilterExpression> filterExpression,
                              RequestScope scope) {
 
-        synchronized (dataStore) {
-            Map<String, Object> data = dataStore.get(entityClass);
-            if (data == null) {
-                return null;
-            }
-            return data.get(id.toString());
+        Map<String, Object> data = getObjects(entityClass);
+        if (data == null) {
+            return null;
         }
+        Object object = data.get(id.toString());
+        return object == null || copier == null ? object : copier.copy(object);
     }
 
     @Override
     public void close() throws IOException {
         operations.clear();
+        if (dataStore != null && !released) {
+            dataStore.release(snapshot);
+            released = true;
+        }
     }
 
     @Override
@@ -184,6 +242,11 @@ public class HashMapStoreTransaction implements DataStoreTransaction {
     }
 
     private boolean containsObject(Object obj) {
-        return dataStore.get(obj.getClass()).containsValue(obj);
+        Map<String, Object> data = getObjects(obj.getClass());
+        return data != null && data.containsValue(obj);
+    }
+
+    private Map<String, Object> getObjects(Class<?> type) {
+        return tables != null ? tables.get(type) : snapshot.getObjects(type);
     }
 }
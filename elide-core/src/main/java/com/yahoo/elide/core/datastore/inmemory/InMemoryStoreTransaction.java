@@ -6,15 +6,17 @@
 
 package com.yahoo.elide.core.datastore.inmemory;
 
+import com.yahoo.elide.ElideSettings;
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.Path;
-import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.PathAccessor;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
 import com.yahoo.elide.core.filter.expression.FilterPredicatePushdownExtractor;
 import com.yahoo.elide.core.filter.expression.InMemoryExecutionVerifier;
 import com.yahoo.elide.core.filter.expression.InMemoryFilterExecutor;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
 import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.core.sort.Sorting;
 import com.yahoo.elide.security.User;
@@ -22,13 +24,18 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -53,6 +60,16 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         }
     };
 
+    /**
+     * Inputs of at least this many records are sorted in parallel.
+     */
+    private static final int PARALLEL_SORT_THRESHOLD = 100_000;
+
+    /**
+     * Top-K selection is used when the requested page ends before 1 / TOP_K_RATIO of the records.
+     */
+    private static final int TOP_K_RATIO = 4;
+
     private DataStoreTransaction tx;
 
     /**
@@ -128,6 +145,34 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         return fetchData(fetcher, relationClass, filterExpression, sorting, pagination, filterInMemory, scope);
     }
 
+    @Override
+    public Map<String, Long> getRelationTotals(DataStoreTransaction relationTx,
+                                              Collection<?> entities,
+                                              String relationName,
+                                              Optional<FilterExpression> filterExpression,
+                                              RequestScope scope) {
+        if (entities.isEmpty() || scope.getNewPersistentResources().size() > 0) {
+            return null;
+        }
+
+        /*
+         * Only counts the store can compute for the whole relation are returned.  When the relation is paginated
+         * or filtered in memory, the totals come with the relation itself.
+         */
+        Class<?> relationClass = scope.getDictionary().getParameterizedType(entities.iterator().next(), relationName);
+        if (!tx.supportsPagination(relationClass)) {
+            return null;
+        }
+
+        Pair<Optional<FilterExpression>, Optional<FilterExpression>> expressionSplit = splitFilterExpression(
+                relationClass, filterExpression, false, scope);
+        if (expressionSplit.getRight().isPresent()) {
+            return null;
+        }
+
+        return tx.getRelationTotals(relationTx, entities, relationName, expressionSplit.getLeft(), scope);
+    }
+
     @Override
     public void updateToManyRelation(DataStoreTransaction relationTx,
                                      Object entity,
@@ -212,18 +257,85 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         tx.close();
     }
 
-    private Iterable<Object> filterLoadedData(Iterable<Object> loadedRecords,
+    /**
+     * Filters loaded records in memory, preserving their order.  Inputs of at least
+     * {@link ElideSettings#getParallelFilterThreshold()} records are filtered in parallel on the configured pool
+     * when every predicate reads a plain attribute of the loaded type.  Relationship paths may lazily load through
+     * the (non thread safe) transaction, and computed fields may use the (non thread safe) request scope.
+     *
+     * @param entityClass type of the loaded records
+     * @param loadedRecords records to filter
+     * @param filterExpression the filter
+     * @param limit the number of leading matches needed, or {@link Long#MAX_VALUE} for all of them
+     * @param scope the request scope
+     * @return the matching records
+     */
+    private Iterable<Object> filterLoadedData(Class<?> entityClass,
+                                                Iterable<Object> loadedRecords,
                                                 Optional<FilterExpression> filterExpression,
+                                                long limit,
                                                 RequestScope scope) {
         if (! filterExpression.isPresent()) {
             return loadedRecords;
         }
 
-        Predicate predicate = filterExpression.get().accept(new InMemoryFilterExecutor(scope));
+        Predicate<Object> predicate = filterExpression.get().accept(new InMemoryFilterExecutor(scope));
+
+        ElideSettings settings = scope.getElideSettings();
+        if (settings == null
+                || settings.getParallelFilterThreshold() <= 0
+                || settings.getParallelFilterPool() == null
+                || !readsOnlyAttributes(entityClass, filterExpression.get(), scope.getDictionary())) {
+            return StreamSupport.stream(loadedRecords.spliterator(), false)
+                                .filter(predicate)
+                                .limit(limit)
+                                .collect(Collectors.toList());
+        }
+
+        List<Object> records = loadedRecords instanceof List
+                ? (List<Object>) loadedRecords
+                : StreamSupport.stream(loadedRecords.spliterator(), false).collect(Collectors.toList());
+
+        if (records.size() < settings.getParallelFilterThreshold()) {
+            return records.stream().filter(predicate).limit(limit).collect(Collectors.toList());
+        }
 
-        return StreamSupport.stream(loadedRecords.spliterator(), false)
-                            .filter(predicate::test)
-                            .collect(Collectors.toList());
+        // Ordered parallel streams keep encounter order and stop splitting once the limit is satisfied.
+        try {
+            return settings.getParallelFilterPool().submit(() -> records.parallelStream()
+                    .filter(predicate)
+                    .limit(limit)
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean readsOnlyAttributes(Class<?> entityClass, FilterExpression filterExpression,
+                                               EntityDictionary dictionary) {
+        Class<?> boundClass = dictionary.lookupBoundClass(entityClass);
+        return boundClass != null && filterExpression.accept(new PredicateExtractionVisitor()).stream()
+                .map(predicate -> predicate.getPath().getPathElements())
+                .allMatch(elements -> elements.size() == 1
+                        && dictionary.lookupBoundClass(elements.get(0).getType()) == boundClass
+                        && isPlainAttribute(boundClass, elements.get(0).getFieldName(), dictionary));
+    }
+
+    private static boolean isPlainAttribute(Class<?> entityClass, String fieldName, EntityDictionary dictionary) {
+        boolean isAttribute = fieldName.equals(dictionary.getIdFieldName(entityClass))
+                || dictionary.isAttribute(entityClass, fieldName);
+        return isAttribute && !dictionary.isComputed(entityClass, fieldName);
     }
 
     private Object fetchData(DataFetcher fetcher,
@@ -262,7 +374,12 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         Iterable<Object> loadedRecords = (Iterable<Object>) result;
 
         if (inMemoryFilter.isPresent()) {
-            loadedRecords = filterLoadedData(loadedRecords, filterExpression, scope);
+            // Without an in memory sort or page totals, matches past the end of the page are never used.
+            long limit = inMemoryPagination
+                    .filter(p -> ! inMemorySort.isPresent() && ! p.isGenerateTotals())
+                    .map(p -> Math.max(0, (long) p.getOffset() + p.getLimit()))
+                    .orElse(Long.MAX_VALUE);
+            loadedRecords = filterLoadedData(entityClass, loadedRecords, filterExpression, limit, scope);
         }
 
 
@@ -298,22 +415,27 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         }
         //We need an in memory copy to sort or paginate.
         List<Object> results = StreamSupport.stream(loadedRecords.spliterator(), false).collect(Collectors.toList());
+        int totalRecords = results.size();
 
         if (! sortRules.isEmpty()) {
-            results = sortInMemory(results, sortRules, scope);
+            // Only the records up to the end of the requested page need to be ordered.
+            int topK = pagination
+                    .map(p -> (int) Math.max(0, Math.min((long) p.getOffset() + p.getLimit(), totalRecords)))
+                    .orElse(totalRecords);
+            results = sortInMemory(results, sortRules, topK, scope);
         }
 
         if (pagination.isPresent()) {
-            results = paginateInMemory(results, pagination.get());
+            results = paginateInMemory(results, totalRecords, pagination.get());
         }
 
         return results;
     }
 
-    private List<Object> paginateInMemory(List<Object> records, Pagination pagination) {
+    private List<Object> paginateInMemory(List<Object> records, int totalRecords, Pagination pagination) {
         int offset = pagination.getOffset();
         int limit = pagination.getLimit();
-        if (offset < 0 || offset >= records.size()) {
+        if (offset < 0 || offset >= totalRecords) {
             return Collections.emptyList();
         }
 
@@ -323,49 +445,99 @@ public class InMemoryStoreTransaction implements DataStoreTransaction {
         }
 
         if (pagination.isGenerateTotals()) {
-            pagination.setPageTotals(records.size());
+            pagination.setPageTotals(totalRecords);
         }
         return records.subList(offset, endIdx);
     }
 
+    /**
+     * Sorts records by extracting each record's sort keys once and comparing the keys.  When only the first
+     * {@code topK} records are needed they are selected with a bounded heap rather than sorting every record.
+     * Ties keep the records' original order.
+     *
+     * @param records records to sort
+     * @param sortRules sort paths and directions
+     * @param topK number of leading records to return in order
+     * @param scope the request scope
+     * @return the first {@code topK} records in sorted order
+     */
     private List<Object> sortInMemory(List<Object> records,
-                                        Map<Path, Sorting.SortOrder> sortRules,
-                                        RequestScope scope) {
-        //Build a comparator that handles multiple comparison rules.
-        Comparator<Object> noSort = (left, right) -> 0;
-
-        Comparator<Object> comp = sortRules.entrySet().stream()
-            .map(entry -> getComparator(entry.getKey(), entry.getValue(), scope))
-            .reduce(noSort, (comparator1, comparator2) -> (left, right) -> {
-                int comparison = comparator1.compare(left, right);
-                if (comparison == 0) {
-                    return comparator2.compare(left, right);
-                }
-                return comparison;
-            });
-
-        records.sort(comp);
-        return records;
-    }
+                                      Map<Path, Sorting.SortOrder> sortRules,
+                                      int topK,
+                                      RequestScope scope) {
+        PathAccessor[] accessors = new PathAccessor[sortRules.size()];
+        boolean[] descending = new boolean[sortRules.size()];
+        int rule = 0;
+        for (Map.Entry<Path, Sorting.SortOrder> entry : sortRules.entrySet()) {
+            accessors[rule] = new PathAccessor(entry.getKey(), scope);
+            descending[rule] = entry.getValue() == Sorting.SortOrder.desc;
+            rule++;
+        }
 
-    private Comparator<Object> getComparator(Path path, Sorting.SortOrder order, RequestScope requestScope) {
-        return (left, right) -> {
-            Object leftCompare = left;
-            Object rightCompare = right;
-
-            // Drill down into path to find value for comparison
-            for (Path.PathElement pathElement : path.getPathElements()) {
-                leftCompare = (leftCompare == null ? null
-                        : PersistentResource.getValue(leftCompare, pathElement.getFieldName(), requestScope));
-                rightCompare = (rightCompare == null ? null
-                        : PersistentResource.getValue(rightCompare, pathElement.getFieldName(), requestScope));
+        SortKey[] keys = new SortKey[records.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Object record = records.get(i);
+            Object[] values = new Object[accessors.length];
+            for (int j = 0; j < accessors.length; j++) {
+                values[j] = accessors[j].getValue(record);
             }
+            keys[i] = new SortKey(record, values, i);
+        }
 
-            if (order == Sorting.SortOrder.asc) {
-                return NULL_SAFE_COMPARE.compare(leftCompare, rightCompare);
+        Comparator<SortKey> comparator = (left, right) -> {
+            for (int i = 0; i < descending.length; i++) {
+                int comparison = descending[i]
+                        ? NULL_SAFE_COMPARE.compare(right.values[i], left.values[i])
+                        : NULL_SAFE_COMPARE.compare(left.values[i], right.values[i]);
+                if (comparison != 0) {
+                    return comparison;
+                }
             }
-            return NULL_SAFE_COMPARE.compare(rightCompare, leftCompare);
+            return Integer.compare(left.index, right.index);
         };
+
+        SortKey[] sorted;
+        if (topK < keys.length / TOP_K_RATIO) {
+            PriorityQueue<SortKey> heap = new PriorityQueue<>(Math.max(1, topK), comparator.reversed());
+            for (SortKey key : keys) {
+                if (heap.size() < topK) {
+                    heap.add(key);
+                } else if (topK > 0 && comparator.compare(key, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(key);
+                }
+            }
+            sorted = heap.toArray(new SortKey[0]);
+            Arrays.sort(sorted, comparator);
+        } else {
+            sorted = keys;
+            if (sorted.length >= PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(sorted, comparator);
+            } else {
+                Arrays.sort(sorted, comparator);
+            }
+        }
+
+        List<Object> results = new ArrayList<>(Math.min(topK, sorted.length));
+        for (int i = 0; i < sorted.length && i < topK; i++) {
+            results.add(sorted[i].record);
+        }
+        return results;
+    }
+
+    /**
+     * A record with its extracted sort key values.
+     */
+    private static class SortKey {
+        private final Object record;
+        private final Object[] values;
+        private final int index;
+
+        SortKey(Object record, Object[] values, int index) {
+            this.record = record;
+            this.values = values;
+            this.index = index;
+        }
     }
 
     /**
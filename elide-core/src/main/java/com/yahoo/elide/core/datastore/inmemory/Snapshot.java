@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.datastore.inmemory;
+
+import com.yahoo.elide.core.exceptions.TransactionException;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable version of the contents of a {@link HashMapDataStore}.
+ * <p>
+ * Every committed transaction produces a new snapshot.  Tables which the transaction did not touch are shared
+ * with the previous snapshot, and touched tables share most of their structure with their previous version (see
+ * {@link Table}).  Each table remembers the snapshot version which last wrote every ID, including deleted IDs
+ * until no open transaction can conflict with the delete, which is what commit time conflict detection compares
+ * against.
+ */
+class Snapshot {
+    @Getter private final long version;
+    private final Map<Class<?>, Table> tables;
+
+    private Snapshot(long version, Map<Class<?>, Table> tables) {
+        this.version = version;
+        this.tables = tables;
+    }
+
+    /**
+     * Create an empty first snapshot.
+     *
+     * @param types entity types to create tables for
+     * @return the snapshot
+     */
+    static Snapshot empty(Collection<Class<?>> types) {
+        Map<Class<?>, Table> tables = new LinkedHashMap<>();
+        for (Class<?> type : types) {
+            tables.put(type, Table.EMPTY);
+        }
+        return new Snapshot(0, Collections.unmodifiableMap(tables));
+    }
+
+    Set<Class<?>> getTypes() {
+        return tables.keySet();
+    }
+
+    /**
+     * Objects of a type keyed by ID.
+     *
+     * @param type entity type
+     * @return unmodifiable objects, or null if the type has no table
+     */
+    Map<String, Object> getObjects(Class<?> type) {
+        Table table = tables.get(type);
+        return table == null ? null : table.getObjects();
+    }
+
+    /**
+     * Verify that no operation writes a record which was written after the given version
+     * (first committer wins).
+     *
+     * @param readVersion version the writing transaction read from
+     * @param operations the writing transaction's operations
+     */
+    void validate(long readVersion, List<Operation> operations) {
+        for (Operation op : operations) {
+            if (op.getInstance() == null || op.getOpType() == Operation.OpType.CREATE) {
+                continue;
+            }
+            Table table = tables.get(op.getType());
+            Long written = table == null ? null : table.getVersion(op.getId());
+            if (written != null && written > readVersion) {
+                throw new TransactionException(new IllegalStateException(
+                        "Concurrent modification of " + op.getType().getSimpleName() + " " + op.getId()));
+            }
+        }
+    }
+
+    /**
+     * Create the next snapshot by applying operations to this one.
+     *
+     * @param operations operations in the order they were recorded
+     * @param oldestVersion version of the oldest snapshot an open transaction reads from; tombstones written up to
+     *                      this version are pruned from the tables the operations touch
+     * @return the next snapshot
+     */
+    Snapshot apply(List<Operation> operations, long oldestVersion) {
+        long nextVersion = version + 1;
+        Map<Class<?>, Table> touched = new LinkedHashMap<>();
+
+        for (Operation op : operations) {
+            if (op.getInstance() == null) {
+                continue;
+            }
+            Class<?> type = op.getType();
+            Table table = touched.getOrDefault(type, tables.getOrDefault(type, Table.EMPTY));
+
+            String id = op.getId();
+            if (op.getOpType() == Operation.OpType.DELETE) {
+                table = table.remove(id, nextVersion);
+            } else {
+                if (op.getOpType() == Operation.OpType.CREATE && table.getObjects().get(id) != null) {
+                    throw new TransactionException(new IllegalStateException("Duplicate key"));
+                }
+                table = table.put(id, op.getInstance(), nextVersion);
+            }
+            touched.put(type, table);
+        }
+
+        Map<Class<?>, Table> nextTables = new LinkedHashMap<>(tables);
+        touched.forEach((type, table) -> nextTables.put(type, table.prune(oldestVersion)));
+        return new Snapshot(nextVersion, Collections.unmodifiableMap(nextTables));
+    }
+}
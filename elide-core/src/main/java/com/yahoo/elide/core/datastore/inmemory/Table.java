@@ -0,0 +1,453 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.datastore.inmemory;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable table of one entity type in a {@link Snapshot}.
+ * <p>
+ * Every update returns a new table which shares all but a logarithmic number of nodes with the previous one:
+ * IDs are indexed by a hash array mapped trie, and rows are kept in insertion order in a 32 way trie indexed by
+ * row number (a persistent vector).  Deleted IDs stay in the index as tombstones, recording the version which
+ * deleted them, until {@link #prune(long)} finds that no open transaction can conflict with the delete.
+ * <p>
+ * A hash map per snapshot would be simpler, but every commit would copy each table it touches, making the cost of
+ * a single row write grow with the size of the table.
+ */
+final class Table {
+    static final Table EMPTY = new Table(null, Rows.EMPTY, 0, Rows.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final Node index;
+    private final Rows rows;
+    private final int size;
+    private final Rows tombstones;
+    private final int tombstoneStart;
+    private final Map<String, Object> objects = new ObjectsView();
+
+    private Table(Node index, Rows rows, int size, Rows tombstones, int tombstoneStart) {
+        this.index = index;
+        this.rows = rows;
+        this.size = size;
+        this.tombstones = tombstones;
+        this.tombstoneStart = tombstoneStart;
+    }
+
+    /**
+     * Objects keyed by ID, in insertion order.
+     *
+     * @return unmodifiable view of the objects
+     */
+    Map<String, Object> getObjects() {
+        return objects;
+    }
+
+    /**
+     * Version which last wrote (or deleted) an ID.
+     *
+     * @param id the ID
+     * @return the version, or null if the ID was never written or its tombstone was pruned
+     */
+    Long getVersion(String id) {
+        Slot slot = lookup(index, id);
+        return slot == null ? null : slot.version;
+    }
+
+    /**
+     * Insert or replace an object.
+     *
+     * @param id the ID
+     * @param value the object
+     * @param version version of the write
+     * @return the updated table
+     */
+    Table put(String id, Object value, long version) {
+        Slot current = lookup(index, id);
+        if (current != null && current.isLive()) {
+            Slot slot = new Slot(id, value, current.row, version);
+            return new Table(insert(index, slot, 0), rows.set(current.row, slot), size, tombstones, tombstoneStart);
+        }
+        Slot slot = new Slot(id, value, rows.size(), version);
+        return new Table(insert(index, slot, 0), rows.append(slot), size + 1, tombstones, tombstoneStart);
+    }
+
+    /**
+     * Delete an object, leaving a tombstone.
+     *
+     * @param id the ID
+     * @param version version of the delete
+     * @return the updated table
+     */
+    Table remove(String id, long version) {
+        Slot current = lookup(index, id);
+        Slot tombstone = new Slot(id, null, -1, version);
+        Rows nextRows = rows;
+        int nextSize = size;
+        if (current != null && current.isLive()) {
+            nextRows = rows.set(current.row, null);
+            nextSize--;
+        }
+        return new Table(insert(index, tombstone, 0), nextRows, nextSize, tombstones.append(tombstone),
+                tombstoneStart).compact();
+    }
+
+    /**
+     * Drop the tombstones no open transaction can conflict with.
+     *
+     * @param oldestVersion version of the oldest snapshot an open transaction reads from
+     * @return the pruned table
+     */
+    Table prune(long oldestVersion) {
+        Node nextIndex = index;
+        int start = tombstoneStart;
+        while (start < tombstones.size()) {
+            Slot tombstone = (Slot) tombstones.get(start);
+            if (tombstone.version > oldestVersion) {
+                break;
+            }
+            // The ID may have been written again since.
+            if (lookup(nextIndex, tombstone.getKey()) == tombstone) {
+                nextIndex = delete(nextIndex, tombstone.getKey(), 0);
+            }
+            start++;
+        }
+        return start == tombstoneStart ? this : new Table(nextIndex, rows, size, tombstones, start).compact();
+    }
+
+    /**
+     * Rebuild the row and tombstone vectors once most of their entries are gone, so deletes do not leak memory.
+     */
+    private Table compact() {
+        Node nextIndex = index;
+        Rows nextRows = rows;
+        if (rows.size() > WIDTH && rows.size() > 2 * size) {
+            nextRows = Rows.EMPTY;
+            for (int row = 0; row < rows.size(); row++) {
+                Slot slot = (Slot) rows.get(row);
+                if (slot != null) {
+                    Slot moved = new Slot(slot.getKey(), slot.getValue(), nextRows.size(), slot.version);
+                    nextIndex = insert(nextIndex, moved, 0);
+                    nextRows = nextRows.append(moved);
+                }
+            }
+        }
+
+        Rows nextTombstones = tombstones;
+        int nextStart = tombstoneStart;
+        if (tombstoneStart > WIDTH && tombstoneStart > tombstones.size() - tombstoneStart) {
+            nextTombstones = Rows.EMPTY;
+            for (int position = tombstoneStart; position < tombstones.size(); position++) {
+                nextTombstones = nextTombstones.append(tombstones.get(position));
+            }
+            nextStart = 0;
+        }
+
+        if (nextRows == rows && nextTombstones == tombstones) {
+            return this;
+        }
+        return new Table(nextIndex, nextRows, size, nextTombstones, nextStart);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Slot lookup(Node node, String id) {
+        int hash = id.hashCode();
+        for (int shift = 0; node != null; shift += BITS) {
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[node.position(bit)];
+            if (!(child instanceof Node)) {
+                return find(child, id);
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    private static Node insert(Node node, Slot slot, int shift) {
+        int hash = slot.getKey().hashCode();
+        if (node == null) {
+            node = Node.EMPTY;
+        }
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node.add(bit, slot);
+        }
+        Object child = node.children[node.position(bit)];
+        if (child instanceof Node) {
+            return node.replace(bit, insert((Node) child, slot, shift + BITS));
+        }
+        int childHash = hashOf(child);
+        if (childHash == hash) {
+            return node.replace(bit, putInBucket(child, slot));
+        }
+        // Different hashes always diverge before the bits run out.
+        Node split = Node.EMPTY.add(bit(childHash, shift + BITS), child);
+        return node.replace(bit, insert(split, slot, shift + BITS));
+    }
+
+    private static Node delete(Node node, String id, int shift) {
+        int bit = bit(id.hashCode(), shift);
+        if (node == null || (node.bitmap & bit) == 0) {
+            return node;
+        }
+        Object child = node.children[node.position(bit)];
+        Object replacement = child instanceof Node
+                ? delete((Node) child, id, shift + BITS)
+                : removeFromBucket(child, id);
+        if (replacement == child) {
+            return node;
+        }
+        return replacement == null ? node.remove(bit) : node.replace(bit, replacement);
+    }
+
+    /*
+     * Entries whose IDs share a hash code are kept in a bucket: a single slot, or an array of slots on collision.
+     */
+
+    private static int hashOf(Object bucket) {
+        Slot slot = bucket instanceof Slot ? (Slot) bucket : ((Slot[]) bucket)[0];
+        return slot.getKey().hashCode();
+    }
+
+    private static Slot find(Object bucket, String id) {
+        Slot[] slots = bucket instanceof Slot ? new Slot[] { (Slot) bucket } : (Slot[]) bucket;
+        for (Slot slot : slots) {
+            if (slot.getKey().equals(id)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private static Object putInBucket(Object bucket, Slot slot) {
+        Slot[] slots = bucket instanceof Slot ? new Slot[] { (Slot) bucket } : (Slot[]) bucket;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].getKey().equals(slot.getKey())) {
+                if (slots.length == 1) {
+                    return slot;
+                }
+                Slot[] copy = slots.clone();
+                copy[i] = slot;
+                return copy;
+            }
+        }
+        Slot[] copy = new Slot[slots.length + 1];
+        System.arraycopy(slots, 0, copy, 0, slots.length);
+        copy[slots.length] = slot;
+        return copy;
+    }
+
+    private static Object removeFromBucket(Object bucket, String id) {
+        Slot[] slots = bucket instanceof Slot ? new Slot[] { (Slot) bucket } : (Slot[]) bucket;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].getKey().equals(id)) {
+                if (slots.length == 1) {
+                    return null;
+                }
+                if (slots.length == 2) {
+                    return slots[1 - i];
+                }
+                Slot[] copy = new Slot[slots.length - 1];
+                System.arraycopy(slots, 0, copy, 0, i);
+                System.arraycopy(slots, i + 1, copy, i, slots.length - i - 1);
+                return copy;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * An object (or a tombstone) with the row it is stored in and the version which wrote it.
+     */
+    private static final class Slot extends AbstractMap.SimpleImmutableEntry<String, Object> {
+        private final int row;
+        private final long version;
+
+        Slot(String id, Object value, int row, long version) {
+            super(id, value);
+            this.row = row;
+            this.version = version;
+        }
+
+        boolean isLive() {
+            return row >= 0;
+        }
+    }
+
+    /**
+     * Node of the ID index.  Children are nodes or buckets, stored compactly in the order of their bits.
+     */
+    private static final class Node {
+        private static final Node EMPTY = new Node(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] children;
+
+        Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node add(int bit, Object child) {
+            int position = position(bit);
+            Object[] copy = new Object[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, position);
+            copy[position] = child;
+            System.arraycopy(children, position, copy, position + 1, children.length - position);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node replace(int bit, Object child) {
+            Object[] copy = children.clone();
+            copy[position(bit)] = child;
+            return new Node(bitmap, copy);
+        }
+
+        Node remove(int bit) {
+            if (children.length == 1) {
+                return null;
+            }
+            int position = position(bit);
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, position);
+            System.arraycopy(children, position + 1, copy, position, children.length - position - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+
+    /**
+     * Persistent vector: a trie of 32 element arrays indexed by position.
+     */
+    private static final class Rows {
+        private static final Rows EMPTY = new Rows(new Object[WIDTH], 0, 0);
+
+        private final Object[] root;
+        private final int size;
+        private final int shift;
+
+        Rows(Object[] root, int size, int shift) {
+            this.root = root;
+            this.size = size;
+            this.shift = shift;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Object get(int position) {
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(position >>> level) & MASK];
+            }
+            return node[position & MASK];
+        }
+
+        Rows set(int position, Object value) {
+            return new Rows(set(root, shift, position, value), size, shift);
+        }
+
+        Rows append(Object value) {
+            if (size == 1 << (shift + BITS)) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = root;
+                return new Rows(set(grown, shift + BITS, size, value), size + 1, shift + BITS);
+            }
+            return new Rows(set(root, shift, size, value), size + 1, shift);
+        }
+
+        private static Object[] set(Object[] node, int level, int position, Object value) {
+            Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+            if (level == 0) {
+                copy[position & MASK] = value;
+            } else {
+                int child = (position >>> level) & MASK;
+                copy[child] = set((Object[]) copy[child], level - BITS, position, value);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Read only view of the live objects.
+     */
+    private final class ObjectsView extends AbstractMap<String, Object> {
+        @Override
+        public Object get(Object key) {
+            Slot slot = key instanceof String ? lookup(index, (String) key) : null;
+            return slot == null ? null : slot.getValue();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Slot slot = key instanceof String ? lookup(index, (String) key) : null;
+            return slot != null && slot.isLive();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int row = advance(0);
+
+                        private int advance(int from) {
+                            int next = from;
+                            while (next < rows.size() && rows.get(next) == null) {
+                                next++;
+                            }
+                            return next;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return row < rows.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Slot slot = (Slot) rows.get(row);
+                            row = advance(row + 1);
+                            return slot;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
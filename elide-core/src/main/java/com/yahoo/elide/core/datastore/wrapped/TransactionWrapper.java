@@ -17,6 +17,8 @@ import lombok.Data;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -56,6 +58,13 @@ public abstract class TransactionWrapper implements DataStoreTransaction {
         return tx.getRelation(relationTx, entity, relationName, filterExpression, sorting, pagination, scope);
     }
 
+    @Override
+    public Map<String, Long> getRelationTotals(DataStoreTransaction relationTx, Collection<?> entities,
+                                              String relationName, Optional<FilterExpression> filterExpression,
+                                              RequestScope scope) {
+        return tx.getRelationTotals(relationTx, entities, relationName, filterExpression, scope);
+    }
+
     @Override
     public void updateToManyRelation(DataStoreTransaction relationTx, Object entity, String relationName,
                                      Set<Object> newRelationships, Set<Object> deletedRelationships,
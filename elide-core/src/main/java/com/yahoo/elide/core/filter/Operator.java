@@ -6,21 +6,35 @@
 package com.yahoo.elide.core.filter;
 
 import com.yahoo.elide.core.Path;
-import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.PathAccessor;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.core.exceptions.BadRequestException;
 import com.yahoo.elide.core.exceptions.InvalidOperatorNegationException;
 import com.yahoo.elide.utils.coerce.CoerceUtil;
 
+import org.apache.commons.lang3.ClassUtils;
+
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * Operator enum for predicates.
@@ -44,21 +58,21 @@ public enum Operator {
     NOT("not", true) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return (T entity) -> !in(fieldPath, values, requestScope).test(entity);
+            return Operator.<T>in(fieldPath, values, requestScope).negate();
         }
     },
 
     NOT_INSENSITIVE("noti", true) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return (T entity) -> !in(fieldPath, values, requestScope, FOLD_CASE).test(entity);
+            return Operator.<T>in(fieldPath, values, requestScope, FOLD_CASE).negate();
         }
     },
 
     PREFIX_CASE_INSENSITIVE("prefixi", true) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return prefix(fieldPath, values, requestScope, s -> s.toLowerCase(Locale.ENGLISH));
+            return prefix(fieldPath, values, requestScope, FOLD_CASE);
         }
     },
 
@@ -107,7 +121,7 @@ public enum Operator {
     NOTNULL("notnull", false) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return (val) -> !isNull(fieldPath, requestScope).test(val);
+            return Operator.<T>isNull(fieldPath, requestScope).negate();
         }
     },
 
@@ -164,7 +178,7 @@ public enum Operator {
     NOTEMPTY("notempty", false) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return (entity) -> !isEmpty(fieldPath, requestScope).test(entity);
+            return Operator.<T>isEmpty(fieldPath, requestScope).negate();
         }
     },
 
@@ -178,7 +192,7 @@ public enum Operator {
     HASNOMEMBER("hasnomember", true) {
         @Override
         public <T> Predicate<T> contextualize(Path fieldPath, List<Object> values, RequestScope requestScope) {
-            return entiry -> !hasMember(fieldPath, values, requestScope).test(entiry);
+            return Operator.<T>hasMember(fieldPath, values, requestScope).negate();
         }
     }
     ;
@@ -229,16 +243,20 @@ public enum Operator {
     //
     // Predicate generation
     //
+    // Predicates are compiled once per filter: the path is bound to a PathAccessor and the filter values are
+    // coerced up front to the declared type of the filtered field.  Values of any other runtime type fall back
+    // to coercing the filter values per entity.
+    //
 
     //
     // In with strict equality
     private static <T> Predicate<T> in(Path fieldPath, List<Object> values, RequestScope requestScope) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        CoercedValues coerced = new CoercedValues(fieldPath, values);
         return (T entity) -> {
-            Object val = getFieldValue(entity, fieldPath, requestScope);
+            Object val = accessor.getValue(entity);
 
-            return val != null && values.stream()
-                    .map(v -> CoerceUtil.coerce(v, val.getClass()))
-                    .anyMatch(val::equals);
+            return val != null && coerced.contains(val);
         };
     }
 
@@ -246,8 +264,18 @@ public enum Operator {
     // String-like In with optional transformation
     private static <T> Predicate<T> in(Path fieldPath, List<Object> values,
                                        RequestScope requestScope, Function<String, String> transform) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        Set<String> transformed = new HashSet<>();
+        try {
+            values.forEach(v -> transformed.add(transform.apply(CoerceUtil.coerce(v, String.class))));
+        } catch (RuntimeException e) {
+            // Report the failure per entity, as before.
+            transformed.clear();
+        }
+        boolean precomputed = transformed.size() > 0 || values.isEmpty();
+
         return (T entity) -> {
-            Object fieldValue = getFieldValue(entity, fieldPath, requestScope);
+            Object fieldValue = accessor.getValue(entity);
 
             if (fieldValue == null) {
                 return false;
@@ -258,6 +286,9 @@ public enum Operator {
             }
 
             String val = transform.apply((String) fieldValue);
+            if (precomputed) {
+                return val != null && transformed.contains(val);
+            }
             return val != null && values.stream()
                     .map(v -> transform.apply(CoerceUtil.coerce(v, String.class)))
                     .anyMatch(val::equals);
@@ -268,63 +299,62 @@ public enum Operator {
     // String-like prefix matching with optional transformation
     private static <T> Predicate<T> prefix(Path fieldPath, List<Object> values,
                                            RequestScope requestScope, Function<String, String> transform) {
-        return (T entity) -> {
-            if (values.size() != 1) {
-                throw new BadRequestException("PREFIX can only take one argument");
-            }
-
-            Object val = getFieldValue(entity, fieldPath, requestScope);
-            String valStr = CoerceUtil.coerce(val, String.class);
-            String filterStr = CoerceUtil.coerce(values.get(0), String.class);
-
-            return valStr != null
-                    && filterStr != null
-                    && transform.apply(valStr).startsWith(transform.apply(filterStr));
-        };
+        return match("PREFIX", fieldPath, values, requestScope, transform, String::startsWith);
     }
 
     //
     // String-like postfix matching with optional transformation
     private static <T> Predicate<T> postfix(Path fieldPath, List<Object> values,
                                             RequestScope requestScope, Function<String, String> transform) {
-        return (T entity) -> {
-            if (values.size() != 1) {
-                throw new BadRequestException("POSTFIX can only take one argument");
-            }
-
-            Object val = getFieldValue(entity, fieldPath, requestScope);
-            String valStr = CoerceUtil.coerce(val, String.class);
-            String filterStr = CoerceUtil.coerce(values.get(0), String.class);
-
-            return valStr != null
-                    && filterStr != null
-                    && transform.apply(valStr).endsWith(transform.apply(filterStr));
-        };
+        return match("POSTFIX", fieldPath, values, requestScope, transform, String::endsWith);
     }
 
     //
     // String-like infix matching with optional transformation
     private static <T> Predicate<T> infix(Path fieldPath, List<Object> values,
                                           RequestScope requestScope, Function<String, String> transform) {
+        return match("INFIX", fieldPath, values, requestScope, transform, String::contains);
+    }
+
+    private static <T> Predicate<T> match(String name, Path fieldPath, List<Object> values,
+                                          RequestScope requestScope, Function<String, String> transform,
+                                          BiPredicate<String, String> matcher) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        Supplier<String> filterSupplier = () -> {
+            String coerced = CoerceUtil.coerce(values.get(0), String.class);
+            return coerced == null ? null : transform.apply(coerced);
+        };
+        String filterStr = null;
+        if (values.size() == 1) {
+            try {
+                filterStr = filterSupplier.get();
+            } catch (RuntimeException e) {
+                // Report the failure per entity, as before.
+                filterStr = null;
+            }
+        }
+        String precomputed = filterStr;
+
         return (T entity) -> {
             if (values.size() != 1) {
-                throw new BadRequestException("INFIX can only take one argument");
+                throw new BadRequestException(name + " can only take one argument");
             }
 
-            Object val = getFieldValue(entity, fieldPath, requestScope);
-            String valStr = CoerceUtil.coerce(val, String.class);
-            String filterStr = CoerceUtil.coerce(values.get(0), String.class);
+            Object val = accessor.getValue(entity);
+            String valStr = val instanceof String ? (String) val : CoerceUtil.coerce(val, String.class);
+            String filter = precomputed != null ? precomputed : filterSupplier.get();
 
             return valStr != null
-                    && filterStr != null
-                    && transform.apply(valStr).contains(transform.apply(filterStr));
+                    && filter != null
+                    && matcher.test(transform.apply(valStr), filter);
         };
     }
 
     //
     // Null checking
     private static <T> Predicate<T> isNull(Path fieldPath, RequestScope requestScope) {
-        return (T entity) -> getFieldValue(entity, fieldPath, requestScope) == null;
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        return (T entity) -> accessor.getValue(entity) == null;
     }
 
     private static <T> Predicate<T> lt(Path fieldPath, List<Object> values, RequestScope requestScope) {
@@ -352,9 +382,10 @@ public enum Operator {
     }
 
     private static <T> Predicate<T> isEmpty(Path fieldPath, RequestScope requestScope) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
         return (T entity) -> {
 
-            Object val = getFieldValue(entity, fieldPath, requestScope);
+            Object val = accessor.getValue(entity);
             if (val == null) { return false; }
             if (val instanceof Collection<?>) {
                 return ((Collection<?>) val).isEmpty();
@@ -368,14 +399,27 @@ public enum Operator {
     }
 
     private static <T> Predicate<T> hasMember(Path fieldPath, List<Object> values, RequestScope requestScope) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        Supplier<Object> member = () -> fieldPath.lastElement()
+                .map(last -> CoerceUtil.coerce(values.get(0), last.getFieldType()))
+                .orElse(CoerceUtil.coerce(values.get(0), String.class));
+        Object coerced = null;
+        if (values.size() == 1) {
+            try {
+                coerced = member.get();
+            } catch (RuntimeException e) {
+                // Report the failure per entity, as before.
+                coerced = null;
+            }
+        }
+        Object precomputed = coerced;
+
         return (T entity) -> {
             if (values.size() != 1) {
                 throw new BadRequestException("HasMember can only take one argument");
             }
-            Object val = getFieldValue(entity, fieldPath, requestScope);
-            Object filterStr = fieldPath.lastElement()
-                    .map(last -> CoerceUtil.coerce(values.get(0), last.getFieldType()))
-                    .orElse(CoerceUtil.coerce(values.get(0), String.class));
+            Object val = accessor.getValue(entity);
+            Object filterStr = precomputed != null ? precomputed : member.get();
 
             if (val == null) { return false; }
             if (val instanceof Collection<?>) {
@@ -389,38 +433,29 @@ public enum Operator {
         };
     }
 
-    /**
-     * Return value of field/path for given entity.  For example this.book.author
-     *
-     * @param <T> the type of entity to retrieve a value from
-     * @param entity Entity bean
-     * @param fieldPath field value/path
-     * @param requestScope Request scope
-     * @return the value of the field
-     */
-    private static <T> Object getFieldValue(T entity, Path fieldPath, RequestScope requestScope) {
-        Object val = entity;
-        for (Path.PathElement field : fieldPath.getPathElements()) {
-            if ("this".equals(field.getFieldName())) {
-                continue;
-            }
-            if (val == null) {
-                break;
-            }
-            val = PersistentResource.getValue(val, field.getFieldName(), requestScope);
-        }
-        return val;
-    }
-
     private static <T> Predicate<T> getComparator(Path fieldPath, List<Object> values,
-                                                  RequestScope requestScope, Predicate<Integer> condition) {
+                                                  RequestScope requestScope, IntPredicate condition) {
+        PathAccessor accessor = new PathAccessor(fieldPath, requestScope);
+        CoercedValues coerced = new CoercedValues(fieldPath, values);
+        ToIntFunction<Object>[] comparisons = coerced.getComparisons();
+
         return (T entity) -> {
             if (values.size() == 0) {
                 throw new BadRequestException("No value to compare");
             }
-            Object fieldVal = getFieldValue(entity, fieldPath, requestScope);
-            return fieldVal != null
-                    && values.stream()
+            Object fieldVal = accessor.getValue(entity);
+            if (fieldVal == null) {
+                return false;
+            }
+            if (comparisons != null && coerced.isCoercedTo(fieldVal)) {
+                for (ToIntFunction<Object> comparison : comparisons) {
+                    if (condition.test(comparison.applyAsInt(fieldVal))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return values.stream()
                     .anyMatch(testVal -> condition.test(compare(fieldVal, testVal)));
         };
 
@@ -434,6 +469,97 @@ public enum Operator {
         return fieldComp.compareTo(testComp);
     }
 
+    /**
+     * Filter values coerced once to the declared type of the filtered field.
+     */
+    private static class CoercedValues {
+        private static final Set<Class<?>> HASHABLE = new HashSet<>(Arrays.asList(
+                String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+                Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class));
+
+        private final List<Object> rawValues;
+        private final Class<?> type;
+        private final List<Object> values;
+        private final Set<Object> lookup;
+
+        CoercedValues(Path fieldPath, List<Object> rawValues) {
+            this.rawValues = rawValues;
+
+            Class<?> declared = fieldPath.lastElement()
+                    .map(last -> (Class<?>) last.getFieldType())
+                    .map(ClassUtils::primitiveToWrapper)
+                    .orElse(null);
+            List<Object> coerced = new ArrayList<>();
+            if (declared != null && declared != Object.class) {
+                try {
+                    for (Object value : rawValues) {
+                        coerced.add(CoerceUtil.coerce(value, declared));
+                    }
+                } catch (RuntimeException e) {
+                    // Report the failure per entity, as before.
+                    declared = null;
+                }
+            } else {
+                declared = null;
+            }
+
+            this.type = declared;
+            this.values = coerced;
+            this.lookup = declared != null && (HASHABLE.contains(declared) || declared.isEnum())
+                    ? new HashSet<>(coerced)
+                    : null;
+        }
+
+        boolean isCoercedTo(Object value) {
+            return type != null && value.getClass() == type;
+        }
+
+        boolean contains(Object value) {
+            if (!isCoercedTo(value)) {
+                return rawValues.stream()
+                        .map(v -> CoerceUtil.coerce(v, value.getClass()))
+                        .anyMatch(value::equals);
+            }
+            return lookup != null ? lookup.contains(value) : values.stream().anyMatch(value::equals);
+        }
+
+        /**
+         * Comparisons of a field value against each coerced filter value, specialized for primitive wrapper and
+         * date types.  Only valid for field values of the coerced type.
+         *
+         * @return the comparisons or null if the filter values are not comparable
+         */
+        @SuppressWarnings("unchecked")
+        ToIntFunction<Object>[] getComparisons() {
+            if (type == null) {
+                return null;
+            }
+            ToIntFunction<Object>[] comparisons = new ToIntFunction[values.size()];
+            for (int i = 0; i < comparisons.length; i++) {
+                Object testValue = values.get(i);
+                if (testValue == null) {
+                    return null;
+                }
+                if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+                    long test = ((Number) testValue).longValue();
+                    comparisons[i] = v -> Long.compare(((Number) v).longValue(), test);
+                } else if (type == Double.class || type == Float.class) {
+                    double test = ((Number) testValue).doubleValue();
+                    comparisons[i] = v -> Double.compare(((Number) v).doubleValue(), test);
+                } else if (type == Date.class) {
+                    long test = ((Date) testValue).getTime();
+                    comparisons[i] = v -> Long.compare(((Date) v).getTime(), test);
+                } else if (testValue instanceof Comparable) {
+                    Comparable test = (Comparable) testValue;
+                    comparisons[i] = v -> ((Comparable) v).compareTo(test);
+                } else {
+                    return null;
+                }
+            }
+            return comparisons;
+        }
+    }
+
     public Operator negate() {
         if (negated == null) {
             throw new InvalidOperatorNegationException();
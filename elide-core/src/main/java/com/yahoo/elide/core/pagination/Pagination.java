@@ -14,7 +14,12 @@ import com.google.common.collect.ImmutableMap;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -51,6 +56,9 @@ public class Pagination {
     // For requesting total pages/records be included in the response page meta data
     public static final String PAGE_TOTALS_KEY = "page[totals]";
 
+    // For requesting value counts of attributes (comma separated) be included in the response meta data
+    public static final String PAGE_FACETS_KEY = "page[facets]";
+
     public static final Map<String, PaginationKey> PAGE_KEYS = new HashMap<>();
     static {
         PAGE_KEYS.put(PAGE_NUMBER_KEY, PaginationKey.number);
@@ -62,7 +70,13 @@ public class Pagination {
 
     private long pageTotals = 0;
 
-    private static final String PAGE_KEYS_CSV = PAGE_KEYS.keySet().stream().collect(Collectors.joining(", "));
+    private static final String PAGE_KEYS_CSV = PAGE_KEYS.keySet().stream().collect(Collectors.joining(", "))
+            + ", " + PAGE_FACETS_KEY;
+
+    @Getter
+    private List<String> facetFields = Collections.emptyList();
+
+    private final Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
 
     // For holding the page query parameters until they can be evaluated
     private Map<PaginationKey, Integer> pageData;
@@ -173,10 +187,13 @@ public class Pagination {
                                               ElideSettings elideSettings)
             throws InvalidValueException {
         final Map<PaginationKey, Integer> pageData = new HashMap<>();
+        final List<String> facetFields = new ArrayList<>();
         queryParams.entrySet()
                 .forEach(paramEntry -> {
                     final String queryParamKey = paramEntry.getKey();
-                    if (PAGE_KEYS.containsKey(queryParamKey)) {
+                    if (PAGE_FACETS_KEY.equals(queryParamKey)) {
+                        facetFields.addAll(parseFacetFields(paramEntry.getValue()));
+                    } else if (PAGE_KEYS.containsKey(queryParamKey)) {
                         PaginationKey paginationKey = PAGE_KEYS.get(queryParamKey);
                         if (paginationKey.equals(PaginationKey.totals)) {
                             // page[totals] is a valueless parameter, use value of 0 just so that its presence can
@@ -196,7 +213,17 @@ public class Pagination {
                                 + PAGE_KEYS_CSV);
                     }
                 });
-        return getPagination(pageData, elideSettings);
+        Pagination pagination = getPagination(pageData, elideSettings);
+        pagination.setFacetFields(facetFields);
+        return pagination;
+    }
+
+    private static List<String> parseFacetFields(List<String> values) {
+        return values.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toList());
     }
 
     /**
@@ -215,6 +242,40 @@ public class Pagination {
         return pageTotals;
     }
 
+    /**
+     * Sets the attributes whose value counts (facets) should be computed along with the page.
+     * @param facetFields the attribute names
+     */
+    public void setFacetFields(List<String> facetFields) {
+        this.facetFields = Collections.unmodifiableList(new ArrayList<>(facetFields));
+    }
+
+    /**
+     * Whether value counts were requested for any attribute.
+     * @return true if facet fields were requested
+     */
+    public boolean isGenerateFacets() {
+        return !facetFields.isEmpty();
+    }
+
+    /**
+     * Sets the value counts of an attribute across every record matching the paginated query.  Only data stores
+     * which can compute facets set them.
+     * @param field the attribute
+     * @param counts the number of matching records for each value, in the order they should be returned
+     */
+    public void setFacets(String field, Map<String, Long> counts) {
+        facets.put(field, Collections.unmodifiableMap(new LinkedHashMap<>(counts)));
+    }
+
+    /**
+     * Fetches the value counts computed by the data store.
+     * @return attribute to value counts, empty if the data store did not compute facets
+     */
+    public Map<String, Map<String, Long>> getFacets() {
+        return Collections.unmodifiableMap(facets);
+    }
+
     /**
      * Construct a pagination object from page data and elide settings.
      *
@@ -9,9 +9,11 @@ import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.Path;
 import com.yahoo.elide.core.exceptions.InvalidValueException;
 
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +24,7 @@ import javax.ws.rs.core.MultivaluedMap;
 /**
  * Generates a simple wrapper around the sort fields from the JSON-API GET Query.
  */
+@EqualsAndHashCode
 @ToString
 public class Sorting {
 
@@ -101,6 +104,14 @@ public class Sorting {
         return this.sortRules.isEmpty();
     }
 
+    /**
+     * Returns the raw sorting rules in the order they were requested.
+     * @return The unmodifiable map of sorting rules
+     */
+    public Map<String, SortOrder> getSortRules() {
+        return Collections.unmodifiableMap(sortRules);
+    }
+
     /**
      * Given the query params on the GET request, collect possible sorting rules.
      * @param queryParams The query params on the request.
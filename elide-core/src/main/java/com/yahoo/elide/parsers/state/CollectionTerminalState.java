@@ -80,6 +80,7 @@ public class CollectionTerminalState extends BaseState {
 
         // Add pagination meta data
         Pagination pagination = requestScope.getPagination();
+        Map<String, Object> allMetaData = new HashMap<>();
         if (!pagination.isEmpty()) {
 
             Map<String, Number> pageMetaData = new HashMap<>();
@@ -94,11 +95,16 @@ public class CollectionTerminalState extends BaseState {
                 pageMetaData.put("totalRecords", totalRecords);
             }
 
-            Map<String, Object> allMetaData = new HashMap<>();
             allMetaData.put("page", pageMetaData);
+        }
+
+        // Add value counts if they were requested and the data store computed them
+        if (pagination.isGenerateFacets() && !pagination.getFacets().isEmpty()) {
+            allMetaData.put("facets", pagination.getFacets());
+        }
 
-            Meta meta = new Meta(allMetaData);
-            jsonApiDocument.setMeta(meta);
+        if (!allMetaData.isEmpty()) {
+            jsonApiDocument.setMeta(new Meta(allMetaData));
         }
 
         JsonNode responseBody = requestScope.getMapper().toJsonObject(jsonApiDocument);
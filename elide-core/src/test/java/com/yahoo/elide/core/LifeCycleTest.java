@@ -64,6 +64,9 @@ import example.TestCheckMappings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1279,6 +1282,41 @@ public class LifeCycleTest {
         assertTrue(publisher.isUpdateHookInvoked());
     }
 
+    @Test
+    public void testPublishCommittedEvents() {
+        LifecycleEventBus eventBus = new LifecycleEventBus(LifecycleEventBus.DEFAULT_BUFFER_SIZE,
+                Schedulers.trampoline());
+        TestSubscriber<CRUDEvent> events = eventBus.getEvents().test();
+
+        Book book = mock(Book.class);
+        Book updated = mock(Book.class);
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        when(tx.createNewObject(Book.class)).thenReturn(book);
+        RequestScope scope = new RequestScope(null, null, tx, new User(1), null,
+                new ElideSettingsBuilder(null)
+                        .withEntityDictionary(dictionary)
+                        .withAuditLogger(MOCK_AUDIT_LOGGER)
+                        .withLifecycleEventBus(eventBus)
+                        .build());
+
+        PersistentResource created = PersistentResource.createObject(null, Book.class, scope, Optional.of("1"));
+        created.setValueChecked("title", "created title");
+        PersistentResource resource = new PersistentResource(updated, null, "2", scope);
+        resource.setValueChecked("title", "new title");
+        resource.setValueChecked("genre", "new genre");
+
+        scope.runQueuedPreSecurityTriggers();
+        scope.runQueuedPreCommitTriggers();
+        events.assertNoValues();
+
+        scope.runQueuedPostCommitTriggers();
+        events.assertValueCount(2);
+        assertEquals(CRUDEvent.CRUDAction.CREATE, events.values().get(0).getEventType());
+        assertEquals(book, events.values().get(0).getResource().getObject());
+        assertEquals(CRUDEvent.CRUDAction.UPDATE, events.values().get(1).getEventType());
+        assertEquals(updated, events.values().get(1).getResource().getObject());
+    }
+
     private Elide getElide(DataStore dataStore, EntityDictionary dictionary, AuditLogger auditLogger) {
         return new Elide(getElideSettings(dataStore, dictionary, auditLogger));
     }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class LifecycleEventBusTest {
+
+    @Test
+    public void testEventsPublishedAfterSubscription() {
+        LifecycleEventBus eventBus = new LifecycleEventBus(2, Schedulers.trampoline());
+        List<CRUDEvent> events = buildEvents(3);
+
+        eventBus.publish(events.get(0));
+        TestSubscriber<CRUDEvent> subscriber = eventBus.getEvents().test();
+        eventBus.publish(events.get(1));
+        eventBus.publish(events.get(2));
+
+        subscriber.assertValues(events.get(1), events.get(2));
+    }
+
+    @Test
+    public void testSlowSubscriberDropsOldestEvents() {
+        LifecycleEventBus eventBus = new LifecycleEventBus(2, Schedulers.trampoline());
+        List<CRUDEvent> events = buildEvents(5);
+
+        TestSubscriber<CRUDEvent> slow = eventBus.getEvents().test(0);
+        TestSubscriber<CRUDEvent> fast = eventBus.getEvents().test();
+        events.forEach(eventBus::publish);
+
+        fast.assertValueCount(5);
+        slow.assertNoValues();
+
+        // The first event was handed to the subscriber's worker, the buffer kept the two latest.
+        slow.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(events.get(0), events.get(3), events.get(4)), slow.values());
+    }
+
+    private static List<CRUDEvent> buildEvents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(ignored -> new CRUDEvent(CRUDEvent.CRUDAction.UPDATE, mock(PersistentResource.class),
+                        PersistentResource.CLASS_NO_FIELD, Optional.empty()))
+                .collect(Collectors.toList());
+    }
+}
@@ -18,6 +18,7 @@ import com.yahoo.elide.core.pagination.Pagination;
 import org.glassfish.jersey.internal.util.collection.MultivaluedStringMap;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 import javax.ws.rs.core.MultivaluedMap;
@@ -199,6 +200,25 @@ public class PaginationLogicTest {
         assertFalse(pageData.isGenerateTotals());
     }
 
+    @Test
+    public void shouldParseFacetFields() {
+        MultivaluedMap<String, String> queryParams = new MultivaluedStringMap();
+        queryParams.add("page[facets]", "genre, language");
+        Pagination pageData = Pagination.parseQueryParams(queryParams, elideSettings);
+        pageData = pageData.evaluate(PaginationLogicTest.class);
+        assertTrue(pageData.isGenerateFacets());
+        assertTrue(pageData.isDefaultInstance());
+        assertEquals(Arrays.asList("genre", "language"), pageData.getFacetFields());
+    }
+
+    @Test
+    public void shouldNotSetGenerateFacets() {
+        MultivaluedMap<String, String> queryParams = new MultivaluedStringMap();
+        queryParams.add("page[size]", "10");
+        Pagination pageData = Pagination.parseQueryParams(queryParams, elideSettings);
+        assertFalse(pageData.isGenerateFacets());
+        assertTrue(pageData.getFacets().isEmpty());
+    }
 
     @Test
     public void shouldUseDefaultsWhenNoParams() {
@@ -26,6 +26,7 @@ import com.yahoo.elide.annotation.Audit;
 import com.yahoo.elide.annotation.ReadPermission;
 import com.yahoo.elide.audit.LogMessage;
 import com.yahoo.elide.audit.TestAuditLogger;
+import com.yahoo.elide.core.exceptions.BadRequestException;
 import com.yahoo.elide.core.exceptions.ForbiddenAccessException;
 import com.yahoo.elide.core.exceptions.InvalidAttributeException;
 import com.yahoo.elide.core.exceptions.InvalidObjectIdentifierException;
@@ -33,6 +34,7 @@ import com.yahoo.elide.core.exceptions.InvalidValueException;
 import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.Operator;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.extensions.PatchRequestScope;
 import com.yahoo.elide.jsonapi.models.Data;
 import com.yahoo.elide.jsonapi.models.Relationship;
@@ -70,6 +72,7 @@ import example.packageshareable.UnshareableWithEntityUnshare;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.IterableUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Test;
 import org.mockito.Answers;
 
@@ -247,6 +250,45 @@ public class PersistentResourceTest extends PersistenceResourceTestSetup {
                 any(), any(), any(), eq(goodScope));
     }
 
+    @Test
+    public void testGetRelationTotals() {
+        Parent parent1 = new Parent();
+        parent1.setId(1);
+        Parent parent2 = new Parent();
+        parent2.setId(2);
+
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        when(tx.getRelationTotals(any(), any(), eq("children"), any(), any()))
+                .thenReturn(Collections.singletonMap("1", 2L));
+
+        RequestScope goodScope = buildRequestScope(tx, new User(1));
+        List<PersistentResource> parents = Arrays.asList(
+                new PersistentResource<>(parent1, null, "1", goodScope),
+                new PersistentResource<>(parent2, null, "2", goodScope));
+
+        Map<String, Long> totals = PersistentResource.getRelationTotals(parents, "children", Optional.empty(),
+                goodScope).get();
+
+        assertEquals(2L, totals.get("1"));
+        assertEquals(0L, totals.get("2"));
+        verify(tx, times(1)).getRelationTotals(eq(tx), eq(Arrays.asList(parent1, parent2)), eq("children"),
+                any(), eq(goodScope));
+    }
+
+    @Test
+    public void testGetRelationTotalsUnsupported() {
+        Parent parent = new Parent();
+        parent.setId(1);
+
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        when(tx.getRelationTotals(any(), any(), eq("children"), any(), any())).thenReturn(null);
+        RequestScope goodScope = buildRequestScope(tx, new User(1));
+
+        assertFalse(PersistentResource.getRelationTotals(
+                Collections.singletonList(new PersistentResource<>(parent, null, "1", goodScope)),
+                "children", Optional.empty(), goodScope).isPresent());
+    }
+
     @Test
     public void testUpdateToManyRelationHookInUpdateRelationBidirection() {
         Parent parent = new Parent();
@@ -1619,6 +1661,78 @@ public class PersistentResourceTest extends PersistenceResourceTestSetup {
         );
     }
 
+    @Test
+    public void testLoadRecordsWithFacets() {
+        FirstClassFields fields = new FirstClassFields();
+        fields.id = 1;
+        fields.public1 = "public";
+
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        when(tx.loadObjects(eq(FirstClassFields.class), any(), any(), any(), any(RequestScope.class)))
+                .thenAnswer(invocation -> {
+                    Optional<Pagination> page = invocation.getArgument(3);
+                    page.get().setFacets("public1", Collections.singletonMap("public", 1L));
+                    return Lists.newArrayList(fields);
+                });
+        RequestScope scope = buildRequestScope(tx, new User(1));
+
+        Pagination pagination = Pagination.fromOffsetAndLimit(10, 0, false);
+        pagination.setFacetFields(Collections.singletonList("public1"));
+        PersistentResource.loadRecords(FirstClassFields.class, new ArrayList<>(), Optional.empty(),
+                Optional.empty(), Optional.of(pagination), scope);
+
+        assertEquals(Collections.singletonMap("public1", Collections.singletonMap("public", 1L)),
+                pagination.getFacets());
+    }
+
+    @Test
+    public void testLoadRecordsWithInvalidFacets() {
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        when(tx.loadObjects(any(), any(), any(), any(), any(RequestScope.class))).thenReturn(Lists.newArrayList());
+        RequestScope scope = buildRequestScope(tx, new User(1));
+
+        // Unknown attributes, attributes which may not be read and records which may not all be read are rejected.
+        for (Pair<Class<?>, String> facet : Arrays.<Pair<Class<?>, String>>asList(
+                Pair.of(FirstClassFields.class, "unknown"),
+                Pair.of(FirstClassFields.class, "private1"),
+                Pair.of(Child.class, "name"))) {
+            Pagination pagination = Pagination.fromOffsetAndLimit(10, 0, false);
+            pagination.setFacetFields(Collections.singletonList(facet.getRight()));
+            BadRequestException e = assertThrows(BadRequestException.class, () -> PersistentResource.loadRecords(
+                    facet.getLeft(), new ArrayList<>(), Optional.empty(), Optional.empty(), Optional.of(pagination),
+                    scope));
+            assertTrue(e.getMessage().contains("acet"), e.getMessage());
+        }
+        verify(tx, never()).loadObjects(any(), any(), any(), any(), any(RequestScope.class));
+
+        // Data stores which do not compute the counts fail the request instead of leaving them out.
+        Pagination pagination = Pagination.fromOffsetAndLimit(10, 0, false);
+        pagination.setFacetFields(Collections.singletonList("public1"));
+        assertThrows(BadRequestException.class, () -> PersistentResource.loadRecords(FirstClassFields.class,
+                new ArrayList<>(), Optional.empty(), Optional.empty(), Optional.of(pagination), scope));
+    }
+
+    @Test
+    public void testLoadExistingRecords() {
+        Child child1 = newChild(1);
+        Child child2 = newChild(-2);
+
+        DataStoreTransaction tx = mock(DataStoreTransaction.class);
+        User goodUser = new User(1);
+
+        when(tx.loadObjects(eq(Child.class), any(), any(), any(), any(RequestScope.class)))
+                .thenReturn(Lists.newArrayList(child1, child2));
+
+        RequestScope goodScope = buildRequestScope(tx, goodUser);
+        Map<String, PersistentResource> loaded = PersistentResource.loadExistingRecords(Child.class,
+                Arrays.asList("1", "-2", "3", "not a number"), goodScope);
+
+        // -2 may not be read, 3 does not exist and the last id is not a valid id
+        assertEquals(Collections.singleton("1"), loaded.keySet());
+        assertEquals(child1, loaded.get("1").getObject());
+        verify(tx, times(1)).loadObjects(eq(Child.class), any(), any(), any(), any(RequestScope.class));
+    }
+
     @Test()
     public void testLoadRecordSuccess() {
         Child child1 = newChild(1);
@@ -46,6 +46,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class InMemoryStoreTransactionTest {
@@ -515,4 +519,145 @@ public class InMemoryStoreTransactionTest {
         assertTrue(loaded.contains(book2));
         assertTrue(loaded.contains(book3));
     }
+
+    @Test
+    public void testSortingWithPaginationSelectsPage() {
+        List<Book> manyBooks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            manyBooks.add(new Book(i, String.format("Book %02d", (i * 7) % 40), "Genre", "English",
+                    System.currentTimeMillis(), Sets.newHashSet(author), null, Arrays.asList()));
+        }
+
+        Map<String, Sorting.SortOrder> sortOrder = new HashMap<>();
+        sortOrder.put("title", Sorting.SortOrder.desc);
+        Sorting sorting = new Sorting(sortOrder);
+        Pagination pagination = Pagination.fromOffsetAndLimit(3, 2, true);
+
+        when(wrappedTransaction.supportsFiltering(eq(Book.class),
+                any())).thenReturn(DataStoreTransaction.FeatureSupport.FULL);
+        when(wrappedTransaction.supportsSorting(eq(Book.class),
+                any())).thenReturn(false);
+        when(wrappedTransaction.supportsPagination(eq(Book.class))).thenReturn(true);
+
+        when(wrappedTransaction.loadObjects(eq(Book.class), eq(Optional.empty()),
+                eq(Optional.empty()), eq(Optional.empty()), eq(scope))).thenReturn((List) manyBooks);
+
+        Collection<Object> loaded = (Collection<Object>) inMemoryStoreTransaction.loadObjects(
+                Book.class,
+                Optional.empty(),
+                Optional.of(sorting),
+                Optional.of(pagination),
+                scope);
+
+        List<String> bookTitles = loaded.stream().map((o) -> ((Book) o).getTitle()).collect(Collectors.toList());
+        assertEquals(Lists.newArrayList("Book 37", "Book 36", "Book 35"), bookTitles);
+        assertEquals(40, pagination.getPageTotals());
+    }
+
+    @Test
+    public void testParallelFilteringKeepsOrder() {
+        List<Book> manyBooks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            manyBooks.add(new Book(i, "Book " + i, i % 2 == 0 ? "Even" : "Odd", "English",
+                    System.currentTimeMillis(), Sets.newHashSet(author), null, Arrays.asList()));
+        }
+
+        CountingPool pool = new CountingPool();
+        ElideSettings parallelSettings = new ElideSettingsBuilder(null)
+                .withParallelInMemoryFiltering(10, pool)
+                .build();
+        when(scope.getElideSettings()).thenReturn(parallelSettings);
+
+        FilterExpression expression = new InPredicate(new Path(Book.class, dictionary, "genre"), "Even");
+        Pagination pagination = Pagination.fromOffsetAndLimit(5, 10, false);
+
+        when(wrappedTransaction.supportsFiltering(eq(Book.class),
+                any())).thenReturn(DataStoreTransaction.FeatureSupport.NONE);
+        when(wrappedTransaction.supportsPagination(eq(Book.class))).thenReturn(true);
+        when(wrappedTransaction.loadObjects(eq(Book.class), eq(Optional.empty()),
+                eq(Optional.empty()), eq(Optional.empty()), eq(scope))).thenReturn((List) manyBooks);
+
+        try {
+            Collection<Object> page = (Collection<Object>) inMemoryStoreTransaction.loadObjects(
+                    Book.class,
+                    Optional.of(expression),
+                    Optional.empty(),
+                    Optional.of(pagination),
+                    scope);
+
+            List<Long> pageIds = page.stream().map((o) -> ((Book) o).getId()).collect(Collectors.toList());
+            assertEquals(Lists.newArrayList(20L, 22L, 24L, 26L, 28L), pageIds);
+
+            Collection<Object> all = (Collection<Object>) inMemoryStoreTransaction.loadObjects(
+                    Book.class,
+                    Optional.of(expression),
+                    Optional.empty(),
+                    Optional.empty(),
+                    scope);
+
+            List<Long> allIds = all.stream().map((o) -> ((Book) o).getId()).collect(Collectors.toList());
+            assertEquals(100, allIds.size());
+            for (int i = 0; i < allIds.size(); i++) {
+                assertEquals(2L * i, allIds.get(i));
+            }
+            assertEquals(2, pool.submitted.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRelationshipFilteringIsNotParallel() {
+        Publisher evenPublisher = new Publisher();
+        evenPublisher.setName("Even");
+        List<Book> manyBooks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            manyBooks.add(new Book(i, "Book " + i, "Fiction", "English", System.currentTimeMillis(),
+                    Sets.newHashSet(author), i % 2 == 0 ? evenPublisher : null, Arrays.asList()));
+        }
+
+        CountingPool pool = new CountingPool();
+        ElideSettings parallelSettings = new ElideSettingsBuilder(null)
+                .withParallelInMemoryFiltering(10, pool)
+                .build();
+        when(scope.getElideSettings()).thenReturn(parallelSettings);
+
+        FilterExpression expression = new InPredicate(new Path(Book.class, dictionary, "publisher.name"), "Even");
+
+        when(wrappedTransaction.supportsFiltering(eq(Book.class),
+                any())).thenReturn(DataStoreTransaction.FeatureSupport.NONE);
+        when(wrappedTransaction.loadObjects(eq(Book.class), eq(Optional.empty()),
+                eq(Optional.empty()), eq(Optional.empty()), eq(scope))).thenReturn((List) manyBooks);
+
+        try {
+            Collection<Object> loaded = (Collection<Object>) inMemoryStoreTransaction.loadObjects(
+                    Book.class,
+                    Optional.of(expression),
+                    Optional.empty(),
+                    Optional.empty(),
+                    scope);
+
+            assertEquals(100, loaded.size());
+            assertEquals(0, pool.submitted.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Pool which counts the tasks submitted to it.
+     */
+    private static class CountingPool extends ForkJoinPool {
+        private final AtomicInteger submitted = new AtomicInteger();
+
+        CountingPool() {
+            super(4);
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(Callable<T> task) {
+            submitted.incrementAndGet();
+            return super.submit(task);
+        }
+    }
 }
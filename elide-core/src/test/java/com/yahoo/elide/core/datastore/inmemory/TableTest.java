@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.datastore.inmemory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TableTest {
+
+    @Test
+    public void testMatchesInsertionOrderedMap() {
+        Random random = new Random(42);
+        Map<String, Object> expected = new LinkedHashMap<>();
+        Table table = Table.EMPTY;
+
+        for (long version = 1; version <= 5000; version++) {
+            String id = String.valueOf(random.nextInt(500));
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                table = table.remove(id, version);
+            } else {
+                Object value = "value " + version;
+                expected.put(id, value);
+                table = table.put(id, value, version);
+            }
+            if (version % 100 == 0) {
+                table = table.prune(version - 50);
+            }
+        }
+
+        assertEquals(expected, table.getObjects());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(table.getObjects().entrySet()));
+    }
+
+    @Test
+    public void testUpdatesDoNotChangePreviousVersions() {
+        Table first = Table.EMPTY.put("1", "one", 1).put("2", "two", 1);
+        Table second = first.put("1", "uno", 2).remove("2", 2).put("3", "three", 2);
+
+        assertEquals(Arrays.asList("1", "one", "2", "two"), flatten(first));
+        assertEquals(Arrays.asList("1", "uno", "3", "three"), flatten(second));
+        assertEquals(1L, first.getVersion("2"));
+        assertEquals(2L, second.getVersion("2"));
+    }
+
+    @Test
+    public void testHashCollisions() {
+        // "Aa" and "BB" have the same hash code.
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        Table table = Table.EMPTY.put("Aa", "a", 1).put("BB", "b", 1).put("C", "c", 1);
+
+        assertEquals("a", table.getObjects().get("Aa"));
+        assertEquals("b", table.getObjects().get("BB"));
+
+        table = table.remove("Aa", 2);
+        assertFalse(table.getObjects().containsKey("Aa"));
+        assertEquals("b", table.getObjects().get("BB"));
+
+        table = table.prune(2);
+        assertNull(table.getVersion("Aa"));
+        assertEquals(1L, table.getVersion("BB"));
+        assertEquals(Arrays.asList("BB", "b", "C", "c"), flatten(table));
+    }
+
+    @Test
+    public void testPruneKeepsTombstonesOpenTransactionsNeed() {
+        Table table = Table.EMPTY.put("1", "one", 1).put("2", "two", 1).put("3", "three", 1)
+                .remove("1", 2)
+                .remove("2", 3)
+                .remove("3", 4)
+                .put("3", "tres", 5);
+
+        table = table.prune(2);
+        assertNull(table.getVersion("1"));
+        assertEquals(3L, table.getVersion("2"));
+
+        // A tombstone which was overwritten is not pruned with it.
+        table = table.prune(5);
+        assertNull(table.getVersion("2"));
+        assertEquals(5L, table.getVersion("3"));
+        assertTrue(table.getObjects().containsKey("3"));
+        assertEquals(1, table.getObjects().size());
+    }
+
+    private static List<Object> flatten(Table table) {
+        List<Object> flattened = new ArrayList<>();
+        table.getObjects().forEach((id, value) -> {
+            flattened.add(id);
+            flattened.add(value);
+        });
+        return flattened;
+    }
+}
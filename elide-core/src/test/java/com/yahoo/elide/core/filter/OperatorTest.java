@@ -322,4 +322,34 @@ public class OperatorTest {
                 BadRequestException.class,
                 () -> Operator.GE.contextualize(constructPath(Author.class, "id"), Collections.emptyList(), requestScope).test(author));
     }
+
+    @Test
+    public void precoercedValuesTest() throws Exception {
+        author = new Author();
+        author.setId(5L);
+
+        // Values are coerced once to the declared Long type.
+        Path idPath = constructPath(Author.class, "id");
+        fn = Operator.IN.contextualize(idPath, Arrays.asList("4", "5", "6"), requestScope);
+        assertTrue(fn.test(author));
+        fn = Operator.GE.contextualize(idPath, Collections.singletonList("5"), requestScope);
+        assertTrue(fn.test(author));
+        fn = Operator.LT.contextualize(idPath, Arrays.asList(2, "3"), requestScope);
+        assertFalse(fn.test(author));
+
+        // The same compiled predicate is reused across entities.
+        fn = Operator.LE.contextualize(idPath, Collections.singletonList(10), requestScope);
+        for (long id = 0; id < 20; id++) {
+            author.setId(id);
+            assertTrue(fn.test(author) == (id <= 10));
+        }
+
+        // Values whose runtime type differs from the declared type are coerced per entity.
+        Path untypedPath = new Path(Collections.singletonList(new Path.PathElement(Author.class, Object.class, "id")));
+        author.setId(7L);
+        fn = Operator.IN.contextualize(untypedPath, Collections.singletonList("7"), requestScope);
+        assertTrue(fn.test(author));
+        fn = Operator.GT.contextualize(untypedPath, Collections.singletonList("6"), requestScope);
+        assertTrue(fn.test(author));
+    }
 }
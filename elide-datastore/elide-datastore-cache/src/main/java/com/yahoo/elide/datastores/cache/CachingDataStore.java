@@ -0,0 +1,248 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.cache;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of another data store.
+ * <p>
+ * Read transactions serve {@code loadObject} by (type, id, filter) and {@code loadObjects} by
+ * (type, filter, sort, page) from a size bounded, least recently used cache per entity type, with a time to live
+ * per entity type.  Write transactions always go to the wrapped store and, once they commit, invalidate every
+ * cached result of the entity types they created, updated or deleted (including their entity super classes).
+ * <p>
+ * Cached entities are shared between requests, so this store is intended for read mostly (reference) data whose
+ * entities can be used outside of the transaction which loaded them.  Changes made outside of Elide, or to
+ * related entities cached under a different type, become visible once the time to live elapses.
+ */
+public class CachingDataStore implements DataStore {
+    private final DataStore dataStore;
+    private final long maximumSize;
+    private final Duration defaultTimeToLive;
+    private final Map<Class<?>, Duration> timeToLive;
+    private final Map<Class<?>, Optional<Cache<Object, Object>>> caches = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+    private EntityDictionary dictionary;
+
+    /**
+     * Cache every entity type of the wrapped store.
+     *
+     * @param dataStore the wrapped store
+     * @param maximumSize maximum number of cached results per entity type
+     * @param timeToLive how long a cached result is served
+     */
+    public CachingDataStore(DataStore dataStore, long maximumSize, Duration timeToLive) {
+        this(dataStore, maximumSize, timeToLive, new HashMap<>());
+    }
+
+    private CachingDataStore(DataStore dataStore,
+                             long maximumSize,
+                             Duration defaultTimeToLive,
+                             Map<Class<?>, Duration> timeToLive) {
+        Preconditions.checkArgument(maximumSize > 0, "Maximum cache size must be positive");
+        this.dataStore = dataStore;
+        this.maximumSize = maximumSize;
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.timeToLive = new HashMap<>(timeToLive);
+    }
+
+    @Override
+    public void populateEntityDictionary(EntityDictionary dictionary) {
+        dataStore.populateEntityDictionary(dictionary);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public DataStoreTransaction beginTransaction() {
+        return new CachingWriteTransaction(dataStore.beginTransaction(), this);
+    }
+
+    @Override
+    public DataStoreTransaction beginReadTransaction() {
+        return new CachingReadTransaction(dataStore.beginReadTransaction(), this);
+    }
+
+    /**
+     * Cache statistics for an entity type.
+     *
+     * @param entityClass the entity type
+     * @return statistics, or empty if the type is not cached
+     */
+    public Optional<CacheStats> getStats(Class<?> entityClass) {
+        return getCache(entityClass).map(Cache::stats);
+    }
+
+    /**
+     * Whether results of an entity type are cached.
+     *
+     * @param entityClass the entity type
+     * @return true if results are cached
+     */
+    boolean isCached(Class<?> entityClass) {
+        return getCache(entityClass).isPresent();
+    }
+
+    /**
+     * Return the cached result for a key or load and cache it.  A result loaded while the type was invalidated is
+     * returned but not kept.
+     *
+     * @param entityClass the entity type
+     * @param key the cache key
+     * @param loader loads the result from the wrapped store
+     * @return the result
+     */
+    Object get(Class<?> entityClass, Object key, Supplier<Object> loader) {
+        Optional<Cache<Object, Object>> cache = getCache(entityClass);
+        if (!cache.isPresent()) {
+            return loader.get();
+        }
+
+        Object cached = cache.get().getIfPresent(key);
+        if (cached != null) {
+            return ((Optional<?>) cached).orElse(null);
+        }
+
+        AtomicLong version = getVersion(entityClass);
+        long before = version.get();
+        Object result = loader.get();
+        if (version.get() == before) {
+            cache.get().put(key, Optional.ofNullable(result));
+            // An invalidation may have raced with the put.
+            if (version.get() != before) {
+                cache.get().invalidate(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop every cached result of the given entity types and their entity super classes.
+     *
+     * @param entityClasses the modified entity types
+     */
+    void invalidate(Collection<Class<?>> entityClasses) {
+        Set<Class<?>> invalidated = new HashSet<>();
+        for (Class<?> entityClass : entityClasses) {
+            Class<?> cls = lookupEntityClass(entityClass);
+            invalidated.add(cls);
+            if (dictionary != null) {
+                invalidated.addAll(dictionary.getSuperClassEntities(cls));
+            }
+        }
+
+        for (Class<?> cls : invalidated) {
+            getVersion(cls).incrementAndGet();
+            getCache(cls).ifPresent(Cache::invalidateAll);
+        }
+    }
+
+    /**
+     * Resolve proxies and other subclasses to their bound entity type.
+     *
+     * @param cls object class
+     * @return the entity type
+     */
+    Class<?> lookupEntityClass(Class<?> cls) {
+        if (dictionary == null) {
+            return cls;
+        }
+        try {
+            return dictionary.lookupEntityClass(cls);
+        } catch (IllegalArgumentException e) {
+            return cls;
+        }
+    }
+
+    private AtomicLong getVersion(Class<?> entityClass) {
+        return versions.computeIfAbsent(entityClass, key -> new AtomicLong());
+    }
+
+    private Optional<Cache<Object, Object>> getCache(Class<?> entityClass) {
+        return caches.computeIfAbsent(entityClass, key -> {
+            Duration ttl = timeToLive.getOrDefault(key, defaultTimeToLive);
+            if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+                return Optional.empty();
+            }
+            return Optional.of(CacheBuilder.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .build());
+        });
+    }
+
+    /**
+     * Builder for {@link CachingDataStore}.
+     */
+    public static class Builder {
+        private final DataStore dataStore;
+        private long maximumSize = 10000;
+        private Duration defaultTimeToLive = Duration.ZERO;
+        private final Map<Class<?>, Duration> timeToLive = new HashMap<>();
+
+        public Builder(DataStore dataStore) {
+            this.dataStore = dataStore;
+        }
+
+        /**
+         * Maximum number of cached results per entity type.
+         *
+         * @param maximumSize the maximum size
+         * @return the builder
+         */
+        public Builder withMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Time to live for entity types without their own setting.  Defaults to zero, which caches only the
+         * entity types configured through {@link #withTimeToLive(Class, Duration)}.
+         *
+         * @param timeToLive the time to live
+         * @return the builder
+         */
+        public Builder withDefaultTimeToLive(Duration timeToLive) {
+            this.defaultTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Time to live for an entity type.  A zero duration disables caching for the type.
+         *
+         * @param entityClass the entity type
+         * @param timeToLive the time to live
+         * @return the builder
+         */
+        public Builder withTimeToLive(Class<?> entityClass, Duration timeToLive) {
+            this.timeToLive.put(entityClass, timeToLive);
+            return this;
+        }
+
+        public CachingDataStore build() {
+            return new CachingDataStore(dataStore, maximumSize, defaultTimeToLive, timeToLive);
+        }
+    }
+}
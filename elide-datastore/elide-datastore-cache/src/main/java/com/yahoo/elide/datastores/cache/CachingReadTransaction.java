@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.cache;
+
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.datastore.wrapped.TransactionWrapper;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read transaction which serves loads from the {@link CachingDataStore} cache.
+ */
+public class CachingReadTransaction extends TransactionWrapper {
+    private final CachingDataStore dataStore;
+
+    public CachingReadTransaction(DataStoreTransaction tx, CachingDataStore dataStore) {
+        super(tx);
+        this.dataStore = dataStore;
+    }
+
+    @Override
+    public Object loadObject(Class<?> entityClass, Serializable id, Optional<FilterExpression> filterExpression,
+                             RequestScope scope) {
+        ObjectKey key = new ObjectKey(id, filterExpression.orElse(null));
+        return dataStore.get(entityClass, key, () -> tx.loadObject(entityClass, id, filterExpression, scope));
+    }
+
+    @Override
+    public Iterable<Object> loadObjects(Class<?> entityClass,
+                                        Optional<FilterExpression> filterExpression,
+                                        Optional<Sorting> sorting,
+                                        Optional<Pagination> pagination,
+                                        RequestScope scope) {
+        // Page totals are a side effect of the load which a cached result would not reproduce.
+        if (pagination.map(Pagination::isGenerateTotals).orElse(false)) {
+            return tx.loadObjects(entityClass, filterExpression, sorting, pagination, scope);
+        }
+
+        CollectionKey key = new CollectionKey(
+                filterExpression.orElse(null),
+                sorting.map(rules -> new ArrayList<>(rules.getSortRules().entrySet())).orElse(null),
+                pagination.map(Pagination::getOffset).orElse(null),
+                pagination.map(Pagination::getLimit).orElse(null));
+
+        @SuppressWarnings("unchecked")
+        Iterable<Object> result = (Iterable<Object>) dataStore.get(entityClass, key, () -> {
+            Iterable<Object> loaded = tx.loadObjects(entityClass, filterExpression, sorting, pagination, scope);
+            if (loaded == null) {
+                return null;
+            }
+            List<Object> list = new ArrayList<>();
+            loaded.forEach(list::add);
+            return Collections.unmodifiableList(list);
+        });
+        return result;
+    }
+
+    /**
+     * Cache key of a single entity load.
+     */
+    @Value
+    private static class ObjectKey {
+        private final Serializable id;
+        private final FilterExpression filterExpression;
+    }
+
+    /**
+     * Cache key of a collection load.  Sorting rules are kept as a list since the order of the rules matters but
+     * {@link Sorting} equality ignores it.
+     */
+    @Value
+    private static class CollectionKey {
+        private final FilterExpression filterExpression;
+        private final List<Map.Entry<String, Sorting.SortOrder>> sorting;
+        private final Integer offset;
+        private final Integer limit;
+    }
+}
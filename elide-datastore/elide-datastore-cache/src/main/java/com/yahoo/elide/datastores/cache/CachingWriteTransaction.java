@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.cache;
+
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.datastore.wrapped.TransactionWrapper;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Write transaction which invalidates the {@link CachingDataStore} cache for every entity type it modified once
+ * the wrapped transaction commits.
+ */
+public class CachingWriteTransaction extends TransactionWrapper {
+    private final CachingDataStore dataStore;
+    private final Set<Class<?>> modified = new LinkedHashSet<>();
+
+    public CachingWriteTransaction(DataStoreTransaction tx, CachingDataStore dataStore) {
+        super(tx);
+        this.dataStore = dataStore;
+    }
+
+    @Override
+    public void createObject(Object entity, RequestScope scope) {
+        modified(entity);
+        super.createObject(entity, scope);
+    }
+
+    @Override
+    public void save(Object entity, RequestScope scope) {
+        modified(entity);
+        super.save(entity, scope);
+    }
+
+    @Override
+    public void delete(Object entity, RequestScope scope) {
+        modified(entity);
+        super.delete(entity, scope);
+    }
+
+    @Override
+    public void setAttribute(Object entity, String attributeName, Object attributeValue, RequestScope scope) {
+        modified(entity);
+        super.setAttribute(entity, attributeName, attributeValue, scope);
+    }
+
+    @Override
+    public void updateToManyRelation(DataStoreTransaction relationTx, Object entity, String relationName,
+                                     Set<Object> newRelationships, Set<Object> deletedRelationships,
+                                     RequestScope scope) {
+        modified(entity);
+        newRelationships.forEach(this::modified);
+        deletedRelationships.forEach(this::modified);
+        super.updateToManyRelation(relationTx, entity, relationName, newRelationships, deletedRelationships, scope);
+    }
+
+    @Override
+    public void updateToOneRelation(DataStoreTransaction relationTx, Object entity, String relationName,
+                                    Object relationshipValue, RequestScope scope) {
+        modified(entity);
+        modified(relationshipValue);
+        super.updateToOneRelation(relationTx, entity, relationName, relationshipValue, scope);
+    }
+
+    @Override
+    public void commit(RequestScope scope) {
+        try {
+            super.commit(scope);
+        } finally {
+            // A failed commit may still have written to stores without atomic commits.
+            if (!modified.isEmpty()) {
+                dataStore.invalidate(modified);
+                modified.clear();
+            }
+        }
+    }
+
+    private void modified(Object entity) {
+        if (entity != null) {
+            modified.add(dataStore.lookupEntityClass(entity.getClass()));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.beans;
+
+import com.yahoo.elide.annotation.Include;
+
+import javax.persistence.Id;
+
+/**
+ * Reference data bean.
+ */
+@Include(rootLevel = true, type = "country")
+public class Country {
+    private String id;
+    private String name;
+
+    @Id
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.beans.Country;
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+public class CachingDataStoreTest {
+    private DataStore wrapped;
+    private DataStoreTransaction readTx;
+    private DataStoreTransaction writeTx;
+    private RequestScope scope;
+    private CachingDataStore store;
+
+    @BeforeEach
+    public void setup() {
+        wrapped = mock(DataStore.class);
+        readTx = mock(DataStoreTransaction.class);
+        writeTx = mock(DataStoreTransaction.class);
+        scope = mock(RequestScope.class);
+        when(wrapped.beginReadTransaction()).thenReturn(readTx);
+        when(wrapped.beginTransaction()).thenReturn(writeTx);
+        doAnswer(invocation -> {
+            ((EntityDictionary) invocation.getArgument(0)).bindEntity(Country.class);
+            return null;
+        }).when(wrapped).populateEntityDictionary(any());
+
+        store = new CachingDataStore.Builder(wrapped)
+                .withMaximumSize(100)
+                .withTimeToLive(Country.class, Duration.ofMinutes(5))
+                .build();
+        store.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+    }
+
+    @Test
+    public void testLoadObjectIsCached() throws IOException {
+        Country country = new Country();
+        when(readTx.loadObject(eq(Country.class), eq("us"), any(), any())).thenReturn(country);
+
+        for (int i = 0; i < 3; i++) {
+            try (DataStoreTransaction tx = store.beginReadTransaction()) {
+                assertSame(country, tx.loadObject(Country.class, "us", Optional.empty(), scope));
+            }
+        }
+        verify(readTx, times(1)).loadObject(eq(Country.class), eq("us"), any(), any());
+        assertEquals(2, store.getStats(Country.class).get().hitCount());
+    }
+
+    @Test
+    public void testLoadObjectsIsCachedPerPage() throws IOException {
+        List<Object> countries = Arrays.asList(new Country(), new Country());
+        when(readTx.loadObjects(eq(Country.class), any(), any(), any(), any())).thenReturn(countries);
+
+        Optional<Pagination> firstPage = Optional.of(Pagination.fromOffsetAndLimit(2, 0, false));
+        Optional<Pagination> secondPage = Optional.of(Pagination.fromOffsetAndLimit(2, 2, false));
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            tx.loadObjects(Country.class, Optional.empty(), Optional.empty(), firstPage, scope);
+            tx.loadObjects(Country.class, Optional.empty(), Optional.empty(), secondPage, scope);
+            assertEquals(countries, tx.loadObjects(Country.class, Optional.empty(), Optional.empty(),
+                    Optional.of(Pagination.fromOffsetAndLimit(2, 0, false)), scope));
+        }
+        verify(readTx, times(2)).loadObjects(eq(Country.class), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testLoadObjectsIsCachedPerSortOrder() throws IOException {
+        when(readTx.loadObjects(eq(Country.class), any(), any(), any(), any())).thenReturn(Arrays.asList());
+
+        Optional<Sorting> byNameThenId = Optional.of(Sorting.parseSortRule("name,id"));
+        Optional<Sorting> byIdThenName = Optional.of(Sorting.parseSortRule("id,name"));
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            tx.loadObjects(Country.class, Optional.empty(), byNameThenId, Optional.empty(), scope);
+            tx.loadObjects(Country.class, Optional.empty(), byIdThenName, Optional.empty(), scope);
+            tx.loadObjects(Country.class, Optional.empty(), Optional.of(Sorting.parseSortRule("name,id")),
+                    Optional.empty(), scope);
+        }
+        // Sorting equality ignores the order of the rules, the cache must not.
+        verify(readTx, times(2)).loadObjects(eq(Country.class), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testPageTotalsBypassCache() throws IOException {
+        when(readTx.loadObjects(eq(Country.class), any(), any(), any(), any())).thenReturn(Arrays.asList());
+
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            for (int i = 0; i < 2; i++) {
+                tx.loadObjects(Country.class, Optional.empty(), Optional.empty(),
+                        Optional.of(Pagination.fromOffsetAndLimit(10, 0, true)), scope);
+            }
+        }
+        verify(readTx, times(2)).loadObjects(eq(Country.class), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCommitInvalidates() throws IOException {
+        Country country = new Country();
+        when(readTx.loadObject(eq(Country.class), eq("us"), any(), any())).thenReturn(country);
+
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            tx.loadObject(Country.class, "us", Optional.empty(), scope);
+        }
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.save(country, scope);
+            tx.commit(scope);
+        }
+        verify(writeTx).save(country, scope);
+        verify(writeTx).commit(scope);
+
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            tx.loadObject(Country.class, "us", Optional.empty(), scope);
+        }
+        verify(readTx, times(2)).loadObject(eq(Country.class), eq("us"), any(), any());
+    }
+
+    @Test
+    public void testUnconfiguredTypeIsNotCached() throws IOException {
+        CachingDataStore uncached = new CachingDataStore.Builder(wrapped).build();
+        uncached.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+        when(readTx.loadObject(eq(Country.class), eq("us"), any(), any())).thenReturn(new Country());
+
+        for (int i = 0; i < 2; i++) {
+            try (DataStoreTransaction tx = uncached.beginReadTransaction()) {
+                tx.loadObject(Country.class, "us", Optional.empty(), scope);
+            }
+        }
+        verify(readTx, times(2)).loadObject(eq(Country.class), eq("us"), any(), any());
+        assertFalse(uncached.getStats(Country.class).isPresent());
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.hibernate;
+
+import com.yahoo.elide.core.EntityDictionary;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Cacheable;
+import javax.persistence.CascadeType;
+import javax.persistence.ElementCollection;
+import javax.persistence.EntityListeners;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
+import javax.persistence.Version;
+
+/**
+ * Queue of the creates, saves and deletes a Hibernate/JPA transaction defers until flush.
+ * <p>
+ * By default the queue is replayed in the order it was recorded.  Bulk mode keeps that order but:
+ * <ol>
+ * <li>Saves of entities created in the same transaction, and repeated saves of the same entity, are dropped since
+ * the session already tracks their final state.</li>
+ * <li>Every {@code batchSize} operations the session is flushed and the entities created in that chunk are
+ * detached, keeping the persistence context (and the cost of dirty checking it) bounded.  The session is also
+ * flushed before a create which follows a delete, since Hibernate would otherwise issue the insert first.</li>
+ * <li>Consecutive deletes of one entity type are issued as a single {@code DELETE ... WHERE id IN (...)} (per
+ * {@code batchSize} ids) when a bulk statement skips nothing the session would have done: the entity has no
+ * version, lifecycle callbacks or listeners, second level cache or auditing, no collections, no cascading
+ * relationships, and is not part of an inheritance hierarchy.  Other deletes go through the session as usual.</li>
+ * </ol>
+ */
+public class DeferredOperations {
+
+    /**
+     * Kind of deferred operation.
+     */
+    public enum Type {
+        CREATE,
+        SAVE,
+        DELETE
+    }
+
+    /**
+     * Applies deferred operations to the underlying session or entity manager.
+     */
+    public interface Handler {
+        void create(Object entity);
+
+        void save(Object entity);
+
+        void delete(Object entity);
+
+        void flush();
+
+        void detach(Object entity);
+
+        void bulkDelete(Class<?> entityClass, Collection<?> ids);
+    }
+
+    // Hibernate specific annotations are matched by name since this module only depends on the JPA API.
+    private static final Set<String> CLASS_ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            EntityListeners.class.getName(),
+            "org.hibernate.annotations.Cache",
+            "org.hibernate.envers.Audited")));
+    private static final Set<String> MEMBER_ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Version.class.getName(),
+            PrePersist.class.getName(),
+            PostPersist.class.getName(),
+            PreUpdate.class.getName(),
+            PostUpdate.class.getName(),
+            PreRemove.class.getName(),
+            PostRemove.class.getName(),
+            PostLoad.class.getName(),
+            "org.hibernate.envers.Audited")));
+    private static final Set<CascadeType> CASCADE_PERSIST = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(CascadeType.ALL, CascadeType.PERSIST, CascadeType.MERGE)));
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    public void add(Type type, Object entity) {
+        operations.add(new Operation(type, entity));
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public void clear() {
+        operations.clear();
+    }
+
+    /**
+     * Replay the operations in the order they were recorded.
+     *
+     * @param handler applies each operation
+     */
+    public void execute(Handler handler) {
+        for (Operation operation : operations) {
+            apply(handler, operation);
+        }
+        operations.clear();
+    }
+
+    /**
+     * Replay the operations in the order they were recorded, flushing in chunks and deleting by ID in bulk.
+     *
+     * @param handler applies each operation
+     * @param dictionary the entity dictionary
+     * @param batchSize number of operations per flushed chunk and maximum number of IDs per bulk delete
+     */
+    public void executeBulk(Handler handler, EntityDictionary dictionary, int batchSize) {
+        Set<Object> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Class<?>, Boolean> bulkDeletable = new IdentityHashMap<>();
+        Set<Class<?>> cascadeTargets = getCascadePersistTargets(dictionary);
+
+        for (Operation operation : operations) {
+            if (operation.type == Type.CREATE) {
+                created.add(operation.entity);
+            }
+        }
+
+        BulkFlush flush = new BulkFlush(handler, dictionary, batchSize);
+        for (Operation operation : operations) {
+            Class<?> entityClass = dictionary.lookupEntityClass(operation.entity.getClass());
+            switch (operation.type) {
+                case DELETE:
+                    if (bulkDeletable.computeIfAbsent(entityClass, cls -> isBulkDeletable(cls, dictionary))
+                            && !created.contains(operation.entity)) {
+                        flush.bulkDelete(entityClass, operation.entity);
+                    } else {
+                        flush.apply(operation, false);
+                    }
+                    break;
+                case SAVE:
+                    if (!created.contains(operation.entity) && saved.add(operation.entity)) {
+                        flush.apply(operation, false);
+                    }
+                    break;
+                default:
+                    flush.apply(operation, !cascadeTargets.contains(entityClass));
+                    break;
+            }
+        }
+        flush.finish();
+
+        operations.clear();
+    }
+
+    private static void apply(Handler handler, Operation operation) {
+        switch (operation.type) {
+            case CREATE:
+                handler.create(operation.entity);
+                break;
+            case SAVE:
+                handler.save(operation.entity);
+                break;
+            default:
+                handler.delete(operation.entity);
+                break;
+        }
+    }
+
+    /**
+     * Whether deleting an entity by ID with a bulk statement skips nothing the session would have done.
+     */
+    private static boolean isBulkDeletable(Class<?> entityClass, EntityDictionary dictionary) {
+        if (!dictionary.getSubclassingEntities(entityClass).isEmpty()
+                || !dictionary.getSuperClassEntities(entityClass).isEmpty()
+                || hasSessionManagedState(entityClass)) {
+            return false;
+        }
+
+        for (String attribute : dictionary.getAttributes(entityClass)) {
+            Class<?> type = dictionary.getType(entityClass, attribute);
+            if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+                    || dictionary.getAttributeOrRelationAnnotation(entityClass, ElementCollection.class,
+                    attribute) != null) {
+                return false;
+            }
+        }
+
+        for (String relationship : dictionary.getRelationships(entityClass)) {
+            if (dictionary.getRelationshipType(entityClass, relationship).isToMany()) {
+                return false;
+            }
+            OneToOne oneToOne = dictionary.getAttributeOrRelationAnnotation(entityClass, OneToOne.class,
+                    relationship);
+            if ((oneToOne != null && oneToOne.orphanRemoval())
+                    || getCascade(dictionary, entityClass, relationship).length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the session does more than remove the row when deleting an entity of the given type: versions are
+     * checked, lifecycle callbacks and entity listeners invoked, and the second level cache and audit tables
+     * maintained.
+     */
+    private static boolean hasSessionManagedState(Class<?> entityClass) {
+        for (Class<?> cls = entityClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            if (hasAnnotation(cls.getDeclaredAnnotations(), CLASS_ANNOTATIONS)) {
+                return true;
+            }
+            Cacheable cacheable = cls.getDeclaredAnnotation(Cacheable.class);
+            if (cacheable != null && cacheable.value()) {
+                return true;
+            }
+            for (Field field : cls.getDeclaredFields()) {
+                if (hasAnnotation(field.getDeclaredAnnotations(), MEMBER_ANNOTATIONS)) {
+                    return true;
+                }
+            }
+            for (Method method : cls.getDeclaredMethods()) {
+                if (hasAnnotation(method.getDeclaredAnnotations(), MEMBER_ANNOTATIONS)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAnnotation(Annotation[] annotations, Set<String> names) {
+        return Arrays.stream(annotations).anyMatch(annotation -> names.contains(annotation.annotationType().getName()));
+    }
+
+    /**
+     * Entity types reachable through a relationship which cascades persist or merge.  Detaching such entities
+     * part way through a flush would make the cascade fail, so they stay attached.
+     */
+    private static Set<Class<?>> getCascadePersistTargets(EntityDictionary dictionary) {
+        Set<Class<?>> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Class<?> entityClass : dictionary.getBindings()) {
+            for (String relationship : dictionary.getRelationships(entityClass)) {
+                CascadeType[] cascade = getCascade(dictionary, entityClass, relationship);
+                if (cascades(cascade, CASCADE_PERSIST)) {
+                    targets.add(dictionary.getParameterizedType(entityClass, relationship));
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static CascadeType[] getCascade(EntityDictionary dictionary, Class<?> entityClass, String relationship) {
+        List<Class<? extends Annotation>> types =
+                Arrays.asList(OneToOne.class, OneToMany.class, ManyToOne.class, ManyToMany.class);
+        for (Class<? extends Annotation> type : types) {
+            Annotation annotation = dictionary.getAttributeOrRelationAnnotation(entityClass, type, relationship);
+            if (annotation instanceof OneToOne) {
+                return ((OneToOne) annotation).cascade();
+            }
+            if (annotation instanceof OneToMany) {
+                return ((OneToMany) annotation).cascade();
+            }
+            if (annotation instanceof ManyToOne) {
+                return ((ManyToOne) annotation).cascade();
+            }
+            if (annotation instanceof ManyToMany) {
+                return ((ManyToMany) annotation).cascade();
+            }
+        }
+        return new CascadeType[0];
+    }
+
+    private static boolean cascades(CascadeType[] cascade, Set<CascadeType> types) {
+        return Arrays.stream(cascade).anyMatch(types::contains);
+    }
+
+    /**
+     * Applies operations in bulk mode, tracking the current chunk and the pending run of bulk deletes.
+     */
+    private static class BulkFlush {
+        private final Handler handler;
+        private final EntityDictionary dictionary;
+        private final int batchSize;
+        private final List<Object> detachable = new ArrayList<>();
+        private final List<Object> deletes = new ArrayList<>();
+        private Class<?> deleteClass;
+        private int pending = 0;
+        private boolean deleted = false;
+
+        BulkFlush(Handler handler, EntityDictionary dictionary, int batchSize) {
+            this.handler = handler;
+            this.dictionary = dictionary;
+            this.batchSize = batchSize;
+        }
+
+        void apply(Operation operation, boolean detach) {
+            finishDeletes();
+            if (operation.type == Type.CREATE && deleted) {
+                flush();
+            }
+            DeferredOperations.apply(handler, operation);
+            deleted |= operation.type == Type.DELETE;
+            if (detach) {
+                detachable.add(operation.entity);
+            }
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        void bulkDelete(Class<?> entityClass, Object entity) {
+            if (entityClass != deleteClass) {
+                finishDeletes();
+                deleteClass = entityClass;
+            }
+            deletes.add(entity);
+        }
+
+        void finish() {
+            finishDeletes();
+        }
+
+        private void flush() {
+            handler.flush();
+            detachable.forEach(handler::detach);
+            detachable.clear();
+            pending = 0;
+            deleted = false;
+        }
+
+        private void finishDeletes() {
+            if (deletes.isEmpty()) {
+                return;
+            }
+            // Pending writes (for example nulled foreign keys) must reach the database before rows are removed.
+            flush();
+            String idField = dictionary.getIdFieldName(deleteClass);
+            for (int start = 0; start < deletes.size(); start += batchSize) {
+                List<Object> ids = new ArrayList<>();
+                for (Object entity : deletes.subList(start, Math.min(start + batchSize, deletes.size()))) {
+                    ids.add(dictionary.getValue(entity, idField, null));
+                    handler.detach(entity);
+                }
+                handler.bulkDelete(deleteClass, ids);
+            }
+            deletes.clear();
+            deleteClass = null;
+        }
+    }
+
+    /**
+     * A deferred operation.
+     */
+    private static class Operation {
+        private final Type type;
+        private final Object entity;
+
+        Operation(Type type, Object entity) {
+            this.type = type;
+            this.entity = entity;
+        }
+    }
+}
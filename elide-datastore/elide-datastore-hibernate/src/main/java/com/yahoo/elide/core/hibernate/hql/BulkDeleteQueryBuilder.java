@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.hibernate.hql;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.hibernate.Query;
+import com.yahoo.elide.core.hibernate.Session;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Constructs a HQL statement which deletes a set of entities of one type by ID.
+ * <p>
+ * For example: DELETE FROM example.Book AS example_Book WHERE example_Book.id IN (:ids)
+ */
+public class BulkDeleteQueryBuilder extends AbstractHQLQueryBuilder {
+    private static final String DELETE = "DELETE";
+    private static final String WHERE = " WHERE ";
+    private static final String IDS_PARAMETER = "ids";
+
+    private final Class<?> entityClass;
+    private Collection<?> ids = Collections.emptyList();
+
+    public BulkDeleteQueryBuilder(Class<?> entityClass,
+                                  EntityDictionary dictionary,
+                                  Session session) {
+        super(dictionary, session);
+        this.entityClass = dictionary.lookupEntityClass(entityClass);
+    }
+
+    public BulkDeleteQueryBuilder withIds(Collection<?> ids) {
+        this.ids = ids;
+        return this;
+    }
+
+    /**
+     * Constructs the delete statement.
+     *
+     * @return the constructed statement
+     */
+    @Override
+    public Query build() {
+        String entityName = entityClass.getCanonicalName();
+        String entityAlias = FilterPredicate.getTypeAlias(entityClass);
+        String idField = dictionary.getIdFieldName(entityClass);
+
+        Query query = session.createQuery(DELETE
+                + FROM
+                + entityName
+                + AS
+                + entityAlias
+                + WHERE
+                + entityAlias + PERIOD + idField
+                + " IN (:" + IDS_PARAMETER + ")");
+
+        query.setParameterList(IDS_PARAMETER, ids);
+        return query;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.hibernate.hql;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path.PathElement;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.FilterTranslator;
+import com.yahoo.elide.core.filter.InPredicate;
+import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.ExpressionScopingVisitor;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import com.yahoo.elide.core.hibernate.Query;
+import com.yahoo.elide.core.hibernate.Session;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+import com.yahoo.elide.utils.coerce.CoerceUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Constructs a HQL query to fetch the sizes of the same relationship of several parents at once.
+ */
+public class GroupedSubCollectionPageTotalsQueryBuilder extends AbstractHQLQueryBuilder {
+
+    private final Class<?> parentType;
+    private final Class<?> childType;
+    private final String relationshipName;
+    private final Collection<?> parents;
+
+    public GroupedSubCollectionPageTotalsQueryBuilder(Class<?> parentType,
+                                                      Class<?> childType,
+                                                      String relationshipName,
+                                                      Collection<?> parents,
+                                                      EntityDictionary dictionary,
+                                                      Session session) {
+        super(dictionary, session);
+        this.parentType = dictionary.lookupEntityClass(parentType);
+        this.childType = childType;
+        this.relationshipName = relationshipName;
+        this.parents = parents;
+    }
+
+    @Override
+    public AbstractHQLQueryBuilder withPossiblePagination(Optional<Pagination> ignored) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AbstractHQLQueryBuilder withPossibleSorting(Optional<Sorting> ignored) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Constructs a query that returns the id of each parent with the count of the members of its relationship.
+     *
+     * For a relationship like author#[1,3].books, constructs a query like:
+     *
+     * SELECT Author.id, COUNT(DISTINCT Author_books)
+     * FROM Author AS Author JOIN Author.books AS Author_books
+     * WHERE Author.id IN (:author_books_id)
+     * GROUP BY Author.id;
+     *
+     * Parents without members may be missing from the results.
+     *
+     * @return the constructed query
+     */
+    @Override
+    public Query build() {
+        Class<?> idType = dictionary.getIdType(parentType);
+        List<Object> idVals = parents.stream()
+                .map(parent -> CoerceUtil.coerce(dictionary.getId(parent), idType))
+                .collect(Collectors.toList());
+        String idField = dictionary.getIdFieldName(parentType);
+
+        //Construct a predicate that selects the relationship's parents (Author.id IN (1, 3)).
+        FilterPredicate idExpression = new InPredicate(new PathElement(parentType, idType, idField), idVals);
+
+        Collection<FilterPredicate> predicates = new ArrayList<>();
+        String joinClause;
+        String filterClause;
+
+        //Relationship alias is Author_books
+        String parentAlias = FilterPredicate.getTypeAlias(parentType);
+        String relationshipAlias = parentAlias + UNDERSCORE + relationshipName;
+        String parentIdField = parentAlias + PERIOD + idField;
+
+        if (filterExpression.isPresent()) {
+            // Copy and scope the filter expression for the join clause
+            ExpressionScopingVisitor visitor = new ExpressionScopingVisitor(
+                    new PathElement(parentType, childType, relationshipName));
+            FilterExpression scoped = filterExpression
+                    .map(fe -> fe.accept(visitor))
+                    .orElseThrow(() -> new IllegalStateException("Filter expression cloned to null"));
+
+            PredicateExtractionVisitor extractor = new PredicateExtractionVisitor(new ArrayList<>());
+
+            predicates = scoped.accept(extractor);
+            predicates.add(idExpression);
+
+            FilterExpression joinedExpression = new AndFilterExpression(scoped, idExpression);
+
+            joinClause = getJoinClauseFromFilters(joinedExpression, true);
+            filterClause = new FilterTranslator().apply(joinedExpression, USE_ALIAS);
+        } else {
+            joinClause = JOIN
+                    + parentAlias
+                    + PERIOD + relationshipName
+                    + SPACE
+                    + relationshipAlias
+                    + SPACE;
+
+            filterClause = new FilterTranslator().apply(idExpression, USE_ALIAS);
+            predicates.add(idExpression);
+        }
+
+        Query query = session.createQuery(
+                SELECT
+                        + parentIdField
+                        + COMMA
+                        + " COUNT(DISTINCT "
+                        + relationshipAlias
+                        + ") "
+                        + FROM
+                        + parentType.getCanonicalName()
+                        + AS
+                        + parentAlias
+                        + SPACE
+                        + joinClause
+                        + SPACE
+                        + filterClause
+                        + " GROUP BY "
+                        + parentIdField);
+
+        //Fill in the query parameters
+        supplyFilterQueryParameters(query, predicates);
+        return query;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.core.hibernate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.yahoo.elide.core.EntityDictionary;
+
+import example.Author;
+import example.Book;
+import example.Chapter;
+import example.Publisher;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.InOrder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DeferredOperationsTest {
+
+    private EntityDictionary dictionary;
+
+    @BeforeAll
+    public void initialize() {
+        dictionary = new EntityDictionary(new HashMap<>());
+        dictionary.bindEntity(Book.class);
+        dictionary.bindEntity(Author.class);
+        dictionary.bindEntity(Publisher.class);
+        dictionary.bindEntity(Chapter.class);
+    }
+
+    @Test
+    public void testExecuteInOrder() {
+        Book book = new Book();
+        Author author = new Author();
+        DeferredOperations operations = new DeferredOperations();
+        operations.add(DeferredOperations.Type.CREATE, book);
+        operations.add(DeferredOperations.Type.SAVE, author);
+        operations.add(DeferredOperations.Type.DELETE, book);
+
+        DeferredOperations.Handler handler = mock(DeferredOperations.Handler.class);
+        operations.execute(handler);
+
+        InOrder order = inOrder(handler);
+        order.verify(handler).create(book);
+        order.verify(handler).save(author);
+        order.verify(handler).delete(book);
+        verify(handler, never()).flush();
+        assertTrue(operations.isEmpty());
+    }
+
+    @Test
+    public void testExecuteBulkKeepsOrder() {
+        Book book1 = new Book();
+        Book book2 = new Book();
+        Author author = new Author();
+        DeferredOperations operations = new DeferredOperations();
+        operations.add(DeferredOperations.Type.CREATE, book1);
+        operations.add(DeferredOperations.Type.SAVE, author);
+        operations.add(DeferredOperations.Type.CREATE, book2);
+        operations.add(DeferredOperations.Type.SAVE, book1);
+        operations.add(DeferredOperations.Type.SAVE, author);
+
+        DeferredOperations.Handler handler = mock(DeferredOperations.Handler.class);
+        operations.executeBulk(handler, dictionary, 2);
+
+        InOrder order = inOrder(handler);
+        order.verify(handler).create(book1);
+        order.verify(handler).save(author);
+        order.verify(handler).flush();
+        order.verify(handler).detach(book1);
+        order.verify(handler).create(book2);
+        verify(handler, never()).save(book1);
+        verify(handler, times(1)).save(author);
+        verify(handler, never()).detach(book2);
+        assertTrue(operations.isEmpty());
+    }
+
+    @Test
+    public void testExecuteBulkDeletes() {
+        Chapter chapter1 = new Chapter();
+        dictionary.setValue(chapter1, "id", 1L);
+        Chapter chapter2 = new Chapter();
+        dictionary.setValue(chapter2, "id", 2L);
+        Chapter chapter3 = new Chapter();
+        dictionary.setValue(chapter3, "id", 3L);
+        Book book = new Book();
+        DeferredOperations operations = new DeferredOperations();
+        operations.add(DeferredOperations.Type.DELETE, chapter1);
+        operations.add(DeferredOperations.Type.DELETE, book);
+        operations.add(DeferredOperations.Type.DELETE, chapter2);
+        operations.add(DeferredOperations.Type.DELETE, chapter3);
+
+        DeferredOperations.Handler handler = mock(DeferredOperations.Handler.class);
+        operations.executeBulk(handler, dictionary, 2);
+
+        // Books own collections so they are deleted through the session, between the runs of chapter deletes.
+        InOrder order = inOrder(handler);
+        order.verify(handler).flush();
+        order.verify(handler).bulkDelete(Chapter.class, Arrays.asList(1L));
+        order.verify(handler).delete(book);
+        order.verify(handler).flush();
+        order.verify(handler).bulkDelete(Chapter.class, Arrays.asList(2L, 3L));
+        verify(handler, never()).delete(chapter1);
+        verify(handler, times(3)).detach(any());
+    }
+
+    @Test
+    public void testExecuteBulkDeleteBeforeCreate() {
+        Chapter deletedChapter = new Chapter();
+        dictionary.setValue(deletedChapter, "id", 1L);
+        Chapter createdChapter = new Chapter();
+        Book deletedBook = new Book();
+        Book createdBook = new Book();
+        DeferredOperations operations = new DeferredOperations();
+        operations.add(DeferredOperations.Type.DELETE, deletedChapter);
+        operations.add(DeferredOperations.Type.CREATE, createdChapter);
+        operations.add(DeferredOperations.Type.DELETE, deletedBook);
+        operations.add(DeferredOperations.Type.CREATE, createdBook);
+
+        DeferredOperations.Handler handler = mock(DeferredOperations.Handler.class);
+        operations.executeBulk(handler, dictionary, 10);
+
+        // Each delete reaches the database before the create that follows it.
+        InOrder order = inOrder(handler);
+        order.verify(handler).bulkDelete(Chapter.class, Arrays.asList(1L));
+        order.verify(handler).create(createdChapter);
+        order.verify(handler).delete(deletedBook);
+        order.verify(handler).flush();
+        order.verify(handler).create(createdBook);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.hibernate.hql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.InPredicate;
+import com.yahoo.elide.core.hibernate.hql.GroupedSubCollectionPageTotalsQueryBuilder;
+import com.yahoo.elide.core.pagination.Pagination;
+
+import example.Author;
+import example.Book;
+import example.Chapter;
+import example.Publisher;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class GroupedSubCollectionPageTotalsQueryBuilderTest {
+
+    private EntityDictionary dictionary;
+
+    private static final String BOOKS = "books";
+    private static final String PUBLISHER = "publisher";
+
+    @BeforeAll
+    public void initialize() {
+        dictionary = new EntityDictionary(new HashMap<>());
+        dictionary.bindEntity(Book.class);
+        dictionary.bindEntity(Author.class);
+        dictionary.bindEntity(Publisher.class);
+        dictionary.bindEntity(Chapter.class);
+    }
+
+    @Test
+    public void testGroupedSubCollectionPageTotals() {
+        GroupedSubCollectionPageTotalsQueryBuilder builder = new GroupedSubCollectionPageTotalsQueryBuilder(
+                Author.class, Book.class, BOOKS, getAuthors(), dictionary, new TestSessionWrapper());
+
+        TestQueryWrapper query = (TestQueryWrapper) builder.build();
+
+        String actual = query.getQueryText();
+        actual = actual.replaceAll(":id_\\w+", ":id_XXX");
+
+        String expected =
+                "SELECT example_Author.id, COUNT(DISTINCT example_Author_books)  "
+                + "FROM example.Author AS example_Author  "
+                + "JOIN example_Author.books example_Author_books  "
+                + "WHERE example_Author.id IN (:id_XXX, :id_XXX) "
+                + "GROUP BY example_Author.id";
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGroupedSubCollectionPageTotalsWithPagination() {
+        GroupedSubCollectionPageTotalsQueryBuilder builder = new GroupedSubCollectionPageTotalsQueryBuilder(
+                Author.class, Book.class, BOOKS, getAuthors(), dictionary, new TestSessionWrapper());
+
+        assertThrows(UnsupportedOperationException.class,
+                () -> builder.withPossiblePagination(Optional.of(Pagination.fromOffsetAndLimit(10, 0, false))));
+    }
+
+    @Test
+    public void testGroupedSubCollectionPageTotalsWithJoinFilter() {
+        List<Path.PathElement>  publisherNamePath = Arrays.asList(
+                new Path.PathElement(Book.class, Publisher.class, PUBLISHER),
+                new Path.PathElement(Publisher.class, String.class, "name")
+        );
+
+        FilterPredicate publisherNamePredicate = new InPredicate(
+                new Path(publisherNamePath),
+                "Pub1");
+
+        GroupedSubCollectionPageTotalsQueryBuilder builder = new GroupedSubCollectionPageTotalsQueryBuilder(
+                Author.class, Book.class, BOOKS, getAuthors(), dictionary, new TestSessionWrapper());
+
+        TestQueryWrapper query = (TestQueryWrapper) builder
+                .withPossibleFilterExpression(Optional.of(publisherNamePredicate))
+                .build();
+
+        String expected =
+                "SELECT example_Author.id, COUNT(DISTINCT example_Author_books)  "
+                + "FROM example.Author AS example_Author  "
+                + "LEFT JOIN example_Author.books example_Author_books  "
+                + "LEFT JOIN example_Author_books.publisher example_Book_publisher   "
+                + "WHERE (example_Book_publisher.name IN (:books_publisher_name_XXX) "
+                + "AND example_Author.id IN (:id_XXX, :id_XXX)) "
+                + "GROUP BY example_Author.id";
+
+        String actual = query.getQueryText();
+        actual = actual.replaceFirst(":books_publisher_name_\\w+", ":books_publisher_name_XXX");
+        actual = actual.replaceAll(":id_\\w+", ":id_XXX");
+
+        assertEquals(expected, actual);
+    }
+
+    private List<Author> getAuthors() {
+        Author first = new Author();
+        first.setId(1L);
+
+        Author second = new Author();
+        second.setId(3L);
+
+        return Arrays.asList(first, second);
+    }
+}
@@ -25,6 +25,7 @@ public abstract class AbstractHibernateStore implements JPQLDataStore {
     protected final boolean isScrollEnabled;
     protected final ScrollMode scrollMode;
     protected final HibernateTransactionSupplier transactionSupplier;
+    protected int bulkFlushBatchSize = 0;
 
     /**
      * Constructor.
@@ -66,6 +67,7 @@ public abstract class AbstractHibernateStore implements JPQLDataStore {
         private boolean isScrollEnabled;
         private ScrollMode scrollMode;
         private EntityManagerFactory emf;
+        private int bulkFlushBatchSize = 0;
 
         public Builder(final SessionFactory sessionFactory) {
             this.sessionFactory = sessionFactory;
@@ -99,13 +101,29 @@ public abstract class AbstractHibernateStore implements JPQLDataStore {
             return this;
         }
 
+        /**
+         * Enable bulk flush mode on every write transaction.
+         *
+         * @param batchSize JDBC batch size and flush chunk size; 0 disables bulk flushing
+         * @return the builder
+         * @see HibernateTransaction#enableBulkFlush(int)
+         */
+        public Builder withBulkFlush(final int batchSize) {
+            this.bulkFlushBatchSize = batchSize;
+            return this;
+        }
+
         public AbstractHibernateStore build() {
+            AbstractHibernateStore store;
             if (sessionFactory != null) {
-                return new HibernateSessionFactoryStore(sessionFactory, isScrollEnabled, scrollMode);
+                store = new HibernateSessionFactoryStore(sessionFactory, isScrollEnabled, scrollMode);
             } else if (emf != null) {
-                return new HibernateEntityManagerStore(emf, isScrollEnabled, scrollMode);
+                store = new HibernateEntityManagerStore(emf, isScrollEnabled, scrollMode);
+            } else {
+                throw new IllegalStateException("Either an EntityManager or SessionFactory is required!");
             }
-            throw new IllegalStateException("Either an EntityManager or SessionFactory is required!");
+            store.bulkFlushBatchSize = bulkFlushBatchSize;
+            return store;
         }
     }
 
@@ -131,6 +149,20 @@ public abstract class AbstractHibernateStore implements JPQLDataStore {
     @Override
     abstract public DataStoreTransaction beginTransaction();
 
+    /**
+     * Create a transaction for the session, applying the store wide transaction settings.
+     *
+     * @param session Hibernate session
+     * @return transaction
+     */
+    protected HibernateTransaction createTransaction(Session session) {
+        HibernateTransaction transaction = transactionSupplier.get(session, isScrollEnabled, scrollMode);
+        if (bulkFlushBatchSize > 0) {
+            transaction.enableBulkFlush(bulkFlushBatchSize);
+        }
+        return transaction;
+    }
+
     /**
      * Functional interface for describing a method to supply a custom Hibernate transaction.
      */
@@ -40,7 +40,7 @@ public class HibernateEntityManagerStore extends AbstractHibernateStore {
         Session session = manager.unwrap(Session.class);
         session.beginTransaction();
         session.clear();
-        return transactionSupplier.get(session, isScrollEnabled, scrollMode);
+        return createTransaction(session);
     }
 
     @Override
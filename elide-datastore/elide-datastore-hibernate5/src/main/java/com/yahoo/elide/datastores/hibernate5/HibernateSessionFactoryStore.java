@@ -34,6 +34,6 @@ public class HibernateSessionFactoryStore extends AbstractHibernateStore {
         Session session = sessionFactory.getCurrentSession();
         Preconditions.checkNotNull(session);
         session.beginTransaction();
-        return transactionSupplier.get(session, isScrollEnabled, scrollMode);
+        return createTransaction(session);
     }
 }
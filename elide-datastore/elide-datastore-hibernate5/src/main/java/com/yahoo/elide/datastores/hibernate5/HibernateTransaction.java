@@ -15,7 +15,10 @@ import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.InPredicate;
 import com.yahoo.elide.core.filter.expression.AndFilterExpression;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.hibernate.DeferredOperations;
 import com.yahoo.elide.core.hibernate.hql.AbstractHQLQueryBuilder;
+import com.yahoo.elide.core.hibernate.hql.BulkDeleteQueryBuilder;
+import com.yahoo.elide.core.hibernate.hql.GroupedSubCollectionPageTotalsQueryBuilder;
 import com.yahoo.elide.core.hibernate.hql.RelationshipImpl;
 import com.yahoo.elide.core.hibernate.hql.RootCollectionFetchQueryBuilder;
 import com.yahoo.elide.core.hibernate.hql.RootCollectionPageTotalsQueryBuilder;
@@ -27,6 +30,8 @@ import com.yahoo.elide.datastores.hibernate5.porting.QueryWrapper;
 import com.yahoo.elide.datastores.hibernate5.porting.SessionWrapper;
 import com.yahoo.elide.security.User;
 
+import com.google.common.base.Preconditions;
+
 import org.hibernate.FlushMode;
 import org.hibernate.ObjectNotFoundException;
 import org.hibernate.ScrollMode;
@@ -38,7 +43,8 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import javax.persistence.PersistenceException;
@@ -51,8 +57,9 @@ public class HibernateTransaction implements DataStoreTransaction {
 
     private final Session session;
     private final SessionWrapper sessionWrapper;
-    private final LinkedHashSet<Runnable> deferredTasks = new LinkedHashSet<>();
+    private final DeferredOperations deferredOperations = new DeferredOperations();
     private final boolean isScrollEnabled;
+    private int bulkFlushBatchSize = 0;
 
     /**
      * Constructor.
@@ -72,21 +79,39 @@ public class HibernateTransaction implements DataStoreTransaction {
         this.isScrollEnabled = isScrollEnabled;
     }
 
+    /**
+     * Switch this transaction to bulk flush mode.  JDBC batching is enabled on the session with the given batch
+     * size, deferred writes are replayed in order with the session flushed (and created entities evicted) every
+     * {@code batchSize} operations, and runs of eligible deletes are issued as one statement per entity type.
+     *
+     * @param batchSize JDBC batch size and flush chunk size
+     * @see DeferredOperations
+     */
+    public void enableBulkFlush(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive");
+        this.bulkFlushBatchSize = batchSize;
+        session.setJdbcBatchSize(batchSize);
+    }
+
     @Override
     public void delete(Object object, RequestScope scope) {
-        deferredTasks.add(() -> session.delete(object));
+        deferredOperations.add(DeferredOperations.Type.DELETE, object);
     }
 
     @Override
     public void save(Object object, RequestScope scope) {
-        deferredTasks.add(() -> session.saveOrUpdate(object));
+        deferredOperations.add(DeferredOperations.Type.SAVE, object);
     }
 
     @Override
     public void flush(RequestScope requestScope) {
         try {
-            deferredTasks.forEach(Runnable::run);
-            deferredTasks.clear();
+            if (bulkFlushBatchSize > 0 && requestScope != null) {
+                EntityDictionary dictionary = requestScope.getDictionary();
+                deferredOperations.executeBulk(new SessionHandler(dictionary), dictionary, bulkFlushBatchSize);
+            } else {
+                deferredOperations.execute(new SessionHandler(null));
+            }
             hibernateFlush(requestScope);
         } catch (PersistenceException e) {
             log.error("Caught hibernate exception during flush", e);
@@ -113,7 +138,7 @@ public class HibernateTransaction implements DataStoreTransaction {
 
     @Override
     public void createObject(Object entity, RequestScope scope) {
-        deferredTasks.add(() -> session.persist(entity));
+        deferredOperations.add(DeferredOperations.Type.CREATE, entity);
     }
 
     /**
@@ -242,6 +267,39 @@ public class HibernateTransaction implements DataStoreTransaction {
         return val;
     }
 
+    @Override
+    public Map<String, Long> getRelationTotals(
+            DataStoreTransaction relationTx,
+            Collection<?> entities,
+            String relationName,
+            Optional<FilterExpression> filterExpression,
+            RequestScope scope) {
+        Map<String, Long> totals = new HashMap<>();
+        if (entities.isEmpty()) {
+            return totals;
+        }
+
+        EntityDictionary dictionary = scope.getDictionary();
+        Object entity = entities.iterator().next();
+
+        final QueryWrapper query = (QueryWrapper)
+                new GroupedSubCollectionPageTotalsQueryBuilder(
+                        entity.getClass(),
+                        dictionary.getParameterizedType(entity, relationName),
+                        relationName,
+                        entities,
+                        dictionary,
+                        sessionWrapper)
+                .withPossibleFilterExpression(filterExpression)
+                .build();
+
+        for (Object result : query.getQuery().list()) {
+            Object[] row = (Object[]) result;
+            totals.put(String.valueOf(row[0]), (Long) row[1]);
+        }
+        return totals;
+    }
+
     /**
      * Returns the total record count for a root entity and an optional filter expression.
      * @param entityClass The entity type to count
@@ -295,4 +353,48 @@ public class HibernateTransaction implements DataStoreTransaction {
     public User accessUser(Object opaqueUser) {
         return new User(opaqueUser);
     }
+
+    /**
+     * Applies deferred operations to the Hibernate session.
+     */
+    private class SessionHandler implements DeferredOperations.Handler {
+        private final EntityDictionary dictionary;
+
+        SessionHandler(EntityDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void create(Object entity) {
+            session.persist(entity);
+        }
+
+        @Override
+        public void save(Object entity) {
+            session.saveOrUpdate(entity);
+        }
+
+        @Override
+        public void delete(Object entity) {
+            session.delete(entity);
+        }
+
+        @Override
+        public void flush() {
+            session.flush();
+        }
+
+        @Override
+        public void detach(Object entity) {
+            session.evict(entity);
+        }
+
+        @Override
+        public void bulkDelete(Class<?> entityClass, Collection<?> ids) {
+            QueryWrapper query = (QueryWrapper) new BulkDeleteQueryBuilder(entityClass, dictionary, sessionWrapper)
+                    .withIds(ids)
+                    .build();
+            query.getQuery().executeUpdate();
+        }
+    }
 }
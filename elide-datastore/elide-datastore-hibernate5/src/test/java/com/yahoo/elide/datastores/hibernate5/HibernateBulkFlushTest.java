@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.hibernate5;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.TransactionException;
+import com.yahoo.elide.datastores.hibernate5.bulk.Account;
+import com.yahoo.elide.datastores.hibernate5.bulk.VersionedAccount;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.Environment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Bulk flushing against a real Hibernate session.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class HibernateBulkFlushTest {
+
+    private SessionFactory sessionFactory;
+    private DataStore store;
+    private RequestScope scope;
+
+    @BeforeAll
+    public void initialize() {
+        MetadataSources metadataSources = new MetadataSources(
+                new StandardServiceRegistryBuilder()
+                        .applySetting(Environment.CURRENT_SESSION_CONTEXT_CLASS, "thread")
+                        .applySetting(Environment.DIALECT, "org.hibernate.dialect.H2Dialect")
+                        .applySetting(Environment.URL, "jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1")
+                        .applySetting(Environment.USER, "root")
+                        .applySetting(Environment.PASS, "root")
+                        .applySetting(Environment.HBM2DDL_AUTO, "create-drop")
+                        .build());
+        metadataSources.addAnnotatedClass(Account.class);
+        metadataSources.addAnnotatedClass(VersionedAccount.class);
+        sessionFactory = metadataSources.buildMetadata().buildSessionFactory();
+
+        store = new AbstractHibernateStore.Builder(sessionFactory)
+                .withBulkFlush(10)
+                .build();
+
+        EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
+        store.populateEntityDictionary(dictionary);
+        scope = mock(RequestScope.class);
+        when(scope.getDictionary()).thenReturn(dictionary);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    public void testDeleteThenCreateWithSameUniqueKey() throws IOException {
+        Account existing = new Account();
+        existing.setName("delete then create");
+        long existingId = persist(existing);
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.delete(sessionFactory.getCurrentSession().get(Account.class, existingId), scope);
+            Account replacement = new Account();
+            replacement.setName("delete then create");
+            tx.createObject(replacement, scope);
+            tx.commit(scope);
+        }
+
+        List<Account> accounts = findByName(Account.class, "delete then create");
+        assertEquals(1, accounts.size());
+        assertNotEquals(existingId, accounts.get(0).getId());
+    }
+
+    @Test
+    public void testVersionedDeleteThenCreateWithSameUniqueKey() throws IOException {
+        VersionedAccount existing = new VersionedAccount();
+        existing.setName("versioned delete then create");
+        long existingId = persist(existing);
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.delete(sessionFactory.getCurrentSession().get(VersionedAccount.class, existingId), scope);
+            VersionedAccount replacement = new VersionedAccount();
+            replacement.setName("versioned delete then create");
+            tx.createObject(replacement, scope);
+            tx.commit(scope);
+        }
+
+        List<VersionedAccount> accounts = findByName(VersionedAccount.class, "versioned delete then create");
+        assertEquals(1, accounts.size());
+        assertNotEquals(existingId, accounts.get(0).getId());
+    }
+
+    @Test
+    public void testVersionedDeleteChecksVersion() {
+        VersionedAccount existing = new VersionedAccount();
+        existing.setName("stale");
+        long existingId = persist(existing);
+
+        DataStoreTransaction tx = store.beginTransaction();
+        VersionedAccount stale = sessionFactory.getCurrentSession().get(VersionedAccount.class, existingId);
+
+        // A concurrent update makes the loaded version stale, so a delete through the session must fail.
+        try (Session other = sessionFactory.openSession()) {
+            other.beginTransaction();
+            other.get(VersionedAccount.class, existingId).setName("updated");
+            other.getTransaction().commit();
+        }
+
+        tx.delete(stale, scope);
+        assertThrows(TransactionException.class, () -> tx.commit(scope));
+        assertThrows(IOException.class, tx::close);
+
+        List<VersionedAccount> accounts = findByName(VersionedAccount.class, "updated");
+        assertEquals(1, accounts.size());
+        assertEquals(existingId, accounts.get(0).getId());
+    }
+
+    private long persist(Object entity) {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.persist(entity);
+            session.getTransaction().commit();
+        }
+        return (long) sessionFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private <T> List<T> findByName(Class<T> entityClass, String name) {
+        try (Session session = sessionFactory.openSession()) {
+            return session.createQuery("FROM " + entityClass.getName() + " WHERE name = :name", entityClass)
+                    .setParameter("name", name)
+                    .getResultList();
+        }
+    }
+}
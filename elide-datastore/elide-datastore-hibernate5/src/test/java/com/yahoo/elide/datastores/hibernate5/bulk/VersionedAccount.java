@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.hibernate5.bulk;
+
+import com.yahoo.elide.annotation.Include;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+/**
+ * Entity with a version, which must be deleted through the session.
+ */
+@Entity
+@Include(rootLevel = true, type = "versionedAccount")
+public class VersionedAccount {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Getter @Setter private long id;
+
+    @Column(unique = true)
+    @Getter @Setter private String name;
+
+    @Version
+    @Getter @Setter private long version;
+}
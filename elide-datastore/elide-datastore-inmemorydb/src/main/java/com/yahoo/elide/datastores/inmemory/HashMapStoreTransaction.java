@@ -6,6 +6,7 @@
 package com.yahoo.elide.datastores.inmemory;
 
 import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.datastore.inmemory.HashMapDataStore;
 
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
@@ -16,6 +17,11 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @Deprecated
 public class HashMapStoreTransaction extends com.yahoo.elide.core.datastore.inmemory.HashMapStoreTransaction {
+    public HashMapStoreTransaction(HashMapDataStore dataStore,
+                                   EntityDictionary dictionary, Map<Class<?>, AtomicLong> typeIds) {
+        super(dataStore, dictionary, typeIds);
+    }
+
     public HashMapStoreTransaction(Map<Class<?>, Map<String, Object>> dataStore,
                                    EntityDictionary dictionary, Map<Class<?>, AtomicLong> typeIds) {
         super(dataStore, dictionary, typeIds);
@@ -8,11 +8,14 @@ package com.yahoo.elide.datastores.inmemory;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.exceptions.TransactionException;
 import com.yahoo.elide.example.beans.ExcludedBean;
 import com.yahoo.elide.example.beans.FirstBean;
 import com.yahoo.elide.example.beans.NonEntity;
@@ -25,6 +28,8 @@ import org.junit.jupiter.api.Test;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -107,4 +112,176 @@ public class HashMapDataStoreTest {
 
         assertEquals(ImmutableSet.of("number one", "number two"), names);
     }
+
+    @Test
+    public void testReadersSeeSnapshot() throws Exception {
+        FirstBean object = new FirstBean();
+        object.id = null;
+        object.name = "Test";
+
+        try (DataStoreTransaction reader = inMemoryDataStore.beginTransaction()) {
+            try (DataStoreTransaction writer = inMemoryDataStore.beginTransaction()) {
+                writer.createObject(object, null);
+                writer.commit(null);
+            }
+
+            // The reader began before the commit.
+            assertFalse(reader.loadObjects(FirstBean.class, Optional.empty(), Optional.empty(), Optional.empty(),
+                    null).iterator().hasNext());
+        }
+
+        try (DataStoreTransaction reader = inMemoryDataStore.beginTransaction()) {
+            FirstBean loaded = (FirstBean) reader.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            assertEquals("Test", loaded.name);
+        }
+    }
+
+    @Test
+    public void testUncommittedChangesAreInvisible() throws Exception {
+        FirstBean object = new FirstBean();
+        object.id = null;
+        object.name = "Test";
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            t.createObject(object, null);
+            t.commit(null);
+        }
+        object.name = "Changed after commit";
+
+        try (DataStoreTransaction writer = inMemoryDataStore.beginTransaction();
+             DataStoreTransaction reader = inMemoryDataStore.beginTransaction()) {
+            FirstBean written = (FirstBean) writer.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            written.name = "Uncommitted";
+            writer.save(written, null);
+
+            assertSame(written, writer.loadObject(FirstBean.class, object.id, Optional.empty(), null));
+            FirstBean read = (FirstBean) reader.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            assertNotSame(written, read);
+            assertEquals("Test", read.name);
+        }
+    }
+
+    @Test
+    public void testLoserLeavesObjectsUnchanged() throws Exception {
+        FirstBean object = new FirstBean();
+        object.id = null;
+        object.name = "Test";
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            t.createObject(object, null);
+            t.commit(null);
+        }
+
+        try (DataStoreTransaction first = inMemoryDataStore.beginTransaction();
+             DataStoreTransaction second = inMemoryDataStore.beginTransaction()) {
+            FirstBean winner = (FirstBean) first.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            FirstBean loser = (FirstBean) second.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            winner.name = "Winner";
+            loser.name = "Loser";
+            first.save(winner, null);
+            second.save(loser, null);
+
+            first.commit(null);
+            assertThrows(TransactionException.class, () -> second.commit(null));
+            winner.name = "Changed after commit";
+        }
+
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            FirstBean loaded = (FirstBean) t.loadObject(FirstBean.class, object.id, Optional.empty(), null);
+            assertEquals("Winner", loaded.name);
+        }
+    }
+
+    @Test
+    public void testFirstCommitterWins() throws Exception {
+        FirstBean object = new FirstBean();
+        object.id = null;
+        object.name = "Test";
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            t.createObject(object, null);
+            t.commit(null);
+        }
+
+        try (DataStoreTransaction first = inMemoryDataStore.beginTransaction();
+             DataStoreTransaction second = inMemoryDataStore.beginTransaction()) {
+            first.save(first.loadObject(FirstBean.class, object.id, Optional.empty(), null), null);
+            second.delete(second.loadObject(FirstBean.class, object.id, Optional.empty(), null), null);
+
+            first.commit(null);
+            assertThrows(TransactionException.class, () -> second.commit(null));
+        }
+
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            assertNotNull(t.loadObject(FirstBean.class, object.id, Optional.empty(), null));
+        }
+    }
+
+    @Test
+    public void testDisjointCommitsSucceed() throws Exception {
+        FirstBean firstBean = new FirstBean();
+        firstBean.id = null;
+        firstBean.name = "first";
+        SecondBean secondBean = new SecondBean();
+
+        try (DataStoreTransaction first = inMemoryDataStore.beginTransaction();
+             DataStoreTransaction second = inMemoryDataStore.beginTransaction()) {
+            first.createObject(firstBean, null);
+            second.createObject(secondBean, null);
+            first.commit(null);
+            second.commit(null);
+        }
+
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            assertTrue(t.loadObjects(FirstBean.class, Optional.empty(), Optional.empty(), Optional.empty(), null)
+                    .iterator().hasNext());
+            assertTrue(t.loadObjects(SecondBean.class, Optional.empty(), Optional.empty(), Optional.empty(), null)
+                    .iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void testOpenTransactionKeepsTombstones() throws Exception {
+        FirstBean deleted = new FirstBean();
+        deleted.id = null;
+        deleted.name = "deleted";
+        FirstBean other = new FirstBean();
+        other.id = null;
+        other.name = "other";
+        try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+            t.createObject(deleted, null);
+            t.commit(null);
+        }
+
+        try (DataStoreTransaction reader = inMemoryDataStore.beginTransaction()) {
+            FirstBean stale = (FirstBean) reader.loadObject(FirstBean.class, deleted.id, Optional.empty(), null);
+
+            try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+                t.delete(deleted, null);
+                t.commit(null);
+            }
+            // Later commits to the same table prune tombstones no open transaction can conflict with.
+            try (DataStoreTransaction t = inMemoryDataStore.beginTransaction()) {
+                t.createObject(other, null);
+                t.commit(null);
+            }
+
+            reader.save(stale, null);
+            assertThrows(TransactionException.class, () -> reader.commit(null));
+        }
+    }
+
+    @Test
+    public void testDeprecatedTransactionWritesTables() throws Exception {
+        Map<Class<?>, Map<String, Object>> tables = new HashMap<>();
+        tables.put(FirstBean.class, new LinkedHashMap<>());
+        FirstBean object = new FirstBean();
+        object.id = "1";
+        object.name = "Test";
+
+        try (DataStoreTransaction t = new HashMapStoreTransaction(tables, inMemoryDataStore.getDictionary(),
+                new HashMap<>())) {
+            t.createObject(object, null);
+            t.commit(null);
+            assertEquals(object, t.loadObject(FirstBean.class, "1", Optional.empty(), null));
+        }
+        assertEquals(object, tables.get(FirstBean.class).get("1"));
+    }
 }
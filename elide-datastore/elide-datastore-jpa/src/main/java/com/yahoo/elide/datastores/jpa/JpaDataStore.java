@@ -8,8 +8,11 @@ package com.yahoo.elide.datastores.jpa;
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.datastore.JPQLDataStore;
+import com.yahoo.elide.datastores.jpa.transaction.AbstractJpaTransaction;
 import com.yahoo.elide.datastores.jpa.transaction.JpaTransaction;
 
+import com.google.common.base.Preconditions;
+
 import java.util.HashSet;
 import java.util.Set;
 
@@ -24,6 +27,7 @@ public class JpaDataStore implements JPQLDataStore {
     protected final JpaTransactionSupplier readTransactionSupplier;
     protected final JpaTransactionSupplier writeTransactionSupplier;
     protected final Set<Class<?>> modelsToBind;
+    protected int bulkFlushBatchSize = 0;
 
     public JpaDataStore(EntityManagerSupplier entityManagerSupplier,
                         JpaTransactionSupplier readTransactionSupplier,
@@ -45,6 +49,19 @@ public class JpaDataStore implements JPQLDataStore {
         this(entityManagerSupplier, transactionSupplier, transactionSupplier, models);
     }
 
+    /**
+     * Enable bulk flush mode on every write transaction.
+     *
+     * @param batchSize flush chunk size; 0 disables bulk flushing
+     * @return this data store
+     * @see AbstractJpaTransaction#enableBulkFlush(int)
+     */
+    public JpaDataStore withBulkFlush(int batchSize) {
+        Preconditions.checkArgument(batchSize >= 0, "Bulk flush batch size must not be negative");
+        this.bulkFlushBatchSize = batchSize;
+        return this;
+    }
+
     @Override
     public void populateEntityDictionary(EntityDictionary dictionary) {
         // If the user provided models, we'll manually add them and skip scanning for entities.
@@ -82,6 +99,11 @@ public class JpaDataStore implements JPQLDataStore {
     public DataStoreTransaction beginTransaction() {
         EntityManager entityManager = entityManagerSupplier.get();
         JpaTransaction transaction = writeTransactionSupplier.get(entityManager);
+        if (bulkFlushBatchSize > 0) {
+            Preconditions.checkState(transaction instanceof AbstractJpaTransaction,
+                    "Bulk flush requires transactions extending AbstractJpaTransaction");
+            ((AbstractJpaTransaction) transaction).enableBulkFlush(bulkFlushBatchSize);
+        }
         transaction.begin();
         return transaction;
     }
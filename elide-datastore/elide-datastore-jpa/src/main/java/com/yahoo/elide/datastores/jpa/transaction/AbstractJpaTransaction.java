@@ -14,7 +14,9 @@ import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.Operator;
 import com.yahoo.elide.core.filter.expression.AndFilterExpression;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.hibernate.DeferredOperations;
 import com.yahoo.elide.core.hibernate.hql.AbstractHQLQueryBuilder;
+import com.yahoo.elide.core.hibernate.hql.BulkDeleteQueryBuilder;
 import com.yahoo.elide.core.hibernate.hql.RelationshipImpl;
 import com.yahoo.elide.core.hibernate.hql.RootCollectionFetchQueryBuilder;
 import com.yahoo.elide.core.hibernate.hql.RootCollectionPageTotalsQueryBuilder;
@@ -27,13 +29,14 @@ import com.yahoo.elide.datastores.jpa.porting.QueryWrapper;
 import com.yahoo.elide.datastores.jpa.transaction.checker.PersistentCollectionChecker;
 import com.yahoo.elide.security.User;
 
+import com.google.common.base.Preconditions;
+
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -52,25 +55,36 @@ public abstract class AbstractJpaTransaction implements JpaTransaction {
 
     protected final EntityManager em;
     private final EntityManagerWrapper emWrapper;
-    private final LinkedHashSet<Runnable> deferredTasks = new LinkedHashSet<>();
+    private final DeferredOperations deferredOperations = new DeferredOperations();
+    private int bulkFlushBatchSize = 0;
 
     protected AbstractJpaTransaction(EntityManager em) {
         this.em = em;
         this.emWrapper = new EntityManagerWrapper(em);
     }
 
+    /**
+     * Flush deferred writes in bulk: in recorded order, in chunks of {@code batchSize}, with runs of deletes of
+     * simple entities issued by ID.  JPA has no portable way to set the JDBC batch size, so statement batching
+     * additionally requires the provider's batch size property (for example {@code hibernate.jdbc.batch_size}) on
+     * the persistence unit.
+     *
+     * @param batchSize number of operations per flushed chunk
+     * @see DeferredOperations
+     */
+    public void enableBulkFlush(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "Bulk flush batch size must be positive");
+        this.bulkFlushBatchSize = batchSize;
+    }
+
     @Override
     public void delete(Object object, RequestScope scope) {
-        deferredTasks.add(() -> em.remove(object));
+        deferredOperations.add(DeferredOperations.Type.DELETE, object);
     }
 
     @Override
     public void save(Object object, RequestScope scope) {
-        deferredTasks.add(() -> {
-            if (!em.contains(object)) {
-                em.merge(object);
-            }
-        });
+        deferredOperations.add(DeferredOperations.Type.SAVE, object);
     }
 
     @Override
@@ -79,8 +93,12 @@ public abstract class AbstractJpaTransaction implements JpaTransaction {
             return;
         }
         try {
-            deferredTasks.forEach(Runnable::run);
-            deferredTasks.clear();
+            if (bulkFlushBatchSize > 0 && requestScope != null) {
+                deferredOperations.executeBulk(new EntityManagerHandler(requestScope.getDictionary()),
+                        requestScope.getDictionary(), bulkFlushBatchSize);
+            } else {
+                deferredOperations.execute(new EntityManagerHandler(null));
+            }
             FlushModeType flushMode = em.getFlushMode();
             if (flushMode == FlushModeType.AUTO && isOpen()) {
                 em.flush();
@@ -110,7 +128,7 @@ public abstract class AbstractJpaTransaction implements JpaTransaction {
 
     @Override
     public void rollback() {
-        deferredTasks.clear();
+        deferredOperations.clear();
     }
 
     @Override
@@ -118,19 +136,14 @@ public abstract class AbstractJpaTransaction implements JpaTransaction {
         if (isOpen()) {
             rollback();
         }
-        if (deferredTasks.size() > 0) {
+        if (!deferredOperations.isEmpty()) {
             throw new IOException("Transaction not closed");
         }
     }
 
     @Override
     public void createObject(Object entity, RequestScope scope) {
-
-         deferredTasks.add(() -> {
-            if (!em.contains(entity)) {
-                em.persist(entity);
-            }
-         });
+        deferredOperations.add(DeferredOperations.Type.CREATE, entity);
     }
 
     /**
@@ -302,4 +315,52 @@ public abstract class AbstractJpaTransaction implements JpaTransaction {
     public User accessUser(Object opaqueUser) {
         return new User(opaqueUser);
     }
+
+    /**
+     * Applies deferred operations to the entity manager.
+     */
+    private class EntityManagerHandler implements DeferredOperations.Handler {
+        private final EntityDictionary dictionary;
+
+        EntityManagerHandler(EntityDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void create(Object entity) {
+            if (!em.contains(entity)) {
+                em.persist(entity);
+            }
+        }
+
+        @Override
+        public void save(Object entity) {
+            if (!em.contains(entity)) {
+                em.merge(entity);
+            }
+        }
+
+        @Override
+        public void delete(Object entity) {
+            em.remove(entity);
+        }
+
+        @Override
+        public void flush() {
+            em.flush();
+        }
+
+        @Override
+        public void detach(Object entity) {
+            em.detach(entity);
+        }
+
+        @Override
+        public void bulkDelete(Class<?> entityClass, Collection<?> ids) {
+            QueryWrapper query = (QueryWrapper) new BulkDeleteQueryBuilder(entityClass, dictionary, emWrapper)
+                    .withIds(ids)
+                    .build();
+            query.getQuery().executeUpdate();
+        }
+    }
 }
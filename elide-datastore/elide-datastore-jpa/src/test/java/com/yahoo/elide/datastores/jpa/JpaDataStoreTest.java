@@ -7,7 +7,10 @@
 package com.yahoo.elide.datastores.jpa;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.yahoo.elide.annotation.Include;
@@ -17,6 +20,7 @@ import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.FilterTranslator;
 import com.yahoo.elide.core.filter.JPQLPredicateGenerator;
 import com.yahoo.elide.core.filter.Operator;
+import com.yahoo.elide.datastores.jpa.transaction.AbstractJpaTransaction;
 
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.Test;
@@ -97,4 +101,21 @@ public class JpaDataStoreTest {
 
         assertNotNull(dictionary.lookupBoundClass(Test.class));
     }
+
+    @Test
+    public void verifyBulkFlushEnabledOnWriteTransactions() {
+        EntityManager managerMock = mock(EntityManager.class);
+        AbstractJpaTransaction readTransaction = mock(AbstractJpaTransaction.class);
+        AbstractJpaTransaction writeTransaction = mock(AbstractJpaTransaction.class);
+
+        JpaDataStore store = new JpaDataStore(() -> managerMock, (unused) -> readTransaction,
+                (unused) -> writeTransaction).withBulkFlush(50);
+
+        store.beginReadTransaction();
+        store.beginTransaction();
+
+        verify(readTransaction, never()).enableBulkFlush(anyInt());
+        verify(writeTransaction).enableBulkFlush(50);
+        verify(writeTransaction).begin();
+    }
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.utils.coerce.CoerceUtil;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Converts entities to and from Lucene documents.
+ * <p>
+ * Every document holds its entity type and a unique key (type and ID).  The ID and each attribute are stored and,
+ * depending on their type, indexed for filtering with doc values for sorting:
+ * <ul>
+ * <li>Integral numbers and dates are indexed as long points.</li>
+ * <li>Decimal numbers are indexed as double points.  Big decimals are stored as text to keep their precision.</li>
+ * <li>Strings, enums, booleans, characters and UUIDs are indexed as keywords, along with a lower cased copy for
+ * case insensitive matches.</li>
+ * <li>Any other attribute (collections, maps and complex types) is only stored, as JSON.</li>
+ * </ul>
+ * Relationships are stored as the keys of the related entities, so related entities of any subclass are found with
+ * a single lookup.
+ */
+public class DocumentMapper {
+    static final String TYPE_FIELD = "_type";
+    static final String KEY_FIELD = "_key";
+    static final String PRESENT_FIELD = "_present";
+    static final String VERSION_FIELD = "_version";
+    static final String RELATIONSHIP_PREFIX = "_rel.";
+    static final String LOWER_CASE_SUFFIX = "._lower";
+
+    /**
+     * How a value is indexed.
+     */
+    enum Kind {
+        LONG,
+        DOUBLE,
+        STRING,
+        JSON
+    }
+
+    private final EntityDictionary dictionary;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public DocumentMapper(EntityDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public EntityDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the value of the type field for an entity.
+     * @param entityClass The entity
+     * @return The type name
+     */
+    public String getTypeName(Class<?> entityClass) {
+        return dictionary.getJsonAliasFor(entityClass);
+    }
+
+    /**
+     * Returns the term which uniquely identifies the document of an entity.
+     * @param entityClass The entity
+     * @param id The entity ID
+     * @return The key term
+     */
+    public Term getKey(Class<?> entityClass, String id) {
+        return new Term(KEY_FIELD, getTypeName(dictionary.lookupEntityClass(entityClass)) + "/" + id);
+    }
+
+    /**
+     * Returns how an attribute (or the ID) of an entity is indexed.
+     * @param entityClass The entity
+     * @param field The attribute or ID field name
+     * @return The kind of index field
+     */
+    public Kind getKind(Class<?> entityClass, String field) {
+        if (field.equals(dictionary.getIdFieldName(entityClass))) {
+            return getKind(dictionary.getIdType(entityClass));
+        }
+        return getKind(dictionary.getType(entityClass, field));
+    }
+
+    static Kind getKind(Class<?> type) {
+        if (type == long.class || type == int.class || type == short.class || type == byte.class
+                || type == Long.class || type == Integer.class || type == Short.class || type == Byte.class
+                || Date.class.isAssignableFrom(type)) {
+            return Kind.LONG;
+        }
+        if (type == double.class || type == float.class || type == Double.class || type == Float.class
+                || type == BigDecimal.class) {
+            return Kind.DOUBLE;
+        }
+        if (type == String.class || type.isEnum() || type == boolean.class || type == Boolean.class
+                || type == char.class || type == Character.class || type == UUID.class) {
+            return Kind.STRING;
+        }
+        return Kind.JSON;
+    }
+
+    /**
+     * Converts a value to the form it is indexed in.
+     * @param kind How the value is indexed
+     * @param value The value
+     * @return A long, double or string
+     */
+    static Object toIndexed(Kind kind, Object value) {
+        switch (kind) {
+            case LONG:
+                return value instanceof Date ? ((Date) value).getTime() : ((Number) value).longValue();
+            case DOUBLE:
+                return ((Number) value).doubleValue();
+            case STRING:
+                return value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+            default:
+                throw new IllegalArgumentException("Values of kind " + kind + " are not indexed");
+        }
+    }
+
+    static String toLowerCase(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Builds the document of an entity.
+     * @param entity The entity
+     * @param relationshipKeys The keys of the related entities, by relationship
+     * @return The document
+     */
+    public Document toDocument(Object entity, Map<String, List<String>> relationshipKeys) {
+        Class<?> entityClass = dictionary.lookupEntityClass(entity.getClass());
+        Document document = new Document();
+
+        document.add(new StringField(TYPE_FIELD, getTypeName(entityClass), Field.Store.YES));
+        document.add(new StringField(KEY_FIELD, getKey(entity).text(), Field.Store.YES));
+
+        for (String field : getIndexedFields(entityClass)) {
+            Object value = dictionary.getValue(entity, field, null);
+            if (value != null) {
+                addField(document, field, getKind(entityClass, field), value);
+            }
+        }
+
+        relationshipKeys.forEach((relationship, keys) ->
+                keys.forEach(key -> document.add(new StoredField(RELATIONSHIP_PREFIX + relationship, key))));
+
+        return document;
+    }
+
+    private void addField(Document document, String field, Kind kind, Object value) {
+        document.add(new StringField(PRESENT_FIELD, field, Field.Store.NO));
+        switch (kind) {
+            case LONG: {
+                long indexed = (long) toIndexed(kind, value);
+                document.add(new LongPoint(field, indexed));
+                document.add(new NumericDocValuesField(field, indexed));
+                document.add(new StoredField(field, indexed));
+                break;
+            }
+            case DOUBLE: {
+                double indexed = (double) toIndexed(kind, value);
+                document.add(new DoublePoint(field, indexed));
+                document.add(new DoubleDocValuesField(field, indexed));
+                document.add(value instanceof BigDecimal
+                        ? new StoredField(field, value.toString())
+                        : new StoredField(field, indexed));
+                break;
+            }
+            case STRING: {
+                String indexed = (String) toIndexed(kind, value);
+                document.add(new StringField(field, indexed, Field.Store.YES));
+                document.add(new StringField(field + LOWER_CASE_SUFFIX, toLowerCase(indexed), Field.Store.NO));
+                document.add(new SortedDocValuesField(field, new BytesRef(indexed)));
+                break;
+            }
+            default:
+                try {
+                    document.add(new StoredField(field, mapper.writeValueAsString(value)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Rebuilds an entity from its document.  Relationships are left unset.
+     * @param entityClass The entity
+     * @param document The document
+     * @return The entity
+     */
+    public Object fromDocument(Class<?> entityClass, Document document) {
+        Object entity;
+        try {
+            entity = entityClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String field : getIndexedFields(entityClass)) {
+            IndexableField stored = document.getField(field);
+            if (stored != null) {
+                dictionary.setValue(entity, field, readValue(entityClass, field, stored));
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Returns the entity a document holds.
+     * @param document The document
+     * @return The entity class
+     */
+    public Class<?> getEntityClass(Document document) {
+        return dictionary.getEntityClass(document.get(TYPE_FIELD));
+    }
+
+    private Object readValue(Class<?> entityClass, String field, IndexableField stored) {
+        Class<?> type = field.equals(dictionary.getIdFieldName(entityClass))
+                ? dictionary.getIdType(entityClass)
+                : dictionary.getType(entityClass, field);
+
+        switch (getKind(type)) {
+            case LONG:
+                if (Date.class.isAssignableFrom(type)) {
+                    try {
+                        return type.getConstructor(long.class).newInstance(stored.numericValue().longValue());
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return CoerceUtil.coerce(stored.numericValue(), type);
+            case DOUBLE:
+                return CoerceUtil.coerce(stored.numericValue() != null
+                        ? stored.numericValue()
+                        : stored.stringValue(), type);
+            case STRING:
+                return CoerceUtil.coerce(stored.stringValue(), type);
+            default:
+                try {
+                    return mapper.readValue(stored.stringValue(), type);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+        }
+    }
+
+    /**
+     * Returns the keys of the related entities stored in a document.
+     * @param entityClass The entity
+     * @param document The document
+     * @return Related keys by relationship
+     */
+    public Map<String, List<String>> getRelationshipKeys(Class<?> entityClass, Document document) {
+        Map<String, List<String>> relationshipKeys = new LinkedHashMap<>();
+        for (String relationship : getStoredRelationships(entityClass)) {
+            String[] keys = document.getValues(RELATIONSHIP_PREFIX + relationship);
+            List<String> values = new ArrayList<>(keys.length);
+            Collections.addAll(values, keys);
+            relationshipKeys.put(relationship, values);
+        }
+        return relationshipKeys;
+    }
+
+    /**
+     * Returns the keys of the entities an entity currently relates to.
+     * @param entity The entity
+     * @param relationship The relationship
+     * @return The related keys
+     */
+    public List<String> getRelationshipKeys(Object entity, String relationship) {
+        Object value = dictionary.getValue(entity, relationship, null);
+        List<String> keys = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object related : (Collection<?>) value) {
+                keys.add(getKey(related).text());
+            }
+        } else if (value != null) {
+            keys.add(getKey(value).text());
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the term which uniquely identifies the document of an entity.
+     * @param entity The entity
+     * @return The key term
+     */
+    public Term getKey(Object entity) {
+        return getKey(entity.getClass(), dictionary.getId(entity));
+    }
+
+    /**
+     * Returns the relationships whose keys are stored, skipping computed relationships.
+     * @param entityClass The entity
+     * @return The relationship names
+     */
+    public List<String> getStoredRelationships(Class<?> entityClass) {
+        List<String> relationships = new ArrayList<>();
+        for (String relationship : dictionary.getRelationships(entityClass)) {
+            if (!dictionary.isComputed(entityClass, relationship)) {
+                relationships.add(relationship);
+            }
+        }
+        return relationships;
+    }
+
+    /**
+     * The ID and the attributes which are persisted, skipping computed attributes.
+     */
+    private List<String> getIndexedFields(Class<?> entityClass) {
+        List<String> fields = new ArrayList<>();
+        fields.add(dictionary.getIdFieldName(entityClass));
+        for (String attribute : dictionary.getAttributes(entityClass)) {
+            if (!dictionary.isComputed(entityClass, attribute)) {
+                fields.add(attribute);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene;
+
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.Operator;
+import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpressionVisitor;
+import com.yahoo.elide.core.filter.expression.NotFilterExpression;
+import com.yahoo.elide.core.filter.expression.OrFilterExpression;
+import com.yahoo.elide.datastores.lucene.DocumentMapper.Kind;
+import com.yahoo.elide.utils.coerce.CoerceUtil;
+
+import com.google.common.base.Preconditions;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts an Elide filter expression into a Lucene query over the fields written by {@link DocumentMapper}.
+ * <p>
+ * Only predicates on the ID or an indexed attribute of the filtered entity itself are supported.  Anything else
+ * throws an {@link IllegalArgumentException}.
+ */
+public class FilterExpressionToLuceneQuery implements FilterExpressionVisitor<Query> {
+
+    private final DocumentMapper mapper;
+    private final Class<?> entityClass;
+
+    public FilterExpressionToLuceneQuery(DocumentMapper mapper, Class<?> entityClass) {
+        this.mapper = mapper;
+        this.entityClass = entityClass;
+    }
+
+    @Override
+    public Query visitPredicate(FilterPredicate filterPredicate) {
+        Preconditions.checkArgument(filterPredicate.getPath().getPathElements().size() == 1,
+                "Unsupported Predicate Path: " + filterPredicate.getFieldPath());
+
+        Operator op = filterPredicate.getOperator();
+        switch (op) {
+            case TRUE:
+                return new MatchAllDocsQuery();
+            case FALSE:
+                return new MatchNoDocsQuery();
+            case ISNULL:
+                return not(new TermQuery(new Term(DocumentMapper.PRESENT_FIELD, getField(filterPredicate))));
+            case NOTNULL:
+                return new TermQuery(new Term(DocumentMapper.PRESENT_FIELD, getField(filterPredicate)));
+            default:
+                break;
+        }
+
+        String field = getField(filterPredicate);
+        Kind kind = mapper.getKind(entityClass, field);
+        Preconditions.checkArgument(kind != Kind.JSON, "Unsupported Predicate Path: " + filterPredicate.getFieldPath());
+
+        switch (op) {
+            case IN:
+                return buildSetQuery(field, kind, filterPredicate, false);
+            case IN_INSENSITIVE:
+                return buildSetQuery(field, kind, filterPredicate, true);
+            case NOT:
+                return not(buildSetQuery(field, kind, filterPredicate, false));
+            case NOT_INSENSITIVE:
+                return not(buildSetQuery(field, kind, filterPredicate, true));
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                return buildRangeQuery(field, kind, filterPredicate);
+            case PREFIX:
+            case PREFIX_CASE_INSENSITIVE:
+            case POSTFIX:
+            case POSTFIX_CASE_INSENSITIVE:
+            case INFIX:
+            case INFIX_CASE_INSENSITIVE:
+                Preconditions.checkArgument(kind == Kind.STRING, "Unsupported Predicate Operator: " + op);
+                return buildMatchQuery(field, filterPredicate);
+            default:
+                throw new IllegalArgumentException("Unsupported Predicate Operator: " + op);
+        }
+    }
+
+    private Query buildSetQuery(String field, Kind kind, FilterPredicate filterPredicate, boolean insensitive) {
+        List<Object> values = getValues(field, kind, filterPredicate);
+        switch (kind) {
+            case LONG:
+                return LongPoint.newSetQuery(field, values.stream()
+                        .mapToLong(value -> (long) value)
+                        .toArray());
+            case DOUBLE:
+                return DoublePoint.newSetQuery(field, values.stream()
+                        .mapToDouble(value -> (double) value)
+                        .toArray());
+            default:
+                return new TermInSetQuery(insensitive ? field + DocumentMapper.LOWER_CASE_SUFFIX : field,
+                        values.stream()
+                                .map(value -> insensitive
+                                        ? DocumentMapper.toLowerCase((String) value)
+                                        : (String) value)
+                                .map(BytesRef::new)
+                                .collect(Collectors.toList()));
+        }
+    }
+
+    private Query buildRangeQuery(String field, Kind kind, FilterPredicate filterPredicate) {
+        List<Object> values = getValues(field, kind, filterPredicate);
+        Preconditions.checkArgument(values.size() == 1,
+                "Predicate Operator " + filterPredicate.getOperator() + " expects a single value");
+
+        Object value = values.get(0);
+        Operator op = filterPredicate.getOperator();
+        boolean below = op == Operator.LT || op == Operator.LE;
+        boolean inclusive = op == Operator.LE || op == Operator.GE;
+
+        switch (kind) {
+            case LONG: {
+                long bound = (long) value;
+                if (!inclusive) {
+                    if (bound == (below ? Long.MIN_VALUE : Long.MAX_VALUE)) {
+                        return new MatchNoDocsQuery();
+                    }
+                    bound = below ? bound - 1 : bound + 1;
+                }
+                return below
+                        ? LongPoint.newRangeQuery(field, Long.MIN_VALUE, bound)
+                        : LongPoint.newRangeQuery(field, bound, Long.MAX_VALUE);
+            }
+            case DOUBLE: {
+                double bound = (double) value;
+                if (!inclusive) {
+                    bound = below ? Math.nextDown(bound) : Math.nextUp(bound);
+                }
+                return below
+                        ? DoublePoint.newRangeQuery(field, Double.NEGATIVE_INFINITY, bound)
+                        : DoublePoint.newRangeQuery(field, bound, Double.POSITIVE_INFINITY);
+            }
+            default:
+                return below
+                        ? TermRangeQuery.newStringRange(field, null, (String) value, false, inclusive)
+                        : TermRangeQuery.newStringRange(field, (String) value, null, inclusive, false);
+        }
+    }
+
+    private Query buildMatchQuery(String field, FilterPredicate filterPredicate) {
+        Operator op = filterPredicate.getOperator();
+        boolean insensitive = op == Operator.PREFIX_CASE_INSENSITIVE
+                || op == Operator.POSTFIX_CASE_INSENSITIVE
+                || op == Operator.INFIX_CASE_INSENSITIVE;
+        String indexField = insensitive ? field + DocumentMapper.LOWER_CASE_SUFFIX : field;
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Object value : getValues(field, Kind.STRING, filterPredicate)) {
+            String term = insensitive ? DocumentMapper.toLowerCase((String) value) : (String) value;
+            switch (op) {
+                case PREFIX:
+                case PREFIX_CASE_INSENSITIVE:
+                    builder.add(new PrefixQuery(new Term(indexField, term)), BooleanClause.Occur.SHOULD);
+                    break;
+                case POSTFIX:
+                case POSTFIX_CASE_INSENSITIVE:
+                    builder.add(new WildcardQuery(new Term(indexField, "*" + escapeWildcards(term))),
+                            BooleanClause.Occur.SHOULD);
+                    break;
+                default:
+                    builder.add(new WildcardQuery(new Term(indexField, "*" + escapeWildcards(term) + "*")),
+                            BooleanClause.Occur.SHOULD);
+                    break;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts the predicate values to the form the field is indexed in.
+     */
+    private List<Object> getValues(String field, Kind kind, FilterPredicate filterPredicate) {
+        Class<?> type = field.equals(mapper.getDictionary().getIdFieldName(entityClass))
+                ? mapper.getDictionary().getIdType(entityClass)
+                : mapper.getDictionary().getType(entityClass, field);
+
+        return filterPredicate.getValues().stream()
+                .map(value -> kind == Kind.STRING && value instanceof String ? value : CoerceUtil.coerce(value, type))
+                .map(value -> DocumentMapper.toIndexed(kind, value))
+                .collect(Collectors.toList());
+    }
+
+    private String getField(FilterPredicate filterPredicate) {
+        String field = filterPredicate.getField();
+        Preconditions.checkArgument(filterPredicate.getEntityType().equals(entityClass)
+                        && (mapper.getDictionary().isAttribute(entityClass, field)
+                        || field.equals(mapper.getDictionary().getIdFieldName(entityClass)))
+                        && !mapper.getDictionary().isComputed(entityClass, field),
+                "Unsupported Predicate Path: " + filterPredicate.getFieldPath());
+        return field;
+    }
+
+    private static String escapeWildcards(String term) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : term.toCharArray()) {
+            if (c == WildcardQuery.WILDCARD_STRING || c == WildcardQuery.WILDCARD_CHAR
+                    || c == WildcardQuery.WILDCARD_ESCAPE) {
+                escaped.append(WildcardQuery.WILDCARD_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static Query not(Query query) {
+        return new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER)
+                .add(query, BooleanClause.Occur.MUST_NOT)
+                .build();
+    }
+
+    @Override
+    public Query visitAndExpression(AndFilterExpression expression) {
+        return new BooleanQuery.Builder()
+                .add(expression.getLeft().accept(this), BooleanClause.Occur.MUST)
+                .add(expression.getRight().accept(this), BooleanClause.Occur.MUST)
+                .build();
+    }
+
+    @Override
+    public Query visitOrExpression(OrFilterExpression expression) {
+        return new BooleanQuery.Builder()
+                .add(expression.getLeft().accept(this), BooleanClause.Occur.SHOULD)
+                .add(expression.getRight().accept(this), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    @Override
+    public Query visitNotExpression(NotFilterExpression expression) {
+        return not(expression.getNegated().accept(this));
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene;
+
+import com.yahoo.elide.annotation.Include;
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.TransactionException;
+import com.yahoo.elide.utils.ClassScanner;
+
+import com.google.common.collect.Sets;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.MMapDirectory;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.GeneratedValue;
+
+/**
+ * Data store which persists entities as documents of a Lucene index in a local directory, without a relational
+ * database.
+ * <p>
+ * The index is memory mapped.  Reads use a near real time searcher acquired when the transaction begins, so they
+ * see every commit made before it.  Commits are serialized and each one is a Lucene commit: a commit which fails
+ * part way is rolled back with the writer, which is then reopened, so later commits never publish its writes.
+ * Unless durable commits are disabled, each commit is synced to disk.
+ * <p>
+ * Every document records the version of its entity.  A commit fails with a {@link TransactionException} if an
+ * entity it writes or deletes was written or deleted by another commit since the transaction began (first
+ * committer wins).
+ * <p>
+ * Every attribute is indexed, so filtering on attributes, sorting and pagination run in the index.
+ * See {@link DocumentMapper} for how entities are stored.
+ */
+public class LuceneDataStore implements DataStore, Closeable {
+    private final Set<Class<?>> types = new LinkedHashSet<>();
+    private final boolean durableCommits;
+    private final DeferredSyncDirectory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private final Map<Class<?>, AtomicLong> typeIds = new ConcurrentHashMap<>();
+
+    @Getter private EntityDictionary dictionary;
+    @Getter private DocumentMapper mapper;
+
+    public LuceneDataStore(Path indexPath, Package beanPackage) {
+        this(indexPath, Sets.newHashSet(beanPackage));
+    }
+
+    public LuceneDataStore(Path indexPath, Set<Package> beanPackages) {
+        this(indexPath, beanPackages, true);
+    }
+
+    /**
+     * Constructor.
+     * @param indexPath The directory holding the index.  It is created if it does not exist.
+     * @param beanPackages The packages of the entities to store
+     * @param durableCommits Whether each commit is synced to disk.  When false, commits are visible to new
+     *                       transactions but only reach disk when the store is closed.
+     */
+    public LuceneDataStore(Path indexPath, Set<Package> beanPackages, boolean durableCommits) {
+        this.durableCommits = durableCommits;
+
+        for (Package beanPackage : beanPackages) {
+            ClassScanner.getAnnotatedClasses(beanPackage, Include.class).stream()
+                    .filter(modelClass -> modelClass.getName().startsWith(beanPackage.getName()))
+                    .forEach(types::add);
+        }
+
+        try {
+            directory = new DeferredSyncDirectory(new MMapDirectory(indexPath), durableCommits);
+            openWriter();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openWriter() throws IOException {
+        writer = new IndexWriter(directory,
+                new IndexWriterConfig().setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        SearcherManager previous = searcherManager;
+        searcherManager = new SearcherManager(writer, null);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    @Override
+    public void populateEntityDictionary(EntityDictionary dictionary) {
+        for (Class<?> clazz : types) {
+            dictionary.bindEntity(clazz);
+        }
+
+        this.dictionary = dictionary;
+        this.mapper = new DocumentMapper(dictionary);
+    }
+
+    @Override
+    public DataStoreTransaction beginTransaction() {
+        return new LuceneTransaction(this);
+    }
+
+    /**
+     * Copies every entity of another data store into the index with a single commit.
+     * @param source The data store to copy
+     * @param scope The request scope used to read the source
+     * @throws UncheckedIOException if the index cannot be written
+     */
+    public void load(DataStore source, RequestScope scope) {
+        try (DataStoreTransaction sourceTransaction = source.beginReadTransaction();
+             LuceneTransaction transaction = new LuceneTransaction(this)) {
+            for (Class<?> entityClass : types) {
+                Iterable<Object> objects = sourceTransaction.loadObjects(entityClass,
+                        Optional.empty(), Optional.empty(), Optional.empty(), scope);
+                for (Object object : objects) {
+                    transaction.createObject(object, scope);
+                }
+            }
+            transaction.commit(scope);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    IndexSearcher acquireSearcher() {
+        while (true) {
+            SearcherManager current = searcherManager;
+            try {
+                return current.acquire();
+            } catch (AlreadyClosedException e) {
+                /* The writer was reopened after a failed commit */
+                if (current == searcherManager) {
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    void releaseSearcher(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Applies the writes of a transaction as one commit and makes them visible to searchers acquired afterwards.
+     * @param read The searcher the transaction read from
+     * @param upserts The documents to add or replace, by key
+     * @param deletes The keys of the documents to delete
+     * @throws TransactionException if another commit wrote or deleted one of the documents since the transaction
+     *                              read them
+     */
+    synchronized void write(IndexSearcher read, Map<Term, Document> upserts, Set<Term> deletes) {
+        Map<Term, Long> versions = new HashMap<>();
+        IndexSearcher latest = acquireSearcher();
+        try {
+            for (Term key : Sets.union(upserts.keySet(), deletes)) {
+                Long version = getVersion(latest, key);
+                if (!Objects.equals(getVersion(read, key), version)) {
+                    throw new TransactionException(new IllegalStateException(
+                            "Concurrent modification of " + key.text()));
+                }
+                versions.put(key, version);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(latest);
+        }
+
+        try {
+            for (Map.Entry<Term, Document> upsert : upserts.entrySet()) {
+                Long version = versions.get(upsert.getKey());
+                upsert.getValue().add(new StoredField(DocumentMapper.VERSION_FIELD, version == null ? 1 : version + 1));
+                writer.updateDocument(upsert.getKey(), upsert.getValue());
+            }
+            if (!deletes.isEmpty()) {
+                writer.deleteDocuments(deletes.toArray(new Term[0]));
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            rollback(e);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            rollback(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the version of a document.
+     * @return The version, 0 for documents written before versions were recorded, or null if there is no document
+     */
+    private static Long getVersion(IndexSearcher searcher, Term key) throws IOException {
+        TopDocs top = searcher.search(new TermQuery(key), 1);
+        if (top.scoreDocs.length == 0) {
+            return null;
+        }
+        IndexableField version = searcher.doc(top.scoreDocs[0].doc).getField(DocumentMapper.VERSION_FIELD);
+        return version == null ? 0L : version.numericValue().longValue();
+    }
+
+    /**
+     * Discards the writes buffered since the last commit, which closes the writer, and reopens it.
+     */
+    private void rollback(Throwable failure) {
+        try {
+            writer.rollback();
+            openWriter();
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Whether the store assigns the IDs of an entity.
+     * @param entityClass The entity
+     * @return true if the entity's ID is a generated number
+     */
+    boolean isGeneratedId(Class<?> entityClass) {
+        return dictionary.getAttributeOrRelationAnnotation(entityClass, GeneratedValue.class,
+                dictionary.getIdFieldName(entityClass)) != null
+                && DocumentMapper.getKind(dictionary.getIdType(entityClass)) == DocumentMapper.Kind.LONG;
+    }
+
+    /**
+     * Returns the next ID of an entity, after the largest one in the index.
+     * @param entityClass The entity
+     * @return The ID
+     */
+    long nextId(Class<?> entityClass) {
+        return typeIds.computeIfAbsent(entityClass, this::getMaxId).incrementAndGet();
+    }
+
+    /**
+     * Makes sure an ID written to the index is never generated.
+     * @param entityClass The entity
+     * @param id The written ID
+     */
+    void reserveId(Class<?> entityClass, long id) {
+        AtomicLong maxId = typeIds.get(entityClass);
+        if (maxId != null) {
+            maxId.accumulateAndGet(id, Math::max);
+        }
+    }
+
+    private AtomicLong getMaxId(Class<?> entityClass) {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            String idField = dictionary.getIdFieldName(entityClass);
+            TopDocs top = searcher.search(
+                    new TermQuery(new Term(DocumentMapper.TYPE_FIELD, mapper.getTypeName(entityClass))), 1,
+                    new Sort(new SortField(idField, SortField.Type.LONG, true)));
+            if (top.scoreDocs.length == 0) {
+                return new AtomicLong();
+            }
+            String id = searcher.doc(top.scoreDocs[0].doc).get(idField);
+            return new AtomicLong(id == null ? 0 : Long.parseLong(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * Returns the number of documents in the index.
+     * @return The document count
+     */
+    public int count() {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            return searcher.count(new MatchAllDocsQuery());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            releaseSearcher(searcher);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        if (!durableCommits) {
+            directory.syncAll();
+        }
+        directory.close();
+    }
+
+    /**
+     * Directory which skips syncing files to disk unless commits are durable, so that every commit can be a Lucene
+     * commit (the point a failed commit is rolled back to) without paying for the sync.
+     */
+    private static class DeferredSyncDirectory extends FilterDirectory {
+        private final boolean durable;
+
+        DeferredSyncDirectory(Directory in, boolean durable) {
+            super(in);
+            this.durable = durable;
+        }
+
+        @Override
+        public void sync(Collection<String> names) throws IOException {
+            if (durable) {
+                super.sync(names);
+            }
+        }
+
+        @Override
+        public void syncMetaData() throws IOException {
+            if (durable) {
+                super.syncMetaData();
+            }
+        }
+
+        /**
+         * Syncs every file of the index to disk.
+         */
+        void syncAll() throws IOException {
+            in.sync(Arrays.asList(in.listAll()));
+            in.syncMetaData();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene;
+
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.datastore.inmemory.InMemoryStoreTransaction;
+import com.yahoo.elide.core.datastore.wrapped.TransactionWrapper;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Transaction for the {@link LuceneDataStore}.
+ * <p>
+ * Reads run against the index as it was when the transaction began (or last committed).  Each document is
+ * rebuilt into at most one entity per transaction.  Relationships are loaded from the stored keys of the related
+ * entities the first time they are read.  Writes are buffered until commit, which fails if another transaction
+ * committed a write to the same entities first.
+ * <p>
+ * Filtered, sorted or paginated reads run in the index until the transaction writes.  From then on the index does
+ * not hold the transaction's own creates, updates and deletes, so the matching entities are loaded and filtered,
+ * sorted and paginated in memory.
+ */
+public class LuceneTransaction implements DataStoreTransaction {
+    private final LuceneDataStore store;
+    private final DocumentMapper mapper;
+    private final EntityDictionary dictionary;
+    private IndexSearcher searcher;
+
+    /* Entities rebuilt or created in this transaction, by key */
+    private final Map<String, Object> entities = new HashMap<>();
+
+    /* Keys of the related entities of the entities read from the index, by relationship */
+    private final Map<Object, Map<String, List<String>>> relationshipKeys = new IdentityHashMap<>();
+
+    /* Relationships whose value on the entity is loaded, so it is the source of truth when the entity is saved */
+    private final Map<Object, Set<String>> loadedRelationships = new IdentityHashMap<>();
+
+    /* Entities to write, with the order they were first saved in */
+    private final Map<Object, Long> saved = new IdentityHashMap<>();
+    private final Map<Object, Boolean> deleted = new IdentityHashMap<>();
+    private long saveCount;
+
+    /* Reads which see the writes of this transaction, evaluated in memory */
+    private final DataStoreTransaction localReads = new InMemoryStoreTransaction(new TransactionWrapper(this) {
+        @Override
+        public Iterable<Object> loadObjects(Class<?> entityClass,
+                                            Optional<FilterExpression> filterExpression,
+                                            Optional<Sorting> sorting,
+                                            Optional<Pagination> pagination,
+                                            RequestScope scope) {
+            return loadLocal(entityClass);
+        }
+
+        @Override
+        public FeatureSupport supportsFiltering(Class<?> entityClass, FilterExpression expression) {
+            return FeatureSupport.NONE;
+        }
+
+        @Override
+        public boolean supportsSorting(Class<?> entityClass, Sorting sorting) {
+            return false;
+        }
+
+        @Override
+        public boolean supportsPagination(Class<?> entityClass) {
+            return false;
+        }
+    });
+
+    public LuceneTransaction(LuceneDataStore store) {
+        this.store = store;
+        this.mapper = store.getMapper();
+        this.dictionary = store.getDictionary();
+        this.searcher = store.acquireSearcher();
+    }
+
+    @Override
+    public void save(Object entity, RequestScope scope) {
+        deleted.remove(entity);
+        saved.putIfAbsent(entity, saveCount++);
+    }
+
+    @Override
+    public void delete(Object entity, RequestScope scope) {
+        saved.remove(entity);
+        deleted.put(entity, true);
+    }
+
+    @Override
+    public void flush(RequestScope scope) {
+        // Writes are only applied on commit
+    }
+
+    @Override
+    public void commit(RequestScope scope) {
+        List<Object> toWrite = new ArrayList<>(saved.keySet());
+        toWrite.sort(Comparator.comparing(saved::get));
+
+        Map<Term, Document> upserts = new LinkedHashMap<>();
+        for (Object entity : toWrite) {
+            Map<String, List<String>> keys = new LinkedHashMap<>();
+            for (String relationship : mapper.getStoredRelationships(dictionary.lookupEntityClass(entity.getClass()))) {
+                keys.put(relationship, getRelationshipKeys(entity, relationship));
+            }
+            upserts.put(mapper.getKey(entity), mapper.toDocument(entity, keys));
+        }
+
+        Set<Term> deletes = deleted.keySet().stream()
+                .map(mapper::getKey)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        if (!upserts.isEmpty() || !deletes.isEmpty()) {
+            store.write(searcher, upserts, deletes);
+        }
+
+        /* IDs assigned elsewhere (for example copied by a load) must not be generated again */
+        for (Object entity : toWrite) {
+            Class<?> entityClass = dictionary.lookupEntityClass(entity.getClass());
+            if (store.isGeneratedId(entityClass)) {
+                Object id = dictionary.getValue(entity, dictionary.getIdFieldName(entityClass), scope);
+                store.reserveId(entityClass, ((Number) id).longValue());
+            }
+        }
+
+        deletes.forEach(key -> entities.remove(key.text()));
+        saved.clear();
+        deleted.clear();
+
+        store.releaseSearcher(searcher);
+        searcher = store.acquireSearcher();
+    }
+
+    @Override
+    public void createObject(Object entity, RequestScope scope) {
+        Class<?> entityClass = dictionary.lookupEntityClass(entity.getClass());
+        if (store.isGeneratedId(entityClass)) {
+            Object id = dictionary.getValue(entity, dictionary.getIdFieldName(entityClass), scope);
+            if (id == null || ((Number) id).longValue() == 0) {
+                dictionary.setValue(entity, dictionary.getIdFieldName(entityClass), store.nextId(entityClass));
+            }
+        }
+
+        entities.put(mapper.getKey(entity).text(), entity);
+        save(entity, scope);
+    }
+
+    @Override
+    public Object loadObject(Class<?> entityClass,
+                             Serializable id,
+                             Optional<FilterExpression> filterExpression,
+                             RequestScope scope) {
+        if (!filterExpression.isPresent()) {
+            Object entity = entities.get(mapper.getKey(entityClass, String.valueOf(id)).text());
+            if (entity != null) {
+                return deleted.containsKey(entity) ? null : entity;
+            }
+        }
+        return DataStoreTransaction.super.loadObject(entityClass, id, filterExpression, scope);
+    }
+
+    @Override
+    public Iterable<Object> loadObjects(Class<?> entityClass,
+                                        Optional<FilterExpression> filterExpression,
+                                        Optional<Sorting> sorting,
+                                        Optional<Pagination> pagination,
+                                        RequestScope scope) {
+        if (hasWrites()) {
+            return localReads.loadObjects(entityClass, filterExpression, sorting, pagination, scope);
+        }
+
+        Query query = filter(typeQuery(entityClass), entityClass, filterExpression);
+        return search(query, entityClass, sorting, pagination);
+    }
+
+    @Override
+    public Object getRelation(DataStoreTransaction relationTx,
+                              Object entity,
+                              String relationName,
+                              Optional<FilterExpression> filterExpression,
+                              Optional<Sorting> sorting,
+                              Optional<Pagination> pagination,
+                              RequestScope scope) {
+        if (!isLoaded(entity, relationName)) {
+            List<Object> related = loadByKeys(relationshipKeys.get(entity).get(relationName));
+            Class<?> type = dictionary.getType(entity.getClass(), relationName);
+
+            Object value;
+            if (Collection.class.isAssignableFrom(type)) {
+                value = type.isAssignableFrom(LinkedHashSet.class) ? new LinkedHashSet<>(related) : related;
+            } else {
+                value = related.isEmpty() ? null : related.get(0);
+            }
+            dictionary.setValue(entity, relationName, value);
+            loadedRelationships.get(entity).add(relationName);
+        }
+
+        Object value = dictionary.getValue(entity, relationName, scope);
+        if (value instanceof Collection
+                && (filterExpression.isPresent() || sorting.isPresent() || pagination.isPresent())) {
+            if (hasWrites()) {
+                return localReads.getRelation(relationTx, entity, relationName, filterExpression, sorting,
+                        pagination, scope);
+            }
+
+            Class<?> relationClass = dictionary.getParameterizedType(entity, relationName);
+            List<String> keys = getRelationshipKeys(entity, relationName);
+            Query query = filter(new TermInSetQuery(DocumentMapper.KEY_FIELD, toBytes(keys)),
+                    relationClass, filterExpression);
+            return search(query, relationClass, sorting, pagination);
+        }
+        return value;
+    }
+
+    @Override
+    public void updateToManyRelation(DataStoreTransaction relationTx,
+                                     Object entity,
+                                     String relationName,
+                                     Set<Object> newRelationships,
+                                     Set<Object> deletedRelationships,
+                                     RequestScope scope) {
+        if (!isLoaded(entity, relationName)) {
+            List<String> keys = relationshipKeys.get(entity).get(relationName);
+            deletedRelationships.forEach(related -> keys.remove(mapper.getKey(related).text()));
+            newRelationships.stream()
+                    .map(related -> mapper.getKey(related).text())
+                    .filter(key -> !keys.contains(key))
+                    .forEach(keys::add);
+        }
+    }
+
+    @Override
+    public void updateToOneRelation(DataStoreTransaction relationTx,
+                                    Object entity,
+                                    String relationName,
+                                    Object relationshipValue,
+                                    RequestScope scope) {
+        if (!isLoaded(entity, relationName)) {
+            List<String> keys = relationshipKeys.get(entity).get(relationName);
+            keys.clear();
+            if (relationshipValue != null) {
+                keys.add(mapper.getKey(relationshipValue).text());
+            }
+        }
+    }
+
+    @Override
+    public FeatureSupport supportsFiltering(Class<?> entityClass, FilterExpression expression) {
+        try {
+            expression.accept(new FilterExpressionToLuceneQuery(mapper, entityClass));
+            return FeatureSupport.FULL;
+        } catch (IllegalArgumentException e) {
+            return FeatureSupport.NONE;
+        }
+    }
+
+    @Override
+    public boolean supportsSorting(Class<?> entityClass, Sorting sorting) {
+        return sorting.getValidSortingRules(entityClass, dictionary).keySet().stream()
+                .allMatch(path -> path.getPathElements().size() == 1
+                        && mapper.getKind(entityClass, path.lastElement().get().getFieldName())
+                                != DocumentMapper.Kind.JSON);
+    }
+
+    @Override
+    public boolean supportsPagination(Class<?> entityClass) {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (searcher != null) {
+            store.releaseSearcher(searcher);
+            searcher = null;
+        }
+    }
+
+    /**
+     * Whether this transaction has writes which are not committed to the index.
+     */
+    private boolean hasWrites() {
+        return !saved.isEmpty() || !deleted.isEmpty();
+    }
+
+    /**
+     * Loads every entity of a type as this transaction sees it: the committed entities it has not deleted,
+     * followed by those it created.
+     */
+    private List<Object> loadLocal(Class<?> entityClass) {
+        List<Object> results = search(typeQuery(entityClass), entityClass, Optional.empty(), Optional.empty());
+        results.removeIf(deleted::containsKey);
+
+        Set<Object> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        found.addAll(results);
+
+        List<Object> created = new ArrayList<>(saved.keySet());
+        created.sort(Comparator.comparing(saved::get));
+        for (Object entity : created) {
+            if (!found.contains(entity) && entityClass.isAssignableFrom(entity.getClass())) {
+                results.add(entity);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Matches the documents of an entity and of the entities which extend it.
+     */
+    private Query typeQuery(Class<?> entityClass) {
+        List<String> typeNames = new ArrayList<>();
+        typeNames.add(mapper.getTypeName(entityClass));
+        dictionary.getSubclassingEntities(entityClass).stream()
+                .map(mapper::getTypeName)
+                .forEach(typeNames::add);
+        return new TermInSetQuery(DocumentMapper.TYPE_FIELD, toBytes(typeNames));
+    }
+
+    /**
+     * Whether the value of a relationship on an entity holds its related entities.  Values of entities which were
+     * not read from the index (for example those created in this transaction) always do.
+     */
+    private boolean isLoaded(Object entity, String relationName) {
+        return !relationshipKeys.containsKey(entity) || loadedRelationships.get(entity).contains(relationName);
+    }
+
+    private List<String> getRelationshipKeys(Object entity, String relationName) {
+        return isLoaded(entity, relationName)
+                ? mapper.getRelationshipKeys(entity, relationName)
+                : relationshipKeys.get(entity).get(relationName);
+    }
+
+    private Query filter(Query query, Class<?> entityClass, Optional<FilterExpression> filterExpression) {
+        if (!filterExpression.isPresent()) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.FILTER)
+                .add(filterExpression.get().accept(new FilterExpressionToLuceneQuery(mapper, entityClass)),
+                        BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    private List<Object> search(Query query,
+                                Class<?> entityClass,
+                                Optional<Sorting> sorting,
+                                Optional<Pagination> pagination) {
+        Sort sort = sorting
+                .filter(sortingRules -> !sortingRules.isDefaultInstance())
+                .map(sortingRules -> buildSort(entityClass, sortingRules))
+                .orElse(Sort.INDEXORDER);
+
+        int offset = pagination.map(Pagination::getOffset).orElse(0);
+        long end = pagination.map(page -> (long) page.getOffset() + page.getLimit()).orElse(Long.MAX_VALUE);
+
+        try {
+            /* Never ask for more hits than there are documents: the collector sizes its queue by the hit count */
+            int hits = (int) Math.max(1, Math.min(end, searcher.getIndexReader().maxDoc()));
+            TopDocs topDocs = searcher.search(query, hits, sort);
+
+            if (pagination.isPresent() && pagination.get().isGenerateTotals()) {
+                pagination.get().setPageTotals(searcher.count(query));
+            }
+
+            List<Object> results = new ArrayList<>();
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            for (int i = offset; i < scoreDocs.length; i++) {
+                results.add(toEntity(searcher.doc(scoreDocs[i].doc)));
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Sort buildSort(Class<?> entityClass, Sorting sorting) {
+        List<SortField> sortFields = new ArrayList<>();
+        for (Map.Entry<Path, Sorting.SortOrder> entry
+                : sorting.getValidSortingRules(entityClass, dictionary).entrySet()) {
+            String field = entry.getKey().lastElement().get().getFieldName();
+            boolean reverse = entry.getValue() == Sorting.SortOrder.desc;
+
+            switch (mapper.getKind(entityClass, field)) {
+                case LONG:
+                    sortFields.add(new SortField(field, SortField.Type.LONG, reverse));
+                    break;
+                case DOUBLE:
+                    sortFields.add(new SortField(field, SortField.Type.DOUBLE, reverse));
+                    break;
+                case STRING:
+                    sortFields.add(new SortField(field, SortField.Type.STRING, reverse));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported sort field: " + field);
+            }
+        }
+        sortFields.add(SortField.FIELD_DOC);
+        return new Sort(sortFields.toArray(new SortField[0]));
+    }
+
+    /**
+     * Loads entities by key, keeping the order of the keys and skipping any that no longer exist.
+     */
+    private List<Object> loadByKeys(List<String> keys) {
+        Set<String> missing = new HashSet<>();
+        for (String key : keys) {
+            if (!entities.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            try {
+                TopDocs topDocs = searcher.search(new TermInSetQuery(DocumentMapper.KEY_FIELD, toBytes(missing)),
+                        missing.size());
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    toEntity(searcher.doc(scoreDoc.doc));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<Object> related = new ArrayList<>();
+        for (String key : keys) {
+            Object entity = entities.get(key);
+            if (entity != null && !deleted.containsKey(entity)) {
+                related.add(entity);
+            }
+        }
+        return related;
+    }
+
+    /**
+     * Returns the entity of a document, rebuilding it the first time the document is read.
+     */
+    private Object toEntity(Document document) {
+        String key = document.get(DocumentMapper.KEY_FIELD);
+        Object entity = entities.get(key);
+        if (entity == null) {
+            Class<?> entityClass = mapper.getEntityClass(document);
+            entity = mapper.fromDocument(entityClass, document);
+            entities.put(key, entity);
+            relationshipKeys.put(entity, mapper.getRelationshipKeys(entityClass, document));
+            loadedRelationships.put(entity, new HashSet<>());
+        }
+        return entity;
+    }
+
+    private static List<BytesRef> toBytes(Collection<String> values) {
+        return values.isEmpty()
+                ? Collections.emptyList()
+                : values.stream().map(BytesRef::new).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.datastore.inmemory.HashMapDataStore;
+import com.yahoo.elide.core.exceptions.TransactionException;
+import com.yahoo.elide.core.filter.dialect.ParseException;
+import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+import com.yahoo.elide.datastores.lucene.models.Author;
+import com.yahoo.elide.datastores.lucene.models.Book;
+
+import com.google.common.collect.Sets;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class LuceneDataStoreTest {
+
+    @TempDir
+    Path indexPath;
+
+    private LuceneDataStore store;
+    private EntityDictionary dictionary;
+    private RSQLFilterDialect filterParser;
+    private RequestScope scope;
+
+    @BeforeEach
+    public void setup() {
+        store = openStore();
+        populate();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        store.close();
+    }
+
+    private LuceneDataStore openStore() {
+        dictionary = new EntityDictionary(new HashMap<>());
+        LuceneDataStore luceneStore = new LuceneDataStore(indexPath, Book.class.getPackage());
+        luceneStore.populateEntityDictionary(dictionary);
+
+        filterParser = new RSQLFilterDialect(dictionary);
+        scope = mock(RequestScope.class);
+        when(scope.getDictionary()).thenReturn(dictionary);
+        return luceneStore;
+    }
+
+    private void populate() {
+        Author tolkien = new Author();
+        tolkien.setName("J. R. R. Tolkien");
+        Author sagan = new Author();
+        sagan.setName("Carl Sagan");
+
+        Book hobbit = book(1, "The Hobbit", Book.Genre.FICTION, "12.50", 4.5, tolkien);
+        Book rings = book(2, "The Lord of the Rings", Book.Genre.FICTION, "30.00", 4.8, tolkien);
+        Book cosmos = book(3, "Cosmos", Book.Genre.SCIENCE, "20.00", 4.2, sagan);
+        cosmos.setTags(Arrays.asList("space", "astronomy"));
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            for (Object entity : Arrays.asList(tolkien, sagan, hobbit, rings, cosmos)) {
+                tx.createObject(entity, scope);
+            }
+            tx.commit(scope);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Book book(long id, String title, Book.Genre genre, String price, double rating, Author author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setGenre(genre);
+        book.setPrice(new BigDecimal(price));
+        book.setRating(rating);
+        book.setPublishDate(new Date(id * 1000));
+        book.setAuthor(author);
+        author.getBooks().add(book);
+        return book;
+    }
+
+    private List<String> titles(Iterable<Object> books) {
+        return StreamSupport.stream(books.spliterator(), false)
+                .map(book -> ((Book) book).getTitle())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            Book cosmos = (Book) tx.loadObject(Book.class, 3L, Optional.empty(), scope);
+
+            assertEquals("Cosmos", cosmos.getTitle());
+            assertEquals(Book.Genre.SCIENCE, cosmos.getGenre());
+            assertEquals(new BigDecimal("20.00"), cosmos.getPrice());
+            assertEquals(4.2, cosmos.getRating());
+            assertEquals(new Date(3000), cosmos.getPublishDate());
+            assertEquals(Arrays.asList("space", "astronomy"), cosmos.getTags());
+
+            /* Relationships are loaded on first read and resolve to the same instances */
+            Author sagan = (Author) tx.getRelation(tx, cosmos, "author",
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            assertEquals("Carl Sagan", sagan.getName());
+            assertTrue(sagan.getId() > 0);
+
+            Collection<?> books = (Collection<?>) tx.getRelation(tx, sagan, "books",
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            assertEquals(Collections.singletonList(cosmos), Arrays.asList(books.toArray()));
+        }
+    }
+
+    @Test
+    public void testFilterSortAndPaginate() throws Exception {
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            FilterExpression filter = filterParser.parseFilterExpression("genre==FICTION", Book.class, false);
+            Pagination pagination = Pagination.fromOffsetAndLimit(1, 0, true);
+
+            Iterable<Object> loaded = tx.loadObjects(Book.class, Optional.of(filter),
+                    Optional.of(Sorting.parseSortRule("-title")), Optional.of(pagination), scope);
+
+            assertEquals(Collections.singletonList("The Lord of the Rings"), titles(loaded));
+            assertEquals(2, pagination.getPageTotals());
+
+            loaded = tx.loadObjects(Book.class, Optional.empty(),
+                    Optional.of(Sorting.parseSortRule("price")), Optional.empty(), scope);
+            assertEquals(Arrays.asList("The Hobbit", "Cosmos", "The Lord of the Rings"), titles(loaded));
+        }
+    }
+
+    @Test
+    public void testFilterOperators() throws Exception {
+        assertEquals(Arrays.asList("The Hobbit", "The Lord of the Rings"), filter("title==the*"));
+        assertEquals(Collections.singletonList("The Lord of the Rings"), filter("title==*RINGS"));
+        assertEquals(Collections.singletonList("The Hobbit"), filter("title==*hob*"));
+        assertEquals(Arrays.asList("The Lord of the Rings", "Cosmos"), filter("rating>4.1;rating!=4.5"));
+        assertEquals(Arrays.asList("The Hobbit", "Cosmos"), filter("price<30"));
+        assertEquals(Collections.singletonList("Cosmos"), filter("id=in=(3,4)"));
+        assertEquals(Arrays.asList("The Hobbit", "The Lord of the Rings"), filter("genre=out=(SCIENCE)"));
+        assertEquals(Collections.emptyList(), filter("title=isnull=true"));
+    }
+
+    private List<String> filter(String expression) throws ParseException {
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            FilterExpression filter = filterParser.parseFilterExpression(expression, Book.class, false);
+            return titles(tx.loadObjects(Book.class, Optional.of(filter), Optional.empty(), Optional.empty(), scope));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void testRelationshipFilteredInIndex() throws Exception {
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            FilterExpression filter = filterParser.parseFilterExpression("name==*tolkien", Author.class, false);
+            Author tolkien = (Author) tx.loadObjects(Author.class, Optional.of(filter),
+                    Optional.empty(), Optional.empty(), scope).iterator().next();
+
+            Pagination pagination = Pagination.fromOffsetAndLimit(1, 1, true);
+            Iterable<Object> books = (Iterable<Object>) tx.getRelation(tx, tolkien, "books", Optional.empty(),
+                    Optional.of(Sorting.parseSortRule("title")), Optional.of(pagination), scope);
+
+            assertEquals(Collections.singletonList("The Lord of the Rings"), titles(books));
+            assertEquals(2, pagination.getPageTotals());
+        }
+    }
+
+    @Test
+    public void testUpdateUnloadedRelationship() throws Exception {
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            Book cosmos = (Book) tx.loadObject(Book.class, 3L, Optional.empty(), scope);
+            Author tolkien = (Author) tx.loadObjects(Author.class,
+                    Optional.of(filterParser.parseFilterExpression("name==*tolkien", Author.class, false)),
+                    Optional.empty(), Optional.empty(), scope).iterator().next();
+
+            /* Neither side has been read: the stored keys are updated instead */
+            tx.updateToOneRelation(tx, cosmos, "author", tolkien, scope);
+            tx.updateToManyRelation(tx, tolkien, "books", Sets.newHashSet(cosmos), Collections.emptySet(), scope);
+            cosmos.setTitle("Cosmos (Revised)");
+            tx.save(cosmos, scope);
+            tx.save(tolkien, scope);
+            tx.commit(scope);
+        }
+
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            Book cosmos = (Book) tx.loadObject(Book.class, 3L, Optional.empty(), scope);
+            assertEquals("Cosmos (Revised)", cosmos.getTitle());
+
+            Author author = (Author) tx.getRelation(tx, cosmos, "author",
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            assertEquals("J. R. R. Tolkien", author.getName());
+
+            Set<?> books = (Set<?>) tx.getRelation(tx, author, "books",
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            assertEquals(3, books.size());
+            assertTrue(books.contains(cosmos));
+        }
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.delete(tx.loadObject(Book.class, 1L, Optional.empty(), scope), scope);
+            tx.commit(scope);
+
+            assertNull(tx.loadObject(Book.class, 1L, Optional.empty(), scope));
+        }
+
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            assertNull(tx.loadObject(Book.class, 1L, Optional.empty(), scope));
+            assertEquals(Arrays.asList("The Lord of the Rings", "Cosmos"),
+                    titles(tx.loadObjects(Book.class, Optional.empty(), Optional.empty(), Optional.empty(), scope)));
+        }
+    }
+
+    @Test
+    public void testReadsSeeOwnWrites() throws Exception {
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            Author tolkien = (Author) tx.loadObjects(Author.class,
+                    Optional.of(filterParser.parseFilterExpression("name==*tolkien", Author.class, false)),
+                    Optional.empty(), Optional.empty(), scope).iterator().next();
+
+            Book silmarillion = new Book();
+            silmarillion.setId(4);
+            silmarillion.setTitle("The Silmarillion");
+            silmarillion.setGenre(Book.Genre.FICTION);
+            silmarillion.setAuthor(tolkien);
+            tx.createObject(silmarillion, scope);
+            tx.updateToManyRelation(tx, tolkien, "books", Sets.newHashSet(silmarillion), Collections.emptySet(),
+                    scope);
+            tx.delete(tx.loadObject(Book.class, 1L, Optional.empty(), scope), scope);
+
+            FilterExpression filter = filterParser.parseFilterExpression("genre==FICTION", Book.class, false);
+            Pagination pagination = Pagination.fromOffsetAndLimit(10, 0, true);
+            Iterable<Object> loaded = tx.loadObjects(Book.class, Optional.of(filter),
+                    Optional.of(Sorting.parseSortRule("-title")), Optional.of(pagination), scope);
+
+            assertEquals(Arrays.asList("The Silmarillion", "The Lord of the Rings"), titles(loaded));
+            assertEquals(2, pagination.getPageTotals());
+
+            Iterable<Object> books = (Iterable<Object>) tx.getRelation(tx, tolkien, "books",
+                    Optional.of(filterParser.parseFilterExpression("title==*silm*", Book.class, false)),
+                    Optional.of(Sorting.parseSortRule("title")), Optional.empty(), scope);
+            assertEquals(Collections.singletonList("The Silmarillion"), titles(books));
+        }
+    }
+
+    @Test
+    public void testFirstCommitterWins() throws Exception {
+        try (DataStoreTransaction first = store.beginTransaction();
+             DataStoreTransaction second = store.beginTransaction()) {
+            Book firstHobbit = (Book) first.loadObject(Book.class, 1L, Optional.empty(), scope);
+            Book secondHobbit = (Book) second.loadObject(Book.class, 1L, Optional.empty(), scope);
+
+            firstHobbit.setTitle("There and Back Again");
+            first.save(firstHobbit, scope);
+            first.commit(scope);
+
+            secondHobbit.setTitle("The Hobbit, or There and Back Again");
+            second.save(secondHobbit, scope);
+            assertThrows(TransactionException.class, () -> second.commit(scope));
+        }
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            Book hobbit = (Book) tx.loadObject(Book.class, 1L, Optional.empty(), scope);
+            assertEquals("There and Back Again", hobbit.getTitle());
+
+            /* Transactions which began after the commit can write */
+            hobbit.setTitle("The Hobbit");
+            tx.save(hobbit, scope);
+            tx.commit(scope);
+        }
+    }
+
+    @Test
+    public void testFailedWriteIsRolledBack() throws Exception {
+        Document written = new Document();
+        written.add(new StringField(DocumentMapper.KEY_FIELD, "book/100", Field.Store.YES));
+        Document failing = new Document();
+        failing.add(new StringField(DocumentMapper.KEY_FIELD, "book/101", Field.Store.YES));
+        char[] immense = new char[IndexWriter.MAX_TERM_LENGTH + 1];
+        Arrays.fill(immense, 'x');
+        failing.add(new StringField("title", new String(immense), Field.Store.NO));
+
+        Map<Term, Document> upserts = new LinkedHashMap<>();
+        upserts.put(new Term(DocumentMapper.KEY_FIELD, "book/100"), written);
+        upserts.put(new Term(DocumentMapper.KEY_FIELD, "book/101"), failing);
+
+        IndexSearcher searcher = store.acquireSearcher();
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> store.write(searcher, upserts, Collections.emptySet()));
+        } finally {
+            store.releaseSearcher(searcher);
+        }
+
+        /* The next commit does not publish the first document of the failed one */
+        Author herbert = new Author();
+        herbert.setName("Frank Herbert");
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.createObject(herbert, scope);
+            tx.commit(scope);
+        }
+        assertEquals(6, store.count());
+    }
+
+    @Test
+    public void testGeneratedIdsAfterAssignedIds() throws Exception {
+        Author herbert = new Author();
+        herbert.setName("Frank Herbert");
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.createObject(herbert, scope);
+            tx.commit(scope);
+        }
+        assertEquals(3L, herbert.getId());
+
+        /* IDs copied from another store, as a load does, are kept */
+        Author asimov = new Author();
+        asimov.setId(10L);
+        asimov.setName("Isaac Asimov");
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.createObject(asimov, scope);
+            tx.commit(scope);
+        }
+        assertEquals(10L, asimov.getId());
+
+        /* and are not generated again */
+        Author clarke = new Author();
+        clarke.setName("Arthur C. Clarke");
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            tx.createObject(clarke, scope);
+            tx.commit(scope);
+        }
+        assertEquals(11L, clarke.getId());
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        store.close();
+        store = openStore();
+
+        Author herbert = new Author();
+        herbert.setName("Frank Herbert");
+
+        try (DataStoreTransaction tx = store.beginTransaction()) {
+            assertEquals("The Hobbit", ((Book) tx.loadObject(Book.class, 1L, Optional.empty(), scope)).getTitle());
+
+            tx.createObject(herbert, scope);
+            tx.commit(scope);
+        }
+
+        /* Generated IDs continue after the largest one in the index */
+        assertEquals(3L, herbert.getId());
+        assertEquals(6, store.count());
+    }
+
+    @Test
+    public void testLoadFromDataStore() throws Exception {
+        HashMapDataStore source = new HashMapDataStore(Book.class.getPackage());
+        source.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+
+        Author asimov = new Author();
+        asimov.setId(10L);
+        asimov.setName("Isaac Asimov");
+        Book foundation = book(10, "Foundation", Book.Genre.FICTION, "8.99", 4.3, asimov);
+
+        try (DataStoreTransaction tx = source.beginTransaction()) {
+            tx.createObject(asimov, scope);
+            tx.createObject(foundation, scope);
+            tx.commit(scope);
+        }
+
+        LuceneDataStore copy = new LuceneDataStore(indexPath.resolve("copy"), Book.class.getPackage());
+        copy.populateEntityDictionary(dictionary);
+        copy.load(source, scope);
+
+        try (DataStoreTransaction tx = copy.beginReadTransaction()) {
+            Book loaded = (Book) tx.loadObject(Book.class, 10L, Optional.empty(), scope);
+            assertEquals("Foundation", loaded.getTitle());
+
+            Author author = (Author) tx.getRelation(tx, loaded, "author",
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            assertEquals("Isaac Asimov", author.getName());
+        }
+        assertEquals(2, copy.count());
+        copy.close();
+    }
+
+    @Test
+    public void testSupportedFeatures() throws Exception {
+        try (DataStoreTransaction tx = store.beginReadTransaction()) {
+            assertEquals(DataStoreTransaction.FeatureSupport.FULL, tx.supportsFiltering(Book.class,
+                    filterParser.parseFilterExpression("title==the*,rating>4", Book.class, false)));
+            assertEquals(DataStoreTransaction.FeatureSupport.NONE, tx.supportsFiltering(Book.class,
+                    filterParser.parseFilterExpression("author.name==tolkien", Book.class, false)));
+
+            assertTrue(tx.supportsSorting(Book.class, Sorting.parseSortRule("title,-publishDate")));
+            assertEquals(false, tx.supportsSorting(Book.class, Sorting.parseSortRule("tags")));
+        }
+    }
+}
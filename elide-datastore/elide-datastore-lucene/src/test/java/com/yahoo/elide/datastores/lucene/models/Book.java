@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.lucene.models;
+
+import com.yahoo.elide.annotation.Include;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+@Entity
+@Include(rootLevel = true)
+@Getter
+@Setter
+public class Book {
+    @Id
+    private long id;
+
+    private String title;
+
+    private Genre genre;
+
+    private Date publishDate;
+
+    private BigDecimal price;
+
+    private double rating;
+
+    private List<String> tags = new ArrayList<>();
+
+    @ManyToOne
+    private Author author;
+
+    /**
+     * Book genre.
+     */
+    public enum Genre {
+        FICTION,
+        HISTORY,
+        SCIENCE
+    }
+}
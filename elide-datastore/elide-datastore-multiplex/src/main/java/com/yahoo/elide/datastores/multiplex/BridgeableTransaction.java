@@ -80,4 +80,17 @@ public interface BridgeableTransaction {
                                  Optional<Sorting> sorting,
                                  Optional<Pagination> pagination,
                                  RequestScope scope);
+
+    /**
+     * Whether the multiplex read transaction may prefetch included relationships through this transaction on its
+     * read executor, concurrently with the loads of other stores.  Only declare this when the transaction can be used
+     * from another thread than the request thread and its bridgeable loads only read the id of the parent, so they
+     * never touch the transaction of the parent's store.  Prefetching loads receive a request scope of their own,
+     * without query parameters.
+     *
+     * @return true if bridgeable loads may run on another thread
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Strategy used by {@link MultiplexWriteTransaction} to commit its subordinate transactions.
+ * <p>
+ * Coordinators are shared by every transaction of a {@link MultiplexManager} and must be thread safe.
+ */
+public interface CommitCoordinator {
+
+    /**
+     * Commit every subordinate transaction.  If the commit fails part way through, the coordinator is
+     * responsible for reversing the work of any store which already committed (typically through the
+     * provided journal) before rethrowing.
+     *
+     * @param transactions subordinate transactions in data store registration order
+     * @param journal undo records collected during the transaction
+     * @param scope the request scope for the current request
+     */
+    void commit(LinkedHashMap<DataStore, DataStoreTransaction> transactions, UndoJournal journal, RequestScope scope);
+
+    /**
+     * Whether changes made through the given subordinate transaction may need to be compensated after
+     * a failed commit.  Entities loaded through transactions which never need compensation are not
+     * snapshotted.
+     *
+     * @param transaction subordinate transaction
+     * @param lastTransaction the subordinate transaction of the last registered data store
+     * @return true if undo records must be kept for the transaction
+     */
+    default boolean requiresUndo(DataStoreTransaction transaction, DataStoreTransaction lastTransaction) {
+        return true;
+    }
+}
@@ -11,14 +11,17 @@ import com.yahoo.elide.core.EntityDictionary;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Allows multiple database handlers to each process their own beans while keeping the main
  * commit in sync across all managers.
  *
  * <p><B>WARNING</B> If a subordinate commit fails, attempts are made to reverse the previous
- * commits.  If these reversals fail, the databases can be left out of sync.
+ * commits.  If these reversals fail, the databases can be left out of sync.  How subordinate
+ * transactions are committed and reversed is governed by the {@link CommitCoordinator}.
  * <p>
  * For example, a Multiplex of two databases DB1, DB2 might do:
  * <ul>
@@ -32,6 +35,8 @@ public class MultiplexManager implements DataStore {
 
     protected final List<DataStore> dataStores;
     protected final ConcurrentHashMap<Class<?>, DataStore> dataStoreMap = new ConcurrentHashMap<>();
+    protected final CommitCoordinator commitCoordinator;
+    protected final Executor readExecutor;
     private EntityDictionary dictionary;
 
     /**
@@ -39,6 +44,29 @@ public class MultiplexManager implements DataStore {
      * @param dataStores list of sub-managers
      */
     public MultiplexManager(DataStore... dataStores) {
+        this(new SequentialCommitCoordinator(), dataStores);
+    }
+
+    /**
+     * Create a single DataStore to handle provided managers within a single transaction.
+     * @param commitCoordinator strategy used to commit (and reverse) the subordinate transactions
+     * @param dataStores list of sub-managers
+     */
+    public MultiplexManager(CommitCoordinator commitCoordinator, DataStore... dataStores) {
+        this(commitCoordinator, null, dataStores);
+    }
+
+    /**
+     * Create a single DataStore to handle provided managers within a single transaction.
+     * @param commitCoordinator strategy used to commit (and reverse) the subordinate transactions
+     * @param readExecutor executor used by read transactions to load independent relationships held in
+     *                     different stores concurrently, or null to load them on the request thread.
+     *                     Its lifecycle is owned by the caller.
+     * @param dataStores list of sub-managers
+     */
+    public MultiplexManager(CommitCoordinator commitCoordinator, Executor readExecutor, DataStore... dataStores) {
+        this.commitCoordinator = commitCoordinator;
+        this.readExecutor = readExecutor;
         this.dataStores = Arrays.asList(dataStores);
     }
 
@@ -74,6 +102,14 @@ public class MultiplexManager implements DataStore {
         return dictionary;
     }
 
+    public CommitCoordinator getCommitCoordinator() {
+        return commitCoordinator;
+    }
+
+    public Optional<Executor> getReadExecutor() {
+        return Optional.ofNullable(readExecutor);
+    }
+
     /**
      * Lookup subordinate database manager for provided entity class.
      * @param <T> type
@@ -7,12 +7,45 @@ package com.yahoo.elide.datastores.multiplex;
 
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.pagination.Pagination;
+import com.yahoo.elide.core.sort.Sorting;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 /**
  * Multiplex transaction handler.
+ * <p>
+ * When the manager is configured with a read executor, relationships named in the request's {@code include}
+ * parameter are loaded up front for the entities of the request's primary type when they are bridged into at least
+ * two stores which declare themselves {@link BridgeableTransaction#isThreadSafe() thread safe}.  Loads are grouped by
+ * the store serving them and each group runs sequentially on the read executor with its own request scope, so no
+ * subordinate transaction or request scope is ever used by two threads at once.  The request thread waits for every
+ * group, so a level costs the slowest store rather than the sum of the stores.  Each include level is dispatched as
+ * its own wave.  Relationships of other stores are loaded on the request thread when they are read, as without an
+ * executor.
  */
 public class MultiplexReadTransaction extends MultiplexTransaction {
+    private static final String INCLUDE = "include";
+    private static final String RELATIONSHIPS = "relationships";
+
+    private final IdentityHashMap<Object, Map<String, Object>> prefetched = new IdentityHashMap<>();
+    private volatile boolean prefetching = false;
 
     public MultiplexReadTransaction(MultiplexManager multiplexManager) {
         super(multiplexManager);
@@ -33,4 +66,231 @@ public class MultiplexReadTransaction extends MultiplexTransaction {
     public void delete(Object entity, RequestScope scope) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public Object loadObject(Class<?> entityClass,
+                             Serializable id,
+                             Optional<FilterExpression> filterExpression,
+                             RequestScope scope) {
+        Object entity = super.loadObject(entityClass, id, filterExpression, scope);
+        List<List<String>> includes = getIncludePaths(entityClass, scope);
+        if (entity != null && !includes.isEmpty()) {
+            prefetch(entityClass, Collections.singletonList(entity), includes, scope);
+        }
+        return entity;
+    }
+
+    @Override
+    public Iterable<Object> loadObjects(
+            Class<?> entityClass,
+            Optional<FilterExpression> filterExpression,
+            Optional<Sorting> sorting,
+            Optional<Pagination> pagination,
+            RequestScope scope) {
+        Iterable<Object> entities = super.loadObjects(entityClass, filterExpression, sorting, pagination, scope);
+        List<List<String>> includes = getIncludePaths(entityClass, scope);
+        if (entities == null || includes.isEmpty()) {
+            return entities;
+        }
+
+        List<Object> loaded = materialize(entities);
+        prefetch(entityClass, loaded, includes, scope);
+        return loaded;
+    }
+
+    @Override
+    public Object getRelation(DataStoreTransaction relationTx,
+                              Object entity,
+                              String relationName,
+                              Optional<FilterExpression> filter,
+                              Optional<Sorting> sorting,
+                              Optional<Pagination> pagination,
+                              RequestScope scope) {
+        // Prefetched relationships were loaded without filters, sorting or pagination.
+        if (!filter.isPresent() && !sorting.isPresent() && !pagination.isPresent()) {
+            Map<String, Object> relations;
+            synchronized (prefetched) {
+                relations = prefetched.get(entity);
+            }
+            if (relations != null && relations.containsKey(relationName)) {
+                return relations.get(relationName);
+            }
+        }
+        return super.getRelation(relationTx, entity, relationName, filter, sorting, pagination, scope);
+    }
+
+    /**
+     * Include paths for the current request, or empty if prefetching does not apply to the loaded type.
+     */
+    private List<List<String>> getIncludePaths(Class<?> entityClass, RequestScope scope) {
+        if (prefetching || scope == null || !multiplexManager.getReadExecutor().isPresent()
+                || !entityClass.equals(getPrimaryType(scope.getPath()))) {
+            return Collections.emptyList();
+        }
+        return scope.getQueryParams()
+                .map(params -> params.get(INCLUDE))
+                .map(values -> values.stream()
+                        .flatMap(value -> Arrays.stream(value.split(",")))
+                        .map(path -> Arrays.asList(path.trim().split("\\.")))
+                        .collect(Collectors.toList()))
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * The type of the collection or entity a JSON-API path ends at, which the include paths are relative to.
+     *
+     * @return the type, or null if the path does not name one
+     */
+    private Class<?> getPrimaryType(String path) {
+        if (path == null) {
+            return null;
+        }
+        EntityDictionary dictionary = multiplexManager.getDictionary();
+        List<String> segments = Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .collect(Collectors.toList());
+        if (segments.isEmpty()) {
+            return null;
+        }
+
+        // Segments alternate between collections and IDs: type/id/relation/id/relationships/relation
+        Class<?> type = dictionary.getEntityClass(segments.get(0));
+        for (int i = 2; type != null && i < segments.size(); i += 2) {
+            if (RELATIONSHIPS.equals(segments.get(i)) && i + 1 < segments.size()) {
+                i++;
+            }
+            type = dictionary.getParameterizedType(type, segments.get(i));
+        }
+        return type == null ? null : dictionary.lookupEntityClass(type);
+    }
+
+    /**
+     * Load the bridged relationships of the first path segment for every entity, then recurse one level down.
+     */
+    private void prefetch(Class<?> entityClass, List<Object> entities, List<List<String>> paths, RequestScope scope) {
+        EntityDictionary dictionary = multiplexManager.getDictionary();
+        DataStoreTransaction entityTx = getTransaction(entityClass);
+
+        Map<String, List<List<String>>> byRelation = new LinkedHashMap<>();
+        for (List<String> path : paths) {
+            if (!path.isEmpty()) {
+                byRelation.computeIfAbsent(path.get(0), key -> new ArrayList<>()).add(path.subList(1, path.size()));
+            }
+        }
+
+        Map<DataStoreTransaction, List<RelationLoad>> groups = new LinkedHashMap<>();
+        Map<String, List<RelationLoad>> loadsByRelation = new LinkedHashMap<>();
+        for (String relationName : byRelation.keySet()) {
+            if (!dictionary.isRelation(entityClass, relationName)) {
+                continue;
+            }
+            Class<?> relationClass = dictionary.getParameterizedType(entityClass, relationName);
+            DataStoreTransaction relationTx = getTransaction(relationClass);
+            if (relationTx == entityTx || !(relationTx instanceof BridgeableTransaction)
+                    || !((BridgeableTransaction) relationTx).isThreadSafe()) {
+                continue;
+            }
+            for (Object entity : entities) {
+                RelationLoad load = new RelationLoad(entity, relationName);
+                groups.computeIfAbsent(relationTx, key -> new ArrayList<>()).add(load);
+                loadsByRelation.computeIfAbsent(relationName, key -> new ArrayList<>()).add(load);
+            }
+        }
+
+        // A single group would only move the load from the request thread to the executor
+        if (groups.size() < 2) {
+            return;
+        }
+
+        prefetching = true;
+        try {
+            execute(groups, scope);
+        } finally {
+            prefetching = false;
+        }
+
+        synchronized (prefetched) {
+            for (List<RelationLoad> group : groups.values()) {
+                for (RelationLoad load : group) {
+                    prefetched.computeIfAbsent(load.entity, key -> new LinkedHashMap<>()).put(load.relationName,
+                            load.result);
+                }
+            }
+        }
+
+        loadsByRelation.forEach((relationName, loads) -> {
+            List<List<String>> subPaths = byRelation.get(relationName).stream()
+                    .filter(path -> !path.isEmpty())
+                    .collect(Collectors.toList());
+            if (subPaths.isEmpty()) {
+                return;
+            }
+            List<Object> children = new ArrayList<>();
+            for (RelationLoad load : loads) {
+                if (load.result instanceof Collection) {
+                    children.addAll((Collection<?>) load.result);
+                } else if (load.result != null) {
+                    children.add(load.result);
+                }
+            }
+            if (!children.isEmpty()) {
+                prefetch(dictionary.getParameterizedType(entityClass, relationName), children, subPaths, scope);
+            }
+        });
+    }
+
+    /**
+     * Run each group of loads sequentially on the read executor, the groups concurrently.  Each group gets a request
+     * scope of its own, as request scopes are not thread safe.
+     */
+    private void execute(Map<DataStoreTransaction, List<RelationLoad>> groups, RequestScope scope) {
+        Executor executor = multiplexManager.getReadExecutor().get();
+        CompletableFuture<?>[] futures = groups.values().stream()
+                .map(group -> {
+                    RequestScope groupScope = new RequestScope(scope.getPath(), null, this, scope.getUser(), null,
+                            scope.getElideSettings());
+                    return CompletableFuture.runAsync(() -> load(group, groupScope), executor);
+                })
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void load(List<RelationLoad> group, RequestScope scope) {
+        for (RelationLoad load : group) {
+            Object relation = super.getRelation(null, load.entity, load.relationName,
+                    Optional.empty(), Optional.empty(), Optional.empty(), scope);
+            load.result = relation instanceof Iterable ? materialize((Iterable<?>) relation) : relation;
+        }
+    }
+
+    private static <T> List<T> materialize(Iterable<? extends T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * A single relationship load dispatched by the prefetcher.
+     */
+    private static class RelationLoad {
+        private final Object entity;
+        private final String relationName;
+        private Object result;
+
+        RelationLoad(Object entity, String relationName) {
+            this.entity = entity;
+            this.relationName = relationName;
+        }
+    }
 }
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -185,6 +186,27 @@ public abstract class MultiplexTransaction implements DataStoreTransaction {
         return entityTransaction.getRelation(relationTx, entity, relationName, filter, sorting, pagination, scope);
     }
 
+    @Override
+    public Map<String, Long> getRelationTotals(DataStoreTransaction relationTx,
+                                              Collection<?> entities,
+                                              String relationName,
+                                              Optional<FilterExpression> filter,
+                                              RequestScope scope) {
+        if (entities.isEmpty()) {
+            return null;
+        }
+
+        Object entity = entities.iterator().next();
+        relationTx = getRelationTransaction(entity, relationName);
+        DataStoreTransaction entityTransaction = getTransaction(entity.getClass());
+
+        // Relationships bridged across data stores are counted one entity at a time
+        if (entityTransaction != relationTx) {
+            return null;
+        }
+        return entityTransaction.getRelationTotals(relationTx, entities, relationName, filter, scope);
+    }
+
     @Override
     public void updateToManyRelation(DataStoreTransaction relationTx,
                                      Object entity, String relationName,
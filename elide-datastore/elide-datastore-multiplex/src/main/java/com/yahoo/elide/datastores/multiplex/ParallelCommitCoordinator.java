@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Commits subordinate transactions concurrently.  Only suitable when the stores are independent of each other
+ * (no store relies on another having committed first) and their transactions tolerate being committed from a
+ * thread other than the request thread.
+ * <p>
+ * If any commit fails, every store that did commit is compensated from the journal.
+ */
+public class ParallelCommitCoordinator implements CommitCoordinator {
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     * @param executor executor running the subordinate commits.  Its lifecycle is owned by the caller.
+     */
+    public ParallelCommitCoordinator(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void commit(LinkedHashMap<DataStore, DataStoreTransaction> transactions,
+                       UndoJournal journal,
+                       RequestScope scope) {
+        LinkedHashMap<DataStore, CompletableFuture<Void>> commits = new LinkedHashMap<>();
+        for (Entry<DataStore, DataStoreTransaction> entry : transactions.entrySet()) {
+            DataStoreTransaction transaction = entry.getValue();
+            commits.put(entry.getKey(), CompletableFuture.runAsync(() -> transaction.commit(scope), executor));
+        }
+
+        List<DataStore> committed = new ArrayList<>();
+        Throwable failure = null;
+        for (Entry<DataStore, CompletableFuture<Void>> entry : commits.entrySet()) {
+            try {
+                entry.getValue().join();
+                committed.add(entry.getKey());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw journal.compensate(committed, failure, scope);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.RequestScope;
+
+/**
+ * Service provider interface for subordinate transactions which support the first phase of a two-phase commit.
+ * <p>
+ * Once {@link #prepare(RequestScope)} returns successfully, the store guarantees that a subsequent
+ * {@code commit} will succeed, and that {@link #rollback(RequestScope)} will discard the prepared work.
+ * <p>
+ * None of the stores shipped with Elide implement it yet: a Hibernate or JPA session can flush its work, but it
+ * cannot prepare the underlying database transaction, so it cannot make that guarantee.  It is meant for custom
+ * stores backed by a resource manager with a real prepare phase (for example XA).
+ *
+ * @see TwoPhaseCommitCoordinator
+ */
+public interface PreparableTransaction {
+
+    /**
+     * Durably stage the work of the transaction so that it can later be committed or rolled back.
+     *
+     * @param scope the request scope for the current request
+     */
+    void prepare(RequestScope scope);
+
+    /**
+     * Discard the work of a prepared (or unprepared) transaction.
+     *
+     * @param scope the request scope for the current request
+     */
+    void rollback(RequestScope scope);
+}
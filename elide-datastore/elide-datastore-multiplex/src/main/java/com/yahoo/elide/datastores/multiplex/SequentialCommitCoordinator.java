@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Commits subordinate transactions one after another in registration order.  If a commit fails, the journaled
+ * changes of the stores which already committed are compensated.  This is the default coordinator.
+ */
+public class SequentialCommitCoordinator implements CommitCoordinator {
+
+    @Override
+    public void commit(LinkedHashMap<DataStore, DataStoreTransaction> transactions,
+                       UndoJournal journal,
+                       RequestScope scope) {
+        List<DataStore> committed = new ArrayList<>();
+        for (Entry<DataStore, DataStoreTransaction> entry : transactions.entrySet()) {
+            try {
+                entry.getValue().commit(scope);
+                committed.add(entry.getKey());
+            } catch (Error | RuntimeException e) {
+                throw journal.compensate(committed, e, scope);
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresUndo(DataStoreTransaction transaction, DataStoreTransaction lastTransaction) {
+        // The last store commits last, so there is never anything after it that can fail.
+        return transaction != lastTransaction;
+    }
+}
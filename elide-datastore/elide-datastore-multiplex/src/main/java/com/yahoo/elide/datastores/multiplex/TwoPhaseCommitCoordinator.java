@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Two-phase commit coordinator.
+ * <p>
+ * Every subordinate transaction implementing {@link PreparableTransaction} is prepared first.  If any prepare
+ * fails, all preparable transactions are rolled back and nothing is committed.  Stores which cannot prepare are
+ * then committed in registration order, compensated from the journal on failure.  The prepared stores are
+ * committed last, since their commits are not expected to fail.  If one fails anyway, the stores which already
+ * committed are compensated and the prepared stores which have not committed yet are rolled back.  Any store may
+ * therefore need compensation, so before-images are journaled for all of them.
+ * <p>
+ * Without stores implementing {@link PreparableTransaction}, which none of the stores shipped with Elide do, this
+ * commits like the {@link SequentialCommitCoordinator}.
+ */
+public class TwoPhaseCommitCoordinator implements CommitCoordinator {
+
+    @Override
+    public void commit(LinkedHashMap<DataStore, DataStoreTransaction> transactions,
+                       UndoJournal journal,
+                       RequestScope scope) {
+        LinkedHashMap<DataStore, DataStoreTransaction> preparable = new LinkedHashMap<>();
+        LinkedHashMap<DataStore, DataStoreTransaction> unpreparable = new LinkedHashMap<>();
+        transactions.forEach((dataStore, transaction) -> {
+            if (transaction instanceof PreparableTransaction) {
+                preparable.put(dataStore, transaction);
+            } else {
+                unpreparable.put(dataStore, transaction);
+            }
+        });
+
+        // Phase one
+        try {
+            for (DataStoreTransaction transaction : preparable.values()) {
+                ((PreparableTransaction) transaction).prepare(scope);
+            }
+        } catch (Error | RuntimeException e) {
+            RuntimeException cause = journal.compensate(Collections.emptyList(), e, scope);
+            rollback(preparable, cause, scope);
+            throw cause;
+        }
+
+        // Stores without prepare support
+        List<DataStore> committed = new ArrayList<>();
+        for (Entry<DataStore, DataStoreTransaction> entry : unpreparable.entrySet()) {
+            try {
+                entry.getValue().commit(scope);
+                committed.add(entry.getKey());
+            } catch (Error | RuntimeException e) {
+                RuntimeException cause = journal.compensate(committed, e, scope);
+                rollback(preparable, cause, scope);
+                throw cause;
+            }
+        }
+
+        // Phase two
+        LinkedHashMap<DataStore, DataStoreTransaction> uncommitted = new LinkedHashMap<>(preparable);
+        for (Entry<DataStore, DataStoreTransaction> entry : preparable.entrySet()) {
+            try {
+                entry.getValue().commit(scope);
+                committed.add(entry.getKey());
+                uncommitted.remove(entry.getKey());
+            } catch (Error | RuntimeException e) {
+                RuntimeException cause = journal.compensate(committed, e, scope);
+                rollback(uncommitted, cause, scope);
+                throw cause;
+            }
+        }
+    }
+
+    private static void rollback(LinkedHashMap<DataStore, DataStoreTransaction> preparable,
+                                 Throwable cause,
+                                 RequestScope scope) {
+        for (DataStoreTransaction transaction : preparable.values()) {
+            try {
+                ((PreparableTransaction) transaction).rollback(scope);
+            } catch (RuntimeException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+}
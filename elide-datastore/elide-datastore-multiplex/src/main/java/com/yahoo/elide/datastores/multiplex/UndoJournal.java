@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.datastores.multiplex;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.HttpStatusException;
+import com.yahoo.elide.core.exceptions.TransactionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * Ordered journal of undo records for a {@link MultiplexWriteTransaction}.
+ * <p>
+ * Before-images of loaded entities are captured through the {@link EntityDictionary} (so private fields
+ * exposed through accessors are covered) the first time an entity is loaded.  Each create, save and delete
+ * appends an undo record for the owning data store.  Compensation replays the records of the committed
+ * stores in reverse order inside a fresh transaction per store: created entities are deleted, updated entities
+ * are restored to their before-image and deleted entities are created again from it.
+ */
+public class UndoJournal {
+
+    /**
+     * Kind of change recorded in the journal.
+     */
+    public enum Operation {
+        CREATE,
+        SAVE,
+        DELETE
+    }
+
+    /**
+     * A single journaled change.
+     */
+    public static class UndoRecord {
+        private final Operation operation;
+        private final Object entity;
+        private final Map<String, Object> beforeImage;
+
+        UndoRecord(Operation operation, Object entity, Map<String, Object> beforeImage) {
+            this.operation = operation;
+            this.entity = entity;
+            this.beforeImage = beforeImage;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public Object getEntity() {
+            return entity;
+        }
+    }
+
+    private final EntityDictionary dictionary;
+    private final IdentityHashMap<Object, Map<String, Object>> beforeImages = new IdentityHashMap<>();
+    private final Set<Object> createdObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<DataStore, List<UndoRecord>> records = new LinkedHashMap<>();
+
+    public UndoJournal(EntityDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Capture the before-image of an entity loaded from a data store.  Only the first load is recorded.
+     *
+     * @param entity loaded entity
+     * @param scope the request scope for the current request
+     */
+    public synchronized void snapshot(Object entity, RequestScope scope) {
+        if (entity == null || createdObjects.contains(entity) || beforeImages.containsKey(entity)) {
+            return;
+        }
+
+        Map<String, Object> image = new LinkedHashMap<>();
+        Class<?> cls = entity.getClass();
+        for (String field : dictionary.getAttributes(cls)) {
+            if (!dictionary.isComputed(cls, field)) {
+                image.put(field, copy(dictionary.getValue(entity, field, scope)));
+            }
+        }
+        for (String field : dictionary.getRelationships(cls)) {
+            if (!dictionary.isComputed(cls, field)) {
+                image.put(field, copy(dictionary.getValue(entity, field, scope)));
+            }
+        }
+        beforeImages.put(entity, image);
+    }
+
+    /**
+     * Journal the creation of a new entity.
+     *
+     * @param dataStore owning data store
+     * @param entity created entity
+     */
+    public synchronized void recordCreate(DataStore dataStore, Object entity) {
+        createdObjects.add(entity);
+        append(dataStore, new UndoRecord(Operation.CREATE, entity, null));
+    }
+
+    /**
+     * Journal an update of an entity.
+     *
+     * @param dataStore owning data store
+     * @param entity updated entity
+     */
+    public synchronized void recordSave(DataStore dataStore, Object entity) {
+        append(dataStore, new UndoRecord(Operation.SAVE, entity, beforeImages.get(entity)));
+    }
+
+    /**
+     * Journal the deletion of an entity.
+     *
+     * @param dataStore owning data store
+     * @param entity deleted entity
+     */
+    public synchronized void recordDelete(DataStore dataStore, Object entity) {
+        append(dataStore, new UndoRecord(Operation.DELETE, entity, beforeImages.get(entity)));
+    }
+
+    /**
+     * Undo records for a data store in the order they were journaled.
+     *
+     * @param dataStore data store
+     * @return undo records
+     */
+    public synchronized List<UndoRecord> getRecords(DataStore dataStore) {
+        return Collections.unmodifiableList(records.getOrDefault(dataStore, Collections.emptyList()));
+    }
+
+    /**
+     * Reverse the changes of stores which already committed and translate the commit failure into the
+     * exception to report.  Failures during compensation are attached as suppressed exceptions.
+     *
+     * @param committed data stores which committed successfully
+     * @param failure the commit failure
+     * @param scope the request scope for the current request
+     * @return the exception to throw
+     */
+    public RuntimeException compensate(Collection<DataStore> committed, Throwable failure, RequestScope scope) {
+        RuntimeException cause = (failure instanceof HttpStatusException || failure instanceof WebApplicationException)
+                ? (RuntimeException) failure
+                : new TransactionException(failure);
+
+        for (DataStore dataStore : committed) {
+            List<UndoRecord> undoRecords;
+            synchronized (this) {
+                undoRecords = new ArrayList<>(records.getOrDefault(dataStore, Collections.emptyList()));
+            }
+            try (DataStoreTransaction transaction = dataStore.beginTransaction()) {
+                undo(transaction, undoRecords, scope);
+                transaction.commit(scope);
+            } catch (RuntimeException | IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+        return cause;
+    }
+
+    private void append(DataStore dataStore, UndoRecord record) {
+        records.computeIfAbsent(dataStore, key -> new ArrayList<>()).add(record);
+    }
+
+    private void undo(DataStoreTransaction transaction, List<UndoRecord> undoRecords, RequestScope scope) {
+        Set<Object> reversed = Collections.newSetFromMap(new IdentityHashMap<>());
+        ListIterator<UndoRecord> iterator = undoRecords.listIterator(undoRecords.size());
+        while (iterator.hasPrevious()) {
+            UndoRecord record = iterator.previous();
+            Object entity = record.entity;
+
+            // Newly created entities are removed no matter what else happened to them.
+            if (createdObjects.contains(entity)) {
+                if (record.operation == Operation.CREATE) {
+                    transaction.delete(entity, scope);
+                }
+                continue;
+            }
+
+            // Entities touched more than once are restored once: the before-image is the one of the first load
+            // and the latest change decides whether the entity still exists.
+            if (!reversed.add(entity)) {
+                continue;
+            }
+            if (record.beforeImage == null) {
+                throw new IllegalStateException("No before-image journaled for " + entity);
+            }
+            record.beforeImage.forEach((field, value) -> dictionary.setValue(entity, field, copy(value)));
+            if (record.operation == Operation.DELETE) {
+                transaction.createObject(entity, scope);
+            } else {
+                transaction.save(entity, scope);
+            }
+        }
+    }
+
+    private static Object copy(Object value) {
+        if (value instanceof Set) {
+            return new LinkedHashSet<>((Set<?>) value);
+        }
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        return value;
+    }
+}
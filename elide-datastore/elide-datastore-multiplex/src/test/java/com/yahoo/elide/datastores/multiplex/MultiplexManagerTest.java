@@ -8,8 +8,15 @@ package com.yahoo.elide.datastores.multiplex;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
 
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.DataStoreTransaction;
@@ -17,6 +24,7 @@ import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.exceptions.TransactionException;
 import com.yahoo.elide.datastores.inmemory.InMemoryDataStore;
 import com.yahoo.elide.example.beans.FirstBean;
+import com.yahoo.elide.example.hbase.beans.RedisActions;
 import com.yahoo.elide.example.other.OtherBean;
 
 import com.google.common.collect.Lists;
@@ -24,13 +32,20 @@ import org.apache.commons.collections4.IterableUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.AdditionalAnswers;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * MultiplexManager tests.
@@ -80,10 +95,24 @@ public class MultiplexManagerTest {
 
     @Test
     public void partialCommitFailure() throws IOException {
+        partialCommitFailure(new SequentialCommitCoordinator());
+    }
+
+    @Test
+    public void partialParallelCommitFailure() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            partialCommitFailure(new ParallelCommitCoordinator(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void partialCommitFailure(CommitCoordinator coordinator) throws IOException {
         final EntityDictionary entityDictionary = new EntityDictionary(new HashMap<>());
         final InMemoryDataStore ds1 = new InMemoryDataStore(FirstBean.class.getPackage());
         final DataStore ds2 = new TestDataStore(OtherBean.class.getPackage());
-        final MultiplexManager multiplexManager = new MultiplexManager(ds1, ds2);
+        final MultiplexManager multiplexManager = new MultiplexManager(coordinator, ds1, ds2);
         multiplexManager.populateEntityDictionary(entityDictionary);
 
         assertEquals(ds1, multiplexManager.getSubManager(FirstBean.class));
@@ -126,4 +155,96 @@ public class MultiplexManagerTest {
             assertEquals(((FirstBean) list.get(0)).name, "name");
         }
     }
+
+    @Test
+    public void twoPhaseCommitFailureRestoresBeforeImages() throws IOException {
+        final EntityDictionary entityDictionary = new EntityDictionary(new HashMap<>());
+        final InMemoryDataStore actions = new InMemoryDataStore(RedisActions.class.getPackage());
+        final PreparableStore ds1 = new PreparableStore(actions);
+        final PreparableStore ds2 = new PreparableStore(new TestDataStore(OtherBean.class.getPackage()));
+        final PreparableStore ds3 = new PreparableStore(new InMemoryDataStore(FirstBean.class.getPackage()));
+        final MultiplexManager multiplexManager =
+                new MultiplexManager(new TwoPhaseCommitCoordinator(), ds1, ds2, ds3);
+        multiplexManager.populateEntityDictionary(entityDictionary);
+
+        try (DataStoreTransaction t = actions.beginTransaction()) {
+            t.createObject(newAction("1", "kept"), null);
+            t.createObject(newAction("2", "deleted"), null);
+            t.commit(null);
+        }
+
+        try (DataStoreTransaction t = multiplexManager.beginTransaction()) {
+            Map<String, RedisActions> loaded = loadActions(t);
+            loaded.get("1").setDescription("updated");
+            t.save(loaded.get("1"), null);
+            t.delete(loaded.get("2"), null);
+            t.createObject(newAction("3", "created"), null);
+            t.createObject(new OtherBean(), null);
+            t.createObject(new FirstBean(), null);
+
+            assertThrows(TransactionException.class, () -> t.commit(null));
+        }
+
+        // The committed store is compensated: updates and deletes are reverted and creates are removed
+        try (DataStoreTransaction t = actions.beginTransaction()) {
+            Map<String, RedisActions> restored = loadActions(t);
+            assertEquals(2, restored.size());
+            assertEquals("kept", restored.get("1").getDescription());
+            assertEquals("deleted", restored.get("2").getDescription());
+        }
+
+        // The test store fails to commit and the prepared store after it never commits
+        DataStoreTransaction prepared = ds3.transactions.get(0);
+        verify((PreparableTransaction) prepared).rollback(null);
+        verify(prepared, never()).commit(any());
+        verify((PreparableTransaction) ds2.transactions.get(0)).rollback(null);
+    }
+
+    private static RedisActions newAction(String id, String description) {
+        RedisActions action = new RedisActions();
+        action.setId(id);
+        action.setDescription(description);
+        return action;
+    }
+
+    private static Map<String, RedisActions> loadActions(DataStoreTransaction transaction) {
+        Iterable<Object> actions = transaction.loadObjects(RedisActions.class, Optional.empty(), Optional.empty(),
+                Optional.empty(), null);
+        return Lists.newArrayList(actions).stream()
+                .map(RedisActions.class::cast)
+                .collect(Collectors.toMap(RedisActions::getId, Function.identity()));
+    }
+
+    /**
+     * Wraps a store so its write transactions can be prepared.
+     */
+    private static class PreparableStore implements DataStore {
+        private final DataStore wrapped;
+        private final List<DataStoreTransaction> transactions = new ArrayList<>();
+
+        PreparableStore(DataStore wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public void populateEntityDictionary(EntityDictionary dictionary) {
+            wrapped.populateEntityDictionary(dictionary);
+        }
+
+        @Override
+        public DataStoreTransaction beginTransaction() {
+            DataStoreTransaction transaction = mock(DataStoreTransaction.class, withSettings()
+                    .extraInterfaces(PreparableTransaction.class)
+                    .defaultAnswer(AdditionalAnswers.delegatesTo(wrapped.beginTransaction())));
+            doNothing().when((PreparableTransaction) transaction).prepare(any());
+            doNothing().when((PreparableTransaction) transaction).rollback(any());
+            transactions.add(transaction);
+            return transaction;
+        }
+
+        @Override
+        public DataStoreTransaction beginReadTransaction() {
+            return wrapped.beginReadTransaction();
+        }
+    }
 }
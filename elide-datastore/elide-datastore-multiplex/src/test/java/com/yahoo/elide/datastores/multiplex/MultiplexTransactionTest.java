@@ -5,13 +5,50 @@
  */
 package com.yahoo.elide.datastores.multiplex;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
+import com.yahoo.elide.ElideSettingsBuilder;
+import com.yahoo.elide.annotation.Include;
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.exceptions.TransactionException;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.ws.rs.core.MultivaluedHashMap;
 
 /**
  * Tests MultiplexTransaction.
@@ -36,4 +73,238 @@ public class MultiplexTransactionTest {
         verify(tx1).preCommit();
         verify(tx2).preCommit();
     }
+
+    @Test
+    public void testTwoPhaseCommit() throws Exception {
+        DataStore store1 = mock(DataStore.class);
+        DataStore store2 = mock(DataStore.class);
+        DataStoreTransaction tx1 = mock(DataStoreTransaction.class,
+                withSettings().extraInterfaces(PreparableTransaction.class));
+        DataStoreTransaction tx2 = mock(DataStoreTransaction.class);
+
+        when(store1.beginTransaction()).thenReturn(tx1);
+        when(store2.beginTransaction()).thenReturn(tx2);
+
+        MultiplexManager store = new MultiplexManager(new TwoPhaseCommitCoordinator(), store1, store2);
+        store.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+
+        DataStoreTransaction multiplexTx = store.beginTransaction();
+        multiplexTx.commit(null);
+
+        InOrder order = inOrder(tx1, tx2);
+        order.verify((PreparableTransaction) tx1).prepare(null);
+        order.verify(tx2).commit(null);
+        order.verify(tx1).commit(null);
+    }
+
+    @Test
+    public void testTwoPhasePrepareFailure() throws Exception {
+        DataStore store1 = mock(DataStore.class);
+        DataStore store2 = mock(DataStore.class);
+        DataStoreTransaction tx1 = mock(DataStoreTransaction.class,
+                withSettings().extraInterfaces(PreparableTransaction.class));
+        DataStoreTransaction tx2 = mock(DataStoreTransaction.class);
+
+        when(store1.beginTransaction()).thenReturn(tx1);
+        when(store2.beginTransaction()).thenReturn(tx2);
+        doThrow(new IllegalStateException()).when((PreparableTransaction) tx1).prepare(null);
+
+        MultiplexManager store = new MultiplexManager(new TwoPhaseCommitCoordinator(), store1, store2);
+        store.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+
+        DataStoreTransaction multiplexTx = store.beginTransaction();
+        assertThrows(TransactionException.class, () -> multiplexTx.commit(null));
+
+        verify((PreparableTransaction) tx1).rollback(null);
+        verify(tx1, never()).commit(any(RequestScope.class));
+        verify(tx2, never()).commit(any(RequestScope.class));
+    }
+
+    @Test
+    public void testParallelCommit() throws Exception {
+        DataStore store1 = mock(DataStore.class);
+        DataStore store2 = mock(DataStore.class);
+        DataStoreTransaction tx1 = mock(DataStoreTransaction.class);
+        DataStoreTransaction tx2 = mock(DataStoreTransaction.class);
+
+        when(store1.beginTransaction()).thenReturn(tx1);
+        when(store2.beginTransaction()).thenReturn(tx2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MultiplexManager store = new MultiplexManager(new ParallelCommitCoordinator(executor), store1, store2);
+            store.populateEntityDictionary(new EntityDictionary(new HashMap<>()));
+
+            DataStoreTransaction multiplexTx = store.beginTransaction();
+            multiplexTx.commit(null);
+
+            verify(tx1).commit(null);
+            verify(tx2).commit(null);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentPrefetchOnlyForThreadSafeStores() throws Exception {
+        DataStoreTransaction parentTx = mock(DataStoreTransaction.class);
+        DataStoreTransaction safeTx = bridgeableTransaction(true);
+        DataStoreTransaction otherSafeTx = bridgeableTransaction(true);
+        DataStoreTransaction unsafeTx = bridgeableTransaction(false);
+
+        Parent parent = new Parent();
+        when(parentTx.loadObjects(eq(Parent.class), any(), any(), any(), any()))
+                .thenReturn(Collections.singletonList(parent));
+
+        // Record the thread and request scope each bridged relationship is loaded with
+        Map<String, Thread> threads = new ConcurrentHashMap<>();
+        Map<String, RequestScope> scopes = new ConcurrentHashMap<>();
+        Answer<Iterable<Object>> record = invocation -> {
+            threads.put(invocation.getArgument(2), Thread.currentThread());
+            scopes.put(invocation.getArgument(2), invocation.getArgument(6));
+            return Collections.emptyList();
+        };
+        for (DataStoreTransaction tx : Arrays.asList(safeTx, otherSafeTx, unsafeTx)) {
+            doAnswer(record).when((BridgeableTransaction) tx)
+                    .bridgeableLoadObjects(any(), eq(parent), any(), any(), any(), any(), any());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = command -> {
+            submitted.incrementAndGet();
+            pool.execute(command);
+        };
+        try {
+            MultiplexManager store = new MultiplexManager(new SequentialCommitCoordinator(), executor,
+                    storeOf(Parent.class, parentTx), storeOf(SafeChild.class, safeTx),
+                    storeOf(OtherSafeChild.class, otherSafeTx), storeOf(UnsafeChild.class, unsafeTx));
+            EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
+            store.populateEntityDictionary(dictionary);
+
+            RequestScope scope = requestScope(dictionary, "/parent", "safeChildren,otherSafeChildren,unsafeChildren");
+
+            DataStoreTransaction multiplexTx = store.beginReadTransaction();
+            multiplexTx.loadObjects(Parent.class, Optional.empty(), Optional.empty(), Optional.empty(), scope);
+
+            assertEquals(2, submitted.get());
+            assertNotEquals(Thread.currentThread(), threads.get("safeChildren"));
+            assertNotEquals(Thread.currentThread(), threads.get("otherSafeChildren"));
+            assertNotSame(scope, scopes.get("safeChildren"));
+            assertNotSame(scopes.get("safeChildren"), scopes.get("otherSafeChildren"));
+
+            // Stores which are not thread safe are left to load on the request thread when read
+            assertFalse(threads.containsKey("unsafeChildren"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchOnlyForPrimaryType() throws Exception {
+        DataStoreTransaction parentTx = mock(DataStoreTransaction.class);
+        DataStoreTransaction safeTx = bridgeableTransaction(true);
+        DataStoreTransaction otherSafeTx = bridgeableTransaction(true);
+
+        Parent parent = new Parent();
+        when(parentTx.loadObject(eq(Parent.class), any(), any(), any())).thenReturn(parent);
+
+        Executor executor = command -> {
+            throw new AssertionError("Nothing should be prefetched");
+        };
+        MultiplexManager store = new MultiplexManager(new SequentialCommitCoordinator(), executor,
+                storeOf(Parent.class, parentTx), storeOf(SafeChild.class, safeTx),
+                storeOf(OtherSafeChild.class, otherSafeTx));
+        EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
+        store.populateEntityDictionary(dictionary);
+
+        // The include paths are relative to the children, not to the parent loaded on the way
+        RequestScope scope = requestScope(dictionary, "/parent/1/safeChildren", "safeChildren,otherSafeChildren");
+
+        DataStoreTransaction multiplexTx = store.beginReadTransaction();
+        assertSame(parent, multiplexTx.loadObject(Parent.class, 1L, Optional.empty(), scope));
+
+        verify((BridgeableTransaction) safeTx, never())
+                .bridgeableLoadObjects(any(), any(), any(), any(), any(), any(), any());
+        verify((BridgeableTransaction) otherSafeTx, never())
+                .bridgeableLoadObjects(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private static DataStoreTransaction bridgeableTransaction(boolean threadSafe) {
+        DataStoreTransaction transaction = mock(DataStoreTransaction.class,
+                withSettings().extraInterfaces(BridgeableTransaction.class));
+        when(((BridgeableTransaction) transaction).isThreadSafe()).thenReturn(threadSafe);
+        return transaction;
+    }
+
+    private static RequestScope requestScope(EntityDictionary dictionary, String path, String include) {
+        MultivaluedHashMap<String, String> params = new MultivaluedHashMap<>();
+        params.add("include", include);
+        RequestScope scope = mock(RequestScope.class);
+        when(scope.getPath()).thenReturn(path);
+        when(scope.getQueryParams()).thenReturn(Optional.of(params));
+        when(scope.getDictionary()).thenReturn(dictionary);
+        when(scope.getElideSettings())
+                .thenReturn(new ElideSettingsBuilder(null).withEntityDictionary(dictionary).build());
+        return scope;
+    }
+
+    private static DataStore storeOf(Class<?> entityClass, DataStoreTransaction transaction) {
+        DataStore dataStore = mock(DataStore.class);
+        doAnswer(invocation -> {
+            ((EntityDictionary) invocation.getArgument(0)).bindEntity(entityClass);
+            return null;
+        }).when(dataStore).populateEntityDictionary(any());
+        when(dataStore.beginReadTransaction()).thenReturn(transaction);
+        return dataStore;
+    }
+
+    /**
+     * Entity whose relationships are bridged into two other stores.
+     */
+    @Include(rootLevel = true)
+    @Entity
+    public static class Parent {
+        @Id
+        public long id;
+
+        @OneToMany
+        public Set<SafeChild> safeChildren;
+
+        @OneToMany
+        public Set<OtherSafeChild> otherSafeChildren;
+
+        @OneToMany
+        public Set<UnsafeChild> unsafeChildren;
+    }
+
+    /**
+     * Entity of a thread safe bridgeable store.
+     */
+    @Include
+    @Entity
+    public static class SafeChild {
+        @Id
+        public long id;
+    }
+
+    /**
+     * Entity of another thread safe bridgeable store.
+     */
+    @Include
+    @Entity
+    public static class OtherSafeChild {
+        @Id
+        public long id;
+    }
+
+    /**
+     * Entity of a bridgeable store which is not thread safe.
+     */
+    @Include
+    @Entity
+    public static class UnsafeChild {
+        @Id
+        public long id;
+    }
 }
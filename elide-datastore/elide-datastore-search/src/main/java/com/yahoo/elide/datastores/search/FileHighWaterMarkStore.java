@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Stores each entity's high-water mark as a properties file in a directory, typically next to the index.
+ * <p>
+ * A mark is written as its type and its text form, and is read back only if its type is one of the dates, times
+ * and numbers an updated-at attribute can have, so a file never makes the store instantiate other classes.
+ */
+public class FileHighWaterMarkStore implements HighWaterMarkStore {
+    private static final String SUFFIX = ".hwm";
+    private static final String TYPE = "type";
+    private static final String VALUE = "value";
+
+    private static final Map<String, Function<String, Object>> PARSERS = new HashMap<>();
+
+    static {
+        PARSERS.put(Date.class.getName(), value -> new Date(Long.parseLong(value)));
+        PARSERS.put(Timestamp.class.getName(), Timestamp::valueOf);
+        PARSERS.put(java.sql.Date.class.getName(), java.sql.Date::valueOf);
+        PARSERS.put(Time.class.getName(), Time::valueOf);
+        PARSERS.put(Instant.class.getName(), Instant::parse);
+        PARSERS.put(LocalDate.class.getName(), LocalDate::parse);
+        PARSERS.put(LocalDateTime.class.getName(), LocalDateTime::parse);
+        PARSERS.put(OffsetDateTime.class.getName(), OffsetDateTime::parse);
+        PARSERS.put(ZonedDateTime.class.getName(), ZonedDateTime::parse);
+        PARSERS.put(Integer.class.getName(), Integer::valueOf);
+        PARSERS.put(Long.class.getName(), Long::valueOf);
+        PARSERS.put(BigInteger.class.getName(), BigInteger::new);
+        PARSERS.put(BigDecimal.class.getName(), BigDecimal::new);
+        PARSERS.put(String.class.getName(), value -> value);
+    }
+
+    private final Path directory;
+
+    public FileHighWaterMarkStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Object> read(Class<?> entityClass) {
+        Path file = directory.resolve(entityClass.getName() + SUFFIX);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String type = properties.getProperty(TYPE);
+        String value = properties.getProperty(VALUE);
+        Function<String, Object> parser = PARSERS.get(type);
+        if (parser == null || value == null) {
+            throw new IllegalStateException("Invalid high-water mark in " + file);
+        }
+        return Optional.of(parser.apply(value));
+    }
+
+    @Override
+    public void write(Class<?> entityClass, Object mark) {
+        String type = mark.getClass().getName();
+        if (!PARSERS.containsKey(type)) {
+            throw new IllegalArgumentException("Unsupported high-water mark type " + type);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(TYPE, type);
+        properties.setProperty(VALUE, mark.getClass() == Date.class
+                ? String.valueOf(((Date) mark).getTime())
+                : mark.toString());
+
+        Path file = directory.resolve(entityClass.getName() + SUFFIX);
+        try {
+            Files.createDirectories(directory);
+
+            /* Replace the previous mark atomically so a crash never leaves a partial file behind */
+            Path temp = Files.createTempFile(directory, entityClass.getName(), SUFFIX);
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
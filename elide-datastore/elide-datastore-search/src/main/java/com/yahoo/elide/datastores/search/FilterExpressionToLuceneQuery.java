@@ -9,6 +9,7 @@ package com.yahoo.elide.datastores.search;
 import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.Operator;
 import com.yahoo.elide.core.filter.expression.AndFilterExpression;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
 import com.yahoo.elide.core.filter.expression.FilterExpressionVisitor;
 import com.yahoo.elide.core.filter.expression.NotFilterExpression;
 import com.yahoo.elide.core.filter.expression.OrFilterExpression;
@@ -16,59 +17,248 @@ import com.yahoo.elide.core.filter.expression.OrFilterExpression;
 import com.google.common.base.Preconditions;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.core.KeywordAnalyzer;
-import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
 import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.query.dsl.BooleanJunction;
 import org.hibernate.search.query.dsl.QueryBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Converts an Elide filter expression into a Lucene Search query.
+ * <p>
+ * Queries are built programmatically.  Besides visiting an expression, an expression can be compiled into a
+ * {@link CompiledQuery} for its shape (its structure, paths and operators), which resolves the index fields and
+ * operators once and builds the query from the values of any expression of the same shape.
  */
 public class FilterExpressionToLuceneQuery implements FilterExpressionVisitor<Query> {
 
+    /* Normalizes case insensitive text values to one lower cased term.  Analyzers are thread safe. */
+    private static final Analyzer LOWER_CASE_ANALYZER = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new KeywordTokenizer();
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    };
+
     private QueryBuilder builder;
     private Class<?> entityClass;
+    private IndexFieldResolver fields;
 
     public FilterExpressionToLuceneQuery(FullTextEntityManager entityManager, Class<?> entityClass) {
+        this(entityManager, entityClass, null);
+    }
+
+    /**
+     * Constructor.
+     * @param entityManager The entity manager
+     * @param entityClass The entity being searched
+     * @param fields Resolves the index fields of filtered paths.  When null, predicates are searched on the field
+     *               named after the filtered attribute.
+     */
+    public FilterExpressionToLuceneQuery(FullTextEntityManager entityManager,
+                                         Class<?> entityClass,
+                                         IndexFieldResolver fields) {
         this.entityClass = entityClass;
+        this.fields = fields;
         builder = entityManager.getSearchFactory().buildQueryBuilder().forEntity(entityClass).get();
     }
 
+    /**
+     * A query compiled for a filter shape.
+     */
+    @FunctionalInterface
+    public interface CompiledQuery {
+        /**
+         * Builds the query.
+         * @param builder The query builder of the searched entity
+         * @param values The values of the expression's predicates, in the order of {@link #getValues}
+         * @return The Lucene query
+         */
+        Query bind(QueryBuilder builder, List<List<Object>> values);
+    }
+
+    /**
+     * Returns the key under which the compiled query of an expression is shared with the expressions of the same
+     * shape.
+     * @param entityClass The entity being searched
+     * @param expression The filter expression
+     * @return The cache key
+     */
+    public static List<Object> getShape(Class<?> entityClass, FilterExpression expression) {
+        return Arrays.asList(entityClass, expression.accept(new ShapeVisitor()));
+    }
+
+    /**
+     * Returns the values of an expression's predicates, to bind into the query compiled for its shape.
+     * @param expression The filter expression
+     * @return The values of each predicate, left to right
+     */
+    public static List<List<Object>> getValues(FilterExpression expression) {
+        List<List<Object>> values = new ArrayList<>();
+        expression.accept(new ValuesVisitor(values));
+        return values;
+    }
+
+    /**
+     * Compiles an expression into a query for its shape.
+     * @param expression The filter expression
+     * @return The compiled query
+     * @throws IllegalArgumentException if a path or operator of the expression cannot be searched
+     */
+    public CompiledQuery compile(FilterExpression expression) {
+        return expression.accept(new Compiler());
+    }
+
     @Override
     public Query visitPredicate(FilterPredicate filterPredicate) {
-        Preconditions.checkArgument(filterPredicate.getPath().getPathElements().size() == 1);
-        Preconditions.checkArgument(filterPredicate.getEntityType().equals(entityClass));
+        return compilePredicate(filterPredicate).build(builder, filterPredicate.getValues());
+    }
 
-        Analyzer analyzer = new KeywordAnalyzer();
-        QueryParser queryParser = new QueryParser(filterPredicate.getField(), analyzer);
+    /**
+     * Resolves the index field and operator of a predicate.
+     */
+    private PredicateQuery compilePredicate(FilterPredicate filterPredicate) {
+        Preconditions.checkArgument(filterPredicate.getEntityType().equals(entityClass));
 
-        String queryString = "";
+        Operator op = filterPredicate.getOperator();
 
-        List<String> predicateValues = filterPredicate.getValues()
-                .stream()
-                .map(Object::toString)
-                .map(QueryParser::escape)
-                .map(FilterExpressionToLuceneQuery::escapeWhiteSpace)
-                .collect(Collectors.toList());
+        switch (op) {
+            case IN:
+            case IN_INSENSITIVE: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> buildTermsQuery(builder, field, values);
+            }
+            case NOT:
+            case NOT_INSENSITIVE: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> builder.bool()
+                        .must(buildTermsQuery(builder, field, values))
+                        .not()
+                        .createQuery();
+            }
+            case LT: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> builder.range().onField(field)
+                        .below(getSingleValue(op, values)).excludeLimit().createQuery();
+            }
+            case LE: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> builder.range().onField(field)
+                        .below(getSingleValue(op, values)).createQuery();
+            }
+            case GT: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> builder.range().onField(field)
+                        .above(getSingleValue(op, values)).excludeLimit().createQuery();
+            }
+            case GE: {
+                String field = getKeywordField(filterPredicate);
+                return (builder, values) -> builder.range().onField(field)
+                        .above(getSingleValue(op, values)).createQuery();
+            }
+            default:
+                return compileTextQuery(filterPredicate);
+        }
+    }
 
+    /**
+     * Matches any value as a prefix of an indexed term: of an n-gram for infix operators on analyzed fields, and
+     * anywhere in the value for infix operators on keyword fields.  Values are single terms, lower cased for case
+     * insensitive operators.
+     */
+    private PredicateQuery compileTextQuery(FilterPredicate filterPredicate) {
         Operator op = filterPredicate.getOperator();
+        switch (op) {
+            case INFIX_CASE_INSENSITIVE:
+            case PREFIX_CASE_INSENSITIVE:
+            case PREFIX:
+            case INFIX:
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported Predicate Operator: " + op);
+        }
 
+        String field = getTextField(filterPredicate);
         boolean lowerCaseTerms = lowerCaseTerms(op);
+        boolean wildcard = isInfix(op) && fields != null && fields.getTextField(filterPredicate.getPath()) == null;
+
+        return (builder, values) -> {
+            List<Query> queries = values.stream()
+                    .map(Object::toString)
+                    .map(value -> lowerCaseTerms ? normalize(field, value) : value)
+                    .map(value -> wildcard
+                            ? new WildcardQuery(new Term(field, "*" + escapeWildcards(value) + "*"))
+                            : new PrefixQuery(new Term(field, value)))
+                    .collect(Collectors.toList());
+
+            if (queries.size() == 1) {
+                return queries.get(0);
+            }
 
-        queryString = buildQueryString(op, predicateValues);
+            BooleanJunction<?> junction = builder.bool();
+            for (Query query : queries) {
+                junction = junction.should(query);
+            }
+            return junction.createQuery();
+        };
+    }
+
+    /**
+     * Matches any of the values exactly.  Field bridges and normalizers convert the values to their indexed form.
+     */
+    private static Query buildTermsQuery(QueryBuilder builder, String field, List<Object> values) {
+        if (values.size() == 1) {
+            return builder.keyword().onField(field).matching(values.get(0)).createQuery();
+        }
+
+        BooleanJunction<?> junction = builder.bool();
+        for (Object value : values) {
+            junction = junction.should(builder.keyword().onField(field).matching(value).createQuery());
+        }
+        return junction.createQuery();
+    }
 
-        queryParser.setLowercaseExpandedTerms(lowerCaseTerms);
+    private String getTextField(FilterPredicate filterPredicate) {
+        if (fields == null) {
+            Preconditions.checkArgument(filterPredicate.getPath().getPathElements().size() == 1);
+            return filterPredicate.getField();
+        }
 
-        try {
-            return queryParser.parse(queryString);
-        } catch (ParseException e) {
-            throw new IllegalStateException(e);
+        String field = fields.getTextField(filterPredicate.getPath());
+        if (field == null) {
+            field = fields.getKeywordField(filterPredicate.getPath());
         }
+        Preconditions.checkArgument(field != null, "Unsupported Predicate Path: " + filterPredicate.getFieldPath());
+        return field;
+    }
+
+    private String getKeywordField(FilterPredicate filterPredicate) {
+        Preconditions.checkArgument(fields != null, "Unsupported Predicate Operator: "
+                + filterPredicate.getOperator());
+
+        String field = fields.getKeywordField(filterPredicate.getPath());
+        Preconditions.checkArgument(field != null, "Unsupported Predicate Path: " + filterPredicate.getFieldPath());
+        return field;
+    }
+
+    private static Object getSingleValue(Operator op, List<Object> values) {
+        Preconditions.checkArgument(values.size() == 1, "Predicate Operator " + op + " expects a single value");
+        return values.get(0);
     }
 
     @Override
@@ -106,19 +296,36 @@ public class FilterExpressionToLuceneQuery implements FilterExpressionVisitor<Qu
         }
     }
 
-    private String buildQueryString(Operator op, List<String> predicateValues) {
-        switch (op) {
-            case INFIX_CASE_INSENSITIVE:
-            case PREFIX_CASE_INSENSITIVE:
-            case PREFIX:
-            case INFIX: {
-                return predicateValues.stream()
-                        .map((str) -> str + "*")
-                        .collect(Collectors.joining(" | "));
+    private static boolean isInfix(Operator op) {
+        return op == Operator.INFIX || op == Operator.INFIX_CASE_INSENSITIVE;
+    }
+
+    /**
+     * Converts a value to the single term the shared analyzer produces for it.
+     */
+    private static String normalize(String field, String value) {
+        try (TokenStream stream = LOWER_CASE_ANALYZER.tokenStream(field, value)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            String normalized = stream.incrementToken() ? term.toString() : value;
+            stream.end();
+            return normalized;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String escapeWildcards(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == WildcardQuery.WILDCARD_STRING || c == WildcardQuery.WILDCARD_CHAR
+                    || c == WildcardQuery.WILDCARD_ESCAPE) {
+                sb.append(WildcardQuery.WILDCARD_ESCAPE);
             }
-            default:
-                throw new IllegalArgumentException("Unsupported Predicate Operator: " + op);
+            sb.append(c);
         }
+        return sb.toString();
     }
 
     public static String escapeWhiteSpace(String str) {
@@ -134,4 +341,117 @@ public class FilterExpressionToLuceneQuery implements FilterExpressionVisitor<Qu
         }
         return sb.toString();
     }
+
+    /**
+     * Builds the query of one predicate from its values.
+     */
+    @FunctionalInterface
+    private interface PredicateQuery {
+        Query build(QueryBuilder builder, List<Object> values);
+    }
+
+    /**
+     * Compiles an expression, numbering its predicates left to right.
+     */
+    private class Compiler implements FilterExpressionVisitor<CompiledQuery> {
+        private int predicates = 0;
+
+        @Override
+        public CompiledQuery visitPredicate(FilterPredicate filterPredicate) {
+            int index = predicates++;
+            PredicateQuery query = compilePredicate(filterPredicate);
+            return (builder, values) -> query.build(builder, values.get(index));
+        }
+
+        @Override
+        public CompiledQuery visitAndExpression(AndFilterExpression expression) {
+            CompiledQuery left = expression.getLeft().accept(this);
+            CompiledQuery right = expression.getRight().accept(this);
+            return (builder, values) -> builder.bool()
+                    .must(left.bind(builder, values))
+                    .must(right.bind(builder, values))
+                    .createQuery();
+        }
+
+        @Override
+        public CompiledQuery visitOrExpression(OrFilterExpression expression) {
+            CompiledQuery left = expression.getLeft().accept(this);
+            CompiledQuery right = expression.getRight().accept(this);
+            return (builder, values) -> builder.bool()
+                    .should(left.bind(builder, values))
+                    .should(right.bind(builder, values))
+                    .createQuery();
+        }
+
+        @Override
+        public CompiledQuery visitNotExpression(NotFilterExpression expression) {
+            CompiledQuery negated = expression.getNegated().accept(this);
+            return (builder, values) -> builder.bool()
+                    .must(negated.bind(builder, values))
+                    .not()
+                    .createQuery();
+        }
+    }
+
+    /**
+     * Describes the structure, paths and operators of an expression, leaving out its values.
+     */
+    private static class ShapeVisitor implements FilterExpressionVisitor<Object> {
+        @Override
+        public Object visitPredicate(FilterPredicate filterPredicate) {
+            return Arrays.asList(filterPredicate.getPath(), filterPredicate.getOperator());
+        }
+
+        @Override
+        public Object visitAndExpression(AndFilterExpression expression) {
+            return Arrays.asList("and", expression.getLeft().accept(this), expression.getRight().accept(this));
+        }
+
+        @Override
+        public Object visitOrExpression(OrFilterExpression expression) {
+            return Arrays.asList("or", expression.getLeft().accept(this), expression.getRight().accept(this));
+        }
+
+        @Override
+        public Object visitNotExpression(NotFilterExpression expression) {
+            return Arrays.asList("not", expression.getNegated().accept(this));
+        }
+    }
+
+    /**
+     * Collects the values of an expression's predicates left to right, as {@link Compiler} numbers them.
+     */
+    private static class ValuesVisitor implements FilterExpressionVisitor<Void> {
+        private final List<List<Object>> values;
+
+        ValuesVisitor(List<List<Object>> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Void visitPredicate(FilterPredicate filterPredicate) {
+            values.add(filterPredicate.getValues());
+            return null;
+        }
+
+        @Override
+        public Void visitAndExpression(AndFilterExpression expression) {
+            expression.getLeft().accept(this);
+            expression.getRight().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitOrExpression(OrFilterExpression expression) {
+            expression.getLeft().accept(this);
+            expression.getRight().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitNotExpression(NotFilterExpression expression) {
+            expression.getNegated().accept(this);
+            return null;
+        }
+    }
 }
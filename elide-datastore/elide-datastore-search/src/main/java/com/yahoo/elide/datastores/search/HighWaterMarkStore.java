@@ -0,0 +1,30 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import java.util.Optional;
+
+/**
+ * Persists the high-water mark of incremental indexing: the largest value of an entity's updated-at attribute
+ * which has been indexed.
+ */
+public interface HighWaterMarkStore {
+
+    /**
+     * Reads the high-water mark of an entity.
+     * @param entityClass The indexed entity
+     * @return The mark or empty if the entity has never been indexed.
+     */
+    Optional<Object> read(Class<?> entityClass);
+
+    /**
+     * Records the high-water mark of an entity.
+     * @param entityClass The indexed entity
+     * @param mark The largest indexed value of the entity's updated-at attribute
+     */
+    void write(Class<?> entityClass, Object mark);
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Facet;
+import org.hibernate.search.annotations.Facets;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Fields;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.IndexedEmbedded;
+import org.hibernate.search.annotations.NormalizerDef;
+import org.hibernate.search.annotations.NormalizerDefs;
+import org.hibernate.search.annotations.SortableField;
+import org.hibernate.search.annotations.Store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the Lucene index field which holds the value of an Elide path.
+ * <p>
+ * The last element of the path must be an attribute with an indexed {@link Field} named after the attribute.
+ * Every other element must be a relationship marked {@link IndexedEmbedded}, whose prefix is prepended to the
+ * field name.  A field is a text field when it is analyzed and a keyword field when its values are indexed
+ * verbatim: either unanalyzed (possibly normalized) or numeric.
+ * <p>
+ * The stored, sortable and faceted fields of every bound entity are read from their annotations once, when the resolver
+ * is created.  Paths are resolved on first use and remembered.
+ */
+public class IndexFieldResolver {
+    private static final String DEFAULT_PREFIX = ".";
+
+    private final EntityDictionary dictionary;
+    private final Set<String> lowerCasingNormalizers;
+    private final Map<Class<?>, EntityFields> entities = new HashMap<>();
+    private final Map<Path, Optional<ResolvedField>> paths = new ConcurrentHashMap<>();
+
+    public IndexFieldResolver(EntityDictionary dictionary) {
+        this.dictionary = dictionary;
+
+        Set<String> normalizers = new HashSet<>();
+        for (Class<?> entityClass : dictionary.getBindings()) {
+            List<NormalizerDef> definitions = new ArrayList<>();
+            NormalizerDef definition = dictionary.getAnnotation(entityClass, NormalizerDef.class);
+            if (definition != null) {
+                definitions.add(definition);
+            }
+            NormalizerDefs defs = dictionary.getAnnotation(entityClass, NormalizerDefs.class);
+            if (defs != null) {
+                definitions.addAll(Arrays.asList(defs.value()));
+            }
+            definitions.stream()
+                    .filter(def -> Arrays.stream(def.filters())
+                            .anyMatch(filter -> filter.factory().equals(LowerCaseFilterFactory.class)))
+                    .forEach(def -> normalizers.add(def.name()));
+
+            entities.put(entityClass, new EntityFields(entityClass));
+        }
+        lowerCasingNormalizers = normalizers;
+    }
+
+    /**
+     * Returns the analyzed index field for a path.
+     * @param path The path
+     * @return the index field name or null if the path is not held in an analyzed field.
+     */
+    public String getTextField(Path path) {
+        return resolve(path).filter(field -> field.analyzed).map(field -> field.name).orElse(null);
+    }
+
+    /**
+     * Returns the unanalyzed or numeric index field for a path.
+     * @param path The path
+     * @return the index field name or null if the path is not held verbatim in a field.
+     */
+    public String getKeywordField(Path path) {
+        return resolve(path).filter(field -> !field.analyzed).map(field -> field.name).orElse(null);
+    }
+
+    /**
+     * Returns whether the keyword field for a path is lower cased by its normalizer, so that case insensitive
+     * matches are exact.
+     * @param path The path
+     * @return true if the field's normalizer definition includes a {@link LowerCaseFilterFactory}.
+     */
+    public boolean isLowerCased(Path path) {
+        return resolve(path).map(field -> field.lowerCased).orElse(false);
+    }
+
+    /**
+     * Returns the name of an index field which stores the value of an attribute.
+     * @param entityClass The entity
+     * @param attribute The attribute
+     * @return The index field name or null if the attribute is not stored.
+     */
+    public String getStoredField(Class<?> entityClass, String attribute) {
+        return getEntityFields(entityClass).storedFields.get(attribute);
+    }
+
+    /**
+     * Returns the name of the index field an attribute is sorted by.
+     * @param entityClass The entity
+     * @param attribute The attribute
+     * @return The index field name or null if the attribute is not sortable.
+     */
+    public String getSortField(Class<?> entityClass, String attribute) {
+        return getEntityFields(entityClass).sortFields.get(attribute);
+    }
+
+    /**
+     * Returns the name of the index field an attribute's facet (value counts) is computed on.
+     * @param entityClass The entity
+     * @param attribute The attribute
+     * @return The index field name or null if the attribute has no {@link Facet}.
+     */
+    public String getFacetField(Class<?> entityClass, String attribute) {
+        return getEntityFields(entityClass).facetFields.get(attribute);
+    }
+
+    private EntityFields getEntityFields(Class<?> entityClass) {
+        EntityFields fields = entities.get(entityClass);
+        return fields == null ? new EntityFields(entityClass) : fields;
+    }
+
+    private Optional<ResolvedField> resolve(Path path) {
+        return paths.computeIfAbsent(path, key -> {
+            String name = getFieldName(path);
+            if (name == null) {
+                return Optional.empty();
+            }
+
+            Path.PathElement last = path.lastElement().get();
+            for (Field field : getFieldAnnotations(last.getType(), last.getFieldName())) {
+                if (field.index() == Index.YES
+                        && (field.name().equals(last.getFieldName()) || field.name().isEmpty())) {
+                    boolean analyzed = field.analyze() != Analyze.NO && !isNumeric(path);
+                    boolean lowerCased = lowerCasingNormalizers.contains(field.normalizer().definition());
+                    return Optional.of(new ResolvedField(name, analyzed, lowerCased));
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Builds the index field name from the prefixes of the embedded relationships along a path.
+     */
+    private String getFieldName(Path path) {
+        List<Path.PathElement> elements = path.getPathElements();
+        StringBuilder fieldName = new StringBuilder();
+
+        for (int i = 0; i < elements.size() - 1; i++) {
+            Path.PathElement element = elements.get(i);
+            if (!dictionary.isRelation(element.getType(), element.getFieldName())) {
+                return null;
+            }
+
+            IndexedEmbedded embedded = dictionary.getAttributeOrRelationAnnotation(element.getType(),
+                    IndexedEmbedded.class, element.getFieldName());
+            if (embedded == null) {
+                return null;
+            }
+
+            String prefix = embedded.prefix().equals(DEFAULT_PREFIX)
+                    ? element.getFieldName() + DEFAULT_PREFIX
+                    : embedded.prefix();
+
+            /* Only the listed paths are indexed when include paths are given */
+            if (embedded.includePaths().length > 0) {
+                StringBuilder remaining = new StringBuilder();
+                for (Path.PathElement next : elements.subList(i + 1, elements.size())) {
+                    remaining.append(remaining.length() == 0 ? "" : ".").append(next.getFieldName());
+                }
+                if (!Arrays.asList(embedded.includePaths()).contains(remaining.toString())) {
+                    return null;
+                }
+            }
+
+            fieldName.append(prefix);
+        }
+
+        Path.PathElement last = path.lastElement().get();
+        if (!dictionary.isAttribute(last.getType(), last.getFieldName())) {
+            return null;
+        }
+        return fieldName.append(last.getFieldName()).toString();
+    }
+
+    private static boolean isNumeric(Path path) {
+        Class<?> type = path.lastElement().get().getFieldType();
+        return type == int.class || type == long.class || type == float.class || type == double.class
+                || type == Integer.class || type == Long.class || type == Float.class || type == Double.class;
+    }
+
+    private List<Field> getFieldAnnotations(Class<?> entityClass, String fieldName) {
+        List<Field> fields = new ArrayList<>();
+
+        Field fieldAnnotation = dictionary.getAttributeOrRelationAnnotation(entityClass, Field.class, fieldName);
+
+        if (fieldAnnotation != null) {
+            fields.add(fieldAnnotation);
+        } else {
+            Fields fieldsAnnotation =
+                    dictionary.getAttributeOrRelationAnnotation(entityClass, Fields.class, fieldName);
+
+            if (fieldsAnnotation != null) {
+                Arrays.stream(fieldsAnnotation.value()).forEach(fields::add);
+            }
+        }
+        return fields;
+    }
+
+    private List<Facet> getFacetAnnotations(Class<?> entityClass, String fieldName) {
+        Facet facet = dictionary.getAttributeOrRelationAnnotation(entityClass, Facet.class, fieldName);
+        if (facet != null) {
+            return Collections.singletonList(facet);
+        }
+
+        Facets facets = dictionary.getAttributeOrRelationAnnotation(entityClass, Facets.class, fieldName);
+        return facets == null ? Collections.emptyList() : Arrays.asList(facets.value());
+    }
+
+    /**
+     * An index field resolved from a path.
+     */
+    private static class ResolvedField {
+        private final String name;
+        private final boolean analyzed;
+        private final boolean lowerCased;
+
+        ResolvedField(String name, boolean analyzed, boolean lowerCased) {
+            this.name = name;
+            this.analyzed = analyzed;
+            this.lowerCased = lowerCased;
+        }
+    }
+
+    /**
+     * The stored, sortable and faceted index fields of an entity's attributes.
+     */
+    private class EntityFields {
+        private final Map<String, String> storedFields;
+        private final Map<String, String> sortFields;
+        private final Map<String, String> facetFields;
+
+        EntityFields(Class<?> entityClass) {
+            Map<String, String> stored = new HashMap<>();
+            Map<String, String> sortable = new HashMap<>();
+            Map<String, String> faceted = new HashMap<>();
+            for (String attribute : dictionary.getAttributes(entityClass)) {
+                for (Field field : getFieldAnnotations(entityClass, attribute)) {
+                    if (field.store() != Store.NO) {
+                        stored.putIfAbsent(attribute, field.name().isEmpty() ? attribute : field.name());
+                    }
+                }
+
+                SortableField sortableField =
+                        dictionary.getAttributeOrRelationAnnotation(entityClass, SortableField.class, attribute);
+                if (sortableField != null) {
+                    sortable.put(attribute, sortableField.forField().isEmpty() ? attribute : sortableField.forField());
+                }
+
+                for (Facet facet : getFacetAnnotations(entityClass, attribute)) {
+                    faceted.putIfAbsent(attribute, facet.forField().isEmpty() ? attribute : facet.forField());
+                }
+            }
+            storedFields = Collections.unmodifiableMap(stored);
+            sortFields = Collections.unmodifiableMap(sortable);
+            facetFields = Collections.unmodifiableMap(faceted);
+        }
+    }
+}
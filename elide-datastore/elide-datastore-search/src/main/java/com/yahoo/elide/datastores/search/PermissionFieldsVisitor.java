@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import com.yahoo.elide.core.CheckInstantiator;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
+import com.yahoo.elide.generated.parsers.ExpressionBaseVisitor;
+import com.yahoo.elide.generated.parsers.ExpressionParser;
+import com.yahoo.elide.security.FilterExpressionCheck;
+import com.yahoo.elide.security.checks.Check;
+import com.yahoo.elide.security.checks.UserCheck;
+
+import java.util.Set;
+
+/**
+ * Walks a permission expression to collect the attributes of an entity its checks read.
+ * <p>
+ * User checks read nothing from the entity.  Filter expression checks read the attributes they filter on.  Any other
+ * check may read anything, as may a filter expression check which filters across a relationship, and the walk
+ * returns false.
+ */
+class PermissionFieldsVisitor extends ExpressionBaseVisitor<Boolean> implements CheckInstantiator {
+
+    private final EntityDictionary dictionary;
+    private final Class<?> entityClass;
+    private final RequestScope scope;
+    private final Set<String> fieldsRead;
+
+    /**
+     * Constructor.
+     * @param dictionary The entity dictionary
+     * @param entityClass The entity the checks are evaluated against
+     * @param scope The request scope
+     * @param fieldsRead Collects the attributes read by the checks
+     */
+    PermissionFieldsVisitor(EntityDictionary dictionary, Class<?> entityClass, RequestScope scope,
+                            Set<String> fieldsRead) {
+        this.dictionary = dictionary;
+        this.entityClass = entityClass;
+        this.scope = scope;
+        this.fieldsRead = fieldsRead;
+    }
+
+    @Override
+    public Boolean visitNOT(ExpressionParser.NOTContext ctx) {
+        return visit(ctx.expression());
+    }
+
+    @Override
+    public Boolean visitOR(ExpressionParser.ORContext ctx) {
+        return visit(ctx.left) && visit(ctx.right);
+    }
+
+    @Override
+    public Boolean visitAND(ExpressionParser.ANDContext ctx) {
+        return visit(ctx.left) && visit(ctx.right);
+    }
+
+    @Override
+    public Boolean visitPAREN(ExpressionParser.PARENContext ctx) {
+        return visit(ctx.expression());
+    }
+
+    @Override
+    public Boolean visitPermissionClass(ExpressionParser.PermissionClassContext ctx) {
+        Check<?> check = getCheck(dictionary, ctx.getText());
+
+        if (check instanceof UserCheck) {
+            return true;
+        }
+
+        if (!(check instanceof FilterExpressionCheck)) {
+            return false;
+        }
+
+        FilterExpression filterExpression = ((FilterExpressionCheck<?>) check).getFilterExpression(entityClass, scope);
+        if (filterExpression == null) {
+            return true;
+        }
+
+        for (FilterPredicate predicate : filterExpression.accept(new PredicateExtractionVisitor())) {
+            Path path = predicate.getPath();
+            if (path.getPathElements().size() != 1 || !path.getPathElements().get(0).getType().equals(entityClass)) {
+                return false;
+            }
+            fieldsRead.add(path.getPathElements().get(0).getFieldName());
+        }
+        return true;
+    }
+}
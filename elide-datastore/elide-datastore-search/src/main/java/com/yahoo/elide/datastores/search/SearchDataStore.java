@@ -9,20 +9,49 @@ package com.yahoo.elide.datastores.search;
 import com.yahoo.elide.core.DataStore;
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.datastores.search.FilterExpressionToLuceneQuery.CompiledQuery;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
 
 import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.Search;
 
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
 
 /**
  * Performs full text search when it can.  Otherwise delegates to a wrapped store.
+ * <p>
+ * When indexing on startup, indexes are rebuilt with the Hibernate Search mass indexer.  With an indexing executor
+ * the rebuild runs in the background: the store serves requests immediately and each entity's queries go to the
+ * wrapped store until that entity's index is ready.  Entities configured for incremental indexing only reindex the
+ * rows whose updated-at attribute reached the persisted high-water mark of the previous run (rows deleted while the
+ * application was down are not removed from the index).
+ * <p>
+ * The index fields of every entity are resolved once, when the dictionary is populated, and the Lucene queries
+ * compiled from filter expressions are cached by filter shape.  Both are shared by all read transactions.
  */
+@Slf4j
 public class SearchDataStore implements DataStore {
 
     private static final int DEFAULT_MIN_NGRAM = 3;
     private static final int DEFAULT_MAX_NGRAM = 5;
+    private static final int DEFAULT_INDEXER_THREADS = 6;
+    private static final int DEFAULT_BATCH_SIZE = 10;
 
     private DataStore wrapped;
     private EntityDictionary dictionary;
@@ -30,6 +59,15 @@ public class SearchDataStore implements DataStore {
     private boolean indexOnStartup = false;
     private int minNgramSize;
     private int maxNgramSize;
+    private boolean projectStoredFields;
+    private int indexerThreads = DEFAULT_INDEXER_THREADS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Executor indexingExecutor;
+    private Map<Class<?>, String> updatedAtFields = new HashMap<>();
+    private HighWaterMarkStore highWaterMarks;
+    private final Set<Class<?>> pendingIndexes = ConcurrentHashMap.newKeySet();
+    private IndexFieldResolver fields;
+    private final Cache<List<Object>, CompiledQuery> queryCache = SearchDataTransaction.newQueryCache();
 
     public SearchDataStore(DataStore wrapped, EntityManagerFactory entityManagerFactory, boolean indexOnStartup) {
         this(wrapped, entityManagerFactory, indexOnStartup, DEFAULT_MIN_NGRAM, DEFAULT_MAX_NGRAM);
@@ -40,36 +78,81 @@ public class SearchDataStore implements DataStore {
                            boolean indexOnStartup,
                            int minNgramSize,
                            int maxNgramSize) {
+        this(wrapped, entityManagerFactory, indexOnStartup, minNgramSize, maxNgramSize, false);
+    }
+
+    /**
+     * Constructor.
+     * @param wrapped The store which handles writes and the queries the index cannot answer
+     * @param entityManagerFactory The entity manager factory for the indexed entities
+     * @param indexOnStartup Whether to rebuild the indexes when the entity dictionary is populated
+     * @param minNgramSize Minimum length of a searched value
+     * @param maxNgramSize Maximum length of a searched value
+     * @param projectStoredFields Whether to read hits from stored index fields, skipping the database, when every
+     *                            attribute a request needs is stored
+     */
+    public SearchDataStore(DataStore wrapped,
+                           EntityManagerFactory entityManagerFactory,
+                           boolean indexOnStartup,
+                           int minNgramSize,
+                           int maxNgramSize,
+                           boolean projectStoredFields) {
         this.wrapped = wrapped;
         this.entityManagerFactory = entityManagerFactory;
         this.indexOnStartup = indexOnStartup;
 
         this.minNgramSize = minNgramSize;
         this.maxNgramSize = maxNgramSize;
+        this.projectStoredFields = projectStoredFields;
     }
 
-
     @Override
     public void populateEntityDictionary(EntityDictionary entityDictionary) {
         wrapped.populateEntityDictionary(entityDictionary);
 
+        this.dictionary = entityDictionary;
+        this.fields = new IndexFieldResolver(entityDictionary);
+
         if (indexOnStartup) {
+            List<Class<?>> indexedClasses = entityDictionary.getBindings().stream()
+                    .filter(entityClass -> entityDictionary.getAnnotation(entityClass, Indexed.class) != null)
+                    .collect(Collectors.toList());
 
-            FullTextEntityManager em = Search.getFullTextEntityManager(entityManagerFactory.createEntityManager());
-            try {
-                for (Class<?> entityClass : entityDictionary.getBindings()) {
-                    if (entityDictionary.getAnnotation(entityClass, Indexed.class) != null) {
-                        em.createIndexer(entityClass).startAndWait();
+            if (indexingExecutor == null) {
+                try {
+                    for (Class<?> entityClass : indexedClasses) {
+                        index(entityClass);
                     }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
                 }
-            } catch (InterruptedException e) {
-                throw new IllegalStateException(e);
-            } finally {
-                em.close();
+                return;
+            }
+
+            pendingIndexes.addAll(indexedClasses);
+            for (Class<?> entityClass : indexedClasses) {
+                indexingExecutor.execute(() -> {
+                    try {
+                        index(entityClass);
+                        pendingIndexes.remove(entityClass);
+                        log.info("Search index for {} is ready", entityClass.getName());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        log.error("Indexing {} failed, searches will use the wrapped store", entityClass.getName(), e);
+                    }
+                });
             }
         }
+    }
 
-        this.dictionary = entityDictionary;
+    /**
+     * Returns whether the index of an entity can serve queries.
+     * @param entityClass The entity
+     * @return false while the entity is being indexed in the background (or if background indexing failed).
+     */
+    public boolean isIndexReady(Class<?> entityClass) {
+        return !pendingIndexes.contains(entityClass);
     }
 
     @Override
@@ -82,6 +165,162 @@ public class SearchDataStore implements DataStore {
 
         FullTextEntityManager em = Search.getFullTextEntityManager(entityManagerFactory.createEntityManager());
 
-        return new SearchDataTransaction(wrapped.beginReadTransaction(), dictionary, em, minNgramSize, maxNgramSize);
+        return new SearchDataTransaction(wrapped.beginReadTransaction(), dictionary, em, minNgramSize, maxNgramSize,
+                projectStoredFields, this::isIndexReady, fields, queryCache);
+    }
+
+    /**
+     * Rebuilds or incrementally updates the index of an entity.
+     */
+    private void index(Class<?> entityClass) throws InterruptedException {
+        FullTextEntityManager em = Search.getFullTextEntityManager(entityManagerFactory.createEntityManager());
+        try {
+            String updatedAtField = updatedAtFields.get(entityClass);
+            if (updatedAtField == null) {
+                massIndex(em, entityClass);
+                return;
+            }
+
+            /* Read the new mark first so rows updated while indexing are picked up by the next run */
+            Optional<Object> mark = highWaterMarks.read(entityClass);
+            Object newMark = getMaximum(em, entityClass, updatedAtField);
+
+            if (mark.isPresent()) {
+                indexUpdatedSince(em, entityClass, updatedAtField, mark.get());
+            } else {
+                massIndex(em, entityClass);
+            }
+
+            if (newMark != null) {
+                highWaterMarks.write(entityClass, newMark);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private void massIndex(FullTextEntityManager em, Class<?> entityClass) throws InterruptedException {
+        em.createIndexer(entityClass)
+                .threadsToLoadObjects(indexerThreads)
+                .batchSizeToLoadObjects(batchSize)
+                .startAndWait();
+    }
+
+    private Object getMaximum(FullTextEntityManager em, Class<?> entityClass, String field) {
+        String entityName = em.getMetamodel().entity(entityClass).getName();
+        return em.createQuery("SELECT MAX(e." + field + ") FROM " + entityName + " e").getSingleResult();
+    }
+
+    /**
+     * Reindexes the rows whose updated-at attribute is at or after the mark, one batch at a time.
+     */
+    private void indexUpdatedSince(FullTextEntityManager em, Class<?> entityClass, String field, Object mark) {
+        String entityName = em.getMetamodel().entity(entityClass).getName();
+        String idField = dictionary.getIdFieldName(entityClass);
+        TypedQuery<?> query = em.createQuery("SELECT e FROM " + entityName + " e WHERE e." + field
+                + " >= :mark ORDER BY e." + idField, entityClass)
+                .setParameter("mark", mark)
+                .setMaxResults(batchSize);
+
+        EntityTransaction transaction = em.getTransaction();
+        transaction.begin();
+        try {
+            int indexed = 0;
+            List<?> batch;
+            do {
+                batch = query.setFirstResult(indexed).getResultList();
+                batch.forEach(em::index);
+                em.flushToIndexes();
+                em.clear();
+                indexed += batch.size();
+            } while (batch.size() == batchSize);
+            transaction.commit();
+            log.info("Reindexed {} updated {} entities", indexed, entityClass.getName());
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        }
+    }
+
+    /**
+     * Builder for a SearchDataStore.
+     */
+    public static class Builder {
+        private final SearchDataStore store;
+
+        public Builder(DataStore wrapped, EntityManagerFactory entityManagerFactory) {
+            store = new SearchDataStore(wrapped, entityManagerFactory, false);
+        }
+
+        public Builder withIndexOnStartup(boolean indexOnStartup) {
+            store.indexOnStartup = indexOnStartup;
+            return this;
+        }
+
+        public Builder withNgramSize(int minNgramSize, int maxNgramSize) {
+            store.minNgramSize = minNgramSize;
+            store.maxNgramSize = maxNgramSize;
+            return this;
+        }
+
+        public Builder withStoredFieldProjection(boolean projectStoredFields) {
+            store.projectStoredFields = projectStoredFields;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads the mass indexer loads entities with.
+         * @param indexerThreads threads per indexed entity
+         * @return the builder
+         */
+        public Builder withIndexerThreads(int indexerThreads) {
+            store.indexerThreads = indexerThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of entities loaded (and flushed to the index) at a time.
+         * @param batchSize the batch size
+         * @return the builder
+         */
+        public Builder withBatchSize(int batchSize) {
+            store.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Index on startup in the background.
+         * @param executor runs one indexing task per indexed entity
+         * @return the builder
+         */
+        public Builder withAsyncIndexing(Executor executor) {
+            store.indexingExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Index an entity incrementally from the mark persisted by the previous run.
+         * @param entityClass The indexed entity
+         * @param updatedAtField An attribute holding the time (or version) of the entity's last update
+         * @return the builder
+         */
+        public Builder withIncrementalIndexing(Class<?> entityClass, String updatedAtField) {
+            store.updatedAtFields.put(entityClass, updatedAtField);
+            return this;
+        }
+
+        public Builder withHighWaterMarkStore(HighWaterMarkStore highWaterMarks) {
+            store.highWaterMarks = highWaterMarks;
+            return this;
+        }
+
+        public SearchDataStore build() {
+            Preconditions.checkState(store.updatedAtFields.isEmpty() || store.highWaterMarks != null,
+                    "Incremental indexing requires a high-water mark store");
+            Preconditions.checkState(store.indexerThreads > 0 && store.batchSize > 0,
+                    "Indexer threads and batch size must be positive");
+            return store;
+        }
     }
 }
@@ -9,63 +9,157 @@ package com.yahoo.elide.datastores.search;
 import static com.yahoo.elide.core.DataStoreTransaction.FeatureSupport.FULL;
 import static com.yahoo.elide.core.DataStoreTransaction.FeatureSupport.NONE;
 
+import com.yahoo.elide.annotation.OnReadPostCommit;
+import com.yahoo.elide.annotation.OnReadPreCommit;
+import com.yahoo.elide.annotation.OnReadPreSecurity;
+import com.yahoo.elide.annotation.ReadPermission;
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.Path;
 import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.datastore.inmemory.InMemoryStoreTransaction;
 import com.yahoo.elide.core.datastore.wrapped.TransactionWrapper;
 import com.yahoo.elide.core.exceptions.BadRequestException;
 import com.yahoo.elide.core.exceptions.HttpStatusException;
 import com.yahoo.elide.core.exceptions.InvalidValueException;
 import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.InPredicate;
 import com.yahoo.elide.core.filter.Operator;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
 import com.yahoo.elide.core.filter.expression.PredicateExtractionVisitor;
 import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.core.sort.Sorting;
+import com.yahoo.elide.datastores.search.FilterExpressionToLuceneQuery.CompiledQuery;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
-import org.hibernate.search.annotations.Field;
-import org.hibernate.search.annotations.Fields;
-import org.hibernate.search.annotations.Index;
-import org.hibernate.search.annotations.SortableField;
+import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.engine.ProjectionConstants;
 import org.hibernate.search.jpa.FullTextEntityManager;
 import org.hibernate.search.jpa.FullTextQuery;
 import org.hibernate.search.query.dsl.QueryBuilder;
 import org.hibernate.search.query.dsl.sort.SortFieldContext;
+import org.hibernate.search.query.facet.FacetSortOrder;
 
+import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Performs full text search when it can.  Otherwise delegates to a wrapped transaction.
+ * <p>
+ * When stored field projection is enabled and every attribute the request needs (its sparse fieldset, the filtered
+ * and sorted attributes and the attributes read by its read permission checks) is a plain attribute stored in the
+ * index, hits are read straight from the Lucene documents into detached entity instances holding only those
+ * attributes and the ID.  Otherwise, or if the entity has read hooks, hits are loaded from the database.
+ * <p>
+ * Value counts requested with {@code page[facets]} are computed for attributes with a {@code @Facet}, in the same
+ * query that collects the hits, and returned through the pagination object like page totals.  Counts requested for
+ * other attributes fail the request.
+ * <p>
+ * Sorting on {@code @SortableField} attributes and pagination are reported as supported even when the wrapped
+ * transaction cannot do them.  Requests the index can only partly answer are split between the two stores:
+ * <ul>
+ * <li>A searchable filter sorted on attributes which are not sortable in the index: Lucene collects the matching
+ * IDs and the wrapped store loads them with a single IN predicate, sorting and paging them itself.</li>
+ * <li>A sort without a filter that the wrapped store cannot do: Lucene sorts and pages the IDs and the wrapped store
+ * loads that page with a single IN predicate, keeping Lucene's order.  Unpaginated sorts matching too many records
+ * for one IN predicate are left to the wrapped store.</li>
+ * </ul>
+ * Whatever is left for the wrapped store that it does not support is evaluated in memory, including the sorting,
+ * paging and filtering of relationships, which are never searched.
  */
 public class SearchDataTransaction extends TransactionWrapper {
+    private static final String INCLUDE = "include";
+    private static final int MAX_LOADED_IDS = 1000;
+    private static final int QUERY_CACHE_SIZE = 1000;
+    private static final List<Class<? extends Annotation>> READ_TRIGGERS =
+            Arrays.asList(OnReadPreSecurity.class, OnReadPreCommit.class, OnReadPostCommit.class);
 
     private EntityDictionary dictionary;
     private FullTextEntityManager em;
     private int minNgram;
     private int maxNgram;
+    private boolean projectStoredFields;
+    private IndexFieldResolver fields;
+    private Predicate<Class<?>> indexReady;
+    private Cache<List<Object>, CompiledQuery> queryCache;
 
     public SearchDataTransaction(DataStoreTransaction tx,
                                  EntityDictionary dictionary,
                                  FullTextEntityManager em,
                                  int minNgramSize,
                                  int maxNgramSize) {
+        this(tx, dictionary, em, minNgramSize, maxNgramSize, false);
+    }
+
+    public SearchDataTransaction(DataStoreTransaction tx,
+                                 EntityDictionary dictionary,
+                                 FullTextEntityManager em,
+                                 int minNgramSize,
+                                 int maxNgramSize,
+                                 boolean projectStoredFields) {
+        this(tx, dictionary, em, minNgramSize, maxNgramSize, projectStoredFields, (entityClass) -> true);
+    }
+
+    public SearchDataTransaction(DataStoreTransaction tx,
+                                 EntityDictionary dictionary,
+                                 FullTextEntityManager em,
+                                 int minNgramSize,
+                                 int maxNgramSize,
+                                 boolean projectStoredFields,
+                                 Predicate<Class<?>> indexReady) {
+        this(tx, dictionary, em, minNgramSize, maxNgramSize, projectStoredFields, indexReady,
+                new IndexFieldResolver(dictionary), newQueryCache());
+    }
+
+    /**
+     * Constructor for transactions sharing the index metadata and compiled queries of their store.
+     */
+    SearchDataTransaction(DataStoreTransaction tx,
+                          EntityDictionary dictionary,
+                          FullTextEntityManager em,
+                          int minNgramSize,
+                          int maxNgramSize,
+                          boolean projectStoredFields,
+                          Predicate<Class<?>> indexReady,
+                          IndexFieldResolver fields,
+                          Cache<List<Object>, CompiledQuery> queryCache) {
         super(tx);
         this.dictionary = dictionary;
         this.em = em;
         this.minNgram = minNgramSize;
         this.maxNgram = maxNgramSize;
+        this.projectStoredFields = projectStoredFields;
+        this.fields = fields;
+        this.indexReady = indexReady;
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Creates a cache of the queries compiled from filter expressions, keyed by entity and filter shape.  Compiled
+     * queries hold no values, so they are shared between transactions and with every expression of their shape.
+     * @return an empty query cache
+     */
+    static Cache<List<Object>, CompiledQuery> newQueryCache() {
+        return CacheBuilder.newBuilder().maximumSize(QUERY_CACHE_SIZE).build();
     }
 
     @Override
@@ -74,21 +168,99 @@ public class SearchDataTransaction extends TransactionWrapper {
                                         Optional<Sorting> sorting,
                                         Optional<Pagination> pagination,
                                         RequestScope requestScope) {
-        if (!filterExpression.isPresent()) {
-            return super.loadObjects(entityClass, filterExpression, sorting, pagination, requestScope);
+        boolean mustSort = mustSort(sorting, entityClass);
+
+        if (filterExpression.isPresent()) {
+            FeatureSupport support = canSearch(entityClass, filterExpression.get());
+
+            if (support != NONE && (!mustSort || canSort(sorting.get(), entityClass))) {
+                return search(entityClass, filterExpression.get(), sorting, pagination, requestScope);
+            }
+
+            /* Lucene finds the matches and the wrapped store orders and pages them */
+            if (support == FULL && super.supportsSorting(entityClass, sorting.get())
+                    && (!pagination.isPresent() || super.supportsPagination(entityClass))) {
+                Optional<List<Object>> ids = searchIds(entityClass, buildQuery(entityClass, filterExpression.get()),
+                        Optional.empty(), Optional.empty(), MAX_LOADED_IDS);
+                if (ids.isPresent()) {
+                    return loadByIds(entityClass, ids.get(), sorting, pagination, requestScope);
+                }
+            }
+        } else if (mustSort && !super.supportsSorting(entityClass, sorting.get()) && isSearchable(entityClass)
+                && canSort(sorting.get(), entityClass)) {
+
+            /* Lucene orders and pages every record and the wrapped store loads the page */
+            Optional<List<Object>> ids = searchIds(entityClass, new MatchAllDocsQuery(), sorting, pagination,
+                    MAX_LOADED_IDS);
+            if (ids.isPresent()) {
+                return loadByIds(entityClass, ids.get(), Optional.empty(), Optional.empty(), requestScope);
+            }
         }
 
-        boolean canSearch = (canSearch(entityClass, filterExpression.get()) != NONE);
+        return loadFromWrapped(entityClass, filterExpression, sorting, pagination, requestScope);
+    }
 
-        if (mustSort(sorting, entityClass)) {
-            canSearch = canSearch && canSort(sorting.get(), entityClass);
+    /**
+     * Relationships are never searched.  They are read from the wrapped transaction, which sorts and pages them
+     * in memory when it cannot itself, since this transaction reports support for sorting and paging the class.
+     */
+    @Override
+    public Object getRelation(DataStoreTransaction relationTx,
+                              Object entity,
+                              String relationName,
+                              Optional<FilterExpression> filterExpression,
+                              Optional<Sorting> sorting,
+                              Optional<Pagination> pagination,
+                              RequestScope requestScope) {
+        Class<?> relationClass = dictionary.getParameterizedType(entity, relationName);
+        boolean wrappedSorts = !sorting.isPresent() || super.supportsSorting(relationClass, sorting.get());
+        boolean wrappedPages = !pagination.isPresent() || super.supportsPagination(relationClass);
+        boolean wrappedFilters = !filterExpression.isPresent()
+                || super.supportsFiltering(relationClass, filterExpression.get()) == FULL;
+
+        if (wrappedSorts && wrappedPages && wrappedFilters) {
+            return super.getRelation(relationTx, entity, relationName, filterExpression, sorting, pagination,
+                    requestScope);
         }
+        return new InMemoryStoreTransaction(tx).getRelation(relationTx, entity, relationName, filterExpression,
+                sorting, pagination, requestScope);
+    }
 
-        if (canSearch) {
-            return search(entityClass, filterExpression.get(), sorting, pagination);
+    /**
+     * Delegates a load to the wrapped transaction.  Sorting and pagination this transaction claimed to support but
+     * the wrapped transaction does not are evaluated in memory.
+     */
+    private Iterable<Object> loadFromWrapped(Class<?> entityClass,
+                                             Optional<FilterExpression> filterExpression,
+                                             Optional<Sorting> sorting,
+                                             Optional<Pagination> pagination,
+                                             RequestScope requestScope) {
+        boolean wrappedSorts = !sorting.isPresent() || super.supportsSorting(entityClass, sorting.get());
+        boolean wrappedPages = !pagination.isPresent() || super.supportsPagination(entityClass);
+
+        if (wrappedSorts && wrappedPages) {
+            return super.loadObjects(entityClass, filterExpression, sorting, pagination, requestScope);
         }
+        return new InMemoryStoreTransaction(tx).loadObjects(entityClass, filterExpression, sorting, pagination,
+                requestScope);
+    }
 
-        return super.loadObjects(entityClass, filterExpression, sorting, pagination, requestScope);
+    @Override
+    public boolean supportsSorting(Class<?> entityClass, Sorting sorting) {
+        return super.supportsSorting(entityClass, sorting)
+                || (isSearchable(entityClass) && canSort(sorting, entityClass));
+    }
+
+    @Override
+    public boolean supportsPagination(Class<?> entityClass) {
+        return super.supportsPagination(entityClass) || isSearchable(entityClass);
+    }
+
+    /**
+     * Whether the entity is indexed and its index can serve queries.
+     */
+    private boolean isSearchable(Class<?> entityClass) {
+        return dictionary.getAnnotation(entityClass, Indexed.class) != null && indexReady.test(entityClass);
     }
 
     /**
@@ -118,10 +290,7 @@ public class SearchDataTransaction extends TransactionWrapper {
                 return false;
             }
 
-            Path.PathElement last = path.lastElement().get();
-            String fieldName = last.getFieldName();
-
-            if (dictionary.getAttributeOrRelationAnnotation(entityClass, SortableField.class, fieldName) == null) {
+            if (fields.getSortField(entityClass, path.lastElement().get().getFieldName()) == null) {
                 return false;
             }
         }
@@ -142,12 +311,7 @@ public class SearchDataTransaction extends TransactionWrapper {
         for (Map.Entry<Path, Sorting.SortOrder> entry
                 : sorting.getValidSortingRules(entityClass, dictionary).entrySet()) {
 
-            String fieldName = entry.getKey().lastElement().get().getFieldName();
-
-            SortableField sortableField =
-                    dictionary.getAttributeOrRelationAnnotation(entityClass, SortableField.class, fieldName);
-
-            fieldName = sortableField.forField().isEmpty() ? fieldName : sortableField.forField();
+            String fieldName = fields.getSortField(entityClass, entry.getKey().lastElement().get().getFieldName());
 
             if (context == null) {
                 context = builder.sort().byField(fieldName);
@@ -185,6 +349,11 @@ public class SearchDataTransaction extends TransactionWrapper {
 
     private DataStoreTransaction.FeatureSupport canSearch(Class<?> entityClass, FilterExpression expression) {
 
+        /* Indexes still being built in the background can't answer queries */
+        if (!indexReady.test(entityClass)) {
+            return NONE;
+        }
+
         /* Collapse the filter expression to a list of leaf predicates */
         Collection<FilterPredicate> predicates = expression.accept(new PredicateExtractionVisitor());
 
@@ -197,8 +366,8 @@ public class SearchDataTransaction extends TransactionWrapper {
             return support;
         }
 
-        /* Throw an exception if ngram size is violated */
-        predicates.stream().forEach((predicate) -> {
+        /* Throw an exception if ngram size is violated by a text search */
+        predicates.stream().filter(this::isTextSearch).forEach((predicate) -> {
             predicate.getValues().stream().map(Object::toString).forEach((value) -> {
                 if (value.length() < minNgram || value.length() > maxNgram) {
                     String message = String.format("Field values for %s on entity %s must be >= %d and <= %d",
@@ -212,39 +381,41 @@ public class SearchDataTransaction extends TransactionWrapper {
     }
 
     private DataStoreTransaction.FeatureSupport canSearch(Class<?> entityClass, FilterPredicate predicate) {
-
-        boolean isIndexed = fieldIsIndexed(entityClass, predicate);
-
-        if (!isIndexed) {
-            return NONE;
-        }
-
-        /* We don't support joins to other relationships */
-        if (predicate.getPath().getPathElements().size() != 1) {
+        if (!predicate.getEntityType().equals(entityClass)) {
             return NONE;
         }
 
         return operatorSupport(entityClass, predicate);
     }
 
+    /**
+     * Whether a predicate is evaluated against an analyzed (n-gram) field.
+     */
+    private boolean isTextSearch(FilterPredicate predicate) {
+        switch (predicate.getOperator()) {
+            case INFIX:
+            case INFIX_CASE_INSENSITIVE:
+            case PREFIX:
+            case PREFIX_CASE_INSENSITIVE:
+                return fields.getTextField(predicate.getPath()) != null;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Perform the full-text search.
      * @param entityClass The class to search
      * @param filterExpression The filter expression to apply
      * @param sorting Optional sorting
      * @param pagination Optional pagination
+     * @param requestScope The request scope
      * @return A list of records of type entityClass.
      */
     private List<Object> search(Class<?> entityClass, FilterExpression filterExpression, Optional<Sorting> sorting,
-                                Optional<Pagination> pagination) {
-            Query query;
-            try {
-                query = filterExpression.accept(new FilterExpressionToLuceneQuery(em, entityClass));
-            } catch (IllegalArgumentException e) {
-                throw new BadRequestException(e.getMessage());
-            }
-
-            FullTextQuery fullTextQuery = em.createFullTextQuery(query, entityClass);
+                                Optional<Pagination> pagination, RequestScope requestScope) {
+            FullTextQuery fullTextQuery = em.createFullTextQuery(buildQuery(entityClass, filterExpression),
+                    entityClass);
 
             if (mustSort(sorting, entityClass)) {
                 fullTextQuery = fullTextQuery.setSort(buildSort(sorting.get(), entityClass));
@@ -255,68 +426,359 @@ public class SearchDataTransaction extends TransactionWrapper {
                 fullTextQuery = fullTextQuery.setFirstResult(pagination.get().getOffset());
             }
 
-            List<Object[]> results = fullTextQuery
-                    .setProjection(ProjectionConstants.THIS)
-                    .getResultList();
+            List<String> facets = pagination.isPresent()
+                    ? enableFaceting(fullTextQuery, entityClass, pagination.get())
+                    : Collections.emptyList();
+
+            Optional<Map<String, String>> storedFields = projectStoredFields
+                    ? getStoredFieldProjection(entityClass, filterExpression, sorting, requestScope)
+                    : Optional.empty();
+
+            List<Object[]> results;
+            if (storedFields.isPresent()) {
+                List<String> projection = new ArrayList<>();
+                projection.add(ProjectionConstants.ID);
+                projection.addAll(storedFields.get().values());
+                results = fullTextQuery
+                        .setProjection(projection.toArray(new String[0]))
+                        .getResultList();
+            } else {
+                results = fullTextQuery
+                        .setProjection(ProjectionConstants.THIS)
+                        .getResultList();
+            }
 
             if (pagination.isPresent() && pagination.get().isGenerateTotals()) {
                 pagination.get().setPageTotals(fullTextQuery.getResultSize());
             }
 
+            for (String attribute : facets) {
+                Map<String, Long> counts = new LinkedHashMap<>();
+                fullTextQuery.getFacetManager().getFacets(attribute)
+                        .forEach(facet -> counts.put(facet.getValue(), (long) facet.getCount()));
+                pagination.get().setFacets(attribute, counts);
+            }
+
             if (results.isEmpty()) {
                 return Collections.emptyList();
             }
 
+            if (storedFields.isPresent()) {
+                List<String> attributes = new ArrayList<>(storedFields.get().keySet());
+                return results.stream()
+                        .map((result) -> fromStoredFields(entityClass, attributes, result))
+                        .collect(Collectors.toList());
+            }
+
             return results.stream()
                     .map((result) -> {
                         return result[0];
                     }).collect(Collectors.toList());
     }
 
-    private boolean fieldIsIndexed(Class<?> entityClass, FilterPredicate predicate) {
-        String fieldName = predicate.getField();
+    /**
+     * Builds the Lucene query of a filter expression from the query compiled for its shape, compiling it if no
+     * transaction did.
+     * @param entityClass The class to search
+     * @param filterExpression The filter expression
+     * @return The Lucene query
+     */
+    private Query buildQuery(Class<?> entityClass, FilterExpression filterExpression) {
+        List<Object> shape = FilterExpressionToLuceneQuery.getShape(entityClass, filterExpression);
+        try {
+            CompiledQuery query = queryCache.getIfPresent(shape);
+            if (query == null) {
+                query = new FilterExpressionToLuceneQuery(em, entityClass, fields).compile(filterExpression);
+                queryCache.put(shape, query);
+            }
+            QueryBuilder builder = em.getSearchFactory().buildQueryBuilder().forEntity(entityClass).get();
+            return query.bind(builder, FilterExpressionToLuceneQuery.getValues(filterExpression));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a query for the IDs of its hits, without loading any entity.
+     * @param entityClass The class to search
+     * @param query The Lucene query
+     * @param sorting Optional sorting
+     * @param pagination Optional pagination.  Page totals are set when requested.
+     * @param maxIds The most IDs to return when not paginated
+     * @return The IDs in hit order, or empty if there are more than maxIds hits.
+     */
+    private Optional<List<Object>> searchIds(Class<?> entityClass, Query query, Optional<Sorting> sorting,
+                                             Optional<Pagination> pagination, int maxIds) {
+        FullTextQuery fullTextQuery = em.createFullTextQuery(query, entityClass);
+
+        if (mustSort(sorting, entityClass)) {
+            fullTextQuery = fullTextQuery.setSort(buildSort(sorting.get(), entityClass));
+        }
+
+        if (pagination.isPresent()) {
+            fullTextQuery = fullTextQuery.setMaxResults(pagination.get().getLimit());
+            fullTextQuery = fullTextQuery.setFirstResult(pagination.get().getOffset());
+        } else if (maxIds < Integer.MAX_VALUE) {
+            fullTextQuery = fullTextQuery.setMaxResults(maxIds + 1);
+        }
+
+        List<Object[]> results = fullTextQuery
+                .setProjection(ProjectionConstants.ID)
+                .getResultList();
+
+        if (pagination.isPresent() && pagination.get().isGenerateTotals()) {
+            pagination.get().setPageTotals(fullTextQuery.getResultSize());
+        }
+
+        if (!pagination.isPresent() && results.size() > maxIds) {
+            return Optional.empty();
+        }
+        return Optional.of(results.stream().map(result -> result[0]).collect(Collectors.toList()));
+    }
+
+    /**
+     * Loads records from the wrapped transaction with a single IN predicate on their IDs.  Without sorting, the
+     * records keep the order of the IDs.
+     * @param entityClass The class to load
+     * @param ids The IDs
+     * @param sorting Optional sorting applied by the wrapped transaction
+     * @param pagination Optional pagination applied by the wrapped transaction
+     * @param requestScope The request scope
+     * @return The records
+     */
+    private List<Object> loadByIds(Class<?> entityClass, List<Object> ids, Optional<Sorting> sorting,
+                                   Optional<Pagination> pagination, RequestScope requestScope) {
+        if (ids.isEmpty()) {
+            pagination.filter(Pagination::isGenerateTotals).ifPresent(page -> page.setPageTotals(0));
+            return Collections.emptyList();
+        }
+
+        FilterExpression idFilter = new InPredicate(new Path.PathElement(entityClass,
+                dictionary.getIdType(entityClass), dictionary.getIdFieldName(entityClass)), ids);
+
+        Iterable<Object> loaded = super.loadObjects(entityClass, Optional.of(idFilter), sorting, pagination,
+                requestScope);
+        if (loaded == null) {
+            return Collections.emptyList();
+        }
+
+        List<Object> records = new ArrayList<>();
+        loaded.forEach(records::add);
+        if (sorting.isPresent()) {
+            return records;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(String.valueOf(ids.get(i)), i);
+        }
+        records.sort(Comparator.comparing(record -> positions.getOrDefault(dictionary.getId(record),
+                Integer.MAX_VALUE)));
+        return records;
+    }
+
+    /**
+     * Requests value counts for every requested attribute.  Lucene collects them while it collects the hits.
+     * @param fullTextQuery The query
+     * @param entityClass The class to search
+     * @param pagination The pagination holding the requested attributes
+     * @return The attributes whose facets were enabled
+     * @throws BadRequestException if a requested attribute has no facet
+     */
+    private List<String> enableFaceting(FullTextQuery fullTextQuery, Class<?> entityClass, Pagination pagination) {
+        if (!pagination.isGenerateFacets()) {
+            return Collections.emptyList();
+        }
+
+        QueryBuilder builder = em.getSearchFactory().buildQueryBuilder().forEntity(entityClass).get();
+        List<String> facets = new ArrayList<>();
+        for (String attribute : pagination.getFacetFields()) {
+            String facetField = fields.getFacetField(entityClass, attribute);
+            if (facetField == null) {
+                throw new BadRequestException(String.format("Attribute %s of %s has no facet", attribute,
+                        dictionary.getJsonAliasFor(entityClass)));
+            }
+
+            fullTextQuery.getFacetManager().enableFaceting(builder.facet()
+                    .name(attribute)
+                    .onField(facetField)
+                    .discrete()
+                    .orderedBy(FacetSortOrder.COUNT_DESC)
+                    .includeZeroCounts(false)
+                    .createFacetingRequest());
+            facets.add(attribute);
+        }
+        return facets;
+    }
 
-        List<Field> fields = new ArrayList<>();
+    /**
+     * Maps the attributes a request needs to the stored index fields holding them.  Besides the sparse fieldset,
+     * a request needs the filtered and sorted attributes, in case they are evaluated again in memory, and the
+     * attributes read by the read permission checks of the entity and of each of those attributes.
+     * @param entityClass The class to search
+     * @param filterExpression The filter expression to apply
+     * @param sorting Optional sorting
+     * @param requestScope The request scope
+     * @return attribute to index field name, or empty if the entity must be loaded: any needed attribute is
+     *         computed, a relationship, or not stored in the index, a permission check may read anything, or
+     *         the entity has read hooks.
+     */
+    private Optional<Map<String, String>> getStoredFieldProjection(Class<?> entityClass,
+                                                                   FilterExpression filterExpression,
+                                                                   Optional<Sorting> sorting,
+                                                                   RequestScope requestScope) {
+        if (requestScope == null) {
+            return Optional.empty();
+        }
+
+        /* Without a sparse fieldset every attribute and relationship is returned */
+        Set<String> sparseFields = requestScope.getSparseFields().get(dictionary.getJsonAliasFor(entityClass));
+        if (sparseFields == null) {
+            return Optional.empty();
+        }
+
+        /* Included relationships are read from the entity */
+        if (requestScope.getQueryParams().map(params -> params.containsKey(INCLUDE)).orElse(false)) {
+            return Optional.empty();
+        }
 
-        Field fieldAnnotation = dictionary.getAttributeOrRelationAnnotation(entityClass, Field.class, fieldName);
+        /* Read hooks may read anything */
+        if (hasReadTriggers(entityClass)) {
+            return Optional.empty();
+        }
+
+        /* Filtered and sorted attributes must be present in case they are evaluated again in memory */
+        List<Path> paths = new ArrayList<>();
+        filterExpression.accept(new PredicateExtractionVisitor()).forEach(predicate -> paths.add(predicate.getPath()));
+        sorting.ifPresent(sort -> paths.addAll(sort.getValidSortingRules(entityClass, dictionary).keySet()));
 
-        if (fieldAnnotation != null) {
-            fields.add(fieldAnnotation);
-        } else {
-            Fields fieldsAnnotation =
-                    dictionary.getAttributeOrRelationAnnotation(entityClass, Fields.class, fieldName);
+        Set<String> needed = new LinkedHashSet<>(sparseFields);
+        for (Path path : paths) {
+            if (path.getPathElements().size() != 1) {
+                return Optional.empty();
+            }
+            needed.add(path.lastElement().get().getFieldName());
+        }
 
-            if (fieldsAnnotation != null) {
-                Arrays.stream(fieldsAnnotation.value()).forEach(fields::add);
+        /* The checks of the entity and of every requested attribute must only read attributes which are stored */
+        Set<String> readByChecks = new HashSet<>();
+        PermissionFieldsVisitor permissions = new PermissionFieldsVisitor(dictionary, entityClass, requestScope,
+                readByChecks);
+        List<ParseTree> checks = new ArrayList<>();
+        checks.add(dictionary.getPermissionsForClass(entityClass, ReadPermission.class));
+        for (String field : needed) {
+            checks.add(dictionary.getPermissionsForField(entityClass, field, ReadPermission.class));
+        }
+        for (ParseTree check : checks) {
+            if (check != null && !permissions.visit(check)) {
+                return Optional.empty();
             }
         }
+        needed.addAll(readByChecks);
+
+        return getStoredFields(entityClass, needed);
+    }
 
-        boolean indexed = false;
+    /**
+     * Maps attributes to the stored index fields holding them.
+     * @param entityClass The entity
+     * @param attributes The attributes
+     * @return attribute to index field name, or empty if any attribute is computed, a relationship, or not stored.
+     */
+    private Optional<Map<String, String>> getStoredFields(Class<?> entityClass, Set<String> attributes) {
+        String idField = dictionary.getIdFieldName(entityClass);
+        Map<String, String> storedFields = new LinkedHashMap<>();
+        for (String attribute : attributes) {
+            if (attribute.equals(idField)) {
+                continue;
+            }
+            String storedField = dictionary.isAttribute(entityClass, attribute)
+                    && !dictionary.isComputed(entityClass, attribute)
+                    ? fields.getStoredField(entityClass, attribute)
+                    : null;
+            if (storedField == null) {
+                return Optional.empty();
+            }
+            storedFields.put(attribute, storedField);
+        }
+        return Optional.of(storedFields);
+    }
 
-        for (Field field : fields) {
-            if (field.index() == Index.YES && (field.name().equals(fieldName) || field.name().isEmpty())) {
-                indexed = true;
+    /**
+     * Whether an entity or any of its fields has a read lifecycle hook.
+     */
+    private boolean hasReadTriggers(Class<?> entityClass) {
+        for (Class<? extends Annotation> trigger : READ_TRIGGERS) {
+            if (!dictionary.getTriggers(entityClass, trigger).isEmpty()) {
+                return true;
+            }
+            for (String field : dictionary.getAllFields(entityClass)) {
+                if (!dictionary.getTriggers(entityClass, trigger, field).isEmpty()) {
+                    return true;
+                }
             }
         }
+        return false;
+    }
+
+    /**
+     * Builds a detached entity from a projected hit.
+     * @param entityClass The entity
+     * @param attributes The projected attributes
+     * @param result The ID followed by the attribute values
+     * @return The entity
+     */
+    private Object fromStoredFields(Class<?> entityClass, List<String> attributes, Object[] result) {
+        Object entity;
+        try {
+            entity = entityClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
 
-        return indexed;
+        dictionary.setValue(entity, dictionary.getIdFieldName(entityClass), result[0]);
+        for (int i = 0; i < attributes.size(); i++) {
+            if (result[i + 1] != null) {
+                dictionary.setValue(entity, attributes.get(i), result[i + 1]);
+            }
+        }
+        return entity;
     }
 
     private DataStoreTransaction.FeatureSupport operatorSupport(Class<?> entityClass, FilterPredicate predicate)
             throws HttpStatusException {
 
         Operator op = predicate.getOperator();
+        Path path = predicate.getPath();
 
-        /* We only support INFIX & PREFIX */
+        /* Text search on analyzed fields, exact matches and ranges on unanalyzed or numeric fields */
         switch (op) {
             case INFIX:
             case INFIX_CASE_INSENSITIVE:
-                return FULL;
-            case PREFIX:
+                return fields.getTextField(path) != null ? FULL : NONE;
             case PREFIX_CASE_INSENSITIVE:
-                return FeatureSupport.PARTIAL;
+                return fields.getTextField(path) != null ? FeatureSupport.PARTIAL : NONE;
+            case PREFIX:
+                if (fields.getTextField(path) != null) {
+                    return FeatureSupport.PARTIAL;
+                }
+                return fields.getKeywordField(path) != null && isString(path) ? FULL : NONE;
+            case IN_INSENSITIVE:
+            case NOT_INSENSITIVE:
+                return fields.getKeywordField(path) != null && fields.isLowerCased(path) ? FULL : NONE;
+            case IN:
+            case NOT:
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                return fields.getKeywordField(path) != null ? FULL : NONE;
             default:
                 return NONE;
         }
     }
+
+    private static boolean isString(Path path) {
+        return path.lastElement().get().getFieldType() == String.class;
+    }
 }
@@ -7,7 +7,11 @@
 package com.yahoo.elide.datastores.search;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -20,11 +24,14 @@ import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.core.datastore.inmemory.InMemoryStoreTransaction;
+import com.yahoo.elide.core.exceptions.BadRequestException;
+import com.yahoo.elide.core.filter.InPredicate;
 import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
 import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.core.sort.Sorting;
 import com.yahoo.elide.datastores.search.models.Item;
+import com.yahoo.elide.datastores.search.models.Manufacturer;
 import com.yahoo.elide.utils.coerce.CoerceUtil;
 import com.yahoo.elide.utils.coerce.converters.ISO8601DateSerde;
 
@@ -35,9 +42,13 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -58,6 +69,7 @@ public class DataStoreLoadTest {
     public DataStoreLoadTest() {
         EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
         dictionary.bindEntity(Item.class);
+        dictionary.bindEntity(Manufacturer.class);
 
         filterParser = new RSQLFilterDialect(dictionary);
 
@@ -203,6 +215,36 @@ public class DataStoreLoadTest {
         verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
     }
 
+    @Test
+    public void testRepeatedQueryAcrossTransactions() throws Exception {
+        String[] filters = {"name==drum*,description==ride*", "name==stand*,description==brass*"};
+        List<List<Long>> expected = Lists.newArrayList(Lists.newArrayList(1L, 2L, 3L), Lists.newArrayList(1L, 4L, 5L));
+
+        for (int i = 0; i < filters.length; i++) {
+            DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+            /* The second transaction binds its own values into the query compiled by the first */
+            FilterExpression filter = filterParser.parseFilterExpression(filters[i], Item.class, false);
+
+            Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+            assertListContains(loaded, expected.get(i));
+        }
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCaseInsensitivePrefixIsNormalized() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==DRUM*", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+        assertListContains(loaded, Lists.newArrayList(1L, 3L));
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
     @Test
     public void testNonIndexedPredicate() throws Exception {
 
@@ -289,6 +331,45 @@ public class DataStoreLoadTest {
         verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
     }
 
+    @Test
+    public void testFacetCounts() throws Exception {
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        Pagination pagination = Pagination.fromOffsetAndLimit(1, 0, false);
+        pagination.setFacetFields(Lists.newArrayList("name"));
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==cymbal*", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.of(pagination), mockScope);
+
+        assertEquals(1, Lists.newArrayList(loaded).size());
+
+        /* Counts cover every hit, not just the page */
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("Cymbal Stand", 2L);
+        expected.put("Ride Cymbal", 1L);
+        assertEquals(Collections.singletonMap("name", expected), pagination.getFacets());
+        assertEquals(Lists.newArrayList(expected.entrySet()),
+                Lists.newArrayList(pagination.getFacets().get("name").entrySet()));
+
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFacetCountsWithoutFacetFail() throws Exception {
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        Pagination pagination = Pagination.fromOffsetAndLimit(1, 0, false);
+        pagination.setFacetFields(Lists.newArrayList("name", "price"));
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==cymbal*", Item.class, false);
+
+        assertThrows(BadRequestException.class, () -> testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.empty(), Optional.of(pagination), mockScope));
+    }
+
     @Test
     public void testPaginationPageTwo() throws Exception {
 
@@ -310,6 +391,165 @@ public class DataStoreLoadTest {
         verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
     }
 
+    @Test
+    public void testRangeAndTextPredicates() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        FilterExpression filter = filterParser.parseFilterExpression("stock>=7;name==*cymbal*", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+        assertListContains(loaded, Lists.newArrayList(4L, 5L));
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testDateRangePredicate() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        FilterExpression filter = filterParser.parseFilterExpression("modifiedDate>2018-01-15T00:00Z", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+        assertListContains(loaded, Lists.newArrayList(4L));
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testEmbeddedInPredicate() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        FilterExpression filter = filterParser.parseFilterExpression(
+                "manufacturer.name=in=(Zildjian,'Acme Percussion');stock<5", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+        assertListContains(loaded, Lists.newArrayList(2L, 3L));
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testEmbeddedNotPredicate() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        FilterExpression filter = filterParser.parseFilterExpression("manufacturer.name!=Zildjian", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+
+        assertListContains(loaded, Lists.newArrayList(1L, 3L, 5L, 6L, 7L));
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testSupportsSortingOnSortableFields() {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+
+        /* The wrapped transaction (a mock) supports neither */
+        assertTrue(testTransaction.supportsSorting(Item.class, Sorting.parseSortRule("-name,modifiedDate")));
+        assertFalse(testTransaction.supportsSorting(Item.class, Sorting.parseSortRule("description")));
+        assertTrue(testTransaction.supportsPagination(Item.class));
+        assertFalse(testTransaction.supportsPagination(Manufacturer.class));
+    }
+
+    @Test
+    public void testSortedPageWithoutFilter() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        when(wrappedTransaction.loadObjects(any(), any(), any(), any(), any())).thenAnswer(this::loadReversed);
+
+        Pagination pagination = Pagination.fromOffsetAndLimit(2, 1, true);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.empty(),
+                Optional.of(Sorting.parseSortRule("-name")), Optional.of(pagination), mockScope);
+
+        /* Lucene orders and pages, the wrapped store loads just the page and the order is restored */
+        assertListMatches(loaded, Lists.newArrayList(7L, 1L));
+        assertEquals(7, pagination.getPageTotals());
+
+        ArgumentCaptor<Optional<FilterExpression>> filter = ArgumentCaptor.forClass(Optional.class);
+        verify(wrappedTransaction, times(1)).loadObjects(eq(Item.class), filter.capture(),
+                eq(Optional.empty()), eq(Optional.empty()), any());
+        assertEquals(Lists.newArrayList(7L, 1L), ((InPredicate) filter.getValue().get()).getValues());
+    }
+
+    @Test
+    public void testSearchedFilterSortedByWrappedStore() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        when(wrappedTransaction.supportsSorting(any(), any())).thenReturn(true);
+        when(wrappedTransaction.supportsPagination(any())).thenReturn(true);
+        when(wrappedTransaction.loadObjects(any(), any(), any(), any(), any())).thenAnswer(this::loadReversed);
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==*cymbal*", Item.class, false);
+        Optional<Sorting> sorting = Optional.of(Sorting.parseSortRule("description"));
+        Optional<Pagination> pagination = Optional.of(Pagination.fromOffsetAndLimit(10, 0, false));
+
+        testTransaction.loadObjects(Item.class, Optional.of(filter), sorting, pagination, mockScope);
+
+        /* Description is not sortable in the index: the wrapped store sorts the matches Lucene found */
+        ArgumentCaptor<Optional<FilterExpression>> idFilter = ArgumentCaptor.forClass(Optional.class);
+        verify(wrappedTransaction, times(1)).loadObjects(eq(Item.class), idFilter.capture(),
+                eq(sorting), eq(pagination), any());
+        List<Object> ids = ((InPredicate) idFilter.getValue().get()).getValues();
+        assertListContains(ids, Lists.newArrayList(2L, 4L, 5L));
+    }
+
+    @Test
+    public void testUnsearchableFilterSortedInMemory() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        when(wrappedTransaction.supportsFiltering(any(), any())).thenReturn(DataStoreTransaction.FeatureSupport.FULL);
+        when(wrappedTransaction.loadObjects(any(), any(), any(), any(), any()))
+                .thenReturn(Lists.newArrayList(item(1L, "Snare Drum"), item(3L, "Bass Drum")));
+
+        FilterExpression filter = filterParser.parseFilterExpression("price>100", Item.class, false);
+
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.of(Sorting.parseSortRule("name")), Optional.empty(), mockScope);
+
+        /* The wrapped store filters; the sort it cannot do is done in memory */
+        assertListMatches(loaded, Lists.newArrayList(3L, 1L));
+        verify(wrappedTransaction, times(1)).loadObjects(eq(Item.class), eq(Optional.of(filter)),
+                eq(Optional.empty()), eq(Optional.empty()), any());
+    }
+
+    @Test
+    public void testRelationSortedAndPagedInMemory() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        when(wrappedTransaction.getRelation(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Lists.newArrayList(item(1L, "Snare Drum"), item(3L, "Bass Drum"), item(2L, "Cymbal")));
+
+        Optional<Sorting> sorting = Optional.of(Sorting.parseSortRule("name"));
+        Pagination pagination = Pagination.fromOffsetAndLimit(2, 0, true);
+
+        /* Sorting and paging Item are claimed, but relationships are read from the wrapped store */
+        assertTrue(testTransaction.supportsSorting(Item.class, sorting.get()));
+        assertTrue(testTransaction.supportsPagination(Item.class));
+        Object loaded = testTransaction.getRelation(testTransaction, new Manufacturer(), "items",
+                Optional.empty(), sorting, Optional.of(pagination), mockScope);
+
+        assertListMatches((Iterable<Object>) loaded, Lists.newArrayList(3L, 2L));
+        assertEquals(3, pagination.getPageTotals());
+        verify(wrappedTransaction, times(1)).getRelation(any(), any(), eq("items"),
+                eq(Optional.empty()), eq(Optional.empty()), eq(Optional.empty()), any());
+    }
+
+    /**
+     * Answers an ID lookup with items in the reverse order of the IDs.
+     */
+    private Object loadReversed(InvocationOnMock invocation) {
+        Optional<FilterExpression> filter = invocation.getArgument(1);
+        List<Object> items = ((InPredicate) filter.get()).getValues().stream()
+                .map(id -> item((Long) id, "Item " + id))
+                .collect(Collectors.toList());
+        Collections.reverse(items);
+        return items;
+    }
+
+    private static Item item(long id, String name) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        return item;
+    }
+
     @Test
     public void testEscapeWhiteSpace() {
         String toReplace = "Foo\tBar Blah\nFoobar";
@@ -331,8 +571,7 @@ public class DataStoreLoadTest {
 
     private void assertListContains(Iterable<Object> actual, List<Long> expectedIds) {
         List<Long> actualIds = StreamSupport.stream(actual.spliterator(), false)
-                .map((obj) -> (Item) obj)
-                .map(Item::getId)
+                .map((obj) -> obj instanceof Item ? ((Item) obj).getId() : (Long) obj)
                 .sorted()
                 .collect(Collectors.toList());
 
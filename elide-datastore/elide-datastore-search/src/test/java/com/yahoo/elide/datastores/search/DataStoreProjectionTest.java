@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.datastores.search.models.Instrument;
+import com.yahoo.elide.datastores.search.models.Item;
+import com.yahoo.elide.datastores.search.models.Manufacturer;
+import com.yahoo.elide.security.checks.Check;
+import com.yahoo.elide.utils.coerce.CoerceUtil;
+import com.yahoo.elide.utils.coerce.converters.ISO8601DateSerde;
+
+import com.google.common.collect.Sets;
+import org.h2.store.fs.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DataStoreProjectionTest {
+
+    private RSQLFilterDialect filterParser;
+    private SearchDataStore searchStore;
+    private DataStoreTransaction wrappedTransaction;
+    private RequestScope mockScope;
+
+    public DataStoreProjectionTest() {
+        Map<String, Class<? extends Check>> checks = new HashMap<>();
+        checks.put("described", Instrument.Described.class);
+        checks.put("priced", Instrument.Priced.class);
+
+        EntityDictionary dictionary = new EntityDictionary(checks);
+        dictionary.bindEntity(Item.class);
+        dictionary.bindEntity(Manufacturer.class);
+        dictionary.bindEntity(Instrument.class);
+
+        filterParser = new RSQLFilterDialect(dictionary);
+
+        DataStore mockStore = mock(DataStore.class);
+        wrappedTransaction = mock(DataStoreTransaction.class);
+        when(mockStore.beginReadTransaction()).thenReturn(wrappedTransaction);
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("searchDataStoreTest");
+
+        searchStore = new SearchDataStore(mockStore, emf, true, 3, 10, true);
+        searchStore.populateEntityDictionary(dictionary);
+
+        mockScope = mock(RequestScope.class);
+        when(mockScope.getDictionary()).thenReturn(dictionary);
+        when(mockScope.getQueryParams()).thenReturn(Optional.empty());
+
+        CoerceUtil.register(Date.class, new ISO8601DateSerde());
+    }
+
+    @BeforeAll
+    public void initialize() {
+        FileUtils.createDirectory("/tmp/lucene");
+    }
+
+    @AfterAll
+    public void cleanup() {
+        FileUtils.deleteRecursive("/tmp/lucene", false);
+    }
+
+    @BeforeEach
+    public void beforeMethods() {
+        reset(wrappedTransaction);
+    }
+
+    @Test
+    public void testStoredFieldsAreProjected() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(
+                Collections.singletonMap("item", Sets.newHashSet("name", "description")));
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("name==*DrU*", Item.class, false);
+
+        List<Item> loaded = load(testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.empty(), Optional.empty(), mockScope));
+
+        assertEquals(2, loaded.size());
+        assertEquals(1L, loaded.get(0).getId());
+        assertEquals("Snare Drum", loaded.get(0).getName());
+        assertEquals("A brass snare drum", loaded.get(0).getDescription());
+
+        /* Price is not stored in the index, so the entity was never loaded from the database */
+        assertNull(loaded.get(0).getPrice());
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testUnstoredFieldLoadsEntities() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(
+                Collections.singletonMap("item", Sets.newHashSet("name", "price")));
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("name==*DrU*", Item.class, false);
+
+        List<Item> loaded = load(testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.empty(), Optional.empty(), mockScope));
+
+        assertEquals(2, loaded.size());
+        assertNotNull(loaded.get(0).getPrice());
+    }
+
+    @Test
+    public void testNoSparseFieldsLoadsEntities() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(Collections.emptyMap());
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("name==*DrU*", Item.class, false);
+
+        List<Item> loaded = load(testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.empty(), Optional.empty(), mockScope));
+
+        assertEquals(2, loaded.size());
+        assertNotNull(loaded.get(0).getPrice());
+        assertNotNull(loaded.get(0).getModifiedDate());
+    }
+
+    @Test
+    public void testFieldsReadByPermissionChecksAreProjected() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(
+                Collections.singletonMap("instrument", Sets.newHashSet("name")));
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("name==*snare*", Instrument.class, false);
+
+        List<Instrument> loaded = load(Instrument.class, testTransaction.loadObjects(Instrument.class,
+                Optional.of(filter), Optional.empty(), Optional.empty(), mockScope));
+
+        assertEquals(1, loaded.size());
+        assertEquals("Snare Drum", loaded.get(0).getName());
+
+        /* The check on the name reads the description, which is stored */
+        assertEquals("A brass snare drum", loaded.get(0).getDescription());
+        assertNull(loaded.get(0).getPrice());
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testPermissionCheckReadingUnstoredFieldLoadsEntities() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(
+                Collections.singletonMap("instrument", Sets.newHashSet("description")));
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("name==*snare*", Instrument.class, false);
+
+        List<Instrument> loaded = load(Instrument.class, testTransaction.loadObjects(Instrument.class,
+                Optional.of(filter), Optional.empty(), Optional.empty(), mockScope));
+
+        /* The check on the description reads the price, which is not stored, so the entity is loaded */
+        assertEquals(1, loaded.size());
+        assertEquals("A brass snare drum", loaded.get(0).getDescription());
+        assertNotNull(loaded.get(0).getPrice());
+    }
+
+    @Test
+    public void testRelationshipFilterLoadsEntities() throws Exception {
+        when(mockScope.getSparseFields()).thenReturn(
+                Collections.singletonMap("item", Sets.newHashSet("name")));
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("manufacturer.name==Zildjian", Item.class, false);
+
+        List<Item> loaded = load(testTransaction.loadObjects(Item.class, Optional.of(filter),
+                Optional.empty(), Optional.empty(), mockScope));
+
+        /* The manufacturer is a relationship, so the entities are loaded */
+        assertFalse(loaded.isEmpty());
+        loaded.forEach(item -> assertNotNull(item.getPrice()));
+    }
+
+    private List<Item> load(Iterable<Object> loaded) {
+        return StreamSupport.stream(loaded.spliterator(), false)
+                .map(Item.class::cast)
+                .sorted(Comparator.comparing(Item::getId))
+                .collect(Collectors.toList());
+    }
+
+    private List<Instrument> load(Class<Instrument> entityClass, Iterable<Object> loaded) {
+        return StreamSupport.stream(loaded.spliterator(), false)
+                .map(entityClass::cast)
+                .sorted(Comparator.comparing(Instrument::getId))
+                .collect(Collectors.toList());
+    }
+}
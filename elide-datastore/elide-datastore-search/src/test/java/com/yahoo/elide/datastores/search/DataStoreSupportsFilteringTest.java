@@ -23,6 +23,7 @@ import com.yahoo.elide.core.filter.FilterPredicate;
 import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
 import com.yahoo.elide.core.filter.expression.FilterExpression;
 import com.yahoo.elide.datastores.search.models.Item;
+import com.yahoo.elide.datastores.search.models.Manufacturer;
 import com.yahoo.elide.utils.coerce.CoerceUtil;
 import com.yahoo.elide.utils.coerce.converters.ISO8601DateSerde;
 import org.h2.store.fs.FileUtils;
@@ -48,6 +49,7 @@ public class DataStoreSupportsFilteringTest {
     public DataStoreSupportsFilteringTest() {
         EntityDictionary dictionary = new EntityDictionary(new HashMap<>());
         dictionary.bindEntity(Item.class);
+        dictionary.bindEntity(Manufacturer.class);
 
         filterParser = new RSQLFilterDialect(dictionary);
 
@@ -177,4 +179,41 @@ public class DataStoreSupportsFilteringTest {
         assertEquals(null, testTransaction.supportsFiltering(Item.class, filter));
         verify(wrappedTransaction, times(1)).supportsFiltering(eq(Item.class), eq(filter));
     }
+
+    @Test
+    public void testRangeOperators() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("stock>5;modifiedDate<2018-01-15T00:00Z",
+                Item.class, false);
+
+        assertEquals(DataStoreTransaction.FeatureSupport.FULL, testTransaction.supportsFiltering(Item.class, filter));
+    }
+
+    @Test
+    public void testEmbeddedEqualityOperator() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("manufacturer.name==Zildjian;name==*cym*",
+                Item.class, false);
+
+        assertEquals(DataStoreTransaction.FeatureSupport.FULL, testTransaction.supportsFiltering(Item.class, filter));
+    }
+
+    @Test
+    public void testNumericEqualityOperator() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("stock=in=(5,7)",
+                Item.class, false);
+
+        assertEquals(DataStoreTransaction.FeatureSupport.FULL, testTransaction.supportsFiltering(Item.class, filter));
+    }
+
+    @Test
+    public void testRangeOnUnindexedField() throws Exception {
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        FilterExpression filter = filterParser.parseFilterExpression("price>5",
+                Item.class, false);
+
+        assertEquals(null, testTransaction.supportsFiltering(Item.class, filter));
+        verify(wrappedTransaction, times(1)).supportsFiltering(eq(Item.class), eq(filter));
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.core.filter.dialect.RSQLFilterDialect;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.datastores.search.models.Item;
+import com.yahoo.elide.datastores.search.models.Manufacturer;
+
+import org.h2.store.fs.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SearchIndexingTest {
+
+    private EntityDictionary dictionary;
+    private RSQLFilterDialect filterParser;
+    private DataStore mockStore;
+    private DataStoreTransaction wrappedTransaction;
+    private EntityManagerFactory emf;
+    private RequestScope mockScope;
+
+    public SearchIndexingTest() {
+        dictionary = new EntityDictionary(new HashMap<>());
+        dictionary.bindEntity(Item.class);
+        dictionary.bindEntity(Manufacturer.class);
+
+        filterParser = new RSQLFilterDialect(dictionary);
+
+        mockStore = mock(DataStore.class);
+        wrappedTransaction = mock(DataStoreTransaction.class);
+        when(mockStore.beginReadTransaction()).thenReturn(wrappedTransaction);
+
+        emf = Persistence.createEntityManagerFactory("searchDataStoreTest");
+
+        mockScope = mock(RequestScope.class);
+        when(mockScope.getDictionary()).thenReturn(dictionary);
+    }
+
+    @BeforeAll
+    public void initialize() {
+        FileUtils.createDirectory("/tmp/lucene");
+    }
+
+    @AfterAll
+    public void cleanup() {
+        FileUtils.deleteRecursive("/tmp/lucene", false);
+    }
+
+    @BeforeEach
+    public void beforeMethods() {
+        reset(wrappedTransaction);
+    }
+
+    @Test
+    public void testAsyncIndexingFallsBackUntilReady() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+
+        SearchDataStore searchStore = new SearchDataStore.Builder(mockStore, emf)
+                .withIndexOnStartup(true)
+                .withNgramSize(3, 10)
+                .withIndexerThreads(2)
+                .withBatchSize(3)
+                .withAsyncIndexing(tasks::add)
+                .build();
+        searchStore.populateEntityDictionary(dictionary);
+
+        assertFalse(searchStore.isIndexReady(Item.class));
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==*DrU*", Item.class, false);
+
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(), Optional.empty(), mockScope);
+        verify(wrappedTransaction, times(1)).loadObjects(any(), any(), any(), any(), any());
+
+        tasks.forEach(Runnable::run);
+        assertTrue(searchStore.isIndexReady(Item.class));
+
+        reset(wrappedTransaction);
+        testTransaction = searchStore.beginReadTransaction();
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(),
+                Optional.empty(), mockScope);
+
+        assertEquals(2, ((List<Object>) loaded).size());
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testIncrementalIndexingPersistsHighWaterMark() throws Exception {
+        Path marks = Files.createTempDirectory("marks");
+        HighWaterMarkStore highWaterMarks = new FileHighWaterMarkStore(marks);
+
+        SearchDataStore searchStore = new SearchDataStore.Builder(mockStore, emf)
+                .withIndexOnStartup(true)
+                .withNgramSize(3, 10)
+                .withIncrementalIndexing(Item.class, "modifiedDate")
+                .withHighWaterMarkStore(highWaterMarks)
+                .build();
+
+        /* The first run rebuilds the whole index */
+        searchStore.populateEntityDictionary(dictionary);
+
+        Date mark = (Date) highWaterMarks.read(Item.class).get();
+        assertEquals(Timestamp.valueOf("2018-02-01 00:00:00").getTime(), mark.getTime());
+
+        /* The second run only reindexes items updated since the mark */
+        searchStore.populateEntityDictionary(dictionary);
+        assertEquals(mark, highWaterMarks.read(Item.class).get());
+
+        FilterExpression filter = filterParser.parseFilterExpression("name==*DrU*", Item.class, false);
+        DataStoreTransaction testTransaction = searchStore.beginReadTransaction();
+        Iterable<Object> loaded = testTransaction.loadObjects(Item.class, Optional.of(filter), Optional.empty(),
+                Optional.empty(), mockScope);
+
+        assertEquals(2, ((List<Object>) loaded).size());
+        verify(wrappedTransaction, never()).loadObjects(any(), any(), any(), any(), any());
+
+        assertFalse(new FileHighWaterMarkStore(marks).read(Manufacturer.class).isPresent());
+    }
+
+    @Test
+    public void testHighWaterMarksAreStoredAsText() throws Exception {
+        Path marks = Files.createTempDirectory("marks");
+        HighWaterMarkStore highWaterMarks = new FileHighWaterMarkStore(marks);
+
+        for (Object mark : Arrays.asList(new Date(1517443200123L), Timestamp.valueOf("2018-02-01 00:00:00.123456789"),
+                Instant.parse("2018-02-01T00:00:00.123Z"), LocalDateTime.parse("2018-02-01T00:00:00"), 42L,
+                new BigDecimal("1517443200.5"))) {
+            highWaterMarks.write(Item.class, mark);
+            assertEquals(mark, highWaterMarks.read(Item.class).get());
+        }
+
+        String file = new String(Files.readAllBytes(marks.resolve(Item.class.getName() + ".hwm")),
+                StandardCharsets.UTF_8);
+        assertTrue(file.contains("value=1517443200.5"));
+
+        /* Marks of other types could not be read back */
+        assertThrows(IllegalArgumentException.class, () -> highWaterMarks.write(Item.class, new Object()));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search.models;
+
+import com.yahoo.elide.annotation.Include;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.Path;
+import com.yahoo.elide.core.filter.FilterPredicate;
+import com.yahoo.elide.core.filter.Operator;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.security.FilterExpressionCheck;
+import com.yahoo.elide.security.RequestScope;
+
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Analyzer;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.Store;
+
+import lombok.Data;
+
+import java.util.Collections;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The items, with read permissions on their attributes.
+ */
+@Entity
+@Table(name = "item")
+@Include(rootLevel = true)
+@Indexed
+@Data
+public class Instrument {
+    @Id
+    private long id;
+
+    @Field(index = Index.YES, analyze = Analyze.YES,
+            store = Store.YES, analyzer = @Analyzer(definition = "case_insensitive"))
+    @ReadPermission(expression = "described")
+    private String name;
+
+    @Field(index = Index.YES, analyze = Analyze.NO, store = Store.YES)
+    @ReadPermission(expression = "priced")
+    private String description;
+
+    private Long price;
+
+    /**
+     * Reads the stored description.
+     */
+    public static class Described extends FilterExpressionCheck<Instrument> {
+        @Override
+        public FilterExpression getFilterExpression(Class<?> entityClass, RequestScope requestScope) {
+            return new FilterPredicate(new Path.PathElement(Instrument.class, String.class, "description"),
+                    Operator.NOTNULL, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Reads the price, which is not in the index.
+     */
+    public static class Priced extends FilterExpressionCheck<Instrument> {
+        @Override
+        public FilterExpression getFilterExpression(Class<?> entityClass, RequestScope requestScope) {
+            return new FilterPredicate(new Path.PathElement(Instrument.class, Long.class, "price"),
+                    Operator.GT, Collections.singletonList(0L));
+        }
+    }
+}
@@ -15,10 +15,12 @@ import org.hibernate.search.annotations.Analyzer;
 import org.hibernate.search.annotations.AnalyzerDef;
 import org.hibernate.search.annotations.DateBridge;
 import org.hibernate.search.annotations.EncodingType;
+import org.hibernate.search.annotations.Facet;
 import org.hibernate.search.annotations.Field;
 import org.hibernate.search.annotations.Fields;
 import org.hibernate.search.annotations.Index;
 import org.hibernate.search.annotations.Indexed;
+import org.hibernate.search.annotations.IndexedEmbedded;
 import org.hibernate.search.annotations.Parameter;
 import org.hibernate.search.annotations.Resolution;
 import org.hibernate.search.annotations.SortableField;
@@ -32,6 +34,7 @@ import java.math.BigDecimal;
 import java.util.Date;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.ManyToOne;
 
 @Entity
 @Include(rootLevel = true)
@@ -53,13 +56,14 @@ public class Item {
     @Fields({
             @Field(name = "name", index = Index.YES,
                     analyze = Analyze.YES, store = Store.NO, analyzer = @Analyzer(definition = "case_insensitive")),
-            @Field(name = "sortName", analyze = Analyze.NO, store = Store.NO, index = Index.YES)
+            @Field(name = "sortName", analyze = Analyze.NO, store = Store.YES, index = Index.YES)
     })
     @SortableField(forField = "sortName")
+    @Facet(forField = "sortName")
     private String name;
 
     @Field(index = Index.YES, analyze = Analyze.YES,
-            store = Store.NO, analyzer = @Analyzer(definition = "case_insensitive"))
+            store = Store.YES, analyzer = @Analyzer(definition = "case_insensitive"))
     private String description;
 
     @Field(index = Index.YES, analyze = Analyze.NO, store = Store.NO)
@@ -68,4 +72,11 @@ public class Item {
     private Date modifiedDate;
 
     private BigDecimal price;
+
+    @Field(index = Index.YES, analyze = Analyze.NO, store = Store.NO)
+    private Integer stock;
+
+    @ManyToOne
+    @IndexedEmbedded(depth = 1)
+    private Manufacturer manufacturer;
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+
+package com.yahoo.elide.datastores.search.models;
+
+import com.yahoo.elide.annotation.Include;
+
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Index;
+import org.hibernate.search.annotations.Normalizer;
+import org.hibernate.search.annotations.NormalizerDef;
+import org.hibernate.search.annotations.Store;
+import org.hibernate.search.annotations.TokenFilterDef;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Set;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+
+@Entity
+@Include(rootLevel = true)
+@Data
+@NormalizerDef(name = "lowercase", filters = @TokenFilterDef(factory = LowerCaseFilterFactory.class))
+public class Manufacturer {
+    @Id
+    private long id;
+
+    @Field(index = Index.YES, analyze = Analyze.NO, store = Store.NO,
+            normalizer = @Normalizer(definition = "lowercase"))
+    private String name;
+
+    @OneToMany(mappedBy = "manufacturer")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Set<Item> items;
+}
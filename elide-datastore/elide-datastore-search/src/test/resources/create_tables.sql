@@ -4,5 +4,13 @@ CREATE TABLE IF NOT EXISTS item
       name VARCHAR(255),
       description VARCHAR(2047),
       modifiedDate TIMESTAMP,
-      price BIGINT
+      price BIGINT,
+      stock INT,
+      manufacturer_id BIGINT
     ) AS SELECT * FROM CSVREAD('classpath:items.csv');
+
+CREATE TABLE IF NOT EXISTS manufacturer
+    (
+      id BIGINT,
+      name VARCHAR(255)
+    ) AS SELECT * FROM CSVREAD('classpath:manufacturers.csv');
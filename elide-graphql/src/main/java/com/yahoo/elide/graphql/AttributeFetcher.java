@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.graphql.containers.MapEntryContainer;
+import com.yahoo.elide.graphql.containers.NonEntityContainer;
+import com.yahoo.elide.graphql.containers.PersistentResourceContainer;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Fetches one attribute of an entity node.  It is bound to its field when the schema is built, so a resolution
+ * is a permission checked read of the attribute.
+ */
+public class AttributeFetcher implements DataFetcher<Object> {
+    private final String attribute;
+    private final Class<?> innerType;
+    private final NonEntityDictionary nonEntityDictionary;
+
+    /**
+     * Constructor.
+     * @param attribute The attribute name
+     * @param innerType The element type when the attribute is a collection, otherwise null
+     * @param nonEntityDictionary The dictionary of the complex attribute types
+     */
+    public AttributeFetcher(String attribute, Class<?> innerType, NonEntityDictionary nonEntityDictionary) {
+        this.attribute = attribute;
+        this.innerType = innerType;
+        this.nonEntityDictionary = nonEntityDictionary;
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) {
+        PersistentResourceContainer source = environment.getSource();
+        return wrap(source.getPersistentResource().getAttribute(attribute), innerType, nonEntityDictionary);
+    }
+
+    /**
+     * Wraps complex attribute values (and maps) in the containers which fetch their fields.
+     * @param value The attribute value
+     * @param innerType The element type when the attribute is a collection, otherwise null
+     * @param nonEntityDictionary The dictionary of the complex attribute types
+     * @return The value to return to GraphQL
+     */
+    public static Object wrap(Object value, Class<?> innerType, NonEntityDictionary nonEntityDictionary) {
+        if (value != null && nonEntityDictionary.hasBinding(value.getClass())) {
+            return new NonEntityContainer(value);
+        }
+
+        if (value instanceof Map) {
+            return ((Map<Object, Object>) value).entrySet().stream()
+                    .map(MapEntryContainer::new)
+                    .collect(Collectors.toList());
+        }
+
+        if (value instanceof Collection && innerType != null && nonEntityDictionary.hasBinding(innerType)) {
+            return ((Collection) value).stream()
+                    .map(NonEntityContainer::new)
+                    .collect(Collectors.toList());
+        }
+
+        return value;
+    }
+}
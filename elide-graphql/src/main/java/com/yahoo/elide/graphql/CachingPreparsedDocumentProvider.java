@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.google.common.cache.Cache;
+
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated GraphQL documents by query text, so repeated operations skip parsing and validation
+ * against the schema.  Documents which fail to parse or validate are not cached.
+ */
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider {
+    private final Cache<String, Object> cache;
+
+    public CachingPreparsedDocumentProvider(Cache<String, Object> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public PreparsedDocumentEntry get(String query, Function<String, PreparsedDocumentEntry> parseAndValidate) {
+        PreparsedDocumentEntry entry = (PreparsedDocumentEntry) cache.getIfPresent(query);
+        if (entry == null) {
+            entry = parseAndValidate.apply(query);
+            if (!entry.hasErrors()) {
+                cache.put(query, entry);
+            }
+        }
+        return entry;
+    }
+}
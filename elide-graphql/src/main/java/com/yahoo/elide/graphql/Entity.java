@@ -32,6 +32,7 @@ public class Entity {
     @Getter private RequestScope requestScope;
     @Getter private Set<Attribute> attributes;
     @Getter private Set<Relationship> relationships;
+    private PersistentResource persistentResource;
 
     /**
      * Class constructor.
@@ -168,11 +169,22 @@ public class Entity {
         }
     }
 
+    /**
+     * Set the resource the entity was upserted or updated as, so it is not loaded again.
+     * @param persistentResource the resource of the entity
+     */
+    public void setPersistentResource(PersistentResource persistentResource) {
+        this.persistentResource = persistentResource;
+    }
+
     /**
      * Convert {@link Entity} to {@link PersistentResource} object.
      * @return {@link PersistentResource} object
      */
     public PersistentResource toPersistentResource() {
+        if (this.persistentResource != null) {
+            return this.persistentResource;
+        }
         return this.data == null ? null : PersistentResource.loadRecord(this.entityClass,
                 getId().orElse(null),
                 this.requestScope);
@@ -31,6 +31,7 @@ public class Environment {
     public final Optional<String> filters;
     public final Optional<String> offset;
     public final Optional<String> first;
+    public final Optional<List<String>> facets;
     public final Object rawSource;
     public final GraphQLContainer container;
 
@@ -48,6 +49,7 @@ public class Environment {
         offset = Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_AFTER));
         first = Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_FIRST));
         sort = Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_SORT));
+        facets = Optional.ofNullable((List<String>) args.get(ModelBuilder.ARGUMENT_FACETS));
 
         parentType = environment.getParentType();
 
@@ -6,11 +6,11 @@
 package com.yahoo.elide.graphql;
 
 import com.yahoo.elide.Elide;
-import com.yahoo.elide.ElideResponse;
 import com.yahoo.elide.resources.DefaultOpaqueUserFunction;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 
 import javax.inject.Inject;
@@ -20,10 +20,13 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * Default endpoint/servlet for using Elide and JSONAPI.
@@ -51,17 +54,43 @@ public class GraphQLEndpoint {
     /**
      * Create handler.
      *
+     * The request runs on the request executor of the Elide settings, when there is one, and the container thread
+     * is released until the response is ready.  The servlet must support asynchronous requests.
+     *
      * @param securityContext security context
      * @param graphQLDocument post data as jsonapi document
-     * @return response
+     * @param asyncResponse the suspended response
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    public Response post(
+    public void post(
             @Context SecurityContext securityContext,
-            String graphQLDocument) {
+            String graphQLDocument,
+            @Suspended AsyncResponse asyncResponse) {
+
+        runner.runStreamingAsync(graphQLDocument, getUser.apply(securityContext))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        asyncResponse.resume(error instanceof CompletionException ? error.getCause() : error);
+                    } else {
+                        asyncResponse.resume(toResponse(response));
+                    }
+                });
+    }
+
+    /**
+     * Runs a request on the calling thread.
+     *
+     * @param securityContext security context
+     * @param graphQLDocument post data as jsonapi document
+     * @return response
+     */
+    public Response post(SecurityContext securityContext, String graphQLDocument) {
+        return toResponse(runner.runStreaming(graphQLDocument, getUser.apply(securityContext)));
+    }
 
-        ElideResponse response = runner.run(graphQLDocument, getUser.apply(securityContext));
-        return Response.status(response.getResponseCode()).entity(response.getBody()).build();
+    private static Response toResponse(GraphQLResponse response) {
+        StreamingOutput body = response::writeTo;
+        return Response.status(response.getResponseCode()).entity(body).build();
     }
 }
@@ -7,13 +7,20 @@ package com.yahoo.elide.graphql;
 
 import com.yahoo.elide.ElideSettings;
 import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.PersistentResource;
 import com.yahoo.elide.core.RequestScope;
 import com.yahoo.elide.security.User;
 
 import lombok.Getter;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import javax.ws.rs.core.MultivaluedHashMap;
 
@@ -23,6 +30,10 @@ import javax.ws.rs.core.MultivaluedHashMap;
 public class GraphQLRequestScope extends RequestScope {
     @Getter private final Map<String, Long> totalRecordCounts = new HashMap<>();
 
+    // Relationship totals counted for every resource of a connection at once, by connection
+    private final Map<Set<PersistentResource>, Map<String, Optional<Map<String, Long>>>> relationshipTotals =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
     public GraphQLRequestScope(DataStoreTransaction transaction,
                                User user,
                                ElideSettings elideSettings) {
@@ -32,4 +43,19 @@ public class GraphQLRequestScope extends RequestScope {
         // Namely, we don't filter or paginate in the data store.
         super("/", null, transaction, user, new MultivaluedHashMap<>(), elideSettings);
     }
+
+    /**
+     * Returns the totals of a relationship of the resources of a connection, counting them the first time.
+     * @param resources The resources of the connection
+     * @param relationship The relationship and its arguments
+     * @param counter Counts the members of the relationship by resource id
+     * @return the totals by resource id, or empty if they cannot be counted together
+     */
+    public Optional<Map<String, Long>> getRelationshipTotals(Set<PersistentResource> resources,
+                                                             String relationship,
+                                                             Supplier<Optional<Map<String, Long>>> counter) {
+        Map<String, Optional<Map<String, Long>>> totals =
+                relationshipTotals.computeIfAbsent(resources, key -> new ConcurrentHashMap<>());
+        return totals.computeIfAbsent(relationship, key -> counter.get());
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response of a GraphQL request whose body is serialized straight to an output stream.
+ * <p>
+ * The execution result is written with the serializers {@link QueryRunner} registers, so errors are rendered by
+ * {@link GraphQLErrorSerializer} as in {@link com.yahoo.elide.ElideResponse} bodies.  The status is final once
+ * writing starts: a failure part way through is logged and rethrown, leaving a truncated body.
+ */
+@Slf4j
+public class GraphQLResponse {
+    @Getter private final int responseCode;
+    private final Object body;
+    private final ObjectWriter writer;
+
+    GraphQLResponse(int responseCode, Object body, ObjectMapper mapper) {
+        this.responseCode = responseCode;
+        this.body = body;
+        this.writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * Writes the body.  The output stream is flushed but not closed.
+     * @param outputStream The stream to write to
+     * @throws IOException if the body cannot be written
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        try {
+            if (body instanceof String) {
+                outputStream.write(((String) body).getBytes(StandardCharsets.UTF_8));
+            } else {
+                writer.writeValue(outputStream, body);
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            log.error("Failed to write GraphQL response", e);
+            throw e;
+        }
+    }
+}
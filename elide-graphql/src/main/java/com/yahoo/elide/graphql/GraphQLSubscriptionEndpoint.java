@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.Elide;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import graphql.ExecutionResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+
+/**
+ * WebSocket endpoint for GraphQL subscriptions, which speaks the {@code graphql-ws} protocol of Apollo's
+ * subscriptions-transport-ws.
+ * <p>
+ * Clients start a subscription with a {@code start} message holding an id and the GraphQL document, receive a
+ * {@code data} message per event and end it with a {@code stop} message.  An event is only fetched once the previous
+ * one was written to the socket, so a slow client holds back its own subscriptions only.  Events it cannot keep up
+ * with are dropped by the {@link com.yahoo.elide.core.LifecycleEventBus}.
+ * <p>
+ * The endpoint is registered with the WebSocket container through {@link #getEndpointConfig(String)}.
+ */
+@Slf4j
+public class GraphQLSubscriptionEndpoint extends Endpoint {
+    public static final String SUBPROTOCOL = "graphql-ws";
+
+    static final String TYPE = "type";
+    static final String ID = "id";
+    static final String PAYLOAD = "payload";
+    static final String CONNECTION_INIT = "connection_init";
+    static final String CONNECTION_ACK = "connection_ack";
+    static final String CONNECTION_ERROR = "connection_error";
+    static final String CONNECTION_TERMINATE = "connection_terminate";
+    static final String START = "start";
+    static final String STOP = "stop";
+    static final String DATA = "data";
+    static final String ERROR = "error";
+    static final String COMPLETE = "complete";
+
+    private static final String CONNECTION = GraphQLSubscriptionEndpoint.class.getName();
+
+    private final QueryRunner runner;
+    private final ObjectMapper mapper;
+    private final Function<Session, Object> getUser;
+
+    public GraphQLSubscriptionEndpoint(Elide elide) {
+        this(elide, Session::getUserPrincipal);
+    }
+
+    /**
+     * Constructor.
+     * @param elide The Elide instance, whose settings should hold a lifecycle event bus
+     * @param getUser Extracts the user of the subscriptions from a WebSocket session
+     */
+    public GraphQLSubscriptionEndpoint(Elide elide, Function<Session, Object> getUser) {
+        this.runner = new QueryRunner(elide);
+        this.mapper = elide.getMapper().getObjectMapper();
+        this.getUser = getUser;
+    }
+
+    /**
+     * Returns the configuration which deploys this endpoint.
+     * @param path The path of the endpoint
+     * @return The configuration
+     */
+    public ServerEndpointConfig getEndpointConfig(String path) {
+        return ServerEndpointConfig.Builder.create(GraphQLSubscriptionEndpoint.class, path)
+                .subprotocols(Collections.singletonList(SUBPROTOCOL))
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(GraphQLSubscriptionEndpoint.this);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        Connection connection = new Connection(session, getUser.apply(session));
+        session.getUserProperties().put(CONNECTION, connection);
+        session.addMessageHandler(connection);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        Connection connection = (Connection) session.getUserProperties().remove(CONNECTION);
+        if (connection != null) {
+            connection.stopAll();
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("GraphQL subscription connection failed", error);
+    }
+
+    /**
+     * The subscriptions of one WebSocket session by operation id.
+     */
+    private class Connection implements MessageHandler.Whole<String> {
+        private final Session session;
+        private final Object user;
+        private final Map<String, Subscription> operations = new ConcurrentHashMap<>();
+
+        Connection(Session session, Object user) {
+            this.session = session;
+            this.user = user;
+        }
+
+        @Override
+        public void onMessage(String text) {
+            JsonNode message;
+            try {
+                message = mapper.readTree(text);
+            } catch (IOException e) {
+                log.debug("Invalid GraphQL subscription message", e);
+                send(CONNECTION_ERROR, null, error("Invalid message"));
+                return;
+            }
+
+            String id = message.hasNonNull(ID) ? message.get(ID).asText() : null;
+            switch (message.path(TYPE).asText()) {
+                case CONNECTION_INIT:
+                    send(CONNECTION_ACK, null, null);
+                    break;
+                case START:
+                    start(id, message.path(PAYLOAD));
+                    break;
+                case STOP:
+                    stop(id);
+                    break;
+                case CONNECTION_TERMINATE:
+                    stopAll();
+                    close();
+                    break;
+                default:
+                    send(ERROR, id, error("Unknown message type: " + message.path(TYPE).asText()));
+            }
+        }
+
+        private void start(String id, JsonNode payload) {
+            if (id == null || operations.containsKey(id)) {
+                send(ERROR, id, error("Subscriptions need a unique id"));
+                return;
+            }
+
+            String document;
+            try {
+                document = mapper.writeValueAsString(payload);
+            } catch (IOException e) {
+                send(ERROR, id, error("Invalid payload"));
+                return;
+            }
+            runner.runSubscription(document, user).subscribe(new OperationSubscriber(id));
+        }
+
+        private void stop(String id) {
+            Subscription subscription = id == null ? null : operations.remove(id);
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        private void stopAll() {
+            operations.keySet().forEach(this::stop);
+        }
+
+        private void close() {
+            try {
+                session.close();
+            } catch (IOException e) {
+                log.debug("Failed to close GraphQL subscription connection", e);
+            }
+        }
+
+        private void send(String type, String id, Object payload) {
+            ObjectNode message = JsonNodeFactory.instance.objectNode();
+            message.put(TYPE, type);
+            if (id != null) {
+                message.put(ID, id);
+            }
+            if (payload != null) {
+                message.set(PAYLOAD, mapper.valueToTree(payload));
+            }
+
+            // Messages of different subscriptions are written one at a time.
+            synchronized (session) {
+                if (!session.isOpen()) {
+                    return;
+                }
+                try {
+                    session.getBasicRemote().sendText(message.toString());
+                } catch (IOException e) {
+                    log.debug("Failed to send GraphQL subscription message", e);
+                }
+            }
+        }
+
+        private ObjectNode error(String message) {
+            return JsonNodeFactory.instance.objectNode().put("message", message);
+        }
+
+        /**
+         * Sends the results of one subscription, requesting each event once the previous one was sent.
+         */
+        private class OperationSubscriber implements Subscriber<ExecutionResult> {
+            private final String id;
+            private Subscription subscription;
+
+            OperationSubscriber(String id) {
+                this.id = id;
+            }
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                operations.put(id, subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ExecutionResult result) {
+                send(DATA, id, result);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                log.debug("GraphQL subscription {} failed", id, error);
+                operations.remove(id);
+                send(ERROR, id, error(error.getMessage()));
+            }
+
+            @Override
+            public void onComplete() {
+                operations.remove(id);
+                send(COMPLETE, id, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.graphql.containers.PersistentResourceContainer;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+
+/**
+ * Fetches the ID of an entity node.
+ */
+public class IdFetcher implements DataFetcher<DeferredId> {
+    @Override
+    public DeferredId get(DataFetchingEnvironment environment) {
+        PersistentResourceContainer source = environment.getSource();
+        return new DeferredId(source.getPersistentResource());
+    }
+}
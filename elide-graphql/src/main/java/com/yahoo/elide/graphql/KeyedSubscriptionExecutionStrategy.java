@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import org.reactivestreams.Publisher;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.SubscriptionExecutionStrategy;
+import io.reactivex.Flowable;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Executes subscriptions like graphql-java, except the data of each event is keyed by the (aliased) name of the
+ * subscription field, as the data of queries is.  graphql-java only returns the value of the field.
+ */
+class KeyedSubscriptionExecutionStrategy extends SubscriptionExecutionStrategy {
+
+    @Override
+    public CompletableFuture<ExecutionResult> execute(ExecutionContext executionContext,
+                                                      ExecutionStrategyParameters parameters) {
+        String key = parameters.fields().keySet().iterator().next();
+
+        return super.execute(executionContext, parameters).thenApply(result -> {
+            if (!(result.getData() instanceof Publisher)) {
+                return result;
+            }
+
+            Publisher<ExecutionResult> events = result.getData();
+            return new ExecutionResultImpl(Flowable.fromPublisher(events)
+                    .map(event -> (ExecutionResult) new ExecutionResultImpl(
+                            Collections.singletonMap(key, event.getData()), event.getErrors(), event.getExtensions())),
+                    result.getErrors(), result.getExtensions());
+        });
+    }
+}
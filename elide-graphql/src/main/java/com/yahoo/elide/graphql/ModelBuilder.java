@@ -11,14 +11,19 @@ import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
 import static graphql.schema.GraphQLInputObjectField.newInputObjectField;
 import static graphql.schema.GraphQLObjectType.newObject;
 
+import com.yahoo.elide.core.CRUDEvent;
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.RelationshipType;
+import com.yahoo.elide.graphql.containers.EdgesContainer;
+import com.yahoo.elide.graphql.containers.NodeContainer;
+import com.yahoo.elide.graphql.containers.SubscriptionEventContainer;
 
 import org.apache.commons.collections4.CollectionUtils;
 
 import graphql.Scalars;
 import graphql.schema.DataFetcher;
 import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLEnumType;
 import graphql.schema.GraphQLInputObjectType;
 import graphql.schema.GraphQLInputType;
 import graphql.schema.GraphQLList;
@@ -29,14 +34,16 @@ import graphql.schema.GraphQLType;
 import graphql.schema.GraphQLTypeReference;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Constructs a GraphQL schema (query and mutation documents) from an Elide EntityDictionary.
+ * Constructs a GraphQL schema (query, mutation and subscription documents) from an Elide EntityDictionary.
  */
 @Slf4j
 public class ModelBuilder {
@@ -48,17 +55,23 @@ public class ModelBuilder {
     public static final String ARGUMENT_FIRST = "first";
     public static final String ARGUMENT_AFTER = "after";
     public static final String ARGUMENT_OPERATION = "op";
+    public static final String ARGUMENT_FACETS = "facets";
 
     private EntityDictionary entityDictionary;
+    private NonEntityDictionary nonEntityDictionary;
     private DataFetcher dataFetcher;
+    private PersistentResourceFetcher resourceFetcher;
     private GraphQLArgument relationshipOpArg;
     private GraphQLArgument idArgument;
     private GraphQLArgument filterArgument;
     private GraphQLArgument pageOffsetArgument;
     private GraphQLArgument pageFirstArgument;
     private GraphQLArgument sortArgument;
+    private GraphQLArgument facetsArgument;
     private GraphQLConversionUtils generator;
     private GraphQLObjectType pageInfoObject;
+    private GraphQLObjectType facetObject;
+    private GraphQLEnumType eventTypeEnum;
 
     private Map<Class<?>, MutableGraphQLInputObjectType> inputObjectRegistry;
     private Map<Class<?>, GraphQLObjectType> queryObjectRegistry;
@@ -68,7 +81,10 @@ public class ModelBuilder {
     private HashMap<String, GraphQLInputType> convertedInputs = new HashMap<>();
 
     /**
-     * Class constructor, constructs the custom arguments to handle mutations
+     * Class constructor, constructs the custom arguments to handle mutations.
+     * <p>
+     * When the data fetcher is a {@link PersistentResourceFetcher}, the ID, attribute and relationship fields of
+     * entity nodes are bound to fetchers specialized for that field.  Any other data fetcher fetches every field.
      * @param entityDictionary elide entity dictionary
      * @param nonEntityDictionary elide non-entity dictionary
      * @param dataFetcher graphQL data fetcher
@@ -78,7 +94,11 @@ public class ModelBuilder {
                         DataFetcher dataFetcher) {
         this.generator = new GraphQLConversionUtils(entityDictionary, nonEntityDictionary);
         this.entityDictionary = entityDictionary;
+        this.nonEntityDictionary = nonEntityDictionary;
         this.dataFetcher = dataFetcher;
+        this.resourceFetcher = dataFetcher instanceof PersistentResourceFetcher
+                ? (PersistentResourceFetcher) dataFetcher
+                : null;
 
         relationshipOpArg = newArgument()
                 .name(ARGUMENT_OPERATION)
@@ -111,6 +131,11 @@ public class ModelBuilder {
                 .type(Scalars.GraphQLString)
                 .build();
 
+        facetsArgument = newArgument()
+                .name(ARGUMENT_FACETS)
+                .type(new GraphQLList(Scalars.GraphQLString))
+                .build();
+
         pageInfoObject = newObject()
                 .name("_pageInfoObject")
                 .field(newFieldDefinition()
@@ -131,6 +156,27 @@ public class ModelBuilder {
                         .type(Scalars.GraphQLLong))
                 .build();
 
+        /* Facets are plain maps read by the default property fetcher */
+        facetObject = newObject()
+                .name("_facetObject")
+                .field(newFieldDefinition()
+                        .name("field")
+                        .type(Scalars.GraphQLString))
+                .field(newFieldDefinition()
+                        .name("value")
+                        .type(Scalars.GraphQLString))
+                .field(newFieldDefinition()
+                        .name("count")
+                        .type(Scalars.GraphQLLong))
+                .build();
+
+        eventTypeEnum = GraphQLEnumType.newEnum()
+                .name("_eventType")
+                .value(CRUDEvent.CRUDAction.CREATE.name(), CRUDEvent.CRUDAction.CREATE)
+                .value(CRUDEvent.CRUDAction.UPDATE.name(), CRUDEvent.CRUDAction.UPDATE)
+                .value(CRUDEvent.CRUDAction.DELETE.name(), CRUDEvent.CRUDAction.DELETE)
+                .build();
+
         inputObjectRegistry = new HashMap<>();
         queryObjectRegistry = new HashMap<>();
         connectionObjectRegistry = new HashMap<>();
@@ -155,9 +201,12 @@ public class ModelBuilder {
         Set<Class<?>> rootClasses =  allClasses.stream().filter(entityDictionary::isRoot).collect(Collectors.toSet());
 
         /*
-         * Walk the object graph (avoiding cycles) and construct the GraphQL input object types.
+         * Walk the object graph (avoiding cycles) once to find every class reachable from the roots.
          */
-        entityDictionary.walkEntityGraph(rootClasses, this::buildInputObjectStub);
+        Set<Class<?>> graphClasses = new LinkedHashSet<>(entityDictionary.walkEntityGraph(rootClasses, clazz -> clazz));
+
+        /* Construct the GraphQL input object types */
+        graphClasses.forEach(this::buildInputObjectStub);
         resolveInputObjectRelationships();
 
         /* Construct root object */
@@ -171,6 +220,7 @@ public class ModelBuilder {
                     .argument(idArgument)
                     .argument(filterArgument)
                     .argument(sortArgument)
+                    .argument(facetsArgument)
                     .argument(pageFirstArgument)
                     .argument(pageOffsetArgument)
                     .argument(buildInputObjectArgument(clazz, true))
@@ -180,15 +230,27 @@ public class ModelBuilder {
         GraphQLObjectType queryRoot = root.build();
         GraphQLObjectType mutationRoot = root.name("_mutation_root").build();
 
-        /*
-         * Walk the object graph (avoiding cycles) and construct the GraphQL output object types.
-         */
-        entityDictionary.walkEntityGraph(rootClasses, this::buildConnectionObject);
+        /* Construct the subscription root, which streams the changes of root entities */
+        GraphQLObjectType.Builder subscriptionRoot = newObject().name("_subscription_root");
+        for (Class<?> clazz : rootClasses) {
+            DataFetcher subscriptionFetcher = resourceFetcher == null
+                    ? dataFetcher
+                    : new SubscriptionFetcher(clazz, resourceFetcher);
+            subscriptionRoot.field(newFieldDefinition()
+                    .name(entityDictionary.getJsonAliasFor(clazz))
+                    .dataFetcher(subscriptionFetcher)
+                    .argument(filterArgument)
+                    .type(buildEventObject(clazz)));
+        }
+
+        /* Construct the GraphQL output object types */
+        graphClasses.forEach(this::buildConnectionObject);
 
         /* Construct the schema */
         GraphQLSchema schema = GraphQLSchema.newSchema()
                 .query(queryRoot)
                 .mutation(mutationRoot)
+                .subscription(subscriptionRoot.build())
                 .build(new HashSet<>(CollectionUtils.union(
                         connectionObjectRegistry.values(),
                         inputObjectRegistry.values()
@@ -220,6 +282,10 @@ public class ModelBuilder {
                         .name("pageInfo")
                         .dataFetcher(dataFetcher)
                         .type(pageInfoObject))
+                .field(newFieldDefinition()
+                        .name("facets")
+                        .dataFetcher(dataFetcher)
+                        .type(new GraphQLList(facetObject)))
                 .build();
 
         connectionObjectRegistry.put(entityClass, connectionObject);
@@ -227,6 +293,26 @@ public class ModelBuilder {
         return connectionObject;
     }
 
+    /**
+     * Builds the GraphQL object of the subscription events of an entity class.
+     *
+     * @param entityClass The class of the changed entities
+     * @return The GraphQL object.
+     */
+    private GraphQLObjectType buildEventObject(Class<?> entityClass) {
+        return newObject()
+                .name("_event__" + entityDictionary.getJsonAliasFor(entityClass))
+                .field(newFieldDefinition()
+                        .name(SubscriptionEventContainer.TYPE)
+                        .dataFetcher(dataFetcher)
+                        .type(eventTypeEnum))
+                .field(newFieldDefinition()
+                        .name(SubscriptionEventContainer.NODE)
+                        .dataFetcher(dataFetcher)
+                        .type(buildQueryObject(entityClass)))
+                .build();
+    }
+
     /**
      * Builds a graphQL output object from an entity class.
      * @param entityClass The class to use to construct the output object.
@@ -249,7 +335,7 @@ public class ModelBuilder {
         /* our id types are DeferredId objects (not Scalars.GraphQLID) */
         builder.field(newFieldDefinition()
                 .name(id)
-                .dataFetcher(dataFetcher)
+                .dataFetcher(resourceFetcher == null ? dataFetcher : new IdFetcher())
                 .type(GraphQLScalars.GRAPHQL_DEFERRED_ID));
 
         for (String attribute : entityDictionary.getAttributes(entityClass)) {
@@ -272,7 +358,7 @@ public class ModelBuilder {
 
             builder.field(newFieldDefinition()
                     .name(attribute)
-                    .dataFetcher(dataFetcher)
+                    .dataFetcher(buildAttributeFetcher(entityClass, attributeClass, attribute))
                     .type((GraphQLOutputType) attributeType)
             );
         }
@@ -286,10 +372,14 @@ public class ModelBuilder {
             String relationshipEntityName = entityDictionary.getJsonAliasFor(relationshipClass);
             RelationshipType type = entityDictionary.getRelationshipType(entityClass, relationship);
 
+            DataFetcher relationshipFetcher = resourceFetcher == null
+                    ? dataFetcher
+                    : new RelationshipFetcher(relationship, resourceFetcher);
+
             if (type.isToOne()) {
                 builder.field(newFieldDefinition()
                                 .name(relationship)
-                                .dataFetcher(dataFetcher)
+                                .dataFetcher(relationshipFetcher)
                                 .argument(relationshipOpArg)
                                 .argument(buildInputObjectArgument(relationshipClass, false))
                                 .type(new GraphQLTypeReference(relationshipEntityName))
@@ -297,10 +387,11 @@ public class ModelBuilder {
             } else {
                 builder.field(newFieldDefinition()
                                 .name(relationship)
-                                .dataFetcher(dataFetcher)
+                                .dataFetcher(relationshipFetcher)
                                 .argument(relationshipOpArg)
                                 .argument(filterArgument)
                                 .argument(sortArgument)
+                                .argument(facetsArgument)
                                 .argument(pageOffsetArgument)
                                 .argument(pageFirstArgument)
                                 .argument(idArgument)
@@ -315,12 +406,29 @@ public class ModelBuilder {
         return queryObject;
     }
 
+    private DataFetcher buildAttributeFetcher(Class<?> entityClass, Class<?> attributeClass, String attribute) {
+        if (resourceFetcher == null) {
+            return dataFetcher;
+        }
+        Class<?> innerType = Collection.class.isAssignableFrom(attributeClass)
+                ? entityDictionary.getParameterizedType(entityClass, attribute)
+                : null;
+        return new AttributeFetcher(attribute, innerType, nonEntityDictionary);
+    }
+
     private GraphQLList buildEdgesObject(String relationName, GraphQLOutputType entityType) {
+        DataFetcher nodeFetcher = resourceFetcher == null
+                ? dataFetcher
+                : environment -> {
+                    EdgesContainer edges = environment.getSource();
+                    return new NodeContainer(edges.getPersistentResource(), edges.getSiblings());
+                };
+
         return new GraphQLList(newObject()
                 .name("_edges__" + relationName)
                 .field(newFieldDefinition()
                         .name("node")
-                        .dataFetcher(dataFetcher)
+                        .dataFetcher(nodeFetcher)
                         .type(entityType))
                 .build());
     }
@@ -21,15 +21,15 @@ import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.core.sort.Sorting;
 import com.yahoo.elide.graphql.containers.ConnectionContainer;
 import com.yahoo.elide.graphql.containers.MapEntryContainer;
+import com.yahoo.elide.graphql.containers.PageInfoContainer;
 
 import com.google.common.collect.Sets;
 
-import org.apache.commons.collections4.IterableUtils;
-
 import graphql.language.Field;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLType;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -37,6 +37,8 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +46,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.MultivaluedHashMap;
@@ -53,16 +57,30 @@ import javax.ws.rs.core.MultivaluedHashMap;
  */
 @Slf4j
 public class PersistentResourceFetcher implements DataFetcher<Object> {
-    private final ElideSettings settings;
-
     @Getter
     private final NonEntityDictionary nonEntityDictionary;
 
-    public PersistentResourceFetcher(ElideSettings settings, NonEntityDictionary nonEntityDictionary) {
-        this.settings = settings;
+    /**
+     * Constructor.  Settings are read from the request scope of each fetch, so the fetcher (and the schema holding
+     * it) can be shared by every Elide instance with the same dictionary.
+     *
+     * @param nonEntityDictionary the dictionary of non entity types
+     */
+    public PersistentResourceFetcher(NonEntityDictionary nonEntityDictionary) {
         this.nonEntityDictionary = nonEntityDictionary;
     }
 
+    /**
+     * Constructor.
+     *
+     * @param settings Not Used
+     * @param nonEntityDictionary the dictionary of non entity types
+     */
+    @Deprecated
+    public PersistentResourceFetcher(ElideSettings settings, NonEntityDictionary nonEntityDictionary) {
+        this(nonEntityDictionary);
+    }
+
     /**
      * Override graphql-java's {@link DataFetcher} get method to execute
      * the mutation and return some sensible output values.
@@ -169,99 +187,206 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
      * @param offset Pagination offset argument
      * @param first Pagination first argument
      * @param filters Filter params
-     * @param generateTotals True if page totals should be generated for this type, false otherwise
+     * @param pageInfo The page information requested for this type
      * @return {@link PersistentResource} object(s)
      */
     public ConnectionContainer fetchObject(Environment context, RequestScope requestScope, Class<?> entityClass,
                                                 Optional<List<String>> ids, Optional<String> sort,
                                                 Optional<String> offset, Optional<String> first,
-                                                Optional<String> filters, boolean generateTotals) {
+                                                Optional<String> filters, PageInfoContainer.Selection pageInfo) {
         EntityDictionary dictionary = requestScope.getDictionary();
         String typeName = dictionary.getJsonAliasFor(entityClass);
 
-        Optional<Pagination> pagination = buildPagination(first, offset, generateTotals);
         Optional<Sorting> sorting = buildSorting(sort);
         Optional<FilterExpression> filter = buildFilter(typeName, filters, requestScope);
 
-        /* fetching a collection */
-        Set<PersistentResource> records = ids.map((idList) -> {
-            /* handle empty list of ids */
-            if (idList.isEmpty()) {
-                throw new BadRequestException("Empty list passed to ids");
-            }
-
-            return PersistentResource.loadRecords(entityClass, idList,
-                    filter, sorting, pagination, requestScope);
-        }).orElseGet(() -> PersistentResource.loadRecords(
-                entityClass, /* Empty list of IDs */ new ArrayList<>(), filter, sorting, pagination, requestScope
-        ));
+        /* handle empty list of ids */
+        if (ids.isPresent() && ids.get().isEmpty()) {
+            throw new BadRequestException("Empty list passed to ids");
+        }
 
-        return new ConnectionContainer(records, pagination, typeName);
+        /* fetching a collection */
+        PageRequest request = new PageRequest(first, offset, context.facets, pageInfo,
+                requestScope.getElideSettings());
+        return fetchPage(entityClass, typeName, request, pagination -> PersistentResource.loadRecords(
+                        entityClass, ids.orElseGet(ArrayList::new), filter, sorting, pagination, requestScope));
     }
 
     /**
      * Fetches a relationship for a top-level entity.
      *
-     * @param context Request context
      * @param parentResource Parent object
      * @param fieldName Field type
      * @param ids List of ids
      * @param offset Pagination offset
      * @param first Pagination first
+     * @param sort Sort by ASC/DESC
      * @param filters Filter string
-     * @param generateTotals True if page totals should be generated for this type, false otherwise
+     * @param facets Fields to count values of
+     * @param pageInfo The page information requested for this type
+     * @param siblings The resources whose relationship is fetched along with the parent's, to count them together
      * @return persistence resource object(s)
      */
-    public Object fetchRelationship(Environment context,
-                                     PersistentResource<?> parentResource,
+    public Object fetchRelationship(PersistentResource<?> parentResource,
                                      String fieldName,
                                      Optional<List<String>> ids,
                                      Optional<String> offset,
                                      Optional<String> first,
                                      Optional<String> sort,
                                      Optional<String> filters,
-                                     boolean generateTotals) {
-        EntityDictionary dictionary = parentResource.getRequestScope().getDictionary();
+                                     Optional<List<String>> facets,
+                                     PageInfoContainer.Selection pageInfo,
+                                     Set<PersistentResource> siblings) {
+        RequestScope requestScope = parentResource.getRequestScope();
+        EntityDictionary dictionary = requestScope.getDictionary();
         Class<?> entityClass = dictionary.getParameterizedType(parentResource.getObject(), fieldName);
         String typeName = dictionary.getJsonAliasFor(entityClass);
+        ElideSettings settings = requestScope.getElideSettings();
 
-        Optional<Pagination> pagination = buildPagination(first, offset, generateTotals);
         Optional<Sorting> sorting = buildSorting(sort);
-        Optional<FilterExpression> filter = buildFilter(typeName, filters, parentResource.getRequestScope());
+        Optional<FilterExpression> filter = buildFilter(typeName, filters, requestScope);
 
-        Set<PersistentResource> relations;
+        PageRequest request = new PageRequest(first, offset, facets, pageInfo, settings);
         if (ids.isPresent()) {
-            relations = parentResource.getRelation(fieldName, ids.get(), filter, sorting, pagination);
-        } else {
-            relations = parentResource.getRelationCheckedFiltered(fieldName,
+            return fetchPage(entityClass, typeName, request,
+                    pagination -> parentResource.getRelation(fieldName, ids.get(), filter, sorting, pagination));
+        }
+
+        /* The totals of every sibling are counted together, when the data store can */
+        Optional<Long> total = pageInfo == PageInfoContainer.Selection.TOTALS
+                ? getSiblingTotal(parentResource, fieldName, filters, filter, siblings)
+                : Optional.empty();
+        if (total.isPresent()) {
+            Optional<Pagination> pagination = Optional.of(buildPagination(first, offset, false, facets, settings)
+                    .orElseGet(() -> Pagination.getDefaultPagination(settings)));
+            Set<PersistentResource> relations = parentResource.getRelationCheckedFiltered(fieldName,
                     filter, sorting, pagination);
+            pagination.get().setPageTotals(total.get());
+            return new ConnectionContainer(relations, pagination, typeName);
+        }
+
+        return fetchPage(entityClass, typeName, request,
+                pagination -> parentResource.getRelationCheckedFiltered(fieldName, filter, sorting, pagination));
+    }
+
+    /**
+     * The page arguments and page information requested for a collection.
+     */
+    @AllArgsConstructor
+    private static class PageRequest {
+        private final Optional<String> first;
+        private final Optional<String> offset;
+        private final Optional<List<String>> facets;
+        private final PageInfoContainer.Selection pageInfo;
+        private final ElideSettings settings;
+    }
+
+    /**
+     * Fetches a page of a collection.  When whether there is a next page is requested without the totals, one more
+     * record than the page holds is fetched instead of counting the records.
+     */
+    private ConnectionContainer fetchPage(Class<?> entityClass,
+                                          String typeName,
+                                          PageRequest request,
+                                          Function<Optional<Pagination>, Set<PersistentResource>> fetcher) {
+        Optional<Pagination> lookAhead = request.pageInfo == PageInfoContainer.Selection.NEXT_PAGE
+                ? buildLookAheadPagination(entityClass, request)
+                : Optional.empty();
+
+        if (!lookAhead.isPresent()) {
+            boolean generateTotals = request.pageInfo == PageInfoContainer.Selection.TOTALS
+                    || request.pageInfo == PageInfoContainer.Selection.NEXT_PAGE;
+            Optional<Pagination> pagination = buildPagination(request.first, request.offset, generateTotals,
+                    request.facets, request.settings);
+            if (!pagination.isPresent() && request.pageInfo != PageInfoContainer.Selection.NONE) {
+                pagination = Optional.of(Pagination.getDefaultPagination(request.settings));
+            }
+            return new ConnectionContainer(fetcher.apply(pagination), pagination, typeName);
+        }
+
+        int limit = lookAhead.get().getLimit() - 1;
+        Set<PersistentResource> page = new LinkedHashSet<>();
+        boolean hasNextPage = false;
+        for (PersistentResource resource : fetcher.apply(lookAhead)) {
+            if (page.size() == limit) {
+                hasNextPage = true;
+                break;
+            }
+            page.add(resource);
+        }
+        return new ConnectionContainer(page, lookAhead, typeName, Optional.of(hasNextPage));
+    }
+
+    /**
+     * Builds the pagination of a page with one more record than requested.
+     * @return the pagination, or empty if no page size is requested or the larger page exceeds the maximum size
+     */
+    private Optional<Pagination> buildLookAheadPagination(Class<?> entityClass, PageRequest request) {
+        Optional<Pagination> requested = Pagination.fromOffsetAndFirst(request.first, request.offset, false,
+                request.settings)
+                .map(pagination -> pagination.evaluate(entityClass));
+        if (!requested.isPresent() || requested.get().getLimit() == Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+
+        Optional<Pagination> lookAhead;
+        try {
+            lookAhead = buildPagination(Optional.of(String.valueOf(requested.get().getLimit() + 1)),
+                    Optional.of(String.valueOf(requested.get().getOffset())), false, request.facets,
+                    request.settings)
+                    .map(pagination -> pagination.evaluate(entityClass));
+        } catch (InvalidValueException e) {
+            return Optional.empty();
+        }
+        return lookAhead;
+    }
+
+    /**
+     * Returns the number of members of a relationship of a resource, counting the relationship of all its siblings
+     * at once the first time it is requested.
+     */
+    private Optional<Long> getSiblingTotal(PersistentResource<?> parentResource,
+                                           String fieldName,
+                                           Optional<String> filters,
+                                           Optional<FilterExpression> filter,
+                                           Set<PersistentResource> siblings) {
+        RequestScope requestScope = parentResource.getRequestScope();
+        if (siblings.size() < 2 || !(requestScope instanceof GraphQLRequestScope)
+                || !parentResource.getRelationshipType(fieldName).isToMany()) {
+            return Optional.empty();
         }
 
-        return new ConnectionContainer(relations, pagination, typeName);
+        String key = fieldName + filters.map(f -> "(" + f + ")").orElse("");
+        return ((GraphQLRequestScope) requestScope)
+                .getRelationshipTotals(siblings, key,
+                        () -> PersistentResource.getRelationTotals(siblings, fieldName, filter, requestScope))
+                .map(totals -> totals.get(parentResource.getId()));
     }
 
     private ConnectionContainer upsertObjects(Environment context) {
         return upsertOrUpdateObjects(
                 context,
-                (entityObject) -> upsertObject(context, entityObject),
+                this::upsertObject,
                 RelationshipOp.UPSERT);
     }
 
     private ConnectionContainer updateObjects(Environment context) {
         return upsertOrUpdateObjects(
                 context,
-                (entityObject) -> updateObject(context, entityObject),
+                this::updateObject,
                 RelationshipOp.UPDATE);
     }
 
     /**
      * handle UPSERT or UPDATE operation
      * @param context Environment encapsulating graphQL's request environment
-     * @param updateFunc controls the behavior of how the update (or upsert) is performed.
+     * @param updateFunc controls the behavior of how the update (or upsert) is performed, given the existing objects
+     *                   of the entity type by id.
      * @return Connection object.
      */
     private ConnectionContainer upsertOrUpdateObjects(Environment context,
-                                                      Executor<?> updateFunc,
+                                                      BiFunction<Entity, Map<String, PersistentResource>,
+                                                              PersistentResource<?>> updateFunc,
                                                       RelationshipOp operation) {
         /* sanity check for id and data argument w UPSERT/UPDATE */
         if (context.ids.isPresent()) {
@@ -296,9 +421,18 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
             entitySet.add(new Entity(parentEntity, input, entityClass, context.requestScope));
         }
 
-        /* apply function to upsert/update the object */
+        /* collect the entities of the whole graph, parents before their relationships */
+        List<Entity> entities = new ArrayList<>();
         for (Entity entity : entitySet) {
-            graphWalker(entity, updateFunc);
+            graphWalker(entity, entities::add);
+        }
+
+        /* apply function to upsert/update the object */
+        Map<Class<?>, Map<String, PersistentResource>> existingObjects =
+                loadExistingObjects(entities, operation, context.requestScope);
+        for (Entity entity : entities) {
+            entity.setPersistentResource(updateFunc.apply(entity,
+                    existingObjects.computeIfAbsent(entity.getEntityClass(), key -> new HashMap<>())));
         }
 
         /* fixup relationships */
@@ -320,6 +454,37 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
         return new ConnectionContainer(resources, Optional.empty(), entityName);
     }
 
+    /**
+     * Loads the existing objects of the entities which have an id with one query per entity type, rather than one per
+     * entity.  Permission checks which only depend on the user are evaluated once per type as well.
+     * @param entities The entities of the data argument
+     * @param operation UPSERT or UPDATE. UPDATE fails when any object does not exist
+     * @param requestScope The request scope
+     * @return The existing objects by entity type and id
+     */
+    private Map<Class<?>, Map<String, PersistentResource>> loadExistingObjects(List<Entity> entities,
+                                                                           RelationshipOp operation,
+                                                                           RequestScope requestScope) {
+        Map<Class<?>, Set<String>> idsByType = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            entity.getId().ifPresent(id ->
+                    idsByType.computeIfAbsent(entity.getEntityClass(), key -> new LinkedHashSet<>()).add(id));
+        }
+
+        Map<Class<?>, Map<String, PersistentResource>> existingObjects = new HashMap<>();
+        idsByType.forEach((entityClass, ids) -> {
+            Map<String, PersistentResource> loaded =
+                    PersistentResource.loadExistingRecords(entityClass, ids, requestScope);
+            if (operation == RelationshipOp.UPDATE && loaded.size() < ids.size()) {
+                Set<String> missedIds = Sets.difference(ids, loaded.keySet());
+                throw new InvalidObjectIdentifierException(missedIds.toString(),
+                        requestScope.getDictionary().getJsonAliasFor(entityClass));
+            }
+            existingObjects.put(entityClass, loaded);
+        });
+        return existingObjects;
+    }
+
     /**
      * A function to handle upserting (update/create) objects.
      */
@@ -377,11 +542,11 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
 
     /**
      * updates or creates existing/new entities
-     * @param context request context
      * @param entity Resource entity
+     * @param existingObjects The existing objects of the entity type by id, which objects created here are added to
      * @return {@link PersistentResource} object
      */
-    private PersistentResource<?> upsertObject(Environment context, Entity entity) {
+    private PersistentResource<?> upsertObject(Entity entity, Map<String, PersistentResource> existingObjects) {
         Set<Entity.Attribute> attributes = entity.getAttributes();
         Optional<String> id = entity.getId();
         RequestScope requestScope = entity.getRequestScope();
@@ -400,46 +565,28 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
                     entity.getEntityClass(),
                     requestScope,
                     id);
+        } else if (existingObjects.containsKey(id.get())) {
+            upsertedResource = existingObjects.get(id.get());
         } else {
-            try {
-                Set<PersistentResource> loadedResource = fetchObject(context, requestScope, entity.getEntityClass(),
-                        Optional.of(Arrays.asList(id.get())),
-                        Optional.empty(),
-                        Optional.empty(),
-                        Optional.empty(),
-                        Optional.empty(),
-                        false).getPersistentResources();
-                upsertedResource = IterableUtils.first(loadedResource);
-
             //The ID doesn't exist yet.  Let's create the object.
-            } catch (InvalidObjectIdentifierException | InvalidValueException e) {
-                upsertedResource = PersistentResource.createObject(parentResource,
-                        entity.getEntityClass(),
-                        requestScope,
-                        id);
-            }
+            upsertedResource = PersistentResource.createObject(parentResource,
+                    entity.getEntityClass(),
+                    requestScope,
+                    id);
+            existingObjects.put(id.get(), upsertedResource);
         }
 
         return updateAttributes(upsertedResource, entity, attributes);
     }
 
-    private PersistentResource<?> updateObject(Environment context, Entity entity) {
+    private PersistentResource<?> updateObject(Entity entity, Map<String, PersistentResource> existingObjects) {
         Set<Entity.Attribute> attributes = entity.getAttributes();
         Optional<String> id = entity.getId();
-        RequestScope requestScope = entity.getRequestScope();
-        PersistentResource<?> updatedResource;
 
         if (!id.isPresent()) {
             throw new BadRequestException("UPDATE data objects must include ids");
         }
-        Set<PersistentResource> loadedResource = fetchObject(context, requestScope, entity.getEntityClass(),
-            Optional.of(Arrays.asList(id.get())),
-            Optional.empty(),
-            Optional.empty(),
-            Optional.empty(),
-            Optional.empty(),
-            false).getPersistentResources();
-        updatedResource = IterableUtils.first(loadedResource);
+        PersistentResource<?> updatedResource = existingObjects.get(id.get());
 
         return updateAttributes(updatedResource, entity, attributes);
     }
@@ -566,8 +713,20 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
 
     private Optional<Pagination> buildPagination(Optional<String> first,
                                                  Optional<String> offset,
-                                                 boolean generateTotals) {
-        return Pagination.fromOffsetAndFirst(first, offset, generateTotals, settings);
+                                                 boolean generateTotals,
+                                                 Optional<List<String>> facets,
+                                                 ElideSettings settings) {
+        Optional<Pagination> pagination = Pagination.fromOffsetAndFirst(first, offset, generateTotals, settings);
+        if (!facets.isPresent() || facets.get().isEmpty()) {
+            return pagination;
+        }
+
+        /* Facets are returned with the page, like totals.  A default page would silently truncate the connection */
+        if (!first.isPresent()) {
+            throw new BadRequestException("Facets can only be requested with pagination: set the first argument");
+        }
+        pagination.get().setFacetFields(facets.get());
+        return pagination;
     }
 
     private Optional<Sorting> buildSorting(Optional<String> sort) {
@@ -586,9 +745,9 @@ public class PersistentResourceFetcher implements DataFetcher<Object> {
         };
     }
 
-    private Optional<FilterExpression> buildFilter(String typeName,
-                                                   Optional<String> filter,
-                                                   RequestScope requestScope) {
+    Optional<FilterExpression> buildFilter(String typeName,
+                                           Optional<String> filter,
+                                           RequestScope requestScope) {
         // TODO: Refactor FilterDialect interfaces to accept string or List<String> instead of (or in addition to?)
         // query params.
         return filter.map(filterStr -> {
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.annotation.Paginate;
+import com.yahoo.elide.annotation.QueryCost;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.RequestScope;
+import com.yahoo.elide.security.User;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.analysis.QueryTraversal;
+import graphql.analysis.QueryVisitorEnvironment;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.NoOpInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLModifiedType;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Estimates the cost of a GraphQL operation from the Elide schema before it runs, rejects operations which exceed
+ * the budget of their user and reports the cost in the {@code extensions} of the response.
+ * <p>
+ * Each entity an operation may read costs the weight of its {@link QueryCost} annotation, or 1.  A connection costs
+ * its page size times the cost of one of its nodes.  The page size is the number of {@code ids}, else the value of
+ * {@code first}, else the default page size of the entity.  To-one relationships have a page size of 1.
+ * <p>
+ * The cost is computed when the operation starts executing, so it is enforced for documents taken from the
+ * document cache as well.
+ */
+@Slf4j
+public class QueryCostInstrumentation extends NoOpInstrumentation {
+    public static final String COST = "cost";
+    public static final String ESTIMATED = "estimated";
+    public static final String BUDGET = "budget";
+
+    private final EntityDictionary dictionary;
+    private final int defaultPageSize;
+    private final Function<User, Long> budget;
+
+    public QueryCostInstrumentation(ElideSettings settings) {
+        this(settings.getDictionary(), settings.getDefaultPageSize(), settings.getGraphQLQueryCostBudget());
+    }
+
+    /**
+     * Constructor.
+     * @param dictionary The entity dictionary the schema was built from
+     * @param defaultPageSize The page size of entities without a {@link Paginate} annotation
+     * @param budget The maximum cost of an operation by user.  Null (or a null budget) only reports the cost.
+     */
+    public QueryCostInstrumentation(EntityDictionary dictionary, int defaultPageSize, Function<User, Long> budget) {
+        this.dictionary = dictionary;
+        this.defaultPageSize = defaultPageSize;
+        this.budget = budget;
+    }
+
+    /**
+     * Estimated cost and budget of one execution.
+     */
+    private static class CostState implements InstrumentationState {
+        private Long cost;
+        private Long budget;
+    }
+
+    @Override
+    public InstrumentationState createState() {
+        return new CostState();
+    }
+
+    @Override
+    public ExecutionContext instrumentExecutionContext(ExecutionContext executionContext,
+                                                       InstrumentationExecutionParameters parameters) {
+        CostState state = parameters.getInstrumentationState();
+
+        state.cost = getCost(new QueryTraversal(executionContext.getGraphQLSchema(), executionContext.getDocument(),
+                parameters.getOperation(), executionContext.getVariables()));
+        state.budget = getBudget(executionContext.getContext());
+
+        log.debug("Estimated GraphQL operation cost {} against budget {}", state.cost, state.budget);
+
+        if (state.budget != null && state.cost > state.budget) {
+            throw new AbortExecutionException(
+                    "Query cost " + state.cost + " exceeds the budget of " + state.budget);
+        }
+        return executionContext;
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult,
+                                                                        InstrumentationExecutionParameters parameters) {
+        CostState state = parameters.getInstrumentationState();
+        if (state == null || state.cost == null) {
+            return CompletableFuture.completedFuture(executionResult);
+        }
+
+        Map<String, Object> cost = new LinkedHashMap<>();
+        cost.put(ESTIMATED, state.cost);
+        if (state.budget != null) {
+            cost.put(BUDGET, state.budget);
+        }
+
+        Map<Object, Object> extensions = new LinkedHashMap<>();
+        if (executionResult.getExtensions() != null) {
+            extensions.putAll(executionResult.getExtensions());
+        }
+        extensions.put(COST, cost);
+
+        return CompletableFuture.completedFuture(new ExecutionResultImpl(executionResult.getData(),
+                executionResult.getErrors(), extensions));
+    }
+
+    /**
+     * Computes the estimated cost of an operation.
+     * @param traversal The traversal of the operation
+     * @return The cost
+     */
+    public long getCost(QueryTraversal traversal) {
+        Map<QueryVisitorEnvironment, Long> childCosts = new HashMap<>();
+        long[] total = new long[1];
+
+        traversal.visitPostOrder(environment -> {
+            long cost = getFieldCost(environment, childCosts.getOrDefault(environment, 0L));
+            if (environment.getParentEnvironment() == null) {
+                total[0] = add(total[0], cost);
+            } else {
+                childCosts.merge(environment.getParentEnvironment(), cost, QueryCostInstrumentation::add);
+            }
+        });
+
+        return total[0];
+    }
+
+    private long getFieldCost(QueryVisitorEnvironment environment, long childCost) {
+        Class<?> entityClass = getConnectionEntity(environment.getFieldDefinition());
+        if (entityClass == null) {
+            return childCost;
+        }
+
+        QueryCost queryCost = dictionary.getAnnotation(entityClass, QueryCost.class);
+        long weight = queryCost == null ? 1 : queryCost.weight();
+
+        return multiply(getPageSize(environment, entityClass), add(weight, childCost));
+    }
+
+    /**
+     * Returns the entity of a field which holds an Elide connection.
+     */
+    private Class<?> getConnectionEntity(GraphQLFieldDefinition fieldDefinition) {
+        GraphQLType type = fieldDefinition.getType();
+        while (type instanceof GraphQLModifiedType) {
+            type = ((GraphQLModifiedType) type).getWrappedType();
+        }
+
+        if (!(type instanceof GraphQLObjectType) || ((GraphQLObjectType) type).getFieldDefinition("edges") == null) {
+            return null;
+        }
+        return dictionary.getEntityClass(type.getName());
+    }
+
+    private long getPageSize(QueryVisitorEnvironment environment, Class<?> entityClass) {
+        Map<String, Object> arguments = environment.getArguments();
+
+        Object ids = arguments.get(ModelBuilder.ARGUMENT_IDS);
+        if (ids instanceof List) {
+            return ((List<?>) ids).size();
+        }
+
+        Object data = arguments.get(ModelBuilder.ARGUMENT_DATA);
+        if (data instanceof List) {
+            return ((List<?>) data).size();
+        }
+
+        if (environment.getFieldDefinition().getArgument(ModelBuilder.ARGUMENT_FIRST) == null) {
+            return 1;
+        }
+
+        Object first = arguments.get(ModelBuilder.ARGUMENT_FIRST);
+        if (first != null) {
+            try {
+                return Long.parseLong(first.toString());
+            } catch (NumberFormatException e) {
+                // Rejected when the operation is fetched.
+            }
+        }
+
+        Paginate paginate = dictionary.getAnnotation(entityClass, Paginate.class);
+        return paginate == null ? defaultPageSize : paginate.defaultLimit();
+    }
+
+    private Long getBudget(Object context) {
+        if (budget == null) {
+            return null;
+        }
+
+        User user = context instanceof RequestScope ? ((RequestScope) context).getUser() : null;
+        return budget.apply(user);
+    }
+
+    private static long add(long left, long right) {
+        try {
+            return Math.addExact(left, right);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long multiply(long left, long right) {
+        try {
+            return Math.multiplyExact(left, right);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
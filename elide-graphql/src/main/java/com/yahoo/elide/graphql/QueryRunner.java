@@ -7,9 +7,12 @@ package com.yahoo.elide.graphql;
 
 import com.yahoo.elide.Elide;
 import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.ElideSettings;
 import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.ErrorObjects;
 import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.exceptions.BadRequestException;
 import com.yahoo.elide.core.exceptions.CustomErrorException;
 import com.yahoo.elide.core.exceptions.ForbiddenAccessException;
 import com.yahoo.elide.core.exceptions.HttpStatusException;
@@ -22,25 +25,47 @@ import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.hash.Hashing;
 
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.owasp.encoder.Encode;
+import org.reactivestreams.Publisher;
 
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.GraphQLError;
+import graphql.GraphQLException;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.language.Document;
+import graphql.language.NodeUtil;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaPrinter;
+import graphql.validation.ValidationError;
+import graphql.validation.Validator;
+import io.reactivex.Flowable;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 
@@ -50,12 +75,25 @@ import javax.ws.rs.core.Response;
 @Slf4j
 public class QueryRunner {
     private final Elide elide;
+    private final Cache<String, String> persistedQueries;
+    private final GraphQLSchema schema;
+    private final CachingPreparsedDocumentProvider documentProvider;
     private GraphQL api;
 
+    /**
+     * Schemas by dictionary, shared by the runners of every Elide instance built on the same dictionary.
+     */
+    private static final Map<EntityDictionary, GraphQLSchema> SCHEMAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private static final String QUERY = "query";
     private static final String OPERATION_NAME = "operationName";
     private static final String VARIABLES = "variables";
-    private static final String MUTATION = "mutation";
+    private static final String EXTENSIONS = "extensions";
+    private static final String PERSISTED_QUERY = "persistedQuery";
+    private static final String SHA256_HASH = "sha256Hash";
+    private static final String PERSISTED_QUERY_NOT_FOUND = "PersistedQueryNotFound";
+    private static final String PERSISTED_QUERY_NOT_SUPPORTED = "PersistedQueryNotSupported";
 
     /**
      * Builds a new query runner.
@@ -64,12 +102,20 @@ public class QueryRunner {
     public QueryRunner(Elide elide) {
         this.elide = elide;
 
-        NonEntityDictionary nonEntityDictionary = new NonEntityDictionary();
-        PersistentResourceFetcher fetcher = new PersistentResourceFetcher(elide.getElideSettings(),
-                nonEntityDictionary);
-        ModelBuilder builder = new ModelBuilder(elide.getElideSettings().getDictionary(), nonEntityDictionary, fetcher);
+        this.schema = getSchema(elide.getElideSettings().getDictionary());
 
-        this.api = new GraphQL(builder.build());
+        GraphQL.Builder api = GraphQL.newGraphQL(schema)
+                .subscriptionExecutionStrategy(new KeyedSubscriptionExecutionStrategy());
+        Cache<String, Object> documentCache = elide.getElideSettings().getGraphQLDocumentCache();
+        this.documentProvider = documentCache == null ? null : new CachingPreparsedDocumentProvider(documentCache);
+        if (documentProvider != null) {
+            api.preparsedDocumentProvider(documentProvider);
+        }
+        if (elide.getElideSettings().getGraphQLQueryCostBudget() != null) {
+            api.instrumentation(new QueryCostInstrumentation(elide.getElideSettings()));
+        }
+        this.api = api.build();
+        this.persistedQueries = elide.getElideSettings().getGraphQLPersistedQueries();
 
         // TODO - add serializers to allow for custom handling of ExecutionResult and GraphQLError objects
         GraphQLErrorSerializer errorSerializer =
@@ -80,6 +126,28 @@ public class QueryRunner {
         elide.getElideSettings().getMapper().getObjectMapper().registerModule(module);
     }
 
+    /**
+     * Returns the GraphQL schema of a dictionary, which is built the first time it is requested.
+     * @param dictionary The entity dictionary.
+     * @return The schema.
+     */
+    public static GraphQLSchema getSchema(EntityDictionary dictionary) {
+        return SCHEMAS.computeIfAbsent(dictionary, key -> {
+            NonEntityDictionary nonEntityDictionary = new NonEntityDictionary();
+            return new ModelBuilder(key, nonEntityDictionary, new PersistentResourceFetcher(nonEntityDictionary))
+                    .build();
+        });
+    }
+
+    /**
+     * Returns the schema definition (SDL) of the GraphQL API, for instance to publish it as a build artifact
+     * which clients generate code from.
+     * @return The schema definition.
+     */
+    public String getSchemaDefinition() {
+        return new SchemaPrinter().print(schema);
+    }
+
     /**
      * Execute a GraphQL query and return the response.
      * @param graphQLDocument The graphQL document (wrapped in JSON payload).
@@ -88,7 +156,98 @@ public class QueryRunner {
      */
     public ElideResponse run(String graphQLDocument, Object user) {
         ObjectMapper mapper = elide.getMapper().getObjectMapper();
+        OperationResult result = execute(mapper, graphQLDocument, user);
+
+        if (result.body instanceof List) {
+            try {
+                return ElideResponse.builder()
+                        .responseCode(result.responseCode)
+                        .body(mapper.writeValueAsString(result.body))
+                        .build();
+            } catch (IOException e) {
+                log.error("An unexpected error occurred trying to serialize array response.", e);
+                return ElideResponse.builder()
+                        .responseCode(HttpStatus.SC_INTERNAL_SERVER_ERROR)
+                        .build();
+            }
+        }
+
+        return toResponse(mapper, graphQLDocument, result);
+    }
+
+    /**
+     * Execute a GraphQL query and return a response which is serialized as it is written, without building the
+     * whole body in memory first.
+     * @param graphQLDocument The graphQL document (wrapped in JSON payload).
+     * @param user The user who issued the query.
+     * @return The response.
+     */
+    public GraphQLResponse runStreaming(String graphQLDocument, Object user) {
+        ObjectMapper mapper = elide.getMapper().getObjectMapper();
+        OperationResult result = execute(mapper, graphQLDocument, user);
+        return new GraphQLResponse(result.responseCode, result.body, mapper);
+    }
+
+    /**
+     * Execute a GraphQL query on the request executor of the Elide settings, or on the calling thread when there
+     * is none, and complete with a response which is serialized as it is written.
+     * @param graphQLDocument The graphQL document (wrapped in JSON payload).
+     * @param user The user who issued the query.
+     * @return The future response.
+     */
+    public CompletableFuture<GraphQLResponse> runStreamingAsync(String graphQLDocument, Object user) {
+        ExecutorService executor = elide.getElideSettings().getGraphQLRequestExecutor();
+        if (executor == null) {
+            CompletableFuture<GraphQLResponse> response = new CompletableFuture<>();
+            try {
+                response.complete(runStreaming(graphQLDocument, user));
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+            }
+            return response;
+        }
+        return CompletableFuture.supplyAsync(() -> runStreaming(graphQLDocument, user), executor);
+    }
+
+    /**
+     * Starts a GraphQL subscription.  The subscription is set up in a read transaction, and each of its events is
+     * fetched in a read transaction of its own once it is requested.  Nothing happens until the returned publisher
+     * is subscribed to.
+     * @param graphQLDocument The graphQL document (wrapped in JSON payload) holding the subscription.
+     * @param user The user who subscribed.
+     * @return The results of the events.  Subscriptions which cannot be set up publish a single result holding
+     * their errors, or fail.
+     */
+    public Publisher<ExecutionResult> runSubscription(String graphQLDocument, Object user) {
+        ObjectMapper mapper = elide.getMapper().getObjectMapper();
+        try (DataStoreTransaction tx = elide.getDataStore().beginReadTransaction()) {
+            JsonNode jsonDocument = mapper.readTree(graphQLDocument);
+            GraphQLRequestScope requestScope =
+                    new GraphQLRequestScope(tx, tx.accessUser(user), elide.getElideSettings());
+
+            String query = resolveQuery(mapper, jsonDocument);
+            if (isMutation(jsonDocument, query)) {
+                throw new BadRequestException("Mutations are not supported in subscriptions");
+            }
+
+            ExecutionResult result = api.execute(buildExecutionInput(mapper, requestScope, jsonDocument, query));
+            if (result.getData() instanceof Publisher) {
+                return result.getData();
+            }
+            return Flowable.just(result);
+        } catch (IOException e) {
+            log.debug("Invalid GraphQL subscription", e);
+            return Flowable.error(new InvalidEntityBodyException(graphQLDocument));
+        } catch (WebApplicationException | HttpStatusException e) {
+            return Flowable.error(e);
+        }
+    }
 
+    /**
+     * Executes a request, which holds one operation or a batch (array) of operations.  The result of a batch is
+     * the list of its operation results.
+     */
+    private OperationResult execute(ObjectMapper mapper, String graphQLDocument, Object user) {
         JsonNode topLevel;
 
         try {
@@ -97,171 +256,398 @@ public class QueryRunner {
             log.debug("Invalid json body provided to GraphQL", e);
             // NOTE: Can't get at isVerbose setting here for hardcoding to false. If necessary, we can refactor
             // so this can be set appropriately.
-            return buildErrorResponse(new InvalidEntityBodyException(graphQLDocument), false);
+            return buildErrorResult(new InvalidEntityBodyException(graphQLDocument), false);
         }
 
-        Function<JsonNode, ElideResponse> executeRequest =
-                (node) -> executeGraphQLRequest(mapper, user, graphQLDocument, node);
-
         if (topLevel.isArray()) {
-            Iterator<JsonNode> nodeIterator = topLevel.iterator();
-            Iterable<JsonNode> nodeIterable = () -> nodeIterator;
-            // NOTE: Create a non-parallel stream
-            // It's unclear whether or not the expectations of the caller would be that requests are intended
-            // to run serially even outside of a single transaction. We should revisit this.
-            Stream<JsonNode> nodeStream = StreamSupport.stream(nodeIterable.spliterator(), false);
-            ArrayNode result = nodeStream
-                    .map(executeRequest)
-                    .map(response -> {
-                        try {
-                            return mapper.readTree(response.getBody());
-                        } catch (IOException e) {
-                            log.debug("Caught an IO exception while trying to read response body");
-                            return JsonNodeFactory.instance.objectNode();
-                        }
-                    })
-                    .reduce(JsonNodeFactory.instance.arrayNode(),
-                            (arrayNode, node) -> arrayNode.add(node),
-                            (left, right) -> left.addAll(right));
+            List<JsonNode> operations = new ArrayList<>();
+            topLevel.forEach(operations::add);
+
+            // The results are combined as objects and serialized once.
+            List<Object> results = executeBatch(mapper, user, graphQLDocument, operations).stream()
+                    .map(result -> toBatchEntry(mapper, result))
+                    .collect(Collectors.toList());
+            return new OperationResult(HttpStatus.SC_OK, results);
+        }
+
+        return executeGraphQLRequest(mapper, user, graphQLDocument, topLevel);
+    }
+
+    /**
+     * Executes the operations of a batch.  By default every operation runs after the previous one in its own
+     * transaction.  When the batch only holds queries, they either share a single read transaction or run
+     * concurrently on the batch executor, as configured in {@link com.yahoo.elide.ElideSettings}.
+     */
+    private List<OperationResult> executeBatch(ObjectMapper mapper, Object principal,
+                                               String graphQLDocument, List<JsonNode> operations) {
+        ElideSettings settings = elide.getElideSettings();
+        boolean readOnly = operations.stream().allMatch(this::isReadOnly);
+
+        if (readOnly && settings.isGraphQLBatchSharedTransaction()) {
+            return executeInSharedTransaction(mapper, principal, graphQLDocument, operations);
+        }
+
+        ExecutorService executor = settings.getGraphQLBatchExecutor();
+        if (readOnly && executor != null && operations.size() > 1) {
+            List<CompletableFuture<OperationResult>> futures = operations.stream()
+                    .map(operation -> CompletableFuture.supplyAsync(
+                            () -> executeGraphQLRequest(mapper, principal, graphQLDocument, operation), executor))
+                    .collect(Collectors.toList());
             try {
-                return ElideResponse.builder()
-                        .responseCode(HttpStatus.SC_OK)
-                        .body(mapper.writeValueAsString(result))
-                        .build();
-            } catch (IOException e) {
-                log.error("An unexpected error occurred trying to serialize array response.", e);
-                return ElideResponse.builder()
-                        .responseCode(HttpStatus.SC_INTERNAL_SERVER_ERROR)
-                        .build();
+                return futures.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList());
+            } catch (CompletionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
             }
         }
 
-        return executeRequest.apply(topLevel);
+        return operations.stream()
+                .map(operation -> executeGraphQLRequest(mapper, principal, graphQLDocument, operation))
+                .collect(Collectors.toList());
     }
 
-    private ElideResponse executeGraphQLRequest(ObjectMapper mapper, Object principal,
-                                                String graphQLDocument, JsonNode jsonDocument) {
+    /**
+     * Executes the queries of a batch in one read transaction, which is committed once all of them ran.
+     */
+    private List<OperationResult> executeInSharedTransaction(ObjectMapper mapper, Object principal,
+                                                             String graphQLDocument, List<JsonNode> operations) {
+        List<OperationResult> results = new ArrayList<>();
+        List<GraphQLRequestScope> requestScopes = new ArrayList<>();
+        boolean isVerbose = false;
+        try (DataStoreTransaction tx = elide.getDataStore().beginReadTransaction()) {
+            final User user = tx.accessUser(principal);
+            for (JsonNode operation : operations) {
+                GraphQLRequestScope requestScope = new GraphQLRequestScope(tx, user, elide.getElideSettings());
+                isVerbose = requestScope.getPermissionExecutor().isVerbose();
+                try {
+                    results.add(new OperationResult(HttpStatus.SC_OK,
+                            executeOperation(mapper, requestScope, operation)));
+                    requestScopes.add(requestScope);
+                } catch (IOException | WebApplicationException | HttpStatusException e) {
+                    results.add(buildErrorResult(e, graphQLDocument, isVerbose));
+                }
+            }
+
+            if (!requestScopes.isEmpty()) {
+                tx.commit(requestScopes.get(requestScopes.size() - 1));
+                requestScopes.forEach(GraphQLRequestScope::runQueuedPostCommitTriggers);
+            }
+            return results;
+        } catch (IOException | WebApplicationException | HttpStatusException e) {
+            OperationResult error = buildErrorResult(e, graphQLDocument, isVerbose);
+            return operations.stream().map(operation -> error).collect(Collectors.toList());
+        } catch (Exception | Error e) {
+            log.debug("Unhandled error or exception.", e);
+            throw e;
+        } finally {
+            elide.getAuditLogger().clear();
+        }
+    }
+
+    private OperationResult executeGraphQLRequest(ObjectMapper mapper, Object principal,
+                                                  String graphQLDocument, JsonNode jsonDocument) {
         boolean isVerbose = false;
         try (DataStoreTransaction tx = elide.getDataStore().beginTransaction()) {
             final User user = tx.accessUser(principal);
             GraphQLRequestScope requestScope = new GraphQLRequestScope(tx, user, elide.getElideSettings());
             isVerbose = requestScope.getPermissionExecutor().isVerbose();
 
-            if (!jsonDocument.has(QUERY)) {
-                return ElideResponse.builder()
-                        .responseCode(HttpStatus.SC_BAD_REQUEST)
-                        .body("A `query` key is required.")
-                        .build();
+            ExecutionResult result = executeOperation(mapper, requestScope, jsonDocument);
+
+            tx.commit(requestScope);
+            requestScope.runQueuedPostCommitTriggers();
+
+            if (log.isTraceEnabled()) {
+                requestScope.getPermissionExecutor().printCheckStats();
+            }
+
+            return new OperationResult(HttpStatus.SC_OK, result);
+        } catch (IOException | WebApplicationException | HttpStatusException e) {
+            return buildErrorResult(e, graphQLDocument, isVerbose);
+        } catch (Exception | Error e) {
+            log.debug("Unhandled error or exception.", e);
+            throw e;
+        } finally {
+            elide.getAuditLogger().clear();
+        }
+    }
+
+    /**
+     * Executes one operation and prepares its transaction for commit.  Requests which cannot be executed, and
+     * mutations which fail, throw a {@link WebApplicationException} holding the response.
+     */
+    private ExecutionResult executeOperation(ObjectMapper mapper, GraphQLRequestScope requestScope,
+                                             JsonNode jsonDocument) throws IOException {
+        DataStoreTransaction tx = requestScope.getTransaction();
+
+        String query = resolveQuery(mapper, jsonDocument);
+        ExecutionResult result = api.execute(buildExecutionInput(mapper, requestScope, jsonDocument, query));
+        if (result.getData() instanceof Publisher) {
+            throw new BadRequestException("Subscriptions are only supported over WebSocket");
+        }
+
+        tx.preCommit();
+        requestScope.runQueuedPreSecurityTriggers();
+        requestScope.getPermissionExecutor().executeCommitChecks();
+        if (isMutation(jsonDocument, query)) {
+            if (!result.getErrors().isEmpty()) {
+                HashMap<String, Object> abortedResponseObject = new HashMap<String, Object>() {
+                    {
+                        put("errors", result.getErrors());
+                        put("data", null);
+                    }
+                };
+                // Do not commit. Throw OK response to process tx.close correctly.
+                throw new WebApplicationException(
+                    Response.ok(mapper.writeValueAsString(abortedResponseObject)).build());
+            }
+            requestScope.saveOrCreateObjects();
+        }
+        tx.flush(requestScope);
+
+        requestScope.runQueuedPreCommitTriggers();
+        elide.getAuditLogger().commit(requestScope);
+        return result;
+    }
+
+    /**
+     * Returns the query of a request, which is either sent as text or as the hash of a persisted query.
+     */
+    private String resolveQuery(ObjectMapper mapper, JsonNode jsonDocument) throws IOException {
+        String hash = getPersistedQueryHash(jsonDocument);
+        String query = getQuery(jsonDocument, hash);
+        if (query == null) {
+            if (hash == null) {
+                throw new WebApplicationException(
+                        Response.status(HttpStatus.SC_BAD_REQUEST).entity("A `query` key is required.").build());
             }
+            throw new WebApplicationException(Response.ok(buildPersistedQueryError(mapper,
+                    persistedQueries == null ? PERSISTED_QUERY_NOT_SUPPORTED : PERSISTED_QUERY_NOT_FOUND)).build());
+        }
+        return query;
+    }
 
-            String query = jsonDocument.get(QUERY).asText();
+    private ExecutionInput buildExecutionInput(ObjectMapper mapper, GraphQLRequestScope requestScope,
+                                               JsonNode jsonDocument, String query) {
+        // Queries may hold private information, so they are only logged at debug. It is recommended to put any
+        // private information that shouldn't be logged into the "variables" section of your query. Variable
+        // values are not logged.
+        log.debug("Processing GraphQL query:\n{}", query);
+
+        ExecutionInput.Builder executionInput = new ExecutionInput.Builder()
+                .context(requestScope)
+                .query(query);
+
+        if (jsonDocument.has(OPERATION_NAME) && !jsonDocument.get(OPERATION_NAME).isNull()) {
+            executionInput.operationName(jsonDocument.get(OPERATION_NAME).asText());
+        }
+
+        if (jsonDocument.has(VARIABLES) && !jsonDocument.get(VARIABLES).isNull()) {
+            Map<String, Object> variables = mapper.convertValue(jsonDocument.get(VARIABLES), Map.class);
+            executionInput.variables(variables);
+        }
+        return executionInput.build();
+    }
+
+    /**
+     * Whether an operation of a batch is a query, which may share a transaction or run concurrently.
+     */
+    private boolean isReadOnly(JsonNode jsonDocument) {
+        String query = jsonDocument.path(QUERY).isTextual() ? jsonDocument.get(QUERY).asText() : null;
+        String hash = getPersistedQueryHash(jsonDocument);
+        if (query == null && hash != null && persistedQueries != null) {
+            query = persistedQueries.getIfPresent(hash.toLowerCase(Locale.ENGLISH));
+        }
+        return query == null || !isMutation(jsonDocument, query);
+    }
+
+    /**
+     * Whether the operation of a request to execute is a mutation.  The document is taken from the document cache
+     * when there is one, and cached for the execution otherwise.  Documents which cannot be parsed or validated, or
+     * have no operation matching the requested operation name, are not: they fail when executed.
+     */
+    private boolean isMutation(JsonNode jsonDocument, String query) {
+        String operationName = jsonDocument.path(OPERATION_NAME).isTextual()
+                ? jsonDocument.get(OPERATION_NAME).asText()
+                : null;
+        try {
+            Document document = documentProvider == null
+                    ? new Parser().parseDocument(query)
+                    : documentProvider.get(query, this::parseAndValidate).getDocument();
+            if (document == null) {
+                return false;
+            }
+            OperationDefinition operation = NodeUtil.getOperation(document, operationName).operationDefinition;
+            return operation.getOperation() == OperationDefinition.Operation.MUTATION;
+        } catch (ParseCancellationException | GraphQLException e) {
+            return false;
+        }
+    }
 
-            // Logging all queries. It is recommended to put any private information that shouldn't be logged into
-            // the "variables" section of your query. Variable values are not logged.
-            log.info("Processing GraphQL query:\n{}", query);
+    /**
+     * Parses and validates a query against the schema, as {@link GraphQL} does before executing it.
+     */
+    private PreparsedDocumentEntry parseAndValidate(String query) {
+        Document document = new Parser().parseDocument(query);
+        List<ValidationError> errors = new Validator().validateDocument(schema, document);
+        return errors.isEmpty() ? new PreparsedDocumentEntry(document) : new PreparsedDocumentEntry(errors);
+    }
 
-            ExecutionInput.Builder executionInput = new ExecutionInput.Builder()
-                    .context(requestScope)
-                    .query(query);
+    private OperationResult buildErrorResult(Exception error, String graphQLDocument, boolean isVerbose) {
+        if (error instanceof JsonProcessingException) {
+            log.debug("Invalid json body provided to GraphQL", error);
+            return buildErrorResult(new InvalidEntityBodyException(graphQLDocument), isVerbose);
+        }
+        if (error instanceof IOException) {
+            log.error("Uncaught IO Exception by Elide in GraphQL", error);
+            return buildErrorResult(new TransactionException(error), isVerbose);
+        }
+        if (error instanceof WebApplicationException) {
+            log.debug("WebApplicationException", error);
+            Response response = ((WebApplicationException) error).getResponse();
+            String body = response.getEntity() != null ? response.getEntity().toString() : error.getMessage();
+            return new OperationResult(response.getStatus(), body);
+        }
 
-            if (jsonDocument.has(OPERATION_NAME) && !jsonDocument.get(OPERATION_NAME).isNull()) {
-                executionInput.operationName(jsonDocument.get(OPERATION_NAME).asText());
+        HttpStatusException e = (HttpStatusException) error;
+        if (e instanceof ForbiddenAccessException) {
+            if (log.isDebugEnabled()) {
+                log.debug("{}", ((ForbiddenAccessException) e).getLoggedMessage());
+            }
+        } else {
+            log.debug("Caught HTTP status exception {}", e.getStatus(), e);
+        }
+        return buildErrorResult(new HttpStatusException(200, "") {
+            @Override
+            public int getStatus() {
+                return 200;
             }
 
-            if (jsonDocument.has(VARIABLES) && !jsonDocument.get(VARIABLES).isNull()) {
-                Map<String, Object> variables = mapper.convertValue(jsonDocument.get(VARIABLES), Map.class);
-                executionInput.variables(variables);
+            @Override
+            public Pair<Integer, JsonNode> getErrorResponse(boolean encodeResponse) {
+                return e.getErrorResponse(encodeResponse);
             }
 
-            ExecutionResult result = api.execute(executionInput);
-
-            tx.preCommit();
-            requestScope.runQueuedPreSecurityTriggers();
-            requestScope.getPermissionExecutor().executeCommitChecks();
-            if (query.trim().startsWith(MUTATION)) {
-                if (!result.getErrors().isEmpty()) {
-                    HashMap<String, Object> abortedResponseObject = new HashMap<String, Object>() {
-                        {
-                            put("errors", result.getErrors());
-                            put("data", null);
-                        }
-                    };
-                    // Do not commit. Throw OK response to process tx.close correctly.
-                    throw new WebApplicationException(
-                        Response.ok(mapper.writeValueAsString(abortedResponseObject)).build());
-                }
-                requestScope.saveOrCreateObjects();
+            @Override
+            public Pair<Integer, JsonNode> getVerboseErrorResponse(boolean encodeResponse) {
+                return e.getVerboseErrorResponse(encodeResponse);
             }
-            tx.flush(requestScope);
 
-            requestScope.runQueuedPreCommitTriggers();
-            elide.getAuditLogger().commit(requestScope);
-            tx.commit(requestScope);
-            requestScope.runQueuedPostCommitTriggers();
+            @Override
+            public String getVerboseMessage() {
+                return e.getVerboseMessage();
+            }
 
-            if (log.isTraceEnabled()) {
-                requestScope.getPermissionExecutor().printCheckStats();
+            @Override
+            public String toString() {
+                return e.toString();
             }
+        }, isVerbose);
+    }
 
-            return ElideResponse.builder()
-                    .responseCode(HttpStatus.SC_OK)
-                    .body(mapper.writeValueAsString(result))
-                    .build();
+    /**
+     * Serializes the result of a single operation.
+     */
+    private ElideResponse toResponse(ObjectMapper mapper, String graphQLDocument, OperationResult result) {
+        if (result.body instanceof String) {
+            return new ElideResponse(result.responseCode, (String) result.body);
+        }
+        try {
+            return new ElideResponse(result.responseCode, mapper.writeValueAsString(result.body));
         } catch (JsonProcessingException e) {
             log.debug("Invalid json body provided to GraphQL", e);
-            return buildErrorResponse(new InvalidEntityBodyException(graphQLDocument), isVerbose);
+            return buildErrorResponse(new InvalidEntityBodyException(graphQLDocument), false);
+        }
+    }
+
+    /**
+     * Returns the value of an operation result in a batch response.  Bodies which are not JSON become empty
+     * objects.
+     */
+    private static Object toBatchEntry(ObjectMapper mapper, OperationResult result) {
+        if (!(result.body instanceof String)) {
+            return result.body;
+        }
+        try {
+            return mapper.readTree((String) result.body);
         } catch (IOException e) {
-            log.error("Uncaught IO Exception by Elide in GraphQL", e);
-            return buildErrorResponse(new TransactionException(e), isVerbose);
-        } catch (WebApplicationException e) {
-            log.debug("WebApplicationException", e);
-            String body = e.getResponse().getEntity() != null ? e.getResponse().getEntity().toString() : e.getMessage();
-            return ElideResponse.builder()
-                    .responseCode(e.getResponse().getStatus())
-                    .body(body).build();
-        } catch (HttpStatusException e) {
-            if (e instanceof ForbiddenAccessException) {
-                if (log.isDebugEnabled()) {
-                    log.debug("{}", ((ForbiddenAccessException) e).getLoggedMessage());
-                }
-            } else {
-                log.debug("Caught HTTP status exception {}", e.getStatus(), e);
-            }
-            return buildErrorResponse(new HttpStatusException(200, "") {
-                @Override
-                public int getStatus() {
-                    return 200;
-                }
+            log.debug("Caught an IO exception while trying to read response body");
+            return JsonNodeFactory.instance.objectNode();
+        }
+    }
 
-                @Override
-                public Pair<Integer, JsonNode> getErrorResponse(boolean encodeResponse) {
-                    return e.getErrorResponse(encodeResponse);
-                }
+    /**
+     * The response code and body of one operation, serialized once the request is done.
+     */
+    @AllArgsConstructor
+    private static class OperationResult {
+        private final int responseCode;
+        private final Object body;
+    }
 
-                @Override
-                public Pair<Integer, JsonNode> getVerboseErrorResponse(boolean encodeResponse) {
-                    return e.getVerboseErrorResponse(encodeResponse);
-                }
+    /**
+     * Returns the hash of an automatic persisted query, sent as {@code extensions.persistedQuery.sha256Hash}.
+     */
+    private static String getPersistedQueryHash(JsonNode jsonDocument) {
+        JsonNode hash = jsonDocument.path(EXTENSIONS).path(PERSISTED_QUERY).path(SHA256_HASH);
+        return hash.isTextual() ? hash.asText() : null;
+    }
 
-                @Override
-                public String getVerboseMessage() {
-                    return e.getVerboseMessage();
-                }
+    /**
+     * Returns the query text of a request.  A query sent along with a persisted query hash is registered under the
+     * hash, and a hash sent alone is looked up.
+     * @return the query, or null if there is none
+     */
+    private String getQuery(JsonNode jsonDocument, String hash) {
+        if (!jsonDocument.has(QUERY) || jsonDocument.get(QUERY).isNull()) {
+            return hash == null || persistedQueries == null
+                    ? null
+                    : persistedQueries.getIfPresent(hash.toLowerCase(Locale.ENGLISH));
+        }
 
-                @Override
-                public String toString() {
-                    return e.toString();
-                }
-            }, isVerbose);
-        } catch (Exception | Error e) {
-            log.debug("Unhandled error or exception.", e);
-            throw e;
-        } finally {
-            elide.getAuditLogger().clear();
+        String query = jsonDocument.get(QUERY).asText();
+        if (hash != null && persistedQueries != null) {
+            if (!hash.equalsIgnoreCase(sha256(query))) {
+                throw new BadRequestException("The persisted query hash does not match the query");
+            }
+            persistedQueries.put(hash.toLowerCase(Locale.ENGLISH), query);
         }
+        return query;
+    }
+
+    private static String sha256(String query) {
+        return Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Tells the client to send the full query along with its hash, following the automatic persisted query
+     * protocol.
+     */
+    private static String buildPersistedQueryError(ObjectMapper mapper, String message)
+            throws JsonProcessingException {
+        HashMap<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("errors", Collections.singletonList(Collections.singletonMap("message", message)));
+        errorResponse.put("data", null);
+        return mapper.writeValueAsString(errorResponse);
     }
 
     private ElideResponse buildErrorResponse(HttpStatusException error, boolean isVerbose) {
+        OperationResult result = buildErrorResult(error, isVerbose);
+        String errorBody;
+        try {
+            errorBody = elide.getMapper().getObjectMapper().writeValueAsString(result.body);
+        } catch (JsonProcessingException e) {
+            errorBody = result.body.toString();
+        }
+        return ElideResponse.builder()
+                .responseCode(result.responseCode)
+                .body(errorBody)
+                .build();
+    }
+
+    private OperationResult buildErrorResult(HttpStatusException error, boolean isVerbose) {
         ObjectMapper mapper = elide.getMapper().getObjectMapper();
         JsonNode errorNode;
         boolean encodeErrorResponses = elide.getElideSettings().isEncodeErrorResponses();
@@ -279,15 +665,6 @@ public class QueryRunner {
                     ? error.getVerboseErrorResponse(encodeErrorResponses).getRight()
                     : error.getErrorResponse(encodeErrorResponses).getRight();
         }
-        String errorBody;
-        try {
-            errorBody = mapper.writeValueAsString(errorNode);
-        } catch (JsonProcessingException e) {
-            errorBody = errorNode.toString();
-        }
-        return ElideResponse.builder()
-                .responseCode(error.getStatus())
-                .body(errorBody)
-                .build();
+        return new OperationResult(error.getStatus(), errorNode);
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.graphql.containers.NodeContainer;
+import com.yahoo.elide.graphql.containers.PageInfoContainer;
+import com.yahoo.elide.graphql.containers.PersistentResourceContainer;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Fetches one relationship of an entity node.  Reads go straight to the relationship, while mutations are handed to
+ * the {@link PersistentResourceFetcher}.
+ */
+public class RelationshipFetcher implements DataFetcher<Object> {
+    private final String relationship;
+    private final PersistentResourceFetcher fetcher;
+
+    public RelationshipFetcher(String relationship, PersistentResourceFetcher fetcher) {
+        this.relationship = relationship;
+        this.fetcher = fetcher;
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) {
+        Map<String, Object> args = environment.getArguments();
+        RelationshipOp operation =
+                (RelationshipOp) args.getOrDefault(ModelBuilder.ARGUMENT_OPERATION, RelationshipOp.FETCH);
+        if (operation != RelationshipOp.FETCH || args.get(ModelBuilder.ARGUMENT_DATA) != null) {
+            return fetcher.get(environment);
+        }
+
+        PersistentResourceContainer source = environment.getSource();
+        Set<PersistentResource> siblings = source instanceof NodeContainer
+                ? ((NodeContainer) source).getSiblings()
+                : Collections.singleton(source.getPersistentResource());
+        return fetcher.fetchRelationship(source.getPersistentResource(), relationship,
+                Optional.ofNullable((List<String>) args.get(ModelBuilder.ARGUMENT_IDS)),
+                Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_AFTER)),
+                Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_FIRST)),
+                Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_SORT)),
+                Optional.ofNullable((String) args.get(ModelBuilder.ARGUMENT_FILTER)),
+                Optional.ofNullable((List<String>) args.get(ModelBuilder.ARGUMENT_FACETS)),
+                PageInfoContainer.Selection.of(environment.getFields().get(0)),
+                siblings);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import com.yahoo.elide.ElideSettings;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.CRUDEvent;
+import com.yahoo.elide.core.DataStore;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.LifecycleEventBus;
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.datastore.inmemory.InMemoryDataStore;
+import com.yahoo.elide.core.exceptions.BadRequestException;
+import com.yahoo.elide.core.exceptions.ForbiddenAccessException;
+import com.yahoo.elide.core.exceptions.InvalidObjectIdentifierException;
+import com.yahoo.elide.core.filter.expression.FilterExpression;
+import com.yahoo.elide.core.filter.expression.InMemoryFilterExecutor;
+import com.yahoo.elide.graphql.containers.SubscriptionEventContainer;
+import com.yahoo.elide.security.User;
+
+import org.reactivestreams.Publisher;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import io.reactivex.Maybe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Fetches a field of the subscription root: the create, update and delete events of an entity, which come from the
+ * {@link LifecycleEventBus} of the Elide settings once the requests which published them committed.
+ * <p>
+ * Every event is checked in a read transaction of its own, with the user of the subscription.  Created and updated
+ * entities are loaded again, so the event holds their latest state and is only delivered when the entity matches
+ * the filter of the subscription and may be read.  Deleted entities are matched against the filter in memory and
+ * checked against the read permission of the entity.  Events which do not pass are dropped, as are events which fail
+ * to be fetched, so that one failure does not end the subscription.
+ */
+@Slf4j
+public class SubscriptionFetcher implements DataFetcher<Publisher<SubscriptionEventContainer>> {
+    private final Class<?> entityClass;
+    private final PersistentResourceFetcher fetcher;
+
+    public SubscriptionFetcher(Class<?> entityClass, PersistentResourceFetcher fetcher) {
+        this.entityClass = entityClass;
+        this.fetcher = fetcher;
+    }
+
+    @Override
+    public Publisher<SubscriptionEventContainer> get(DataFetchingEnvironment environment) {
+        GraphQLRequestScope requestScope = environment.getContext();
+        ElideSettings settings = requestScope.getElideSettings();
+        LifecycleEventBus eventBus = settings.getLifecycleEventBus();
+        if (eventBus == null) {
+            throw new BadRequestException("Subscriptions are not enabled");
+        }
+
+        EntityDictionary dictionary = requestScope.getDictionary();
+        Optional<FilterExpression> filter = fetcher.buildFilter(dictionary.getJsonAliasFor(entityClass),
+                Optional.ofNullable((String) environment.getArguments().get(ModelBuilder.ARGUMENT_FILTER)),
+                requestScope);
+        User user = requestScope.getUser();
+        // Filter in memory what the store cannot, as Elide does for requests.
+        DataStore dataStore = new InMemoryDataStore(settings.getDataStore());
+
+        // Each event is sent before the next one is fetched, so its transaction is closed once it was sent.
+        return eventBus.getEvents()
+                .filter(event -> entityClass.equals(
+                        dictionary.lookupEntityClass(event.getResource().getResourceClass())))
+                .concatMapMaybe(event -> Maybe.fromCallable(() -> fetchEvent(event, filter, user, dataStore, settings))
+                        .onErrorComplete(error -> dropFailedEvent(event, error)))
+                .doAfterNext(SubscriptionEventContainer::close);
+    }
+
+    /**
+     * Logs an event which failed to be fetched, unless the failure is an {@link Error} which ends the subscription.
+     * @return Whether the event is dropped
+     */
+    private boolean dropFailedEvent(CRUDEvent event, Throwable error) {
+        if (!(error instanceof Exception)) {
+            return false;
+        }
+        log.error("Dropped a {} event of {} which could not be fetched", event.getEventType(), entityClass, error);
+        return true;
+    }
+
+    /**
+     * Fetches the entity of an event for the user of the subscription.
+     * @return The event, or null when the user should not receive it
+     */
+    private SubscriptionEventContainer fetchEvent(CRUDEvent event, Optional<FilterExpression> filter,
+                                                  User user, DataStore dataStore, ElideSettings settings)
+            throws IOException {
+        DataStoreTransaction tx = dataStore.beginReadTransaction();
+        try {
+            GraphQLRequestScope requestScope =
+                    new GraphQLRequestScope(tx, tx.accessUser(user.getOpaqueUser()), settings);
+            String id = event.getResource().getId();
+
+            PersistentResource resource;
+            if (event.isDeleteEvent()) {
+                resource = new PersistentResource<>(event.getResource().getObject(), null, id, requestScope);
+                Predicate<Object> predicate = filter
+                        .map(expression -> (Predicate<Object>) expression.accept(
+                                new InMemoryFilterExecutor(requestScope)))
+                        .orElse(object -> true);
+                if (!predicate.test(resource.getObject())) {
+                    tx.close();
+                    return null;
+                }
+                requestScope.getPermissionExecutor().checkPermission(ReadPermission.class, resource);
+            } else {
+                resource = PersistentResource.loadRecords(entityClass, Collections.singletonList(id), filter,
+                        Optional.empty(), Optional.empty(), requestScope).iterator().next();
+            }
+            return new SubscriptionEventContainer(event.getEventType(), resource, tx);
+        } catch (ForbiddenAccessException | InvalidObjectIdentifierException e) {
+            log.debug("Dropped a {} event of {} the subscriber may not see", event.getEventType(), entityClass, e);
+            tx.close();
+            return null;
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+    }
+}
@@ -14,6 +14,10 @@ import com.yahoo.elide.graphql.PersistentResourceFetcher;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -27,9 +31,17 @@ public class ConnectionContainer implements GraphQLContainer {
     @Getter private final Optional<Pagination> pagination;
     // Refers to the type of persistentResources
     @Getter private final String typeName;
+    // Whether there is a page after this one, when known without page totals
+    @Getter private final Optional<Boolean> hasNextPage;
+
+    public ConnectionContainer(Set<PersistentResource> persistentResources, Optional<Pagination> pagination,
+                               String typeName) {
+        this(persistentResources, pagination, typeName, Optional.empty());
+    }
 
     public static final String EDGES_KEYWORD = "edges";
     public static final String PAGE_INFO_KEYWORD = "pageInfo";
+    public static final String FACETS_KEYWORD = "facets";
 
     @Override
     public Object processFetch(Environment context, PersistentResourceFetcher fetcher) {
@@ -38,14 +50,31 @@ public class ConnectionContainer implements GraphQLContainer {
         switch (fieldName) {
             case EDGES_KEYWORD:
                 return getPersistentResources().stream()
-                        .map(EdgesContainer::new)
+                        .map(resource -> new EdgesContainer(resource, getPersistentResources()))
                         .collect(Collectors.toList());
             case PAGE_INFO_KEYWORD:
                 return new PageInfoContainer(this);
+            case FACETS_KEYWORD:
+                return getFacets();
             default:
                 break;
         }
 
         throw new BadRequestException("Invalid request. Looking for field: " + fieldName + " in a connection object.");
     }
+
+    /**
+     * Flattens the value counts computed by the data store into field, value and count entries.
+     */
+    private List<Map<String, Object>> getFacets() {
+        List<Map<String, Object>> facets = new ArrayList<>();
+        pagination.ifPresent(page -> page.getFacets().forEach((field, counts) -> counts.forEach((value, count) -> {
+            Map<String, Object> facet = new LinkedHashMap<>();
+            facet.put("field", field);
+            facet.put("value", value);
+            facet.put("count", count);
+            facets.add(facet);
+        })));
+        return facets;
+    }
 }
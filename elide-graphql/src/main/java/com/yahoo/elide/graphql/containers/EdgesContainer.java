@@ -13,12 +13,16 @@ import com.yahoo.elide.graphql.PersistentResourceFetcher;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.Set;
+
 /**
  * Container for edges.
  */
 @AllArgsConstructor
 public class EdgesContainer implements PersistentResourceContainer, GraphQLContainer {
     @Getter private final PersistentResource persistentResource;
+    // Every resource of the connection, so their relationships can be counted together
+    @Getter private final Set<PersistentResource> siblings;
 
     private static final String NODE_KEYWORD = "node";
 
@@ -28,7 +32,7 @@ public class EdgesContainer implements PersistentResourceContainer, GraphQLConta
 
         // TODO: Cursor
         if (NODE_KEYWORD.equals(fieldName)) {
-            return new NodeContainer(context.parentResource);
+            return new NodeContainer(context.parentResource, siblings);
         }
 
         throw new BadRequestException("Invalid request. Looking for field: " + fieldName + " in an edges object.");
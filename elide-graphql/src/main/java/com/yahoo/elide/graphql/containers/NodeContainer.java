@@ -5,11 +5,10 @@
  */
 package com.yahoo.elide.graphql.containers;
 
-import static com.yahoo.elide.graphql.containers.RootContainer.requestContainsPageInfo;
-
 import com.yahoo.elide.core.EntityDictionary;
 import com.yahoo.elide.core.PersistentResource;
 import com.yahoo.elide.core.exceptions.BadRequestException;
+import com.yahoo.elide.graphql.AttributeFetcher;
 import com.yahoo.elide.graphql.DeferredId;
 import com.yahoo.elide.graphql.Environment;
 import com.yahoo.elide.graphql.NonEntityDictionary;
@@ -19,9 +18,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.util.Collection;
-import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Container for nodes.
@@ -29,6 +27,8 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class NodeContainer implements PersistentResourceContainer, GraphQLContainer {
     @Getter private final PersistentResource persistentResource;
+    // Every resource of the connection, so their relationships can be counted together
+    @Getter private final Set<PersistentResource> siblings;
 
     @Override
     public Object processFetch(Environment context, PersistentResourceFetcher fetcher) {
@@ -41,34 +41,15 @@ public class NodeContainer implements PersistentResourceContainer, GraphQLContai
 
         if (entityDictionary.isAttribute(parentClass, fieldName)) { /* fetch attribute properties */
             Object attribute = context.parentResource.getAttribute(fieldName);
-
-            if (attribute != null && nonEntityDictionary.hasBinding(attribute.getClass())) {
-                return new NonEntityContainer(attribute);
-            }
-
-            if (attribute instanceof Map) {
-                return ((Map<Object, Object>) attribute).entrySet().stream()
-                        .map(MapEntryContainer::new)
-                        .collect(Collectors.toList());
-            }
-
-            if (attribute instanceof Collection) {
-                Class<?> innerType = entityDictionary.getParameterizedType(parentClass, fieldName);
-
-                if (nonEntityDictionary.hasBinding(innerType)) {
-                    return ((Collection) attribute).stream()
-                            .map(NonEntityContainer::new)
-                            .collect(Collectors.toList());
-                }
-            }
-
-            return attribute;
+            Class<?> innerType = attribute instanceof Collection
+                    ? entityDictionary.getParameterizedType(parentClass, fieldName)
+                    : null;
+            return AttributeFetcher.wrap(attribute, innerType, nonEntityDictionary);
         }
         if (entityDictionary.isRelation(parentClass, fieldName)) { /* fetch relationship properties */
-            boolean generateTotals = requestContainsPageInfo(context.field);
-            return fetcher.fetchRelationship(context, context.parentResource,
+            return fetcher.fetchRelationship(context.parentResource,
                     fieldName, context.ids, context.offset, context.first, context.sort, context.filters,
-                    generateTotals);
+                    context.facets, PageInfoContainer.Selection.of(context.field), siblings);
         }
         if (Objects.equals(idFieldName, fieldName)) {
             return new DeferredId(context.parentResource);
@@ -11,8 +11,11 @@ import com.yahoo.elide.core.pagination.Pagination;
 import com.yahoo.elide.graphql.Environment;
 import com.yahoo.elide.graphql.PersistentResourceFetcher;
 
+import graphql.language.Field;
+import graphql.language.SelectionSet;
 import lombok.Getter;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -29,6 +32,57 @@ public class PageInfoContainer implements GraphQLContainer {
     private static final String PAGE_INFO_END_CURSOR_KEYWORD = "endCursor";
     private static final String PAGE_INFO_TOTAL_RECORDS_KEYWORD = "totalRecords";
 
+    /**
+     * The page information a connection field selects, which decides how it is computed.
+     */
+    public enum Selection {
+        /** No page information. */
+        NONE,
+        /** Cursors only, which need no extra query. */
+        CURSORS,
+        /** Whether there is a next page, answered by fetching one more record than the page holds. */
+        NEXT_PAGE,
+        /** The total number of records, which are counted. */
+        TOTALS;
+
+        /**
+         * Determines the page information selected by a connection field.  Fragments of page information are
+         * assumed to select the totals.
+         * @param connection The connection field
+         * @return The selection
+         */
+        public static Selection of(Field connection) {
+            if (connection.getSelectionSet() == null) {
+                return NONE;
+            }
+
+            return connection.getSelectionSet().getSelections().stream()
+                    .filter(f -> f instanceof Field
+                            && ConnectionContainer.PAGE_INFO_KEYWORD.equals(((Field) f).getName()))
+                    .map(f -> of(((Field) f).getSelectionSet()))
+                    .max(Comparator.naturalOrder())
+                    .orElse(NONE);
+        }
+
+        private static Selection of(SelectionSet pageInfo) {
+            Selection selection = CURSORS;
+            if (pageInfo == null) {
+                return selection;
+            }
+
+            for (graphql.language.Selection field : pageInfo.getSelections()) {
+                if (!(field instanceof Field)
+                        || PAGE_INFO_TOTAL_RECORDS_KEYWORD.equals(((Field) field).getName())) {
+                    return TOTALS;
+                }
+                if (PAGE_INFO_HAS_NEXT_PAGE_KEYWORD.equals(((Field) field).getName())) {
+                    selection = NEXT_PAGE;
+                }
+            }
+            return selection;
+        }
+    }
+
     public PageInfoContainer(ConnectionContainer connectionContainer) {
         this.connectionContainer = connectionContainer;
     }
@@ -47,6 +101,9 @@ public class PageInfoContainer implements GraphQLContainer {
         return pagination.map(pageValue -> {
             switch (fieldName) {
                 case PAGE_INFO_HAS_NEXT_PAGE_KEYWORD: {
+                    if (connectionContainer.getHasNextPage().isPresent()) {
+                        return connectionContainer.getHasNextPage().get();
+                    }
                     int numResults = ids.size();
                     int nextOffset = numResults + pageValue.getOffset();
                     return nextOffset < pageValue.getPageTotals();
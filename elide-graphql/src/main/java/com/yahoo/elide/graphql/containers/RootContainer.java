@@ -19,9 +19,9 @@ public class RootContainer implements GraphQLContainer {
     public Object processFetch(Environment context, PersistentResourceFetcher fetcher) {
         EntityDictionary dictionary = context.requestScope.getDictionary();
         Class<?> entityClass = dictionary.getEntityClass(context.field.getName());
-        boolean generateTotals = requestContainsPageInfo(context.field);
         return fetcher.fetchObject(context, context.requestScope, entityClass, context.ids,
-                context.sort, context.offset, context.first, context.filters, generateTotals);
+                context.sort, context.offset, context.first, context.filters,
+                PageInfoContainer.Selection.of(context.field));
     }
 
     public static boolean requestContainsPageInfo(Field field) {
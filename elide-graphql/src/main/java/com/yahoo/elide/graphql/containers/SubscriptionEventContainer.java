@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql.containers;
+
+import com.yahoo.elide.core.CRUDEvent;
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.PersistentResource;
+import com.yahoo.elide.core.exceptions.BadRequestException;
+import com.yahoo.elide.graphql.Environment;
+import com.yahoo.elide.graphql.PersistentResourceFetcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Container for the events of a subscription.  It holds the changed entity and the read transaction the event is
+ * fetched in, which is closed once the event was sent.
+ */
+@Slf4j
+@AllArgsConstructor
+public class SubscriptionEventContainer implements GraphQLContainer {
+    public static final String TYPE = "type";
+    public static final String NODE = "node";
+
+    @Getter private final CRUDEvent.CRUDAction eventType;
+    @Getter private final PersistentResource persistentResource;
+    private final DataStoreTransaction transaction;
+
+    @Override
+    public Object processFetch(Environment context, PersistentResourceFetcher fetcher) {
+        String fieldName = context.field.getName();
+        if (TYPE.equals(fieldName)) {
+            return eventType;
+        }
+        if (NODE.equals(fieldName)) {
+            return new NodeContainer(persistentResource, Collections.singleton(persistentResource));
+        }
+        throw new BadRequestException("Invalid field: '" + fieldName
+                + "'. Events only contain fields '" + TYPE + "' and '" + NODE + "'");
+    }
+
+    /**
+     * Closes the read transaction of the event.
+     */
+    public void close() {
+        try {
+            transaction.close();
+        } catch (IOException e) {
+            log.debug("Failed to close the transaction of a subscription event", e);
+        }
+    }
+}
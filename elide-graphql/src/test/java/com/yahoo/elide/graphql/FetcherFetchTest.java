@@ -6,14 +6,21 @@
 
 package com.yahoo.elide.graphql;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 
 import com.yahoo.elide.core.DataStoreTransaction;
 import com.yahoo.elide.core.RequestScope;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 
 import graphql.ExecutionResult;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Test the Fetch operation.
  *
@@ -129,6 +136,25 @@ public class FetcherFetchTest extends PersistentResourceFetcherTest {
         assertTrue(!result.getErrors().isEmpty());
     }
 
+    @Test
+    public void testFacetsWithoutPaginationFail() throws Exception {
+        DataStoreTransaction tx = inMemoryDataStore.beginTransaction();
+        RequestScope requestScope = new GraphQLRequestScope(tx, null, settings);
+
+        String graphQLRequest = "{ "
+                + "book(facets: [\"title\"]) { "
+                + "edges { node { "
+                + "id "
+                + "title "
+                + "}}"
+                + "} "
+                + "}";
+        ExecutionResult result = api.execute(graphQLRequest, requestScope);
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().contains(
+                "Facets can only be requested with pagination: set the first argument"));
+    }
+
     @Test
     public void testPageTotalsRoot() throws Exception {
         runComparisonTest("pageTotalsRoot");
@@ -154,6 +180,34 @@ public class FetcherFetchTest extends PersistentResourceFetcherTest {
         runComparisonTest("pageTotalsRelationship");
     }
 
+    @Test
+    public void testPageTotalsRelationshipCountedTogether() throws Exception {
+        DataStoreTransaction tx = Mockito.spy(inMemoryDataStore.beginTransaction());
+        Map<String, Long> totals = new HashMap<>();
+        totals.put("1", 2L);
+        totals.put("2", 1L);
+        Mockito.doReturn(totals).when(tx).getRelationTotals(any(), any(), eq("books"), any(), any());
+        RequestScope requestScope = new GraphQLRequestScope(tx, null, settings);
+
+        ExecutionResult result = api.execute(loadGraphQLRequest("fetch/pageTotalsRelationship.graphql"),
+                requestScope);
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(mapper.readTree(loadGraphQLResponse("fetch/pageTotalsRelationship.json")),
+                mapper.readTree(mapper.writeValueAsString(result.getData())));
+        Mockito.verify(tx, Mockito.times(1)).getRelationTotals(any(), any(), eq("books"), any(), any());
+    }
+
+    @Test
+    public void testPageInfoNextPageRoot() throws Exception {
+        runComparisonTest("pageInfoNextPageRoot");
+    }
+
+    @Test
+    public void testPageInfoNextPageRelationship() throws Exception {
+        runComparisonTest("pageInfoNextPageRelationship");
+    }
+
     @Test
     public void testComputedAttributes() throws Exception {
         runComparisonTest("computedAttributes");
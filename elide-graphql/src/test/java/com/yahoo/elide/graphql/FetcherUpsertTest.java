@@ -5,9 +5,25 @@
  */
 package com.yahoo.elide.graphql;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.yahoo.elide.core.DataStoreTransaction;
+import com.yahoo.elide.core.RequestScope;
+
+import example.Author;
+import example.Book;
+
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import graphql.ExecutionResult;
+
 import java.util.HashMap;
 
 /**
@@ -69,6 +85,22 @@ public class FetcherUpsertTest extends PersistentResourceFetcherTest {
         runComparisonTest("rootCollectionMixedIds");
     }
 
+    @Test
+    public void testRootCollectionLoadsExistingObjectsOnce() throws Exception {
+        DataStoreTransaction tx = spy(inMemoryDataStore.beginTransaction());
+        RequestScope requestScope = new GraphQLRequestScope(tx, null, settings);
+
+        ExecutionResult result = api.execute("mutation { book(op: UPSERT, data: ["
+                + "{id: \"1\", title: \"one\", authors: [{id: \"1\"}, {id: \"2\"}]}, "
+                + "{id: \"2\", title: \"two\"}, {id: \"42\", title: \"new\"}]) "
+                + "{ edges { node { id title } } } }", requestScope);
+
+        assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+        verify(tx, times(1)).loadObjects(eq(Book.class), any(), any(), any(), any());
+        verify(tx, times(1)).loadObjects(eq(Author.class), any(), any(), any(), any());
+        verify(tx, never()).loadObject(any(), any(), any(), any());
+    }
+
     @Test
     public void testNestedSingleUpdate() throws Exception {
         runComparisonTest("nestedSingleUpdate");
@@ -18,6 +18,8 @@ import static com.yahoo.elide.contrib.testhelpers.graphql.GraphQLDSL.toJson;
 import static com.yahoo.elide.contrib.testhelpers.graphql.GraphQLDSL.variableDefinition;
 import static com.yahoo.elide.contrib.testhelpers.graphql.GraphQLDSL.variableDefinitions;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.yahoo.elide.Elide;
@@ -34,12 +36,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 import org.json.JSONException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.skyscreamer.jsonassert.JSONAssert;
 
@@ -49,18 +53,25 @@ import graphqlEndpointTestModels.DisallowShare;
 import graphqlEndpointTestModels.security.CommitChecks;
 import graphqlEndpointTestModels.security.UserChecks;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * GraphQL endpoint tests tested against the in-memory store.
@@ -68,7 +79,9 @@ import javax.ws.rs.core.SecurityContext;
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class GraphQLEndpointTest {
 
+    private Elide elide;
     private GraphQLEndpoint endpoint;
+    private HashMapDataStore inMemoryStore;
     private final SecurityContext user1 = Mockito.mock(SecurityContext.class);
     private final SecurityContext user2 = Mockito.mock(SecurityContext.class);
     private final SecurityContext user3 = Mockito.mock(SecurityContext.class);
@@ -111,24 +124,10 @@ public class GraphQLEndpointTest {
 
     @BeforeEach
     public void setupTest() throws Exception {
-        HashMapDataStore inMemoryStore = new HashMapDataStore(Book.class.getPackage());
-        Map<String, Class<? extends Check>> checkMappings = new HashMap<>();
-
-        checkMappings.put(UserChecks.IS_USER_1, UserChecks.IsUserId.One.class);
-        checkMappings.put(UserChecks.IS_USER_2, UserChecks.IsUserId.Two.class);
-        checkMappings.put(CommitChecks.IS_NOT_USER_3, CommitChecks.IsNotUser3.class);
+        inMemoryStore = new HashMapDataStore(Book.class.getPackage());
 
-        Elide elide = new Elide(
-                new ElideSettingsBuilder(inMemoryStore)
-                        .withEntityDictionary(new EntityDictionary(checkMappings))
-                        .withAuditLogger(audit)
-                        .build());
-        endpoint = new GraphQLEndpoint(elide, new DefaultOpaqueUserFunction() {
-            @Override
-            public Object apply(SecurityContext securityContext) {
-                return securityContext.getUserPrincipal();
-            }
-        });
+        elide = new Elide(settingsBuilder().build());
+        endpoint = buildEndpoint(elide);
 
         DataStoreTransaction tx = inMemoryStore.beginTransaction();
 
@@ -682,6 +681,36 @@ public class GraphQLEndpointTest {
         assert200EqualBody(response, expected);
     }
 
+    @Test
+    void testFailedMutationAfterComment() throws IOException {
+        Book book = new Book();
+        book.setId(1);
+        book.setTitle("my new book!");
+
+        // NOTE: User 2 cannot update books.
+        String graphQLRequest = "# Renames the first book\n" + document(
+                mutation(
+                        selection(
+                                field(
+                                        "book",
+                                        arguments(
+                                                argument("op", "UPSERT"),
+                                                argument("data", book)
+                                        ),
+                                        selections(
+                                                field("id"),
+                                                field("title")
+                                        )
+                                )
+                        )
+                )
+        ).toQuery();
+
+        JsonNode node = extract200Response(endpoint.post(user2, graphQLRequestToJSON(graphQLRequest)));
+        assertTrue(node.get("errors").elements().hasNext());
+        assertTrue(node.get("data").isNull());
+    }
+
     @Test
     void testFailedCommitCheck() throws IOException {
         Book book = new Book();
@@ -790,6 +819,321 @@ public class GraphQLEndpointTest {
         assertHasErrors(response);
     }
 
+    @Test
+    void testDocumentCache() throws JSONException {
+        String graphQLRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selections(
+                                        field("id"),
+                                        field("title")
+                                )
+                        )
+                )
+        ).toQuery();
+
+        String graphQLResponse = document(
+                selection(
+                        field(
+                                "book",
+                                selections(
+                                        field("id", "1"),
+                                        field("title", "My first book")
+                                )
+                        )
+                )
+        ).toResponse();
+
+        assert200EqualBody(endpoint.post(user1, graphQLRequestToJSON(graphQLRequest)), graphQLResponse);
+        assert200EqualBody(endpoint.post(user1, graphQLRequestToJSON(graphQLRequest)), graphQLResponse);
+
+        // The operation kind is read from the cached document as well, so the query is only parsed once.
+        assertEquals(1, elide.getElideSettings().getGraphQLDocumentCacheStats().missCount());
+        assertEquals(3, elide.getElideSettings().getGraphQLDocumentCacheStats().hitCount());
+        assertEquals(1, elide.getElideSettings().getGraphQLDocumentCache().size());
+    }
+
+    @Test
+    void testInvalidDocumentIsNotCached() throws IOException {
+        String graphQLRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("unknownField")
+                                )
+                        )
+                )
+        ).toQuery();
+
+        assertHasErrors(endpoint.post(user1, graphQLRequestToJSON(graphQLRequest)));
+        assertEquals(0, elide.getElideSettings().getGraphQLDocumentCache().size());
+    }
+
+    @Test
+    void testPersistedQuery() throws IOException, JSONException {
+        String graphQLRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title")
+                                )
+                        )
+                )
+        ).toQuery();
+        String hash = Hashing.sha256().hashString(graphQLRequest, StandardCharsets.UTF_8).toString();
+
+        String graphQLResponse = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title", "My first book")
+                                )
+                        )
+                )
+        ).toResponse();
+
+        JsonNode notFound = extract200Response(endpoint.post(user1, persistedQueryToJSON(null, hash)));
+        assertEquals("PersistedQueryNotFound", notFound.get("errors").get(0).get("message").asText());
+
+        assert200EqualBody(endpoint.post(user1, persistedQueryToJSON(graphQLRequest, hash)), graphQLResponse);
+        assert200EqualBody(endpoint.post(user1, persistedQueryToJSON(null, hash)), graphQLResponse);
+    }
+
+    @Test
+    void testPersistedQueryHashMismatch() throws IOException {
+        String graphQLRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title")
+                                )
+                        )
+                )
+        ).toQuery();
+
+        assertHasErrors(endpoint.post(user1, persistedQueryToJSON(graphQLRequest, "0123abcd")));
+        assertEquals(0, elide.getElideSettings().getGraphQLPersistedQueries().size());
+    }
+
+    private static String persistedQueryToJSON(String request, String hash) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        if (request != null) {
+            node.put("query", request);
+        }
+        node.putObject("extensions").putObject("persistedQuery")
+                .put("version", 1)
+                .put("sha256Hash", hash);
+        return node.toString();
+    }
+
+    @Test
+    void testSchemaSharedByDictionary() {
+        EntityDictionary dictionary = elide.getElideSettings().getDictionary();
+        QueryRunner runner = new QueryRunner(new Elide(new ElideSettingsBuilder(inMemoryStore)
+                .withEntityDictionary(dictionary)
+                .withAuditLogger(audit)
+                .build()));
+
+        assertSame(QueryRunner.getSchema(dictionary), QueryRunner.getSchema(dictionary));
+        assertTrue(runner.getSchemaDefinition().contains("type _node__book {"));
+    }
+
+    @Test
+    void testAsyncRequest() throws JSONException {
+        String graphQLRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title")
+                                )
+                        )
+                )
+        ).toQuery();
+
+        String graphQLResponse = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title", "My first book")
+                                )
+                        )
+                )
+        ).toResponse();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphQLEndpoint asyncEndpoint = buildEndpoint(new Elide(settingsBuilder()
+                    .withGraphQLRequestExecutor(executor)
+                    .build()));
+            AsyncResponse asyncResponse = Mockito.mock(AsyncResponse.class);
+
+            asyncEndpoint.post(user1, graphQLRequestToJSON(graphQLRequest), asyncResponse);
+
+            ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+            Mockito.verify(asyncResponse, Mockito.timeout(10000)).resume(response.capture());
+            assert200EqualBody(response.getValue(), graphQLResponse);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testQueryCost() throws IOException {
+        GraphQLEndpoint costEndpoint = buildEndpoint(new Elide(settingsBuilder()
+                .withGraphQLQueryCostBudget(100)
+                .build()));
+
+        JsonNode response = extract200Response(costEndpoint.post(user1, graphQLRequestToJSON(nestedBookRequest())));
+
+        assertEquals("Ricky Carmichael", response.get("data").get("book").get("edges").get(0)
+                .get("node").get("authors").get("edges").get(0).get("node").get("name").asText());
+        assertEquals(60, response.get("extensions").get("cost").get("estimated").asLong());
+        assertEquals(100, response.get("extensions").get("cost").get("budget").asLong());
+    }
+
+    @Test
+    void testQueryCostBudgetByUser() throws IOException {
+        GraphQLEndpoint costEndpoint = buildEndpoint(new Elide(settingsBuilder()
+                .withGraphQLQueryCostBudget(user -> ((User) user.getOpaqueUser()).getName().equals("1") ? null : 50L)
+                .build()));
+
+        JsonNode unlimited = extract200Response(costEndpoint.post(user1, graphQLRequestToJSON(nestedBookRequest())));
+        assertEquals(60, unlimited.get("extensions").get("cost").get("estimated").asLong());
+        assertFalse(unlimited.get("extensions").get("cost").has("budget"));
+
+        JsonNode rejected = extract200Response(costEndpoint.post(user2, graphQLRequestToJSON(nestedBookRequest())));
+        assertEquals("Query cost 60 exceeds the budget of 50",
+                rejected.get("errors").get(0).get("message").asText());
+        assertFalse(rejected.has("data") && rejected.get("data").has("book"));
+    }
+
+    private static String nestedBookRequest() {
+        return document(
+                selection(
+                        field(
+                                "book",
+                                arguments(
+                                        argument("first", "\"10\"")
+                                ),
+                                selections(
+                                        field("title"),
+                                        field(
+                                                "authors",
+                                                arguments(
+                                                        argument("first", "\"5\"")
+                                                ),
+                                                selection(
+                                                        field("name")
+                                                )
+                                        )
+                                )
+                        )
+                )
+        ).toQuery();
+    }
+
+    @Test
+    void testBatch() throws IOException, JSONException {
+        assertBatch(endpoint);
+    }
+
+    @Test
+    void testBatchSharedTransaction() throws IOException, JSONException {
+        assertBatch(buildEndpoint(new Elide(settingsBuilder()
+                .withGraphQLBatchSharedTransaction(true)
+                .build())));
+    }
+
+    @Test
+    void testParallelBatch() throws IOException, JSONException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertBatch(buildEndpoint(new Elide(settingsBuilder()
+                    .withGraphQLBatchExecutor(executor)
+                    .build())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertBatch(GraphQLEndpoint batchEndpoint) throws IOException, JSONException {
+        String bookRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title")
+                                )
+                        )
+                )
+        ).toQuery();
+        String idRequest = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("id")
+                                )
+                        )
+                )
+        ).toQuery();
+
+        String bookResponse = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("title", "My first book")
+                                )
+                        )
+                )
+        ).toResponse();
+        String idResponse = document(
+                selection(
+                        field(
+                                "book",
+                                selection(
+                                        field("id", "1")
+                                )
+                        )
+                )
+        ).toResponse();
+
+        String batch = "[" + graphQLRequestToJSON(bookRequest) + "," + graphQLRequestToJSON(idRequest)
+                + "," + graphQLRequestToJSON(bookRequest) + "]";
+        String expected = "[" + bookResponse + "," + idResponse + "," + bookResponse + "]";
+
+        assert200EqualBody(batchEndpoint.post(user1, batch), expected);
+    }
+
+    private ElideSettingsBuilder settingsBuilder() {
+        Map<String, Class<? extends Check>> checkMappings = new HashMap<>();
+
+        checkMappings.put(UserChecks.IS_USER_1, UserChecks.IsUserId.One.class);
+        checkMappings.put(UserChecks.IS_USER_2, UserChecks.IsUserId.Two.class);
+        checkMappings.put(CommitChecks.IS_NOT_USER_3, CommitChecks.IsNotUser3.class);
+
+        return new ElideSettingsBuilder(inMemoryStore)
+                .withEntityDictionary(new EntityDictionary(checkMappings))
+                .withAuditLogger(audit);
+    }
+
+    private static GraphQLEndpoint buildEndpoint(Elide elide) {
+        return new GraphQLEndpoint(elide, new DefaultOpaqueUserFunction() {
+            @Override
+            public Object apply(SecurityContext securityContext) {
+                return securityContext.getUserPrincipal();
+            }
+        });
+    }
+
     private static String graphQLRequestToJSON(String request) {
         return graphQLRequestToJSON(request, new HashMap<>());
     }
@@ -809,7 +1153,13 @@ public class GraphQLEndpointTest {
 
     private static String extract200ResponseString(Response response) {
         assertEquals(response.getStatus(), 200);
-        return (String) response.getEntity();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            ((StreamingOutput) response.getEntity()).write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
     }
 
     private static void assert200EqualBody(Response response, String expected) throws JSONException {
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.graphql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.yahoo.elide.Elide;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.ElideSettingsBuilder;
+import com.yahoo.elide.audit.AuditLogger;
+import com.yahoo.elide.core.EntityDictionary;
+import com.yahoo.elide.core.HttpStatus;
+import com.yahoo.elide.core.LifecycleEventBus;
+import com.yahoo.elide.core.datastore.inmemory.HashMapDataStore;
+import com.yahoo.elide.security.checks.Check;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import graphql.ExecutionResult;
+import graphqlEndpointTestModels.Book;
+import graphqlEndpointTestModels.security.CommitChecks;
+import graphqlEndpointTestModels.security.UserChecks;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.Session;
+
+/**
+ * GraphQL subscription tests tested against the in-memory store.
+ */
+public class GraphQLSubscriptionEndpointTest {
+    private static final String BOOK_EVENTS = "subscription { book { type node { id title } } }";
+
+    private final GraphQLEndpointTest.User user1 = new GraphQLEndpointTest.User().withName("1");
+    private final GraphQLEndpointTest.User user2 = new GraphQLEndpointTest.User().withName("2");
+    private final GraphQLEndpointTest.User user4 = new GraphQLEndpointTest.User().withName("4");
+    private final AtomicBoolean failNextRead = new AtomicBoolean();
+    private Elide elide;
+    private ObjectMapper mapper;
+    private QueryRunner runner;
+
+    @BeforeEach
+    public void setupTest() {
+        Map<String, Class<? extends Check>> checkMappings = new HashMap<>();
+        checkMappings.put(UserChecks.IS_USER_1, UserChecks.IsUserId.One.class);
+        checkMappings.put(UserChecks.IS_USER_2, UserChecks.IsUserId.Two.class);
+        checkMappings.put(CommitChecks.IS_NOT_USER_3, CommitChecks.IsNotUser3.class);
+
+        // Read transactions fail on demand, to check events which cannot be fetched.
+        HashMapDataStore store = spy(new HashMapDataStore(Book.class.getPackage()));
+        failNextRead.set(false);
+        doAnswer(invocation -> {
+            if (failNextRead.getAndSet(false)) {
+                throw new IllegalStateException("Store unavailable");
+            }
+            return invocation.callRealMethod();
+        }).when(store).beginReadTransaction();
+
+        // Events are delivered on the committing thread, so they arrived once a mutation returns.
+        elide = new Elide(new ElideSettingsBuilder(store)
+                .withEntityDictionary(new EntityDictionary(checkMappings))
+                .withAuditLogger(mock(AuditLogger.class))
+                .withLifecycleEventBus(new LifecycleEventBus(LifecycleEventBus.DEFAULT_BUFFER_SIZE,
+                        Schedulers.trampoline()))
+                .build());
+        runner = new QueryRunner(elide);
+        mapper = elide.getMapper().getObjectMapper();
+    }
+
+    @Test
+    public void testCommittedChanges() throws IOException {
+        TestSubscriber<ExecutionResult> events = subscribe(BOOK_EVENTS, user1);
+
+        String id = createBook("Subscribed");
+        mutate("mutation { book(op: UPDATE, data: {id: \"" + id + "\", title: \"Updated\"}) { edges { node { id } } } }");
+        mutate("mutation { book(op: DELETE, ids: [\"" + id + "\"]) { edges { node { id } } } }");
+
+        events.assertValueCount(3);
+        assertEvent(events.values().get(0), "CREATE", id, "Subscribed");
+        assertEvent(events.values().get(1), "UPDATE", id, "Updated");
+        assertEvent(events.values().get(2), "DELETE", id, "Updated");
+    }
+
+    @Test
+    public void testReadPermission() throws IOException {
+        TestSubscriber<ExecutionResult> allowed = subscribe(BOOK_EVENTS, user2);
+        TestSubscriber<ExecutionResult> denied = subscribe(BOOK_EVENTS, user4);
+
+        String id = createBook("Secret");
+
+        allowed.assertValueCount(1);
+        assertEvent(allowed.values().get(0), "CREATE", id, "Secret");
+        denied.assertNoValues();
+        denied.assertNoErrors();
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        TestSubscriber<ExecutionResult> events = subscribe(
+                "subscription { book(filter: \"title==Match\") { type node { id title } } }", user1);
+
+        createBook("Other");
+        String id = createBook("Match");
+        mutate("mutation { book(op: DELETE, ids: [\"" + id + "\"]) { edges { node { id } } } }");
+
+        events.assertValueCount(2);
+        assertEvent(events.values().get(0), "CREATE", id, "Match");
+        assertEvent(events.values().get(1), "DELETE", id, "Match");
+    }
+
+    @Test
+    public void testFailedEventIsDropped() throws IOException {
+        TestSubscriber<ExecutionResult> events = subscribe(BOOK_EVENTS, user1);
+
+        failNextRead.set(true);
+        createBook("Failed");
+        String id = createBook("Delivered");
+
+        events.assertValueCount(1);
+        events.assertNoErrors();
+        events.assertNotComplete();
+        assertEvent(events.values().get(0), "CREATE", id, "Delivered");
+    }
+
+    @Test
+    public void testCancelledSubscription() throws IOException {
+        TestSubscriber<ExecutionResult> events = subscribe(BOOK_EVENTS, user1);
+        events.cancel();
+
+        createBook("Unseen");
+
+        events.assertNoValues();
+    }
+
+    @Test
+    public void testSubscriptionOverHttp() throws IOException {
+        ElideResponse response = runner.run(toDocument(BOOK_EVENTS), user1);
+
+        assertEquals(HttpStatus.SC_OK, response.getResponseCode());
+        assertTrue(response.getBody().contains("Subscriptions are only supported over WebSocket"));
+    }
+
+    @Test
+    public void testWebSocketProtocol() throws IOException {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Basic remote = mock(RemoteEndpoint.Basic.class);
+        when(session.getUserPrincipal()).thenReturn(user1);
+        when(session.getUserProperties()).thenReturn(new HashMap<>());
+        when(session.getBasicRemote()).thenReturn(remote);
+        when(session.isOpen()).thenReturn(true);
+
+        GraphQLSubscriptionEndpoint endpoint = new GraphQLSubscriptionEndpoint(elide);
+        endpoint.onOpen(session, mock(EndpointConfig.class));
+        ArgumentCaptor<MessageHandler.Whole> handler = ArgumentCaptor.forClass(MessageHandler.Whole.class);
+        verify(session).addMessageHandler(handler.capture());
+
+        handler.getValue().onMessage("{\"type\": \"connection_init\"}");
+        handler.getValue().onMessage("{\"type\": \"start\", \"id\": \"1\", \"payload\": " + toDocument(BOOK_EVENTS)
+                + "}");
+        String id = createBook("Streamed");
+        handler.getValue().onMessage("{\"type\": \"stop\", \"id\": \"1\"}");
+        createBook("Stopped");
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(remote, times(2)).sendText(messages.capture());
+        List<JsonNode> sent = messages.getAllValues().stream()
+                .map(this::readTree)
+                .collect(Collectors.toList());
+
+        assertEquals("connection_ack", sent.get(0).get("type").asText());
+        assertEquals("data", sent.get(1).get("type").asText());
+        assertEquals("1", sent.get(1).get("id").asText());
+        JsonNode book = sent.get(1).get("payload").get("data").get("book");
+        assertEquals("CREATE", book.get("type").asText());
+        assertEquals(id, book.get("node").get("id").asText());
+        assertEquals("Streamed", book.get("node").get("title").asText());
+    }
+
+    @Test
+    public void testWebSocketInvalidMessage() throws IOException {
+        Session session = mock(Session.class);
+        RemoteEndpoint.Basic remote = mock(RemoteEndpoint.Basic.class);
+        when(session.getUserProperties()).thenReturn(new HashMap<>());
+        when(session.getBasicRemote()).thenReturn(remote);
+        when(session.isOpen()).thenReturn(true);
+
+        GraphQLSubscriptionEndpoint endpoint = new GraphQLSubscriptionEndpoint(elide);
+        endpoint.onOpen(session, mock(EndpointConfig.class));
+        ArgumentCaptor<MessageHandler.Whole> handler = ArgumentCaptor.forClass(MessageHandler.Whole.class);
+        verify(session).addMessageHandler(handler.capture());
+
+        handler.getValue().onMessage("{\"type\": \"start\", \"payload\": " + toDocument(BOOK_EVENTS) + "}");
+
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(remote).sendText(message.capture());
+        assertEquals("error", readTree(message.getValue()).get("type").asText());
+    }
+
+    private TestSubscriber<ExecutionResult> subscribe(String subscription, Object user) throws IOException {
+        return Flowable.fromPublisher(runner.runSubscription(toDocument(subscription), user)).test();
+    }
+
+    private String createBook(String title) throws IOException {
+        JsonNode response = mutate("mutation { book(op: UPSERT, data: {title: \"" + title + "\"}) "
+                + "{ edges { node { id } } } }");
+        return response.get("data").get("book").get("edges").get(0).get("node").get("id").asText();
+    }
+
+    private JsonNode mutate(String mutation) throws IOException {
+        ElideResponse response = runner.run(toDocument(mutation), user1);
+        assertEquals(HttpStatus.SC_OK, response.getResponseCode(), response.getBody());
+        return mapper.readTree(response.getBody());
+    }
+
+    private void assertEvent(ExecutionResult result, String type, String id, String title) {
+        assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+        JsonNode book = mapper.valueToTree(result.getData()).get("book");
+        assertEquals(type, book.get("type").asText());
+        assertEquals(id, book.get("node").get("id").asText());
+        assertEquals(title, book.get("node").get("title").asText());
+    }
+
+    private String toDocument(String query) {
+        return JsonNodeFactory.instance.objectNode().put("query", query).toString();
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return mapper.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import static graphql.Assert.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -42,6 +43,7 @@ public class ModelBuilderTest {
     private static final String SORT = "sort";
     private static final String FIRST = "first";
     private static final String AFTER = "after";
+    private static final String FACETS = "facets";
     private static final String TYPE = "type";
 
     // Connection fields
@@ -95,6 +97,22 @@ public class ModelBuilderTest {
         assertNotNull(bookType.getFieldDefinition(PAGE_INFO));
     }
 
+    @Test
+    public void testFacetsObject() {
+        DataFetcher fetcher = mock(DataFetcher.class);
+        ModelBuilder builder = new ModelBuilder(dictionary, new NonEntityDictionary(), fetcher);
+
+        GraphQLSchema schema = builder.build();
+
+        GraphQLObjectType bookType = (GraphQLObjectType) schema.getType(BOOK);
+        assertNotNull(bookType.getFieldDefinition(FACETS));
+
+        GraphQLObjectType facetType = (GraphQLObjectType) schema.getType("_facetObject");
+        assertNotNull(facetType.getFieldDefinition("field"));
+        assertNotNull(facetType.getFieldDefinition("value"));
+        assertNotNull(facetType.getFieldDefinition("count"));
+    }
+
     @Test
     public void testRelationshipParameters() {
         DataFetcher fetcher = mock(DataFetcher.class);
@@ -112,6 +130,7 @@ public class ModelBuilderTest {
         assertNotNull(bookField.getArgument(SORT));
         assertNotNull(bookField.getArgument(FIRST));
         assertNotNull(bookField.getArgument(AFTER));
+        assertNotNull(bookField.getArgument(FACETS));
 
         /* book.publisher is a 'to one' relationship so it should be missing all but the data parameter */
         GraphQLObjectType bookType = (GraphQLObjectType) schema.getType("_node__" + BOOK);
@@ -121,6 +140,7 @@ public class ModelBuilderTest {
         assertNull(publisherField.getArgument(SORT));
         assertNull(publisherField.getArgument(FIRST));
         assertNull(publisherField.getArgument(AFTER));
+        assertNull(publisherField.getArgument(FACETS));
 
         /* book.authors is a 'to many' relationship so it should have all query parameters defined */
         GraphQLFieldDefinition authorField = bookType.getFieldDefinition(AUTHORS);
@@ -129,6 +149,34 @@ public class ModelBuilderTest {
         assertNotNull(authorField.getArgument(SORT));
         assertNotNull(authorField.getArgument(FIRST));
         assertNotNull(authorField.getArgument(AFTER));
+        assertNotNull(authorField.getArgument(FACETS));
+    }
+
+    @Test
+    public void testFieldFetchers() {
+        PersistentResourceFetcher fetcher = mock(PersistentResourceFetcher.class);
+        ModelBuilder builder = new ModelBuilder(dictionary, new NonEntityDictionary(), fetcher);
+
+        GraphQLSchema schema = builder.build();
+
+        GraphQLObjectType bookType = (GraphQLObjectType) schema.getType("_node__" + BOOK);
+        assertTrue(bookType.getFieldDefinition("id").getDataFetcher() instanceof IdFetcher);
+        assertTrue(bookType.getFieldDefinition(TITLE).getDataFetcher() instanceof AttributeFetcher);
+        assertTrue(bookType.getFieldDefinition(AUTHORS).getDataFetcher() instanceof RelationshipFetcher);
+        assertSame(fetcher, schema.getQueryType().getFieldDefinition(BOOK).getDataFetcher());
+    }
+
+    @Test
+    public void testCustomFetcherFetchesEveryField() {
+        DataFetcher fetcher = mock(DataFetcher.class);
+        ModelBuilder builder = new ModelBuilder(dictionary, new NonEntityDictionary(), fetcher);
+
+        GraphQLSchema schema = builder.build();
+
+        GraphQLObjectType bookType = (GraphQLObjectType) schema.getType("_node__" + BOOK);
+        assertSame(fetcher, bookType.getFieldDefinition("id").getDataFetcher());
+        assertSame(fetcher, bookType.getFieldDefinition(TITLE).getDataFetcher());
+        assertSame(fetcher, bookType.getFieldDefinition(AUTHORS).getDataFetcher());
     }
 
     @Test
@@ -90,7 +90,7 @@ public abstract class PersistentResourceFetcherTest extends GraphQLTest {
         inMemoryDataStore.populateEntityDictionary(dictionary);
         NonEntityDictionary nonEntityDictionary = new NonEntityDictionary();
         ModelBuilder builder = new ModelBuilder(dictionary, nonEntityDictionary,
-                new PersistentResourceFetcher(settings, nonEntityDictionary));
+                new PersistentResourceFetcher(nonEntityDictionary));
 
         api = new GraphQL(builder.build());
 
@@ -72,6 +72,7 @@ public abstract class AbstractApiResourceInitializer {
 
         ServletHolder graphqlServlet = servletContextHandler.addServlet(ServletContainer.class, "/graphQL/*");
         graphqlServlet.setInitOrder(2);
+        graphqlServlet.setAsyncSupported(true);
         graphqlServlet.setInitParameter("jersey.config.server.provider.packages",
                 com.yahoo.elide.graphql.GraphQLEndpoint.class.getPackage().getName());
         graphqlServlet.setInitParameter("javax.ws.rs.Application", resourceConfig);
@@ -265,6 +265,36 @@ public class GraphQLIT extends IntegrationTest {
         runQueryWithExpectedResult(graphQLRequest, expected);
     }
 
+    @Test
+    public void fetchNestedPageTotals() throws IOException {
+        // create a second book
+        createWithVariables();
+
+        String graphQLRequest = "{ book { edges { node { id authors { edges { node { id } } "
+                + "pageInfo { totalRecords } } } } } }";
+
+        String expected = "{\"data\":{\"book\":{\"edges\":["
+                + "{\"node\":{\"id\":\"1\",\"authors\":{\"edges\":[{\"node\":{\"id\":\"1\"}}],"
+                + "\"pageInfo\":{\"totalRecords\":1}}}},"
+                + "{\"node\":{\"id\":\"2\",\"authors\":{\"edges\":[{\"node\":{\"id\":\"2\"}}],"
+                + "\"pageInfo\":{\"totalRecords\":1}}}}]}}}";
+
+        runQueryWithExpectedResult(graphQLRequest, expected);
+    }
+
+    @Test
+    public void fetchHasNextPage() throws IOException {
+        // create a second book
+        createWithVariables();
+
+        String graphQLRequest = "{ book(first: \"1\") { edges { node { id } } pageInfo { hasNextPage endCursor } } }";
+
+        String expected = "{\"data\":{\"book\":{\"edges\":[{\"node\":{\"id\":\"1\"}}],"
+                + "\"pageInfo\":{\"hasNextPage\":true,\"endCursor\":\"1\"}}}}";
+
+        runQueryWithExpectedResult(graphQLRequest, expected);
+    }
+
     @Test
     public void testInvalidFetch() throws IOException {
         Book book = new Book();
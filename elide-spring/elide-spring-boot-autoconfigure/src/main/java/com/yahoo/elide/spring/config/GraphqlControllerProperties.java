@@ -0,0 +1,23 @@
+/*
+ * Copyright 2020, Yahoo Inc.
+ * Licensed under the Apache License, Version 2.0
+ * See LICENSE file in project root for terms.
+ */
+package com.yahoo.elide.spring.config;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Extra controller properties for the GraphQL endpoint.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class GraphqlControllerProperties extends ControllerProperties {
+
+    /**
+     * Milliseconds a request may run before it fails with a timeout.  Requests wait as long as they run when
+     * negative.
+     */
+    private long requestTimeout = -1L;
+}
@@ -6,23 +6,31 @@
 package com.yahoo.elide.spring.controllers;
 
 import com.yahoo.elide.Elide;
-import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.ErrorObjects;
 import com.yahoo.elide.graphql.QueryRunner;
 import com.yahoo.elide.spring.config.ElideConfigProperties;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.concurrent.CompletionException;
 
 /**
  * Spring rest controller for Elide GraphQL.
@@ -36,26 +44,52 @@ import java.security.Principal;
 public class GraphqlController {
 
     private final QueryRunner runner;
+    private final long requestTimeout;
+    private final byte[] timeoutBody;
 
     private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final MediaType JSON_UTF_8 = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
 
     @Autowired
-    public GraphqlController(Elide elide) {
+    public GraphqlController(Elide elide, ElideConfigProperties settings) throws JsonProcessingException {
         log.debug("Started ~~");
         this.runner = new QueryRunner(elide);
+        this.requestTimeout = settings.getGraphql().getRequestTimeout();
+        this.timeoutBody = elide.getMapper().getObjectMapper().writeValueAsBytes(ErrorObjects.builder()
+                .addError()
+                .with("message", "Request timed out")
+                .build());
     }
 
     /**
      * Single entry point for GraphQL requests.
      *
+     * The request runs on the request executor of the Elide settings, when there is one, and the response is
+     * serialized straight to the servlet output stream.  Requests running longer than the configured request
+     * timeout fail with a 408 response holding a GraphQL error.
+     *
      * @param graphQLDocument post data as json document
      * @param user The user principal
-     * @return response
+     * @return The deferred response
      */
     @PostMapping(value = {"/**", ""}, consumes = JSON_CONTENT_TYPE, produces = JSON_CONTENT_TYPE)
-    public ResponseEntity<String> post(@RequestBody String graphQLDocument, Principal user) {
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> post(@RequestBody String graphQLDocument,
+                                                                      Principal user) {
+        StreamingResponseBody timeout = out -> out.write(timeoutBody);
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>(requestTimeout,
+                ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).contentType(JSON_UTF_8).body(timeout));
+
+        runner.runStreamingAsync(graphQLDocument, user).whenComplete((response, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                StreamingResponseBody body = response::writeTo;
+                result.setResult(ResponseEntity.status(response.getResponseCode())
+                        .contentType(JSON_UTF_8)
+                        .body(body));
+            }
+        });
 
-        ElideResponse response = runner.run(graphQLDocument, user);
-        return ResponseEntity.status(response.getResponseCode()).body(response.getBody());
+        return result;
     }
 }